@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.dataservices.core.DataServiceFactory;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Shared state of the engine benchmarks: an in-memory H2 database with a synthetic customers
+ * table, and the EngineBenchmarkService data service deployed on it. The data service is created
+ * the same way as the deployer does, so the queries have their deployment time state, such as the
+ * resolved param converters. The engine methods which are not public are called using reflection,
+ * where the lookup is done once in the setup, so only a reflective call is added to each
+ * invocation.
+ */
+@State(Scope.Benchmark)
+public class EngineBenchmarkState {
+
+    public static final int CUSTOMER_COUNT = 10000;
+
+    private static final String DB_URL = "jdbc:h2:mem:dss-benchmark-db;DB_CLOSE_DELAY=-1";
+
+    private static final String DBS_RESOURCE = "/EngineBenchmarkService.dbs";
+
+    private static final String[] COUNTRIES = { "USA", "France", "Japan", "Australia", "Norway" };
+
+    private static final String[] CITIES = { "NYC", "Paris", "Tokyo", "Melbourne", "Oslo",
+            "Boston", "Lyon", "Osaka", "Sydney", "Bergen" };
+
+    private Connection keepAliveConnection;
+
+    private DataService dataService;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        File carbonHome = new File(System.getProperty("java.io.tmpdir"), "dss-benchmark-carbon-home");
+        carbonHome.mkdirs();
+        System.setProperty("carbon.home", carbonHome.getAbsolutePath());
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(
+                MultitenantConstants.SUPER_TENANT_ID, true);
+        Class.forName("org.h2.Driver");
+        /* the in-memory database lives as long as this connection is open */
+        this.keepAliveConnection = DriverManager.getConnection(DB_URL);
+        this.createCustomers(this.keepAliveConnection);
+        InputStream in = EngineBenchmarkState.class.getResourceAsStream(DBS_RESOURCE);
+        try {
+            OMElement dbsElement = AXIOMUtil.stringToOM(IOUtils.toString(in, "UTF-8"));
+            this.dataService = DataServiceFactory.createDataService(dbsElement, DBS_RESOURCE);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void createCustomers(Connection conn) throws Exception {
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.execute("DROP TABLE IF EXISTS Customers");
+            stmt.execute("CREATE TABLE Customers (customerNumber INTEGER PRIMARY KEY, " +
+                    "customerName VARCHAR(50), city VARCHAR(50), country VARCHAR(50), " +
+                    "creditLimit DOUBLE, lastOrderDate TIMESTAMP, active BOOLEAN)");
+        } finally {
+            stmt.close();
+        }
+        PreparedStatement insert = conn.prepareStatement("INSERT INTO Customers VALUES (?, ?, ?, ?, ?, ?, ?)");
+        try {
+            long baseTime = 1451606400000L;
+            for (int i = 0; i < CUSTOMER_COUNT; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "Customer & Sons " + i);
+                insert.setString(3, CITIES[i % CITIES.length]);
+                insert.setString(4, COUNTRIES[i % COUNTRIES.length]);
+                insert.setDouble(5, (i * 37) % 100000 + 0.5);
+                insert.setTimestamp(6, new Timestamp(baseTime + i * 3600000L));
+                insert.setBoolean(7, i % 3 != 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            insert.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            if (this.dataService != null) {
+                this.dataService.cleanup();
+            }
+            this.keepAliveConnection.close();
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    public DataService getDataService() {
+        return dataService;
+    }
+
+    /**
+     * Opens a connection to the benchmark database, outside of the data service connection pool.
+     */
+    public Connection openConnection() throws Exception {
+        return DriverManager.getConnection(DB_URL);
+    }
+
+    /**
+     * Looks up a method which is not public, to be called using {@link #invoke(Method, Object, Object...)}.
+     */
+    public static Method getMethod(Class<?> clazz, String name, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        Method method = clazz.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return method;
+    }
+
+    /**
+     * Calls the given method, and rethrows the exception thrown by the method itself.
+     */
+    public static Object invoke(Method method, Object target, Object... args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
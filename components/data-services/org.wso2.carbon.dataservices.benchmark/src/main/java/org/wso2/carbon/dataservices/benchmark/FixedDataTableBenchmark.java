@@ -0,0 +1,90 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.sql.driver.parser.Constants;
+import org.wso2.carbon.dataservices.sql.driver.processor.reader.DataCell;
+import org.wso2.carbon.dataservices.sql.driver.processor.reader.DataRow;
+import org.wso2.carbon.dataservices.sql.driver.processor.reader.FixedDataTable;
+import org.wso2.carbon.dataservices.sql.driver.query.ColumnInfo;
+
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks FixedDataTable.applyCondition, which evaluates the WHERE conditions of the queries
+ * against Excel and Google Spreadsheet data sources, over a synthetic table of 10000 rows, with
+ * the cell values as read by the spreadsheet data readers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FixedDataTableBenchmark {
+
+    private static final int ROW_COUNT = 10000;
+
+    private static final String[] CITIES = { "NYC", "Paris", "Tokyo", "Melbourne", "Oslo",
+            "Boston", "Lyon", "Osaka", "Sydney", "Bergen" };
+
+    private FixedDataTable table;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ColumnInfo[] headers = new ColumnInfo[] {
+                new ColumnInfo(1, "customerNumber", "Customers", Types.INTEGER, 1),
+                new ColumnInfo(2, "customerName", "Customers", Types.VARCHAR, 2),
+                new ColumnInfo(3, "city", "Customers", Types.VARCHAR, 3),
+                new ColumnInfo(4, "creditLimit", "Customers", Types.DOUBLE, 4) };
+        this.table = new FixedDataTable("Customers", headers);
+        for (int i = 1; i <= ROW_COUNT; i++) {
+            DataRow row = new DataRow(i);
+            row.addCell(1, new DataCell(1, Types.INTEGER, String.valueOf(i)));
+            row.addCell(2, new DataCell(2, Types.VARCHAR, "Customer " + i));
+            row.addCell(3, new DataCell(3, Types.VARCHAR, CITIES[i % CITIES.length]));
+            row.addCell(4, new DataCell(4, Types.DOUBLE, String.valueOf((i * 37) % 100000 + 0.5)));
+            this.table.addRow(row);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, DataRow> applyEqualCondition() throws Exception {
+        return this.table.applyCondition("city", "Oslo", Constants.EQUAL);
+    }
+
+    @Benchmark
+    public Map<Integer, DataRow> applyGreaterThanCondition() throws Exception {
+        return this.table.applyCondition("creditLimit", "50000", Constants.GREATER_THAN);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the allocation rate and the bytes allocated
+ * per operation to the results. The optional argument is the regular expression of the benchmarks
+ * to run, all the data services benchmarks are run by default, e.g.
+ * <pre>
+ * java -cp target/benchmarks.jar org.wso2.carbon.dataservices.benchmark.GCProfiledBenchmarkRunner SQLQueryBenchmark
+ * </pre>
+ */
+public class GCProfiledBenchmarkRunner {
+
+    private static final String DEFAULT_INCLUDE = "org\\.wso2\\.carbon\\.dataservices\\.benchmark\\..*";
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : DEFAULT_INCLUDE)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.apache.axiom.util.base64.Base64Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.core.auth.JWTTokenCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of verifying a JWT token on every request, as done by JWTAuthorizationProvider,
+ * with a lookup in the verified token cache. The uncached path covers decoding, SHA256withRSA signature
+ * verification and claim extraction; the keystore and certificate lookups, which need a running Carbon
+ * server, are excluded, so the actual saving is higher than measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JWTVerificationBenchmark {
+
+    private static final String END_USER_CLAIM = "http://wso2.org/claims/enduser";
+
+    private static final String CLAIM_VALUE_SEPARATOR = "\":\"";
+
+    private static final int TENANT_ID = -1234;
+
+    private PublicKey publicKey;
+
+    private String jwt;
+
+    private JWTTokenCache tokenCache;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = keyPair.getPublic();
+        long expiry = System.currentTimeMillis() / 1000 + 3600;
+        String header = Base64Utils.encode("{\"typ\":\"JWT\",\"alg\":\"SHA256withRSA\",\"x5t\":\"thumb\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        String body = Base64Utils.encode(("{\"iss\":\"wso2.org/products/am\",\"exp\":" + expiry + ",\""
+                + END_USER_CLAIM + "\":\"admin@carbon.super\"}").getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update((header + "." + body).getBytes());
+        this.jwt = header + "." + body + "." + Base64Utils.encode(signature.sign());
+        this.tokenCache = new JWTTokenCache(JWTTokenCache.DEFAULT_CACHE_SIZE,
+                JWTTokenCache.DEFAULT_MAX_AGE_MILLIS);
+        this.tokenCache.put(this.tokenCache.generateKey(TENANT_ID, this.jwt), this.verifyAndExtract(),
+                expiry * 1000);
+    }
+
+    private String verifyAndExtract() throws Exception {
+        String[] segments = this.jwt.split("\\.");
+        /* the provider decodes the header to find the certificate thumbprint */
+        new String(Base64Utils.decode(segments[0]));
+        Signature verifySig = Signature.getInstance("SHA256withRSA");
+        verifySig.initVerify(this.publicKey);
+        verifySig.update((segments[0] + "." + segments[1]).getBytes());
+        if (!verifySig.verify(Base64Utils.decode(segments[2]))) {
+            throw new IllegalStateException("Signature validation failed");
+        }
+        String body = new String(Base64Utils.decode(segments[1]), StandardCharsets.UTF_8);
+        return body.split(END_USER_CLAIM + CLAIM_VALUE_SEPARATOR)[1].split("\"")[0];
+    }
+
+    @Benchmark
+    public String verifyWithoutCache() throws Exception {
+        return this.verifyAndExtract();
+    }
+
+    @Benchmark
+    public String verifyWithCache() {
+        /* the provider hashes the token once per request, to look it up */
+        String key = this.tokenCache.generateKey(TENANT_ID, this.jwt);
+        return this.tokenCache.get(key).getUsername();
+    }
+
+}
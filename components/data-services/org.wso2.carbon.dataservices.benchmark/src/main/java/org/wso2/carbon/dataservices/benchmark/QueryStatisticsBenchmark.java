@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost Query.execute pays for the query statistics of a single query execution with
+ * 10 result rows, i.e. both query phases, from several threads updating the same statistics. This is
+ * the fixed overhead added to each query execution, which is compared with the time of executing a
+ * query against an in-memory H2 database, the cheapest case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@Threads(4)
+public class QueryStatisticsBenchmark {
+
+    private static final int ROWS = 10;
+
+    private final QueryStatistics queryStats = new QueryStatistics("getCustomers", "customersQuery");
+
+    @Benchmark
+    public long recordExecution() {
+        QueryStatistics.setCurrentOperation("getCustomers");
+        this.queryStats.begin();
+        long startTime = System.nanoTime();
+        this.queryStats.recordPreQuery(System.nanoTime() - startTime);
+        this.queryStats.end(false);
+        this.queryStats.begin();
+        QueryStatistics.OutputCounter counter = QueryStatistics.getOutputCounter();
+        long rowsBefore = counter.getRows();
+        long charactersBefore = counter.getCharacters();
+        startTime = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            QueryStatistics.getOutputCounter().addRow();
+            QueryStatistics.getOutputCounter().addCharacters(20);
+        }
+        this.queryStats.recordPostQuery(System.nanoTime() - startTime, counter.getRows() - rowsBefore,
+                counter.getCharacters() - charactersBefore);
+        counter.setRows(rowsBefore);
+        this.queryStats.end(false);
+        QueryStatistics.setCurrentOperation(null);
+        return counter.getCharacters();
+    }
+
+}
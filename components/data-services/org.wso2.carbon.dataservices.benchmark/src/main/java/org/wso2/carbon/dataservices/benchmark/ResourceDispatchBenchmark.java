@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.core.dispatch.ResourceDispatchTrie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the dispatching of REST requests against 500 resource templates using the
+ * ResourceDispatchTrie, with scanning a table of the regular expressions of the templates, in
+ * the same reverse order as the HTTP location table of DBDeployer, until one matches. The
+ * templates are the typical ones of 100 entities, each with GET and POST on "entityN", and GET,
+ * PUT and DELETE on "entityN/{id}". Each invocation dispatches the next request of a fixed,
+ * random sequence of requests for all the templates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ResourceDispatchBenchmark {
+
+    private static final int ENTITY_COUNT = 100;
+
+    private static final int REQUEST_COUNT = 1024;
+
+    private ResourceDispatchTrie<String> trie;
+
+    private Map<Pattern, String> regexTable;
+
+    private String[] methods;
+
+    private String[] paths;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.trie = new ResourceDispatchTrie<String>();
+        this.regexTable = new TreeMap<Pattern, String>(new Comparator<Pattern>() {
+            @Override
+            public int compare(Pattern o1, Pattern o2) {
+                return -1 * o1.pattern().compareTo(o2.pattern());
+            }
+        });
+        List<String[]> templates = new ArrayList<String[]>();
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            String entity = "entity" + i;
+            templates.add(new String[] { "GET", entity });
+            templates.add(new String[] { "POST", entity });
+            templates.add(new String[] { "GET", entity + "/{id}" });
+            templates.add(new String[] { "PUT", entity + "/{id}" });
+            templates.add(new String[] { "DELETE", entity + "/{id}" });
+        }
+        for (String[] template : templates) {
+            String operationName = template[0] + "_" + template[1];
+            this.trie.add(template[0], template[1], operationName);
+            this.regexTable.put(createPattern(template[0], template[1]), operationName);
+        }
+        Random random = new Random(0);
+        this.methods = new String[REQUEST_COUNT];
+        this.paths = new String[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            String[] template = templates.get(random.nextInt(templates.size()));
+            this.methods[i] = template[0];
+            this.paths[i] = template[1].replace("{id}", String.valueOf(random.nextInt(100000)));
+            String expected = template[0] + "_" + template[1];
+            if (!expected.equals(this.matchTrie(i)) || !expected.equals(this.matchRegexTable(i))) {
+                throw new IllegalStateException("Request not dispatched to " + expected + ": " +
+                        this.methods[i] + " " + this.paths[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates the regular expression of a template, where the template variables match a path
+     * segment, prefixed with the HTTP method.
+     */
+    private static Pattern createPattern(String method, String template) {
+        StringBuilder regex = new StringBuilder(Pattern.quote(method));
+        int index = 0;
+        while (index < template.length()) {
+            int varStart = template.indexOf('{', index);
+            if (varStart == -1) {
+                regex.append(Pattern.quote(template.substring(index)));
+                break;
+            }
+            regex.append(Pattern.quote(template.substring(index, varStart)));
+            regex.append("[^/]+");
+            index = template.indexOf('}', varStart) + 1;
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private String matchTrie(int i) {
+        return this.trie.match(this.methods[i], this.paths[i]);
+    }
+
+    private String matchRegexTable(int i) {
+        String request = this.methods[i] + this.paths[i];
+        for (Map.Entry<Pattern, String> entry : this.regexTable.entrySet()) {
+            if (entry.getKey().matcher(request).matches()) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private int nextRequest() {
+        int i = this.next;
+        this.next = (i + 1) & (REQUEST_COUNT - 1);
+        return i;
+    }
+
+    @Benchmark
+    public String trieDispatch() {
+        return this.matchTrie(this.nextRequest());
+    }
+
+    @Benchmark
+    public String regexTableDispatch() {
+        return this.matchRegexTable(this.nextRequest());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.DBUtils;
+import org.wso2.carbon.dataservices.core.engine.ExternalParam;
+import org.wso2.carbon.dataservices.core.engine.ExternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.engine.XMLWriterHelper;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing a result row with XMLWriterHelper, with the typed values created when reading
+ * the row from a result set, to an XML stream writer discarding the output, and the evaluation of
+ * the parameterized strings, i.e. RDF resource URIs, with DBUtils.evaluateString. Run with the GC
+ * profiler, see {@link GCProfiledBenchmarkRunner}, to also get the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ResultOutputBenchmark {
+
+    private static final String NAMESPACE = "http://ws.wso2.org/dataservice/benchmark";
+
+    private static final String ROW_NAME = "Customer";
+
+    private static final String[] COLUMN_NAMES = { "customerNumber", "customerName", "city",
+            "creditLimit", "lastOrderDate", "active" };
+
+    private static final QName[] XSD_TYPES = { xsdType("integer"), xsdType("string"),
+            xsdType("string"), xsdType("double"), xsdType("dateTime"), xsdType("boolean") };
+
+    private static final String RESOURCE_URI = "http://www.customer.fake/customers/{customerNumber}";
+
+    private final XMLWriterHelper writerHelper = new XMLWriterHelper(NAMESPACE);
+
+    private XMLStreamWriter xmlWriter;
+
+    private ParamValue[] values;
+
+    private ExternalParamCollection params;
+
+    private static QName xsdType(String name) {
+        return new QName(DBConstants.XSD_NAMESPACE, name);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.xmlWriter = DBUtils.getXMLOutputFactory().createXMLStreamWriter(new NullOutputStream());
+        this.writerHelper.startWrapperElement(this.xmlWriter, NAMESPACE, "Customers",
+                DBConstants.ResultTypes.XML);
+        this.values = new ParamValue[] { ParamValue.createLongValue(103),
+                new ParamValue("Atelier graphique & Sons"), new ParamValue("Nantes"),
+                ParamValue.createDoubleValue(21000.5), ParamValue.createTimestampValue(1451606400000L),
+                ParamValue.createBooleanValue(true) };
+        this.params = new ExternalParamCollection();
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            this.params.addParam(new ExternalParam(COLUMN_NAMES[i].toLowerCase(), this.values[i],
+                    DBConstants.DBSFields.COLUMN));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.xmlWriter.close();
+    }
+
+    @Benchmark
+    public XMLStreamWriter writeRow() throws Exception {
+        this.writerHelper.startRowElement(this.xmlWriter, ROW_NAME, DBConstants.ResultTypes.XML,
+                null, this.params);
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            this.writerHelper.writeResultElement(this.xmlWriter, COLUMN_NAMES[i], this.values[i],
+                    XSD_TYPES[i], DBConstants.DataCategory.VALUE, DBConstants.ResultTypes.XML,
+                    this.params);
+        }
+        this.writerHelper.endElement(this.xmlWriter);
+        return this.xmlWriter;
+    }
+
+    @Benchmark
+    public String evaluateString() throws Exception {
+        return DBUtils.evaluateString(RESOURCE_URI, this.params);
+    }
+
+}
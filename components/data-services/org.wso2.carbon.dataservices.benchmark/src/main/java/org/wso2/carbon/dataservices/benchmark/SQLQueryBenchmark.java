@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.dataservices.core.description.query.ExpressionQuery;
+import org.wso2.carbon.dataservices.core.description.query.Query;
+import org.wso2.carbon.dataservices.core.description.query.SQLQuery;
+import org.wso2.carbon.dataservices.core.engine.DataEntry;
+import org.wso2.carbon.dataservices.core.engine.ExternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.InternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.engine.ResultSetWrapper;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per row and per execution steps of SQLQuery, against the in-memory H2 database
+ * of {@link EngineBenchmarkState}: reading a row into a DataEntry, creating the external params a
+ * row is written with, creating and binding the prepared statement of a query, and rewriting a
+ * query with array params. Run with the GC profiler, see {@link GCProfiledBenchmarkRunner}, to
+ * also get the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SQLQueryBenchmark {
+
+    /* the columns of the selectCustomers query, the rows are read repeatedly by scrolling back */
+    private static final String ROWS_SQL = "SELECT customerNumber, customerName, city, creditLimit, " +
+            "lastOrderDate, active FROM Customers";
+
+    private SQLQuery selectQuery;
+
+    private SQLQuery arrayQuery;
+
+    private InternalParamCollection selectParams;
+
+    private InternalParamCollection arrayParams;
+
+    private Method getDataEntryFromRS;
+
+    private Method createExternalParamCollection;
+
+    private Method createProcessedPreparedStatement;
+
+    private Method processDynamicQuery;
+
+    private Method createProcessedQuery;
+
+    private Connection conn;
+
+    private PreparedStatement rowStmt;
+
+    private ResultSet rows;
+
+    private DataEntry dataEntry;
+
+    @Setup(Level.Trial)
+    public void setup(EngineBenchmarkState state) throws Throwable {
+        this.selectQuery = (SQLQuery) state.getDataService().getQuery("selectCustomers");
+        this.arrayQuery = (SQLQuery) state.getDataService().getQuery("selectCustomersByCities");
+        this.getDataEntryFromRS = EngineBenchmarkState.getMethod(SQLQuery.class, "getDataEntryFromRS",
+                ResultSet.class, boolean.class);
+        this.createExternalParamCollection = EngineBenchmarkState.getMethod(Query.class,
+                "createExternalParamCollection", DataEntry.class, InternalParamCollection.class);
+        this.createProcessedPreparedStatement = EngineBenchmarkState.getMethod(SQLQuery.class,
+                "createProcessedPreparedStatement", int.class, InternalParamCollection.class,
+                Connection.class);
+        this.processDynamicQuery = EngineBenchmarkState.getMethod(ExpressionQuery.class,
+                "processDynamicQuery", String.class, InternalParamCollection.class);
+        this.createProcessedQuery = EngineBenchmarkState.getMethod(ExpressionQuery.class,
+                "createProcessedQuery", String.class, InternalParamCollection.class, int.class);
+        Method extractParams = EngineBenchmarkState.getMethod(Query.class, "extractParams", Map.class);
+
+        Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+        params.put("creditLimit", new ParamValue("50000"));
+        params.put("country", new ParamValue("USA"));
+        this.selectParams = (InternalParamCollection) EngineBenchmarkState.invoke(extractParams,
+                this.selectQuery, params);
+        ParamValue cities = new ParamValue(ParamValue.PARAM_VALUE_ARRAY);
+        cities.addToArrayValue(new ParamValue("NYC"));
+        cities.addToArrayValue(new ParamValue("Boston"));
+        cities.addToArrayValue(new ParamValue("Paris"));
+        cities.addToArrayValue(new ParamValue("Oslo"));
+        params.put("cities", cities);
+        this.arrayParams = (InternalParamCollection) EngineBenchmarkState.invoke(extractParams,
+                this.arrayQuery, params);
+
+        this.conn = state.openConnection();
+        this.rowStmt = this.conn.prepareStatement(ROWS_SQL, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                ResultSet.CONCUR_READ_ONLY);
+        this.rows = this.rowStmt.executeQuery();
+        this.dataEntry = this.nextDataEntry();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.rows.close();
+        this.rowStmt.close();
+        this.conn.close();
+    }
+
+    private DataEntry nextDataEntry() throws Throwable {
+        if (!this.rows.next()) {
+            this.rows.beforeFirst();
+            this.rows.next();
+        }
+        return (DataEntry) EngineBenchmarkState.invoke(this.getDataEntryFromRS, this.selectQuery,
+                new ResultSetWrapper(this.rows), true);
+    }
+
+    @Benchmark
+    public DataEntry getDataEntryFromRS() throws Throwable {
+        return this.nextDataEntry();
+    }
+
+    @Benchmark
+    public ExternalParamCollection createExternalParamCollection() throws Throwable {
+        return (ExternalParamCollection) EngineBenchmarkState.invoke(this.createExternalParamCollection,
+                this.selectQuery, this.dataEntry, this.selectParams);
+    }
+
+    @Benchmark
+    public PreparedStatement createProcessedPreparedStatement() throws Throwable {
+        PreparedStatement stmt = (PreparedStatement) EngineBenchmarkState.invoke(
+                this.createProcessedPreparedStatement, this.selectQuery,
+                SQLQuery.DS_QUERY_TYPE_NORMAL, this.selectParams, this.conn);
+        stmt.close();
+        return stmt;
+    }
+
+    @Benchmark
+    public String rewriteArrayQuery() throws Throwable {
+        Object[] result = (Object[]) EngineBenchmarkState.invoke(this.processDynamicQuery,
+                this.arrayQuery, this.arrayQuery.getQuery(), this.arrayParams);
+        return (String) EngineBenchmarkState.invoke(this.createProcessedQuery, this.arrayQuery,
+                result[0], this.arrayParams, result[1]);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The throughput harness configuration, which is read from system properties:
+ * <ul>
+ * <li>dss.harness.threads - the number of concurrent clients, 8 by default</li>
+ * <li>dss.harness.warmup - the warm-up time in seconds, which is not measured, 10 by default</li>
+ * <li>dss.harness.duration - the measured time in seconds, 30 by default</li>
+ * <li>dss.harness.customers - the number of customers in the database, 10000 by default</li>
+ * <li>dss.harness.payload.rows - the number of rows in a read response, 100 by default</li>
+ * <li>dss.harness.batch.size - the number of parameter sets in a batch request, 10 by default</li>
+ * <li>dss.harness.mix - the scenarios to run with their relative weights, as a comma separated
+ * list of name:weight pairs, all the scenarios with the same weight by default</li>
+ * </ul>
+ */
+public class HarnessConfig {
+
+    private static final String PREFIX = "dss.harness.";
+
+    private final int threadCount;
+
+    private final int warmupSeconds;
+
+    private final int durationSeconds;
+
+    private final int customerCount;
+
+    private final int payloadRows;
+
+    private final int batchSize;
+
+    private final Map<String, Integer> mix;
+
+    public HarnessConfig(int threadCount, int warmupSeconds, int durationSeconds, int customerCount,
+                         int payloadRows, int batchSize, Map<String, Integer> mix) {
+        if (threadCount < 1 || durationSeconds < 1 || payloadRows < 1 || batchSize < 1 ||
+                customerCount < payloadRows) {
+            throw new IllegalArgumentException("Invalid harness configuration: threads=" + threadCount +
+                    ", duration=" + durationSeconds + ", payloadRows=" + payloadRows + ", batchSize=" +
+                    batchSize + ", customers=" + customerCount);
+        }
+        this.threadCount = threadCount;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.customerCount = customerCount;
+        this.payloadRows = payloadRows;
+        this.batchSize = batchSize;
+        this.mix = mix;
+    }
+
+    /**
+     * Creates the configuration from the system properties.
+     */
+    public static HarnessConfig fromSystemProperties() {
+        return new HarnessConfig(Integer.getInteger(PREFIX + "threads", 8),
+                Integer.getInteger(PREFIX + "warmup", 10),
+                Integer.getInteger(PREFIX + "duration", 30),
+                Integer.getInteger(PREFIX + "customers", 10000),
+                Integer.getInteger(PREFIX + "payload.rows", 100),
+                Integer.getInteger(PREFIX + "batch.size", 10),
+                parseMix(System.getProperty(PREFIX + "mix")));
+    }
+
+    /**
+     * Parses a scenario mix, e.g. "select:5,nested:2,batch:1".
+     *
+     * @return The scenario weights by the scenario names, in the given order, or null if not given
+     */
+    public static Map<String, Integer> parseMix(String value) {
+        if (value == null || value.trim().length() == 0) {
+            return null;
+        }
+        Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+        for (String entry : value.split(",")) {
+            String[] pair = entry.trim().split(":");
+            try {
+                int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+                if (weight < 0) {
+                    throw new NumberFormatException();
+                }
+                result.put(pair[0].trim(), weight);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid scenario weight: " + entry);
+            }
+        }
+        return result;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getCustomerCount() {
+        return customerCount;
+    }
+
+    public int getPayloadRows() {
+        return payloadRows;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + this.getThreadCount() + ", warmup(s)=" + this.getWarmupSeconds() +
+                ", duration(s)=" + this.getDurationSeconds() + ", customers=" + this.getCustomerCount() +
+                ", payloadRows=" + this.getPayloadRows() + ", batchSize=" + this.getBatchSize() +
+                ", mix=" + (this.getMix() == null ? "all" : this.getMix());
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.dataservices.core.DataServiceFactory;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * The fixtures of the throughput harness: an in-memory H2 database with synthetic customers and
+ * orders, CSV and Excel files with synthetic customers, and the ThroughputHarnessService data
+ * service deployed on them. The file data sources and the products table, which is read using
+ * OData, are as large as a read response, since these are read fully by each request.
+ */
+public class HarnessFixtures {
+
+    public static final int ORDERS_PER_CUSTOMER = 5;
+
+    public static final int ORDER_NOTE_KEY_COUNT = 10000;
+
+    private static final String DB_URL = "jdbc:h2:mem:dss-harness-db;DB_CLOSE_DELAY=-1";
+
+    private static final String DBS_RESOURCE = "/ThroughputHarnessService.dbs";
+
+    private static final String ODATA_CONFIG_ID = "default";
+
+    private static final String ODATA_TABLE_NAME = "PRODUCTS";
+
+    private static final String[] COUNTRIES = { "USA", "France", "Japan", "Australia", "Norway" };
+
+    private static final String[] CITIES = { "NYC", "Paris", "Tokyo", "Melbourne", "Oslo",
+            "Boston", "Lyon", "Osaka", "Sydney", "Bergen" };
+
+    private final HarnessConfig config;
+
+    private File workDir;
+
+    private Connection keepAliveConnection;
+
+    private DataService dataService;
+
+    private ODataDataHandler oDataHandler;
+
+    public HarnessFixtures(HarnessConfig config) {
+        this.config = config;
+    }
+
+    public void setup() throws Exception {
+        this.workDir = new File(System.getProperty("java.io.tmpdir"), "dss-harness");
+        File carbonHome = new File(this.workDir, "carbon-home");
+        carbonHome.mkdirs();
+        System.setProperty("carbon.home", carbonHome.getAbsolutePath());
+        startTenantFlow();
+        Class.forName("org.h2.Driver");
+        /* the in-memory database lives as long as this connection is open */
+        this.keepAliveConnection = DriverManager.getConnection(DB_URL);
+        this.createTables(this.keepAliveConnection);
+        File csvFile = new File(this.workDir, "customers.csv");
+        this.createCSVFile(csvFile);
+        File excelFile = new File(this.workDir, "customers.xls");
+        this.createExcelFile(excelFile);
+        InputStream in = HarnessFixtures.class.getResourceAsStream(DBS_RESOURCE);
+        try {
+            String dbs = IOUtils.toString(in, "UTF-8")
+                    .replace("@MAX_POOL_SIZE@", String.valueOf(this.config.getThreadCount() + 2))
+                    .replace("@CSV_FILE@", csvFile.getAbsolutePath())
+                    .replace("@EXCEL_FILE@", excelFile.getAbsolutePath());
+            this.dataService = DataServiceFactory.createDataService(AXIOMUtil.stringToOM(dbs),
+                    DBS_RESOURCE);
+        } finally {
+            in.close();
+        }
+        this.oDataHandler = this.dataService.getConfig(ODATA_CONFIG_ID).createODataHandler();
+    }
+
+    /**
+     * Starts a super tenant flow in the current thread, each thread running requests must have one.
+     */
+    public static void startTenantFlow() {
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(
+                MultitenantConstants.SUPER_TENANT_ID, true);
+    }
+
+    private void createTables(Connection conn) throws Exception {
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.execute("DROP TABLE IF EXISTS Customers");
+            stmt.execute("DROP TABLE IF EXISTS Orders");
+            stmt.execute("DROP TABLE IF EXISTS OrderNotes");
+            stmt.execute("DROP TABLE IF EXISTS Products");
+            stmt.execute("CREATE TABLE Customers (customerNumber INTEGER PRIMARY KEY, " +
+                    "customerName VARCHAR(50), city VARCHAR(50), country VARCHAR(50), " +
+                    "creditLimit DOUBLE, lastOrderDate TIMESTAMP)");
+            stmt.execute("CREATE TABLE Orders (orderNumber INTEGER PRIMARY KEY, " +
+                    "customerNumber INTEGER, orderDate TIMESTAMP, status VARCHAR(15), amount DOUBLE)");
+            stmt.execute("CREATE INDEX OrdersCustomerIndex ON Orders (customerNumber)");
+            stmt.execute("CREATE TABLE OrderNotes (noteId INTEGER PRIMARY KEY, " +
+                    "customerNumber INTEGER, note VARCHAR(200))");
+            stmt.execute("CREATE TABLE Products (productCode INTEGER PRIMARY KEY, " +
+                    "productName VARCHAR(70), productLine VARCHAR(50), quantityInStock INTEGER, " +
+                    "buyPrice DOUBLE)");
+        } finally {
+            stmt.close();
+        }
+        long baseTime = 1451606400000L;
+        PreparedStatement insert = conn.prepareStatement("INSERT INTO Customers VALUES (?, ?, ?, ?, ?, ?)");
+        try {
+            for (int i = 0; i < this.config.getCustomerCount(); i++) {
+                insert.setInt(1, i);
+                insert.setString(2, customerName(i));
+                insert.setString(3, CITIES[i % CITIES.length]);
+                insert.setString(4, COUNTRIES[i % COUNTRIES.length]);
+                insert.setDouble(5, creditLimit(i));
+                insert.setTimestamp(6, new Timestamp(baseTime + i * 3600000L));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            insert.close();
+        }
+        insert = conn.prepareStatement("INSERT INTO Orders VALUES (?, ?, ?, ?, ?)");
+        try {
+            int orderCount = this.config.getCustomerCount() * ORDERS_PER_CUSTOMER;
+            for (int i = 0; i < orderCount; i++) {
+                insert.setInt(1, i);
+                insert.setInt(2, i / ORDERS_PER_CUSTOMER);
+                insert.setTimestamp(3, new Timestamp(baseTime + i * 600000L));
+                insert.setString(4, i % 7 == 0 ? "Cancelled" : "Shipped");
+                insert.setDouble(5, (i * 13) % 5000 + 0.25);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            insert.close();
+        }
+        insert = conn.prepareStatement("INSERT INTO Products VALUES (?, ?, ?, ?, ?)");
+        try {
+            for (int i = 0; i < this.config.getPayloadRows(); i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "Product " + i);
+                insert.setString(3, "Line " + (i % 7));
+                insert.setInt(4, (i * 31) % 10000);
+                insert.setDouble(5, (i * 17) % 1000 + 0.99);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            insert.close();
+        }
+    }
+
+    private void createCSVFile(File file) throws Exception {
+        PrintWriter writer = new PrintWriter(file, "UTF-8");
+        try {
+            writer.println("customerNumber,customerName,city,country,creditLimit");
+            for (int i = 0; i < this.config.getPayloadRows(); i++) {
+                writer.println(i + "," + customerName(i) + "," + CITIES[i % CITIES.length] + "," +
+                        COUNTRIES[i % COUNTRIES.length] + "," + creditLimit(i));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void createExcelFile(File file) throws Exception {
+        Workbook workbook = new HSSFWorkbook();
+        Sheet sheet = workbook.createSheet("Customers");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("customerNumber");
+        header.createCell(1).setCellValue("customerName");
+        header.createCell(2).setCellValue("city");
+        header.createCell(3).setCellValue("country");
+        header.createCell(4).setCellValue("creditLimit");
+        for (int i = 0; i < this.config.getPayloadRows(); i++) {
+            Row row = sheet.createRow(i + 1);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue(customerName(i));
+            row.createCell(2).setCellValue(CITIES[i % CITIES.length]);
+            row.createCell(3).setCellValue(COUNTRIES[i % COUNTRIES.length]);
+            row.createCell(4).setCellValue(creditLimit(i));
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            workbook.write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String customerName(int i) {
+        return "Customer " + i;
+    }
+
+    private static double creditLimit(int i) {
+        return (i * 37) % 100000 + 0.5;
+    }
+
+    public void tearDown() throws Exception {
+        try {
+            if (this.dataService != null) {
+                this.dataService.cleanup();
+            }
+            if (this.keepAliveConnection != null) {
+                this.keepAliveConnection.close();
+            }
+            FileUtils.deleteQuietly(this.workDir);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    public DataService getDataService() {
+        return dataService;
+    }
+
+    public ODataDataHandler getODataHandler() {
+        return oDataHandler;
+    }
+
+    public String getODataTableName() {
+        return ODATA_TABLE_NAME;
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import java.util.Random;
+
+/**
+ * A request type run by the throughput harness. The scenarios are run concurrently from several
+ * threads, so an implementation must be thread safe.
+ */
+public interface Scenario {
+
+    /**
+     * Returns the scenario name, which is used in the scenario mix and in the report.
+     */
+    String getName();
+
+    /**
+     * Runs a single request, including writing its result.
+     *
+     * @param random The random number generator of the current thread, to choose request parameters
+     * @return The size of the written result in bytes, 0 if there is no result, or it is not serialized
+     * @throws Exception If the request fails
+     */
+    long execute(Random random) throws Exception;
+
+}
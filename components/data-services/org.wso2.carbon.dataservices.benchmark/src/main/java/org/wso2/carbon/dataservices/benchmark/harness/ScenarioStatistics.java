@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import org.wso2.carbon.dataservices.core.stats.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The measured statistics of a scenario, the latencies are recorded in microseconds.
+ */
+public class ScenarioStatistics {
+
+    private final String scenarioName;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final AtomicLong resultBytes = new AtomicLong();
+
+    public ScenarioStatistics(String scenarioName) {
+        this.scenarioName = scenarioName;
+    }
+
+    public String getScenarioName() {
+        return scenarioName;
+    }
+
+    public void recordSuccess(long nanos, long bytes) {
+        this.latency.record(nanos / 1000);
+        this.resultBytes.addAndGet(bytes);
+    }
+
+    public void recordError(long nanos) {
+        this.latency.record(nanos / 1000);
+        this.errorCount.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequestCount() {
+        return latency.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getResultBytes() {
+        return resultBytes.get();
+    }
+
+}
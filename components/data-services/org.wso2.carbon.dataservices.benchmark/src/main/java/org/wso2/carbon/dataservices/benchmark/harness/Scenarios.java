@@ -0,0 +1,299 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.dispatch.RequestBoxRequest;
+import org.wso2.carbon.dataservices.core.dispatch.SingleDataServiceRequest;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
+import org.wso2.carbon.dataservices.core.tools.DSTools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The scenarios of the throughput harness. The requests are dispatched the same way as the requests
+ * coming in from the transports, after the request message is parsed, and their results are written
+ * to a stream discarding the output, since the results are streamed, and the queries are executed
+ * while the results are written.
+ */
+public class Scenarios {
+
+    public static final String SELECT = "select";
+
+    public static final String NESTED = "nested";
+
+    public static final String BATCH = "batch";
+
+    public static final String REQUEST_BOX = "requestBox";
+
+    public static final String CSV = "csv";
+
+    public static final String EXCEL = "excel";
+
+    public static final String ODATA = "odata";
+
+    private Scenarios() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Creates all the scenarios, in the order they are reported.
+     */
+    public static Map<String, Scenario> createScenarios(HarnessFixtures fixtures, HarnessConfig config) {
+        Map<String, Scenario> scenarios = new LinkedHashMap<String, Scenario>();
+        addScenario(scenarios, new SelectScenario(fixtures.getDataService(), config));
+        addScenario(scenarios, new NestedQueryScenario(fixtures.getDataService(), config));
+        addScenario(scenarios, new BatchScenario(fixtures.getDataService(), config));
+        addScenario(scenarios, new RequestBoxScenario(fixtures.getDataService(), config));
+        addScenario(scenarios, new OperationScenario(CSV, fixtures.getDataService(), "getCSVCustomers"));
+        addScenario(scenarios, new OperationScenario(EXCEL, fixtures.getDataService(), "getExcelCustomers"));
+        addScenario(scenarios, new ODataReadScenario(fixtures.getODataHandler(),
+                fixtures.getODataTableName()));
+        return scenarios;
+    }
+
+    private static void addScenario(Map<String, Scenario> scenarios, Scenario scenario) {
+        scenarios.put(scenario.getName(), scenario);
+    }
+
+    /**
+     * Writes the given result, and returns its size in bytes.
+     */
+    private static long writeResult(OMElement result) throws Exception {
+        if (result == null) {
+            return 0;
+        }
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        result.serializeAndConsume(out);
+        return out.getByteCount();
+    }
+
+    private static Map<String, ParamValue> createRangeParams(Random random, HarnessConfig config,
+                                                             int count) {
+        Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+        int startNumber = random.nextInt(config.getCustomerCount() - count + 1);
+        params.put("startNumber", new ParamValue(String.valueOf(startNumber)));
+        params.put("count", new ParamValue(String.valueOf(count)));
+        return params;
+    }
+
+    private static Map<String, ParamValue> createOrderNoteParams(Random random, HarnessConfig config) {
+        Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+        int customerNumber = random.nextInt(config.getCustomerCount());
+        params.put("noteId", new ParamValue(String.valueOf(random.nextInt(
+                HarnessFixtures.ORDER_NOTE_KEY_COUNT))));
+        params.put("customerNumber", new ParamValue(String.valueOf(customerNumber)));
+        params.put("note", new ParamValue("Call customer " + customerNumber + " about the last order"));
+        return params;
+    }
+
+    /**
+     * Reads a range of customers with a single query.
+     */
+    private static class SelectScenario implements Scenario {
+
+        private final DataService dataService;
+
+        private final HarnessConfig config;
+
+        public SelectScenario(DataService dataService, HarnessConfig config) {
+            this.dataService = dataService;
+            this.config = config;
+        }
+
+        @Override
+        public String getName() {
+            return SELECT;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            return writeResult(DSTools.invokeOperation(this.dataService, "getCustomers",
+                    createRangeParams(random, this.config, this.config.getPayloadRows())));
+        }
+
+    }
+
+    /**
+     * Reads a range of customers with their orders, where the orders of each customer are read by
+     * a nested query, so the result has about as many rows as the payload size.
+     */
+    private static class NestedQueryScenario implements Scenario {
+
+        private final DataService dataService;
+
+        private final HarnessConfig config;
+
+        private final int customerCount;
+
+        public NestedQueryScenario(DataService dataService, HarnessConfig config) {
+            this.dataService = dataService;
+            this.config = config;
+            this.customerCount = Math.max(1, config.getPayloadRows() /
+                    (HarnessFixtures.ORDERS_PER_CUSTOMER + 1));
+        }
+
+        @Override
+        public String getName() {
+            return NESTED;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            return writeResult(DSTools.invokeOperation(this.dataService, "getCustomersWithOrders",
+                    createRangeParams(random, this.config, this.customerCount)));
+        }
+
+    }
+
+    /**
+     * Writes order notes with a batch request, in a single transaction.
+     */
+    private static class BatchScenario implements Scenario {
+
+        private final DataService dataService;
+
+        private final HarnessConfig config;
+
+        public BatchScenario(DataService dataService, HarnessConfig config) {
+            this.dataService = dataService;
+            this.config = config;
+        }
+
+        @Override
+        public String getName() {
+            return BATCH;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            List<Map<String, ParamValue>> batchParams = new ArrayList<Map<String, ParamValue>>(
+                    this.config.getBatchSize());
+            for (int i = 0; i < this.config.getBatchSize(); i++) {
+                batchParams.add(createOrderNoteParams(random, this.config));
+            }
+            DSTools.invokeOperation(this.dataService, "addOrderNote", batchParams);
+            return 0;
+        }
+
+    }
+
+    /**
+     * Writes an order note and reads a range of customers in a single request box, i.e. a
+     * boxcarring request, in a single transaction, where only the result of the last request is
+     * returned.
+     */
+    private static class RequestBoxScenario implements Scenario {
+
+        private final DataService dataService;
+
+        private final HarnessConfig config;
+
+        public RequestBoxScenario(DataService dataService, HarnessConfig config) {
+            this.dataService = dataService;
+            this.config = config;
+        }
+
+        @Override
+        public String getName() {
+            return REQUEST_BOX;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            RequestBoxRequest request = new RequestBoxRequest(this.dataService,
+                    DBConstants.REQUEST_BOX_ELEMENT);
+            request.addRequests(new SingleDataServiceRequest(this.dataService, "addOrderNote",
+                    createOrderNoteParams(random, this.config)));
+            request.addRequests(new SingleDataServiceRequest(this.dataService, "getCustomers",
+                    createRangeParams(random, this.config, this.config.getPayloadRows())));
+            return writeResult(request.dispatch());
+        }
+
+    }
+
+    /**
+     * Calls an operation without parameters, i.e. reads a CSV or an Excel data source.
+     */
+    private static class OperationScenario implements Scenario {
+
+        private final String name;
+
+        private final DataService dataService;
+
+        private final String operationName;
+
+        public OperationScenario(String name, DataService dataService, String operationName) {
+            this.name = name;
+            this.dataService = dataService;
+            this.operationName = operationName;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            return writeResult(DSTools.invokeOperation(this.dataService, this.operationName,
+                    new HashMap<String, ParamValue>()));
+        }
+
+    }
+
+    /**
+     * Reads an entity set using the OData data handler of the RDBMS config. This covers reading the
+     * entities from the database, but not the OData protocol handling and serialization.
+     */
+    private static class ODataReadScenario implements Scenario {
+
+        private final ODataDataHandler dataHandler;
+
+        private final String tableName;
+
+        public ODataReadScenario(ODataDataHandler dataHandler, String tableName) {
+            this.dataHandler = dataHandler;
+            this.tableName = tableName;
+        }
+
+        @Override
+        public String getName() {
+            return ODATA;
+        }
+
+        @Override
+        public long execute(Random random) throws Exception {
+            this.dataHandler.readTable(this.tableName);
+            return 0;
+        }
+
+    }
+
+}
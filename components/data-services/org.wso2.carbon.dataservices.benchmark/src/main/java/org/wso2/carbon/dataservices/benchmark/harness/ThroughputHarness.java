@@ -0,0 +1,237 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.benchmark.harness;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.dataservices.core.stats.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end throughput harness, which deploys a data service in-process, against H2, CSV and Excel
+ * data sources, and runs a mix of requests against it from concurrent clients, without think time.
+ * After a warm-up period, the requests are measured for the configured duration, and the throughput
+ * and latency percentiles of each scenario, and of all the requests, are reported. See
+ * {@link HarnessConfig} for the configuration, e.g.
+ * <pre>
+ * java -Ddss.harness.threads=16 -Ddss.harness.mix=select:4,nested:2,batch:1 \
+ *     -cp target/benchmarks.jar org.wso2.carbon.dataservices.benchmark.harness.ThroughputHarness
+ * </pre>
+ */
+public class ThroughputHarness {
+
+    private static final Log log = LogFactory.getLog(ThroughputHarness.class);
+
+    private final HarnessConfig config;
+
+    private final HarnessFixtures fixtures;
+
+    private Scenario[] scenarios;
+
+    /* the cumulative weights of the scenarios, to choose the scenario of a request */
+    private int[] cumulativeWeights;
+
+    private final Map<String, ScenarioStatistics> statistics =
+            new LinkedHashMap<String, ScenarioStatistics>();
+
+    private final ScenarioStatistics totalStatistics = new ScenarioStatistics("total");
+
+    private final ConcurrentMap<String, Boolean> failedScenarios = new ConcurrentHashMap<String, Boolean>();
+
+    private volatile boolean measuring;
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    public ThroughputHarness(HarnessConfig config) {
+        this.config = config;
+        this.fixtures = new HarnessFixtures(config);
+    }
+
+    public static void main(String[] args) throws Exception {
+        HarnessConfig config = HarnessConfig.fromSystemProperties();
+        ThroughputHarness harness = new ThroughputHarness(config);
+        harness.setup();
+        try {
+            long measuredNanos = harness.run();
+            harness.printReport(System.out, measuredNanos);
+        } finally {
+            harness.tearDown();
+        }
+    }
+
+    public void setup() throws Exception {
+        this.fixtures.setup();
+        Map<String, Scenario> allScenarios = Scenarios.createScenarios(this.fixtures, this.config);
+        Map<String, Integer> mix = this.config.getMix();
+        if (mix == null) {
+            mix = new LinkedHashMap<String, Integer>();
+            for (String name : allScenarios.keySet()) {
+                mix.put(name, 1);
+            }
+        }
+        List<Scenario> selected = new ArrayList<Scenario>();
+        List<Integer> weights = new ArrayList<Integer>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            Scenario scenario = allScenarios.get(entry.getKey());
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario: " + entry.getKey() +
+                        ", the available scenarios are: " + allScenarios.keySet());
+            }
+            if (entry.getValue() > 0) {
+                selected.add(scenario);
+                weights.add(entry.getValue());
+                this.statistics.put(scenario.getName(), new ScenarioStatistics(scenario.getName()));
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("No scenarios to run in the mix: " + mix);
+        }
+        this.scenarios = selected.toArray(new Scenario[selected.size()]);
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < this.cumulativeWeights.length; i++) {
+            total += weights.get(i);
+            this.cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Runs the clients for the warm-up and measurement periods.
+     *
+     * @return The actual measurement time in nanoseconds
+     */
+    public long run() throws Exception {
+        int threadCount = this.config.getThreadCount();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final long seed = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        runClient(new Random(seed));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }, "dss-harness-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        log.info("Starting the throughput harness: " + this.config);
+        startLatch.countDown();
+        TimeUnit.SECONDS.sleep(this.config.getWarmupSeconds());
+        this.measuring = true;
+        long startTime = System.nanoTime();
+        TimeUnit.SECONDS.sleep(this.config.getDurationSeconds());
+        this.measuring = false;
+        long measuredNanos = System.nanoTime() - startTime;
+        this.stopped.set(true);
+        doneLatch.await();
+        return measuredNanos;
+    }
+
+    private void runClient(Random random) {
+        HarnessFixtures.startTenantFlow();
+        try {
+            while (!this.stopped.get()) {
+                Scenario scenario = this.chooseScenario(random);
+                long startTime = System.nanoTime();
+                try {
+                    long bytes = scenario.execute(random);
+                    if (this.measuring) {
+                        long nanos = System.nanoTime() - startTime;
+                        this.statistics.get(scenario.getName()).recordSuccess(nanos, bytes);
+                        this.totalStatistics.recordSuccess(nanos, bytes);
+                    }
+                } catch (Exception e) {
+                    if (this.measuring) {
+                        long nanos = System.nanoTime() - startTime;
+                        this.statistics.get(scenario.getName()).recordError(nanos);
+                        this.totalStatistics.recordError(nanos);
+                    }
+                    /* only the first error of a scenario is logged, the rest are counted */
+                    if (this.failedScenarios.putIfAbsent(scenario.getName(), Boolean.TRUE) == null) {
+                        log.warn("Error in running the scenario: " + scenario.getName(), e);
+                    }
+                }
+            }
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private Scenario chooseScenario(Random random) {
+        int value = random.nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+        for (int i = 0; i < this.cumulativeWeights.length; i++) {
+            if (value < this.cumulativeWeights[i]) {
+                return this.scenarios[i];
+            }
+        }
+        return this.scenarios[this.scenarios.length - 1];
+    }
+
+    public void tearDown() throws Exception {
+        this.fixtures.tearDown();
+    }
+
+    /**
+     * Prints the throughput, in requests per second, and the latency percentiles, in milliseconds,
+     * of each scenario, and of all the requests.
+     */
+    public void printReport(PrintStream out, long measuredNanos) {
+        double seconds = measuredNanos / 1000000000.0;
+        out.println("Throughput harness results: " + this.config);
+        out.println(String.format("%-12s %10s %8s %12s %10s %10s %10s %10s %10s %10s %10s",
+                "scenario", "requests", "errors", "req/s", "KB/req", "mean(ms)", "p50(ms)",
+                "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        for (ScenarioStatistics stats : this.statistics.values()) {
+            printStatistics(out, stats, seconds);
+        }
+        printStatistics(out, this.totalStatistics, seconds);
+    }
+
+    private static void printStatistics(PrintStream out, ScenarioStatistics stats, double seconds) {
+        LatencyHistogram.Snapshot snapshot = stats.getLatency().getSnapshot();
+        long count = snapshot.getCount();
+        out.println(String.format("%-12s %10d %8d %12.1f %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f",
+                stats.getScenarioName(), count, stats.getErrorCount(), count / seconds,
+                count == 0 ? 0.0 : stats.getResultBytes() / 1024.0 / count,
+                snapshot.getMean() / 1000, snapshot.getValueAtPercentile(50) / 1000.0,
+                snapshot.getValueAtPercentile(90) / 1000.0, snapshot.getValueAtPercentile(99) / 1000.0,
+                snapshot.getValueAtPercentile(99.9) / 1000.0, snapshot.getMax() / 1000.0));
+    }
+
+}
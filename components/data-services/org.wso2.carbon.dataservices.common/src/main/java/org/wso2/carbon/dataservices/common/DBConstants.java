@@ -802,6 +802,9 @@ public final class DBConstants {
         public static final String VALUE = "value";
         public static final String ENABLE_BATCH_REQUESTS = "enableBatchRequests";
         public static final String ENABLE_BOXCARRING = "enableBoxcarring";
+        public static final String ENABLE_PARALLEL_REQUEST_BOX = "enableParallelRequestBox";
+        public static final String ENABLE_WARMUP = "enableWarmup";
+        public static final String WARMUP_OPERATION = "warmup-operation";
         public static final String DISABLE_STREAMING = "disableStreaming";
         public static final String RETURN_REQUEST_STATUS = "returnRequestStatus";
         public static final String SERVICE_STATUS = "serviceStatus";
@@ -845,6 +848,7 @@ public final class DBConstants {
         public static final String RETURN_GENERATED_KEYS = "returnGeneratedKeys";
         public static final String RETURN_UPDATED_ROW_COUNT = "returnUpdatedRowCount";
         public static final String KEY_COLUMNS = "keyColumns";
+        public static final String READ_ONLY = "readOnly";
         public static final String EXPORT = "export";
         public static final String OPTIONAL = "optional";
         public static final String EXPORT_TYPE = "exportType";
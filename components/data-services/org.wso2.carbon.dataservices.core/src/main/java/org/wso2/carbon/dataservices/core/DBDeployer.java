@@ -63,14 +63,18 @@ import org.wso2.carbon.dataservices.common.DBConstants;
 import org.wso2.carbon.dataservices.common.DBConstants.DBSFields;
 import org.wso2.carbon.dataservices.common.DBConstants.ResultTypes;
 import org.wso2.carbon.dataservices.core.description.config.Config;
+import org.wso2.carbon.dataservices.core.description.config.ConfigFactory;
 import org.wso2.carbon.dataservices.core.description.operation.Operation;
 import org.wso2.carbon.dataservices.core.description.query.Query;
 import org.wso2.carbon.dataservices.core.description.resource.Resource;
 import org.wso2.carbon.dataservices.core.description.resource.Resource.ResourceID;
+import org.wso2.carbon.dataservices.core.dispatch.DataServiceResourceDispatcher;
+import org.wso2.carbon.dataservices.core.dispatch.ResourceDispatchTrie;
 import org.wso2.carbon.dataservices.core.engine.CallQuery;
 import org.wso2.carbon.dataservices.core.engine.CallQuery.WithParam;
 import org.wso2.carbon.dataservices.core.engine.CallableRequest;
 import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.DataServiceWarmup;
 import org.wso2.carbon.dataservices.core.engine.QueryParam;
 import org.wso2.carbon.dataservices.core.internal.DataServicesDSComponent;
 import org.wso2.carbon.dataservices.core.jmx.DataServiceInstance;
@@ -99,12 +103,22 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -143,14 +157,94 @@ public class DBDeployer extends AbstractDeployer {
 	 */
 	private String extension;
 
+    /** cached transaction manager instance */
+    private static TransactionManager cachedTransactionManager = null;
+
 	/**
-	 * used for REST processing
+	 * System property to set the number of threads used to build the data services in parallel at
+	 * startup, the available processor count by default, 1 turns off the parallel deployment
 	 */
-	private Map<String, AxisOperation> httpLocationTable;
-    private Map<Pattern, AxisOperation> httpLocationTableForResource;
+	public static final String DEPLOYMENT_THREADS_PROPERTY = "dss.deployment.threads";
 
-    /** cached transaction manager instance */
-    private static TransactionManager cachedTransactionManager = null;
+	private static final int SLOWEST_SERVICES_LOG_COUNT = 5;
+
+	/**
+	 * System property to turn off the dispatching of REST requests using the resource trie of
+	 * each data service, in which case the Axis2 HTTP location based dispatcher is used
+	 */
+	public static final String RESOURCE_TRIE_DISPATCH_PROPERTY = "dss.resource.trie.dispatch";
+
+	private static final boolean RESOURCE_TRIE_DISPATCH = Boolean.parseBoolean(
+			System.getProperty(RESOURCE_TRIE_DISPATCH_PROPERTY, "true"));
+
+	/**
+	 * System property to turn off the hot redeployment of data services, where the configs of
+	 * a modified data service, which are not changed, are reused with their connection pools,
+	 * and the previous version is cleaned up after its queries in progress complete
+	 */
+	public static final String HOT_REDEPLOY_PROPERTY = "dss.hot.redeploy";
+
+	/**
+	 * System property to set the maximum time in milliseconds, to wait for the queries in
+	 * progress of a redeployed data service to complete, before its configs are closed
+	 */
+	public static final String REDEPLOY_DRAIN_TIMEOUT_PROPERTY = "dss.hot.redeploy.drain.timeout";
+
+	private static final boolean HOT_REDEPLOY = Boolean.parseBoolean(
+			System.getProperty(HOT_REDEPLOY_PROPERTY, "true"));
+
+	private static final long REDEPLOY_DRAIN_TIMEOUT = Long.getLong(REDEPLOY_DRAIN_TIMEOUT_PROPERTY, 30000);
+
+	private static final long REDEPLOY_DRAIN_POLL_INTERVAL = 100;
+
+	/* the time an undeployed data service waits for its new version to be deployed */
+	private static final long REDEPLOY_CLAIM_TIMEOUT = 60000;
+
+	/**
+	 * System property to set the time in milliseconds, the data services built in parallel at
+	 * startup wait to be deployed, after the last deployment, before they are cleaned up
+	 */
+	public static final String PARALLEL_BUILD_CLAIM_TIMEOUT_PROPERTY = "dss.deployment.claim.timeout";
+
+	/* read for each deployer, i.e. for each tenant's deployment */
+	private final long parallelBuildClaimTimeout = Long.getLong(PARALLEL_BUILD_CLAIM_TIMEOUT_PROPERTY, 60000);
+
+	/**
+	 * Data services undeployed to be redeployed, by their file paths, which are cleaned up once
+	 * their new versions are deployed
+	 */
+	private final Map<String, RetiredDataService> retiredDataServices =
+			new ConcurrentHashMap<String, RetiredDataService>();
+
+	/**
+	 * Data services which are being built in parallel at startup, by their file paths
+	 */
+	private final Map<String, ServiceBuildTask> pendingBuildTasks =
+			new ConcurrentHashMap<String, ServiceBuildTask>();
+
+	/**
+	 * Set once the data services found at startup are submitted to be built in parallel
+	 */
+	private final AtomicBoolean parallelBuildStarted = new AtomicBoolean();
+
+	/**
+	 * The build tasks submitted at startup, which are not deployed or discarded yet, used to log
+	 * a summary
+	 */
+	private final AtomicInteger remainingParallelBuildCount = new AtomicInteger();
+
+	/**
+	 * The number of deployments in progress, and the time the last one ended, used to find
+	 * the end of the startup deployment, after which the unclaimed build tasks are discarded
+	 */
+	private final AtomicInteger activeDeploymentCount = new AtomicInteger();
+
+	private volatile long lastDeploymentTime;
+
+	private final List<ServiceBuildTask> completedParallelBuildTasks =
+			Collections.synchronizedList(new ArrayList<ServiceBuildTask>());
+
+	private volatile long parallelBuildStartTime;
 
 	public ConfigurationContext getConfigContext() {
 		return configCtx;
@@ -161,6 +255,18 @@ public class DBDeployer extends AbstractDeployer {
 	 */
 	public void deploy(DeploymentFileData deploymentFileData)
 			throws DeploymentException {
+		this.activeDeploymentCount.incrementAndGet();
+		try {
+			this.deployDataService(deploymentFileData);
+		} finally {
+			this.lastDeploymentTime = System.currentTimeMillis();
+			this.activeDeploymentCount.decrementAndGet();
+		}
+	}
+
+	private void deployDataService(DeploymentFileData deploymentFileData)
+			throws DeploymentException {
+		long startTime = System.nanoTime();
         PrivilegedCarbonContext.getThreadLocalCarbonContext().setApplicationName(deploymentFileData.getName());
         /* If there's already a faulty service corresponding to this particular service,
            remove it */
@@ -180,8 +286,11 @@ public class DBDeployer extends AbstractDeployer {
 		String errorMessage = null;
 		/* Axis2 service to be deployed */
 		AxisService service = null;
+		/* the task building the data service, possibly already started in parallel */
+		ServiceBuildTask buildTask = null;
 
 		try {
+            buildTask = this.getBuildTask(deploymentFileData.getFile());
 			/* In the context of dataservices one service group will only contain one dataservice.
             *  Hence assigning the service group as the service group name */
             String serviceGroupName = serviceHierarchy +
@@ -192,7 +301,7 @@ public class DBDeployer extends AbstractDeployer {
 
             AxisServiceGroup serviceGroup = new AxisServiceGroup();
             serviceGroup.setServiceGroupName(serviceGroupName);
-            service = processService(deploymentFileData, serviceGroup, this.configCtx);
+            service = processService(deploymentFileData, serviceGroup, buildTask);
             service.setName(serviceHierarchy + service.getName());
             /* save original value */
             serviceActive = service.isActive();
@@ -222,6 +331,11 @@ public class DBDeployer extends AbstractDeployer {
             super.deploy(deploymentFileData);
 			/* finished deploying successfully */
 			successfullyDeployed = true;
+			if (log.isDebugEnabled()) {
+				log.debug("Data service '" + service.getName() + "' deployed in " +
+						(System.nanoTime() - startTime) / 1000000 + " ms, build time: " +
+						buildTask.getBuildTime() / 1000000 + " ms");
+			}
 
 		} catch (DataServiceFault e) {
 			errorMessage = DBUtils.getStacktraceFromException(e);
@@ -236,6 +350,12 @@ public class DBDeployer extends AbstractDeployer {
 				/* only if the data service is available, for XML syntax based error in the dbs,
 				 * we cannot get the data service */
 				if (ds != null) {
+					DataService retiredDataService = this.getRetiredDataService(
+							deploymentFileData.getFile().getAbsolutePath());
+					if (retiredDataService != null) {
+						/* the reused configs are closed with the previous version */
+						ConfigFactory.returnReusedConfigs(ds, retiredDataService);
+					}
 				    ds.cleanup();
 				}
 			} catch (DataServiceFault e2) {
@@ -252,6 +372,14 @@ public class DBDeployer extends AbstractDeployer {
 					DeploymentErrorMsgs.INVALID_SERVICE,
 					deploymentFileData.getName()), e);
 		} finally {
+			if (buildTask != null && buildTask.isParallel()) {
+				this.completeParallelBuildTask(buildTask);
+			}
+			RetiredDataService retiredDataService = this.retiredDataServices.remove(
+					deploymentFileData.getFile().getAbsolutePath());
+			if (retiredDataService != null) {
+				retiredDataService.release();
+			}
 			if (!successfullyDeployed)	{
 				String deploymentFilePath = deploymentFileData.getFile().getAbsolutePath();
 				/* Register the faulty service */
@@ -303,6 +431,168 @@ public class DBDeployer extends AbstractDeployer {
 		DBUtils.scheduleTask(faultyServiceRectifier, retryIn);
 	}
 
+	/**
+	 * Returns the task building the data service at the given file. At the first deployment, all the
+	 * data services in the deployment directory are submitted to be built in parallel, and the
+	 * service is taken from those if it has not changed since, and its build did not fail,
+	 * otherwise it is built in the current thread. A build which failed in parallel is retried
+	 * once in the current thread, as it may have failed because of the other builds using the same
+	 * data sources at the same time.
+	 */
+	private ServiceBuildTask getBuildTask(File file) {
+		if (this.parallelBuildStarted.compareAndSet(false, true)) {
+			this.startParallelBuilds();
+		}
+		ServiceBuildTask buildTask = this.pendingBuildTasks.remove(file.getAbsolutePath());
+		if (buildTask != null && (buildTask.getLastModified() != file.lastModified() ||
+				buildTask.isFailed())) {
+			/* the file has changed after it was submitted to be built, or the build failed */
+			this.completeParallelBuildTask(buildTask);
+			buildTask.discard();
+			buildTask = null;
+		}
+		if (buildTask == null) {
+			buildTask = new ServiceBuildTask(file, false);
+			buildTask.run();
+		}
+		return buildTask;
+	}
+
+	/**
+	 * Submits all the data services in the deployment directory to be built in parallel, on a
+	 * bounded thread pool, which is shut down once the submitted services are built. The services
+	 * which are not deployed, i.e. as Axis2 does not deploy their files, are cleaned up once the
+	 * startup deployment is over.
+	 */
+	private void startParallelBuilds() {
+		int threadCount = Integer.getInteger(DEPLOYMENT_THREADS_PROPERTY,
+				Runtime.getRuntime().availableProcessors());
+		if (threadCount <= 1) {
+			return;
+		}
+		List<File> files = new ArrayList<File>();
+		try {
+			File deploymentDir = new File(new File(this.axisConfig.getRepository().toURI()), this.repoDir);
+			this.findServiceFiles(deploymentDir, files);
+		} catch (Exception e) {
+			log.warn("Cannot list the data services to be deployed in parallel, " +
+					"deploying them one at a time: " + e.getMessage(), e);
+			return;
+		}
+		if (files.size() <= 1) {
+			return;
+		}
+		threadCount = Math.min(threadCount, files.size());
+		this.parallelBuildStartTime = System.nanoTime();
+		this.remainingParallelBuildCount.set(files.size());
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dss-deployer-" + this.threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (File file : files) {
+			ServiceBuildTask buildTask = new ServiceBuildTask(file, true);
+			this.pendingBuildTasks.put(file.getAbsolutePath(), buildTask);
+			executor.execute(buildTask);
+		}
+		/* the threads exit after running the submitted tasks */
+		executor.shutdown();
+		if (log.isInfoEnabled()) {
+			log.info("Building " + files.size() + " data services in parallel, using " +
+					threadCount + " threads");
+		}
+		DBUtils.scheduleTask(new Runnable() {
+			@Override
+			public void run() {
+				discardUnclaimedBuildTasks(this);
+			}
+		}, this.parallelBuildClaimTimeout);
+	}
+
+	/**
+	 * Cleans up the data services built in parallel at startup, which are not deployed within
+	 * the claim timeout after the last deployment, since their files are not deployed by Axis2.
+	 * Until then, the check is rescheduled.
+	 */
+	private void discardUnclaimedBuildTasks(Runnable check) {
+		if (this.pendingBuildTasks.isEmpty()) {
+			return;
+		}
+		long idleTime = System.currentTimeMillis() - this.lastDeploymentTime;
+		if (this.activeDeploymentCount.get() > 0 || idleTime < this.parallelBuildClaimTimeout) {
+			DBUtils.scheduleTask(check, Math.max(this.parallelBuildClaimTimeout - idleTime,
+					REDEPLOY_DRAIN_POLL_INTERVAL));
+			return;
+		}
+		for (Map.Entry<String, ServiceBuildTask> entry : this.pendingBuildTasks.entrySet()) {
+			ServiceBuildTask buildTask = entry.getValue();
+			if (this.pendingBuildTasks.remove(entry.getKey(), buildTask)) {
+				log.warn("The data service at '" + entry.getKey() + "' built at startup was not " +
+						"deployed, it is cleaned up");
+				this.completeParallelBuildTask(buildTask);
+				buildTask.discard();
+			}
+		}
+	}
+
+	private void findServiceFiles(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		String suffix = "." + this.extension;
+		for (File child : children) {
+			if (child.isDirectory()) {
+				this.findServiceFiles(child, files);
+			} else if (child.getName().endsWith(suffix)) {
+				files.add(child.getAbsoluteFile());
+			}
+		}
+	}
+
+	/**
+	 * Marks a data service built in parallel as deployed or discarded, and logs the total
+	 * deployment time and the slowest data services to build, once all the data services
+	 * submitted at startup are done. This is called once for each task, by the thread which
+	 * removed it from the pending build tasks.
+	 */
+	private void completeParallelBuildTask(ServiceBuildTask buildTask) {
+		this.completedParallelBuildTasks.add(buildTask);
+		if (this.remainingParallelBuildCount.decrementAndGet() != 0) {
+			return;
+		}
+		List<ServiceBuildTask> buildTasks;
+		synchronized (this.completedParallelBuildTasks) {
+			buildTasks = new ArrayList<ServiceBuildTask>(this.completedParallelBuildTasks);
+			this.completedParallelBuildTasks.clear();
+		}
+		Collections.sort(buildTasks, new Comparator<ServiceBuildTask>() {
+			@Override
+			public int compare(ServiceBuildTask task1, ServiceBuildTask task2) {
+				return Long.compare(task2.getBuildTime(), task1.getBuildTime());
+			}
+		});
+		if (log.isInfoEnabled()) {
+			StringBuilder builder = new StringBuilder();
+			builder.append("Deployed ").append(buildTasks.size()).append(" data services in ");
+			builder.append((System.nanoTime() - this.parallelBuildStartTime) / 1000000);
+			builder.append(" ms, the slowest to build: ");
+			int count = Math.min(SLOWEST_SERVICES_LOG_COUNT, buildTasks.size());
+			for (int i = 0; i < count; i++) {
+				if (i > 0) {
+					builder.append(", ");
+				}
+				builder.append(buildTasks.get(i).getFile().getName()).append(" (");
+				builder.append(buildTasks.get(i).getBuildTime() / 1000000).append(" ms)");
+			}
+			log.info(builder.toString());
+		}
+	}
+
 	/**
 	 * Initializes the deployer.
 	 */
@@ -333,6 +623,10 @@ public class DBDeployer extends AbstractDeployer {
 
 		/* transaction manager looked up and cached for later use, rather than always doing the JNDI lookup */
         this.doExtractTransactionManager();
+
+		if (RESOURCE_TRIE_DISPATCH) {
+			DataServiceResourceDispatcher.register(this.axisConfig);
+		}
         
         /* data sources component tenant initialized, this is done here as a precaution to
          * make sure that the tenant's data sources are initialized before the data services
@@ -424,6 +718,13 @@ public class DBDeployer extends AbstractDeployer {
 	 */
 	public void undeploy(String servicePath) throws DeploymentException {
 		try {
+			ServiceBuildTask buildTask = this.pendingBuildTasks.remove(
+					new File(servicePath).getAbsolutePath());
+			if (buildTask != null) {
+				/* removed before it was deployed */
+				this.completeParallelBuildTask(buildTask);
+				buildTask.discard();
+			}
 			DataService dataService = this.getDataServiceByServicePath(servicePath);
 			if (dataService == null) {
 				/* must be a faulty service */
@@ -458,7 +759,13 @@ public class DBDeployer extends AbstractDeployer {
 						removeODataHandler(cCtx.getTenantDomain(), dataService.getName() + configID);
 					}
 				}
-				dataService.cleanup();
+				if (HOT_REDEPLOY && new File(servicePath).exists()) {
+					/* the data service file is modified, the cleanup is done once the new version
+					 * is deployed, which can reuse the unchanged configs */
+					this.retireDataService(servicePath, dataService);
+				} else {
+					dataService.cleanup();
+				}
 				this.axisConfig.removeService(serviceName);
 				/* if the service group is now empty, remove it as well */
 				if (!serviceGroup.getServices().hasNext()) {
@@ -477,6 +784,35 @@ public class DBDeployer extends AbstractDeployer {
 		}
 	}
 
+	/**
+	 * Keeps an undeployed data service, whose file still exists, until its new version is
+	 * deployed. The event subscriptions are removed right away, since the new version subscribes
+	 * with the same name.
+	 */
+	private void retireDataService(String servicePath, DataService dataService) throws DataServiceFault {
+		dataService.clearEventSubscriptions();
+		final String path = new File(servicePath).getAbsolutePath();
+		final RetiredDataService retiredDataService = new RetiredDataService(dataService);
+		RetiredDataService previous = this.retiredDataServices.put(path, retiredDataService);
+		if (previous != null) {
+			previous.release();
+		}
+		/* if the data service is not deployed again, it is cleaned up anyway */
+		DBUtils.scheduleTask(new Runnable() {
+			@Override
+			public void run() {
+				if (retiredDataServices.remove(path, retiredDataService)) {
+					retiredDataService.release();
+				}
+			}
+		}, REDEPLOY_CLAIM_TIMEOUT);
+	}
+
+	private DataService getRetiredDataService(String configFilePath) {
+		RetiredDataService retiredDataService = this.retiredDataServices.get(configFilePath);
+		return retiredDataService != null ? retiredDataService.getDataService() : null;
+	}
+
 	/**
 	 * Configuration files prior to multiple data source support did not have id attribute
 	 * for config element. Adding that & saving.
@@ -540,6 +876,33 @@ public class DBDeployer extends AbstractDeployer {
 		}
 	}
 
+	/**
+	 * Creates the trie used to dispatch the REST requests of the data service, with the same
+	 * HTTP locations as the ones in the HTTP location table of the service.
+	 * @see DataServiceResourceDispatcher
+	 */
+	private ResourceDispatchTrie<AxisOperation> createResourceDispatchTrie(AxisService axisService,
+			DataService dataService) {
+		ResourceDispatchTrie<AxisOperation> trie = new ResourceDispatchTrie<AxisOperation>();
+		for (ResourceID resourceId : dataService.getResourceIds()) {
+			Resource resource = dataService.getResource(resourceId);
+			AxisOperation axisOperation = axisService.getOperation(new QName(resource.getRequestName()));
+			if (axisOperation != null) {
+				trie.add(resourceId.getMethod(), resourceId.getPath(), axisOperation);
+			}
+		}
+		for (String operationName : dataService.getOperationNames()) {
+			Operation operation = dataService.getOperation(operationName);
+			AxisOperation axisOperation = axisService.getOperation(new QName(operation.getRequestName()));
+			int index = operationName.indexOf(":");
+			if (axisOperation != null) {
+				trie.add(HTTPConstants.HTTP_METHOD_POST, index > -1 ?
+						operationName.substring(index + 1) : operationName, axisOperation);
+			}
+		}
+		return trie;
+	}
+
 	/**
 	 * Creates an AxisOperation with the given data service operation object.
 	 * @see Operation
@@ -547,7 +910,8 @@ public class DBDeployer extends AbstractDeployer {
 	 */
 	private AxisOperation createAxisOperationFromDSOperation(Operation operation,
 			AxisBinding soap11Binding, AxisBinding soap12Binding,
-			AxisBinding httpBinding) throws AxisFault {
+			AxisBinding httpBinding, Map<Pattern, AxisOperation> httpLocationTableForResource)
+			throws AxisFault {
 		String opName = operation.getName();
 		String requestName = operation.getRequestName();
 
@@ -559,7 +923,7 @@ public class DBDeployer extends AbstractDeployer {
 				|| operation.isReturnRequestStatus();
 		String description = operation.getDescription();
 		return createAxisOperation(requestName, opName, HTTPConstants.HTTP_METHOD_POST, hasResult,
-				soap11Binding, soap12Binding, httpBinding, description);
+				soap11Binding, soap12Binding, httpBinding, httpLocationTableForResource, description);
 	}
 
 	/**
@@ -569,7 +933,7 @@ public class DBDeployer extends AbstractDeployer {
 	 */
 	private AxisOperation createAxisOperationFromDSResource(Resource resource,
 			AxisBinding soap11Binding, AxisBinding soap12Binding,
-			AxisBinding httpBinding) {
+			AxisBinding httpBinding, Map<Pattern, AxisOperation> httpLocationTableForResource) {
 		ResourceID resourceId = resource.getResourceId();
 		String method = resourceId.getMethod();
 		String path = resourceId.getPath();
@@ -578,7 +942,7 @@ public class DBDeployer extends AbstractDeployer {
 		boolean hasResult = resource.getCallQuery().isHasResult()
 				|| resource.isReturnRequestStatus();
 		return createAxisOperation(requestName, path, method, hasResult, soap11Binding,
-				soap12Binding, httpBinding, description);
+				soap12Binding, httpBinding, httpLocationTableForResource, description);
 	}
 
 	/**
@@ -587,7 +951,7 @@ public class DBDeployer extends AbstractDeployer {
 	private AxisOperation createAxisOperation(String operationName, String httpLocation,
 			String method, boolean hasResult,
 			AxisBinding soap11Binding, AxisBinding soap12Binding, AxisBinding httpBinding,
-			String description) {
+			Map<Pattern, AxisOperation> httpLocationTableForResource, String description) {
 		AxisOperation axisOperation;
 		if (hasResult) {
 			axisOperation = new InOutAxisOperation(new QName(operationName));
@@ -621,7 +985,7 @@ public class DBDeployer extends AbstractDeployer {
         }
 
         Pattern httpLocationPattern = WSDLUtil.getConstantFromHTTPLocationForResource(httpLocation, method);
-        this.httpLocationTableForResource.put(httpLocationPattern, axisOperation);
+        httpLocationTableForResource.put(httpLocationPattern, axisOperation);
 
 		// Create the in and out axis messages for this operation
 		AxisMessage inMessage = axisOperation.getMessage(WSDLConstants.MESSAGE_LABEL_IN_VALUE);
@@ -765,10 +1129,15 @@ public class DBDeployer extends AbstractDeployer {
 	}
 
 	/**
-	 * Creates AxisService from DBS.
+	 * Creates AxisService from DBS, the created service is registered using
+	 * {@link #registerDBService(AxisService)}. At startup, this is called for several data services
+	 * in parallel. It does not register anything in the Axis2 configuration or the OData service
+	 * registry, which is done in the deployment thread, but it is not free of shared state: the dbs
+	 * file may be rewritten in the multiple config format, the configs create connection pools and
+	 * look up carbon data sources, and the event triggers subscribe to the event broker, so those
+	 * have to be safe to use from several threads.
 	 */
-	private AxisService createDBService(String configFilePath,
-			AxisConfiguration axisConfiguration) throws DataServiceFault {
+	private AxisService buildDBService(String configFilePath) throws DataServiceFault {
 		FileInputStream fis = null;
 		try {
 			/* convert to multiple config format */
@@ -782,28 +1151,23 @@ public class DBDeployer extends AbstractDeployer {
             this.secureVaultResolve(dbsElement);
 
 			/* create the data service object from dbs */
-			DataService dataService = DataServiceFactory.createDataService(dbsElement, configFilePath);
+			DataService dataService = DataServiceFactory.createDataService(dbsElement, configFilePath,
+					this.getRetiredDataService(configFilePath));
 
 			String serviceName = dataService.getName();
-			if (DBUtils.isAvailableDS(axisConfig, serviceName)) {
-				throw new DataServiceFault("Data Service name is already exists. Please choose different name for \'" +
-				                           serviceName + "\' data service.");
-			}
 
-			/*create the odata service */
-			for (String configId : dataService.getConfigs().keySet()) {
-				Config config = dataService.getConfig(configId);
-				if (config.isODataEnabled()) {
-					ODataServiceHandler serviceHandler = new ODataServiceHandler(config.createODataHandler(),
-					                                                             dataService.getServiceNamespace(),
-					                                                             configId);
-					CarbonContext cCtx = CarbonContext.getThreadLocalCarbonContext();
-					registerODataHandler(dataService.getName(), serviceHandler, cCtx.getTenantDomain(), configId);
-				}
+			/* validate the data service */
+			try {
+				this.validateDataService(dataService);
+			} catch (DataServiceFault e) {
+				e.setSourceDataService(dataService);
+				throw e;
 			}
 
-			/* validate the data service */
-			this.validateDataService(dataService);
+			/* warm up the connections, statements and operations before the service is deployed */
+			if (dataService.isWarmupEnabled()) {
+				DataServiceWarmup.warmUp(dataService);
+			}
 
 			String interfaceName = serviceName + WSDL2Constants.INTERFACE_PREFIX;
 
@@ -827,13 +1191,14 @@ public class DBDeployer extends AbstractDeployer {
 			/* set service description */
 			axisService.setDocumentation(dataService.getDescription());
 
-			this.httpLocationTable = new TreeMap<String, AxisOperation>(
+			/* used for REST processing */
+			Map<String, AxisOperation> httpLocationTable = new TreeMap<String, AxisOperation>(
 					new Comparator<String>() {
 						public int compare(String o1, String o2) {
 							return (-1 * o1.compareTo(o2));
 						}
 					});
-            this.httpLocationTableForResource = new TreeMap<Pattern, AxisOperation>(
+            Map<Pattern, AxisOperation> httpLocationTableForResource = new TreeMap<Pattern, AxisOperation>(
                     new Comparator<Pattern>() {
                         public int compare(Pattern o1, Pattern o2) {
                             return (-1 * o1.pattern().compareTo(o2.pattern()));
@@ -841,20 +1206,20 @@ public class DBDeployer extends AbstractDeployer {
                     });
 
 			AxisBinding soap11Binding = createDefaultSOAP11Binding(
-					serviceName, interfaceName);
+					serviceName, interfaceName, httpLocationTable, httpLocationTableForResource);
 			AxisBinding soap12Binding = createDefaultSOAP12Binding(
-					serviceName, interfaceName);
+					serviceName, interfaceName, httpLocationTable, httpLocationTableForResource);
 			AxisBinding httpBinding = createDefaultHTTPBinding(serviceName,
-					interfaceName);
+					interfaceName, httpLocationTable, httpLocationTableForResource);
 
 			/* REST processing - adding DS resources to AxisService */
 			Set<ResourceID> resourceIds = dataService.getResourceIds();
 			for (ResourceID resourceId : resourceIds) {
 				Resource resource = dataService.getResource(resourceId);
 				AxisOperation axisOperation = createAxisOperationFromDSResource(
-						resource, soap11Binding, soap12Binding, httpBinding);
+						resource, soap11Binding, soap12Binding, httpBinding,
+						httpLocationTableForResource);
 				axisService.addOperation(axisOperation);
-				axisConfig.getPhasesInfo().setOperationPhases(axisOperation);
 			}
 
 			/* add operations */
@@ -864,13 +1229,18 @@ public class DBDeployer extends AbstractDeployer {
 				Operation operation = dataService
 						.getOperation(opPathItr.next());
 				AxisOperation axisOperation = createAxisOperationFromDSOperation(
-						operation, soap11Binding, soap12Binding, httpBinding);
+						operation, soap11Binding, soap12Binding, httpBinding,
+						httpLocationTableForResource);
 				axisService.addOperation(axisOperation);
-				axisConfig.getPhasesInfo().setOperationPhases(axisOperation);
 			}
 
 			createDefaultEndpoints(axisService, soap11Binding, soap12Binding,
-					httpBinding);
+					httpBinding, httpLocationTable, httpLocationTableForResource);
+
+			if (RESOURCE_TRIE_DISPATCH) {
+				axisService.addParameter(DataServiceResourceDispatcher.RESOURCE_TRIE_PARAMETER,
+						this.createResourceDispatchTrie(axisService, dataService));
+			}
 
 			/* create schema */
 			createDSSchema(axisService, dataService);
@@ -880,9 +1250,6 @@ public class DBDeployer extends AbstractDeployer {
 				axisService.setScope(Constants.SCOPE_TRANSPORT_SESSION);
 			}
 
-			/* register JMX MBean */
-			this.registerMBean(dataService);
-
 			/* set service status */
 			axisService.setActive(!dataService.isServiceInactive());
 
@@ -904,6 +1271,48 @@ public class DBDeployer extends AbstractDeployer {
 		}
 	}
 
+	/**
+	 * Registers the OData services, the operation phases and the JMX MBean of a data service built
+	 * using {@link #buildDBService(String)}. This is always done in the deployment thread, one
+	 * service at a time, so the name check and the registrations are not interleaved.
+	 */
+	private void registerDBService(AxisService axisService) throws DataServiceFault {
+		DataService dataService = (DataService) axisService.getParameter(
+				DBConstants.DATA_SERVICE_OBJECT).getValue();
+		String serviceName = dataService.getName();
+		if (DBUtils.isAvailableDS(axisConfig, serviceName)) {
+			DataServiceFault dsf = new DataServiceFault("Data Service name is already exists. " +
+					"Please choose different name for \'" + serviceName + "\' data service.");
+			dsf.setSourceDataService(dataService);
+			throw dsf;
+		}
+
+		/*create the odata service */
+		for (String configId : dataService.getConfigs().keySet()) {
+			Config config = dataService.getConfig(configId);
+			if (config.isODataEnabled()) {
+				ODataServiceHandler serviceHandler;
+				if (Config.isLazyInit()) {
+					/* the table metadata is read on the first OData request */
+					serviceHandler = new ODataServiceHandler(config, dataService.getServiceNamespace());
+				} else {
+					serviceHandler = new ODataServiceHandler(config.createODataHandler(),
+					                                         dataService.getServiceNamespace(), configId);
+				}
+				CarbonContext cCtx = CarbonContext.getThreadLocalCarbonContext();
+				registerODataHandler(dataService.getName(), serviceHandler, cCtx.getTenantDomain(), configId);
+			}
+		}
+
+		Iterator<AxisOperation> opItr = axisService.getOperations();
+		while (opItr.hasNext()) {
+			axisConfig.getPhasesInfo().setOperationPhases(opItr.next());
+		}
+
+		/* register JMX MBean */
+		this.registerMBean(dataService);
+	}
+
 	/**
 	 * Registers an MBean representing the given data service.
 	 */
@@ -999,7 +1408,9 @@ public class DBDeployer extends AbstractDeployer {
 	/**
 	 * Creates a AxisBinding and populates it with default SOAP 1.1 properties
 	 */
-	private AxisBinding createDefaultSOAP11Binding(String name, String interfaceName) {
+	private AxisBinding createDefaultSOAP11Binding(String name, String interfaceName,
+			Map<String, AxisOperation> httpLocationTable,
+			Map<Pattern, AxisOperation> httpLocationTableForResource) {
 		AxisBinding soap11Binding = new AxisBinding();
 		soap11Binding.setName(new QName(name + Java2WSDLConstants.BINDING_NAME_SUFFIX));
 		soap11Binding.setType(WSDL2Constants.URI_WSDL2_SOAP);
@@ -1014,7 +1425,9 @@ public class DBDeployer extends AbstractDeployer {
 	/**
 	 * Creates a AxisBinding and populates it with default HTTP properties
 	 */
-	private AxisBinding createDefaultHTTPBinding(String name, String interfaceName) {
+	private AxisBinding createDefaultHTTPBinding(String name, String interfaceName,
+			Map<String, AxisOperation> httpLocationTable,
+			Map<Pattern, AxisOperation> httpLocationTableForResource) {
 		AxisBinding httpBinding = new AxisBinding();
 		httpBinding.setName(new QName(name + Java2WSDLConstants.HTTP_BINDING));
 		httpBinding.setType(WSDL2Constants.URI_WSDL2_HTTP);
@@ -1027,7 +1440,9 @@ public class DBDeployer extends AbstractDeployer {
 	/**
 	 * Creates a AxisBinding and populates it with default SOAP 1.2 properties
 	 */
-	private AxisBinding createDefaultSOAP12Binding(String name, String interfaceName) {
+	private AxisBinding createDefaultSOAP12Binding(String name, String interfaceName,
+			Map<String, AxisOperation> httpLocationTable,
+			Map<Pattern, AxisOperation> httpLocationTableForResource) {
 		AxisBinding soap12Binding = new AxisBinding();
 		soap12Binding.setName(new QName(name + Java2WSDLConstants.SOAP12BINDING_NAME_SUFFIX));
 		soap12Binding.setType(WSDL2Constants.URI_WSDL2_SOAP);
@@ -1044,7 +1459,9 @@ public class DBDeployer extends AbstractDeployer {
 	 * Creates a set of default endpoints for this service
 	 */
 	private void createDefaultEndpoints(AxisService axisService, AxisBinding soap11Binding,
-			AxisBinding soap12Binding, AxisBinding httpBinding) {
+			AxisBinding soap12Binding, AxisBinding httpBinding,
+			Map<String, AxisOperation> httpLocationTable,
+			Map<Pattern, AxisOperation> httpLocationTableForResource) {
 		Map<String, TransportInDescription> transportsIn = axisConfig.getTransportsIn();
 		Iterator<TransportInDescription> iterator = transportsIn.values().iterator();
 		while (iterator.hasNext()) {
@@ -1134,9 +1551,10 @@ public class DBDeployer extends AbstractDeployer {
 	 * Creates AxisService with the given deployment information.
 	 */
 	private AxisService processService(DeploymentFileData currentFile,
-			AxisServiceGroup axisServiceGroup, ConfigurationContext configCtx)
+			AxisServiceGroup axisServiceGroup, ServiceBuildTask buildTask)
 			throws DataServiceFault {
-		AxisService axisService = createDBService(currentFile.getAbsolutePath(), configCtx.getAxisConfiguration());
+		AxisService axisService = buildTask.getResult();
+		this.registerDBService(axisService);
 		axisService.setParent(axisServiceGroup);
 		axisService.setClassLoader(axisConfig.getServiceClassLoader());
         /* handle services.xml, if exists */
@@ -1199,4 +1617,235 @@ public class DBDeployer extends AbstractDeployer {
 		ODataServiceRegistry registry = ODataServiceRegistry.getInstance();
 		registry.registerODataService(dataServiceName + configId, handler, tenantDomain);
 	}
+
+	/**
+	 * Builds a data service and its AxisService, in the tenant of the thread which created the
+	 * task, and keeps the result, or the error, until the service is deployed.
+	 */
+	private class ServiceBuildTask implements Runnable {
+
+		private final File file;
+
+		private final boolean parallel;
+
+		private final int tenantId;
+
+		private final String tenantDomain;
+
+		private final String username;
+
+		private final FutureTask<AxisService> future;
+
+		private volatile long buildTime;
+
+		/* the last modified time of the file when it was built, it may be changed in the build */
+		private volatile long lastModified;
+
+		public ServiceBuildTask(File file, boolean parallel) {
+			this.file = file;
+			this.parallel = parallel;
+			CarbonContext cCtx = CarbonContext.getThreadLocalCarbonContext();
+			this.tenantId = cCtx.getTenantId();
+			this.tenantDomain = cCtx.getTenantDomain();
+			this.username = cCtx.getUsername();
+			this.future = new FutureTask<AxisService>(new Callable<AxisService>() {
+				@Override
+				public AxisService call() throws Exception {
+					return build();
+				}
+			});
+		}
+
+		private AxisService build() throws DataServiceFault {
+			long startTime = System.nanoTime();
+			if (!this.parallel) {
+				try {
+					return buildDBService(this.file.getAbsolutePath());
+				} finally {
+					this.buildTime = System.nanoTime() - startTime;
+					this.lastModified = this.file.lastModified();
+				}
+			}
+			/* in a deployer thread, with the tenant of the deployment thread */
+			PrivilegedCarbonContext.startTenantFlow();
+			try {
+				PrivilegedCarbonContext cCtx = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+				cCtx.setTenantId(this.tenantId);
+				cCtx.setTenantDomain(this.tenantDomain);
+				cCtx.setUsername(this.username);
+				cCtx.setApplicationName(this.file.getName());
+				return buildDBService(this.file.getAbsolutePath());
+			} finally {
+				PrivilegedCarbonContext.endTenantFlow();
+				this.buildTime = System.nanoTime() - startTime;
+				this.lastModified = this.file.lastModified();
+			}
+		}
+
+		@Override
+		public void run() {
+			this.future.run();
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Waits for the data service to be built, and returns the last modified time of its file
+		 * at that time.
+		 */
+		public long getLastModified() {
+			try {
+				this.future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException ignore) {
+				/* the error is reported when the result is taken */
+			}
+			return lastModified;
+		}
+
+		public boolean isParallel() {
+			return parallel;
+		}
+
+		/**
+		 * Waits for the data service to be built, and checks if the build failed.
+		 */
+		public boolean isFailed() {
+			try {
+				this.future.get();
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} catch (ExecutionException e) {
+				return true;
+			}
+		}
+
+		/**
+		 * Returns the time taken to build the data service in nanoseconds.
+		 */
+		public long getBuildTime() {
+			return buildTime;
+		}
+
+		/**
+		 * Waits for the data service to be built, and returns its AxisService.
+		 */
+		public AxisService getResult() throws DataServiceFault {
+			try {
+				return this.future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DataServiceFault(e, "Interrupted while building the data service at '" +
+						this.file.getAbsolutePath() + "'");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof DataServiceFault) {
+					throw (DataServiceFault) e.getCause();
+				}
+				throw new DataServiceFault(e.getCause(), "Error in building the data service at '" +
+						this.file.getAbsolutePath() + "'");
+			}
+		}
+
+		/**
+		 * Cleans up the data service, which is not going to be deployed, in the tenant it was
+		 * built in.
+		 */
+		public void discard() {
+			DataService dataService = null;
+			try {
+				dataService = (DataService) this.getResult().getParameter(
+						DBConstants.DATA_SERVICE_OBJECT).getValue();
+			} catch (DataServiceFault e) {
+				dataService = e.getSourceDataService();
+			}
+			if (dataService != null) {
+				PrivilegedCarbonContext.startTenantFlow();
+				try {
+					PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(this.tenantId);
+					PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(this.tenantDomain);
+					dataService.cleanup();
+				} catch (DataServiceFault e) {
+					log.warn("Error in data service cleanup: " + e.getMessage(), e);
+				} finally {
+					PrivilegedCarbonContext.endTenantFlow();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * An undeployed data service, which is kept until its new version is deployed, and then
+	 * cleaned up in the tenant it belongs to, once its queries in progress complete, or the
+	 * drain timeout elapses.
+	 */
+	private static class RetiredDataService implements Runnable {
+
+		private final DataService dataService;
+
+		private final int tenantId;
+
+		private final String tenantDomain;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private volatile long releaseTime;
+
+		public RetiredDataService(DataService dataService) {
+			this.dataService = dataService;
+			CarbonContext cCtx = CarbonContext.getThreadLocalCarbonContext();
+			this.tenantId = cCtx.getTenantId();
+			this.tenantDomain = cCtx.getTenantDomain();
+		}
+
+		public DataService getDataService() {
+			return dataService;
+		}
+
+		/**
+		 * Cleans up the data service once its queries in progress complete, this is only done once.
+		 */
+		public void release() {
+			if (this.released.compareAndSet(false, true)) {
+				this.releaseTime = System.currentTimeMillis();
+				this.run();
+			}
+		}
+
+		@Override
+		public void run() {
+			int activeQueryCount = this.dataService.getActiveQueryCount();
+			if (activeQueryCount > 0 &&
+					System.currentTimeMillis() - this.releaseTime < REDEPLOY_DRAIN_TIMEOUT) {
+				DBUtils.scheduleTask(this, REDEPLOY_DRAIN_POLL_INTERVAL);
+				return;
+			}
+			if (activeQueryCount > 0) {
+				log.warn("Closing the configs of the previous version of data service '" +
+						this.dataService.getName() + "' with " + activeQueryCount +
+						" queries in progress, after " + REDEPLOY_DRAIN_TIMEOUT + " ms");
+			}
+			PrivilegedCarbonContext.startTenantFlow();
+			try {
+				PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(this.tenantId);
+				PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(this.tenantDomain);
+				this.dataService.closeConfigs();
+				if (log.isDebugEnabled()) {
+					log.debug("Previous version of data service '" + this.dataService.getName() +
+							"' cleaned up");
+				}
+			} catch (Throwable e) {
+				log.warn("Error in data service cleanup: " + e.getMessage(), e);
+			} finally {
+				PrivilegedCarbonContext.endTenantFlow();
+			}
+		}
+
+	}
+
 }
@@ -28,6 +28,8 @@ import org.apache.axis2.receivers.RawXMLINOutMessageReceiver;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBoxResultDataSource;
+import org.wso2.carbon.dataservices.core.engine.SpooledBlobDataSource;
 
 /**
  * This class represents the Axis2 message receiver used to dispatch in-out service calls.
@@ -36,6 +38,30 @@ public class DBInOutMessageReceiver extends RawXMLINOutMessageReceiver {
 	
 	private static final Log log = LogFactory.getLog(DBInOutMessageReceiver.class);
 	
+	/**
+	 * Receives the message, and sends the response, after which the temporary files of the
+	 * response attachments are deleted, whether the response was sent or not. A request box
+	 * transaction, which is left open until its streamed result is written, is rolled back if
+	 * the result was not written.
+	 * 
+	 * @param msgContext
+	 *            the incoming message context
+	 * @throws AxisFault
+	 *             on an error in processing the message, or in sending the response
+	 */
+	@Override
+	public void receive(MessageContext msgContext) throws AxisFault {
+		try {
+			super.receive(msgContext);
+		} finally {
+			try {
+				RequestBoxResultDataSource.finalizeUnwrittenResult(msgContext);
+			} finally {
+				SpooledBlobDataSource.deleteSpooledFiles(msgContext);
+			}
+		}
+	}
+	
 	/**
 	 * Invokes the business logic invocation on the service implementation class
 	 * 
@@ -83,6 +83,7 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -709,6 +710,17 @@ public class DBUtils {
         globalExecutorService.schedule(task, delay, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Schedules a task to be executed periodically, until the returned future is cancelled.
+     *
+     * @param task   The task to be executed
+     * @param period The period between executions in milliseconds
+     * @return The future of the scheduled task
+     */
+    public static ScheduledFuture<?> scheduleTaskAtFixedRate(Runnable task, long period) {
+        return globalExecutorService.scheduleAtFixedRate(task, period, period, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Check the given text is empty or not.
      *
@@ -34,6 +34,8 @@ import org.wso2.carbon.dataservices.core.description.resource.Resource.ResourceI
 import org.wso2.carbon.dataservices.core.description.resource.ResourceFactory;
 import org.wso2.carbon.dataservices.core.engine.CallableRequest;
 import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.DataServiceWarmup;
+import org.wso2.carbon.dataservices.core.engine.WarmupOperation;
 import org.wso2.securevault.SecretResolver;
 import org.wso2.securevault.SecretResolverFactory;
 import org.wso2.securevault.SecurityConstants;
@@ -57,9 +59,22 @@ public class DataServiceFactory {
      *
      * @see DataService
      */
-    @SuppressWarnings("unchecked")
     public static DataService createDataService(OMElement dbsElement,
                                                 String dsLocation) throws DataServiceFault {
+        return createDataService(dbsElement, dsLocation, null);
+    }
+
+    /**
+     * Creates a DataService object with the given information, which is a new version of the
+     * given data service when it is redeployed. The configs of the previous version, which are
+     * not changed, are reused with their connections.
+     *
+     * @param previousDataService The previous version of the data service, can be null
+     * @see ConfigFactory#createConfig(DataService, OMElement, DataService)
+     */
+    @SuppressWarnings("unchecked")
+    public static DataService createDataService(OMElement dbsElement, String dsLocation,
+                                                DataService previousDataService) throws DataServiceFault {
         DataService dataService = null;
         try {
             /* get service name */
@@ -103,6 +118,18 @@ public class DataServiceFactory {
                 boxcarringEnabled = Boolean.parseBoolean(boxcarringEnabledStr);
             }
 
+            boolean parallelRequestBoxEnabled = false;
+            String parallelRequestBoxEnabledStr = dbsElement.getAttributeValue(
+                    new QName(DBSFields.ENABLE_PARALLEL_REQUEST_BOX));
+            if (parallelRequestBoxEnabledStr != null) {
+                parallelRequestBoxEnabled = Boolean.parseBoolean(parallelRequestBoxEnabledStr);
+            }
+
+            String warmupEnabledStr = dbsElement.getAttributeValue(
+                    new QName(DBSFields.ENABLE_WARMUP));
+            boolean warmupEnabled = warmupEnabledStr != null ? Boolean.parseBoolean(warmupEnabledStr) :
+                    Boolean.getBoolean(DataServiceWarmup.WARMUP_PROPERTY);
+
             boolean disableStreaming = false;
             String disableStreamingStr = dbsElement.getAttributeValue(
                     new QName(DBSFields.DISABLE_STREAMING));
@@ -136,6 +163,16 @@ public class DataServiceFactory {
             /* set disable streaming */
             dataService.setDisableStreaming(disableStreaming);
 
+            /* set parallel request box execution */
+            dataService.setParallelRequestBoxEnabled(parallelRequestBoxEnabled);
+
+            /* set the warm-up */
+            dataService.setWarmupEnabled(warmupEnabled);
+            for (Iterator<OMElement> itr = dbsElement.getChildrenWithName(
+                    new QName(DBSFields.WARMUP_OPERATION)); itr.hasNext();) {
+                dataService.addWarmupOperation(createWarmupOperation(itr.next()));
+            }
+
             /* add the password manager */
             Iterator<OMElement> passwordMngrItr = dbsElement.getChildrenWithName(
                     new QName(SecurityConstants.PASSWORD_MANAGER_SIMPLE));
@@ -147,7 +184,8 @@ public class DataServiceFactory {
             /* add the configs */
             for (Iterator<OMElement> itr = dbsElement.getChildrenWithName(
                     new QName(DBSFields.CONFIG)); itr.hasNext();) {
-                dataService.addConfig(ConfigFactory.createConfig(dataService, itr.next()));
+                dataService.addConfig(ConfigFactory.createConfig(dataService, itr.next(),
+                        previousDataService));
             }
 
             /* add event triggers */
@@ -201,6 +239,22 @@ public class DataServiceFactory {
         }
     }
     
+    @SuppressWarnings("unchecked")
+    private static WarmupOperation createWarmupOperation(OMElement warmupOpEl) throws DataServiceFault {
+        String name = warmupOpEl.getAttributeValue(new QName(DBSFields.NAME));
+        if (DBUtils.isEmptyString(name)) {
+            throw new DataServiceFault("The operation name of a warm-up operation is not given");
+        }
+        WarmupOperation warmupOperation = new WarmupOperation(name);
+        for (Iterator<OMElement> itr = warmupOpEl.getChildrenWithName(
+                new QName(DBSFields.WITH_PARAM)); itr.hasNext();) {
+            OMElement paramEl = itr.next();
+            warmupOperation.addParam(paramEl.getAttributeValue(new QName(DBSFields.NAME)),
+                    paramEl.getAttributeValue(new QName(DBSFields.VALUE)));
+        }
+        return warmupOperation;
+    }
+
     private static void populateBatchOperations(DataService dataService) {
         List<Operation> tmpOpList = new ArrayList<Operation>();
         Operation operation;
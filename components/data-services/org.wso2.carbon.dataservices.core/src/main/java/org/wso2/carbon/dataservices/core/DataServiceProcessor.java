@@ -19,14 +19,19 @@
 package org.wso2.carbon.dataservices.core;
 
 import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMDataSource;
 import org.apache.axiom.om.OMDocument;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
 import org.apache.axis2.context.MessageContext;
 import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBoxResultDataSource;
 import org.wso2.carbon.dataservices.core.dispatch.DataServiceRequest;
 import org.wso2.carbon.dataservices.core.dispatch.DispatchStatus;
+import org.wso2.carbon.dataservices.core.engine.DSOMDataSource;
 import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 
 import javax.xml.namespace.QName;
 
@@ -37,17 +42,52 @@ public class DataServiceProcessor {
 
 	public static OMElement dispatch(MessageContext msgContext) throws DataServiceFault {
 	    DispatchStatus.clearRequestStatus();
-		DataServiceRequest request = DataServiceRequest.createDataServiceRequest(msgContext);
-		OMElement result = request.dispatch();
-		if (result == null) {
-			DataService ds = request.getDataService();
-			String requestName = request.getRequestName();			
-			if (!ds.hasResultForRequest(requestName) && ds.isReturningRequestStatus(requestName)) {
-				/* in-only and returning the request status */
-				result = generateRequestSuccessElement();
-			}			
+		RequestTrace trace = RequestTrace.start(msgContext.getAxisService().getName(),
+				msgContext.getAxisOperation().getName().getLocalPart());
+		boolean error = true;
+		boolean streamed = false;
+		try {
+			DataServiceRequest request = DataServiceRequest.createDataServiceRequest(msgContext);
+			OMElement result = request.dispatch();
+			if (result == null) {
+				DataService ds = request.getDataService();
+				String requestName = request.getRequestName();			
+				if (!ds.hasResultForRequest(requestName) && ds.isReturningRequestStatus(requestName)) {
+					/* in-only and returning the request status */
+					result = generateRequestSuccessElement();
+				}			
+			} else if (trace != null) {
+				streamed = deferTraceFinish(result, trace);
+			}
+			error = false;
+			return result;
+		} finally {
+			if (trace != null && !streamed) {
+				trace.finish(error);
+			}
 		}
-		return result;
+	}
+
+	/**
+	 * Hands over the request trace to the data source of a streamed result, to be finished
+	 * after the result is written.
+	 * @return true if the result is streamed
+	 */
+	private static boolean deferTraceFinish(OMElement result, RequestTrace trace) {
+		if (!(result instanceof OMSourcedElementImpl)) {
+			return false;
+		}
+		OMDataSource dataSource = ((OMSourcedElementImpl) result).getDataSource();
+		if (dataSource instanceof DSOMDataSource) {
+			((DSOMDataSource) dataSource).setRequestTrace(trace);
+		} else if (dataSource instanceof RequestBoxResultDataSource) {
+			((RequestBoxResultDataSource) dataSource).setRequestTrace(trace);
+		} else {
+			return false;
+		}
+		/* the result is written later, possibly in a different thread */
+		RequestTrace.setCurrent(null);
+		return true;
 	}
 	
 	private static OMElement generateRequestSuccessElement() {
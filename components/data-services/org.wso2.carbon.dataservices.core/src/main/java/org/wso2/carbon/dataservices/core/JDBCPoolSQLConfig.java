@@ -19,13 +19,18 @@
 package org.wso2.carbon.dataservices.core;
 
 import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
 import org.wso2.carbon.dataservices.common.DBConstants.RDBMS;
 import org.wso2.carbon.dataservices.common.RDBMSUtils;
 import org.wso2.carbon.dataservices.core.description.config.SQLConfig;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
 import org.wso2.carbon.dataservices.core.odata.ODataServiceFault;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
 import org.wso2.carbon.ndatasource.common.DataSourceException;
 import org.wso2.carbon.ndatasource.rdbms.RDBMSConfiguration;
 import org.wso2.carbon.ndatasource.rdbms.RDBMSConfiguration.DataSourceProperty;
@@ -34,22 +39,66 @@ import org.wso2.carbon.ndatasource.rdbms.RDBMSDataSourceConstants;
 import org.wso2.carbon.ndatasource.rdbms.utils.RDBMSDataSourceUtils;
 
 import javax.xml.stream.XMLStreamException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * This class represents a Tomcat JDBC Pool based SQL data source configuration.
  */
 public class JDBCPoolSQLConfig extends SQLConfig {
 
+	private static final Log log = LogFactory.getLog(JDBCPoolSQLConfig.class);
+
+	/* system property to set the interval of the connection pool statistics log in seconds,
+	 * 0 turns it off */
+	private static final String STATS_LOG_INTERVAL_PROPERTY = "dss.connection.stats.log.interval";
+
+	private static final long DEFAULT_STATS_LOG_INTERVAL = 300;
+
 	private DataSource dataSource;
 
+	private ConnectionPoolStatistics poolStatistics;
+
+	private ScheduledFuture<?> statsLogTask;
+
 	public JDBCPoolSQLConfig(DataService dataService, String configId, String type, Map<String, String> properties,
 	                         boolean odataEnable) throws DataServiceFault {
 		super(dataService, configId, type, RDBMSUtils.convertConfigPropsFromV2toV3(properties), odataEnable);
+		this.poolStatistics = new ConnectionPoolStatistics(configId);
+	}
+
+	/**
+	 * Schedules the periodic log of the connection pool statistics. This is done when the pool
+	 * is created, so a config which fails to initialize, or is never used, has no task to cancel.
+	 */
+	private void scheduleStatsLog() {
+		long interval = Long.getLong(STATS_LOG_INTERVAL_PROPERTY, DEFAULT_STATS_LOG_INTERVAL);
+		if (interval > 0) {
+			this.statsLogTask = DBUtils.scheduleTaskAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						poolStatistics.logSummary();
+					} catch (Throwable e) {
+						/* an exception would stop the periodic execution */
+						log.error("Error in logging connection pool statistics: " + e.getMessage(), e);
+					}
+				}
+			}, interval * 1000);
+		}
+	}
+
+	/**
+	 * Checks if the periodic log of the connection pool statistics is scheduled.
+	 */
+	public boolean isStatsLogScheduled() {
+		ScheduledFuture<?> task = this.statsLogTask;
+		return task != null && !task.isCancelled();
 	}
 	
 	@Override
@@ -58,10 +107,15 @@ public class JDBCPoolSQLConfig extends SQLConfig {
 		    synchronized (this) {
 		    	/* this second check is necessary, in case another thread already initialized it */
 			    if (this.dataSource == null) {
+				    if (this.isClosed()) {
+					    /* a pool created after the config is closed would never be closed */
+					    throw new DataServiceFault("Config '" + this.getConfigId() + "' is closed");
+				    }
 			        try {
 				        RDBMSDataSource rdbmsDS = new RDBMSDataSource(
 						        this.createConfigFromProps(this.getProperties()));
 				        this.dataSource = rdbmsDS.getDataSource();
+				        this.scheduleStatsLog();
 			        } catch (Exception e) {
 				        throw new DataServiceFault(e,
 						        "Error creating JDBC Pool SQL Config: "	+ e.getMessage());
@@ -88,7 +142,31 @@ public class JDBCPoolSQLConfig extends SQLConfig {
 	}
 
 	@Override
-	public void close() {
+	protected int getWarmupConnectionCount() throws DataServiceFault {
+		PoolConfiguration poolProperties = this.getDataSource().getPoolProperties();
+		int count = Math.max(poolProperties.getMinIdle(), poolProperties.getInitialSize());
+		if (poolProperties.getMaxActive() > 0) {
+			count = Math.min(count, poolProperties.getMaxActive());
+		}
+		return Math.max(count, 1);
+	}
+
+	@Override
+	public ConnectionPoolStatistics getConnectionPoolStatistics() {
+		return poolStatistics;
+	}
+
+	@Override
+	protected boolean isPoolExhausted(SQLException e) {
+		return e instanceof PoolExhaustedException;
+	}
+
+	@Override
+	public synchronized void close() {
+		super.close();
+		if (this.statsLogTask != null) {
+			this.statsLogTask.cancel(false);
+		}
 		if (this.dataSource != null) {
 			this.dataSource.close();
 		}		
@@ -62,12 +62,20 @@ public class JWTAuthorizationProvider implements AuthorizationProvider {
     private static final String CLAIM_VALUE_SEPARATOR = "\":\"";
     private static final String ESCAPED_DOUBLE_QUOTATION = "\"";
     private static final String USERNAME = "username";
+    private static final String TOKEN_CACHE_SIZE_PROPERTY_KEY = "tokenCacheSize";
+    private static final String TOKEN_CACHE_MAX_AGE_PROPERTY_KEY = "tokenCacheMaxAge";
+    private static final Pattern EXPIRY_CLAIM_PATTERN = Pattern.compile("\"exp\"\\s*:\\s*(\\d+)");
+
+    /* cache of verified tokens, null if caching is disabled */
+    private JWTTokenCache tokenCache = null;
 
     private static ConcurrentHashMap<KeyStore, Certificate> publicCerts = new ConcurrentHashMap<KeyStore, Certificate>();
     private static ConcurrentHashMap<Integer, KeyStore> keyStores = new ConcurrentHashMap<Integer, KeyStore>();
 
     @Override
     public String[] getUserRoles(MessageContext msgContext) throws DataServiceFault {
+        /* only the token verification is cached, the roles are read from the user store for each
+         * request, so a revoked role is not used while the token is cached */
         return DBUtils.getUserRoles(getUsername(msgContext)); //need to retrieve from msgcontext
     }
 
@@ -94,6 +102,50 @@ public class JWTAuthorizationProvider implements AuthorizationProvider {
     @Override
     public void init(Map<String, String> authorizationProps) throws DataServiceFault {
         endUserClaim = authorizationProps.get(ENDUSER_CLAIM_PROPERTY_KEY);
+        int cacheSize = JWTTokenCache.DEFAULT_CACHE_SIZE;
+        long maxAge = JWTTokenCache.DEFAULT_MAX_AGE_MILLIS;
+        try {
+            String value = authorizationProps.get(TOKEN_CACHE_SIZE_PROPERTY_KEY);
+            if (value != null && !value.trim().isEmpty()) {
+                cacheSize = Integer.parseInt(value.trim());
+            }
+            value = authorizationProps.get(TOKEN_CACHE_MAX_AGE_PROPERTY_KEY);
+            if (value != null && !value.trim().isEmpty()) {
+                /* max age is given in seconds */
+                maxAge = Long.parseLong(value.trim()) * 1000;
+            }
+        } catch (NumberFormatException e) {
+            throw new DataServiceFault(e, "Invalid JWT token cache configuration - " + e.getMessage());
+        }
+        if (cacheSize > 0 && maxAge > 0) {
+            tokenCache = new JWTTokenCache(cacheSize, maxAge);
+        } else {
+            tokenCache = null;
+        }
+    }
+
+    /**
+     * Extracts the expiry time of the JWT token.
+     *
+     * @param signedJWTToken The signed JWT token
+     * @return The expiry time in milliseconds, or -1 if the token doesn't have a valid "exp" claim
+     */
+    private long extractExpiry(String signedJWTToken) {
+        String[] segments = signedJWTToken.split("\\.");
+        if (segments.length < 2) {
+            return -1;
+        }
+        try {
+            String body = new String(Base64Utils.decode(segments[1]), UTF_8_ENCODING);
+            Matcher matcher = EXPIRY_CLAIM_PATTERN.matcher(body);
+            if (matcher.find()) {
+                /* "exp" is given in seconds since epoch */
+                return Long.parseLong(matcher.group(1)) * 1000;
+            }
+        } catch (Exception e) {
+            log.debug("Error in reading the expiry time of the JWT token - " + e.getMessage(), e);
+        }
+        return -1;
     }
 
     /**
@@ -114,6 +166,17 @@ public class JWTAuthorizationProvider implements AuthorizationProvider {
             //Get the JWT token from the header.
             String jwt = obj.getHeader(JWT_TOKEN_HEADER_NAME);
 
+            JWTTokenCache cache = tokenCache;
+            String cacheKey = null;
+            if (jwt != null && cache != null) {
+                cacheKey = cache.generateKey(CarbonContext.getThreadLocalCarbonContext().getTenantId(), jwt);
+                JWTTokenCache.Entry entry = cache.get(cacheKey);
+                if (entry != null) {
+                    /* already verified, skip decoding and signature validation */
+                    return entry.getUsername();
+                }
+            }
+
             if (jwt != null && validateSignature(jwt)) {
 
                 String jwtToken = null;
@@ -125,8 +188,9 @@ public class JWTAuthorizationProvider implements AuthorizationProvider {
                     //Extract the end user claim.
                     String[] tempStr4 = jwtToken.split(endUserClaim + CLAIM_VALUE_SEPARATOR);
                     String[] decoded = tempStr4[1].split(ESCAPED_DOUBLE_QUOTATION);
-                    System.out.println("tempStr4= " + tempStr4.toString());
-                    System.out.println("decoded=" + decoded.toString());
+                    if (cacheKey != null) {
+                        cache.put(cacheKey, decoded[0], extractExpiry(jwt));
+                    }
                     //Set username to message context.
                     return decoded[0];
                 }
@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of JWT tokens whose signatures have already been verified. Entries are keyed by
+ * the tenant and a SHA-256 hash of the token, so the raw tokens are never retained, and are dropped once
+ * the token's expiry time (or the configured maximum age) has passed. Only the verified username is
+ * cached, the roles of the user are not, so role changes take effect on the next request.
+ */
+public class JWTTokenCache {
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    public static final long DEFAULT_MAX_AGE_MILLIS = 15 * 60 * 1000L;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long maxAgeMillis;
+
+    private final Map<String, Entry> entries;
+
+    public JWTTokenCache(final int maxSize, long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return super.size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the cached entry of a previously verified token.
+     *
+     * @param key The key of the token, created using {@link #generateKey(int, String)}
+     * @return The cached entry, or null if the token is not cached or has expired
+     */
+    public Entry get(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a verified token to the cache.
+     *
+     * @param key         The key of the token, created using {@link #generateKey(int, String)}
+     * @param username    The username extracted from the token
+     * @param tokenExpiry The expiry time of the token in milliseconds, or -1 if the token does not carry one
+     * @return The cached entry, or null if the token has already expired
+     */
+    public Entry put(String key, String username, long tokenExpiry) {
+        long now = System.currentTimeMillis();
+        long expiry = now + this.maxAgeMillis;
+        if (tokenExpiry >= 0 && tokenExpiry < expiry) {
+            expiry = tokenExpiry;
+        }
+        if (expiry <= now) {
+            return null;
+        }
+        Entry entry = new Entry(username, expiry);
+        this.entries.put(key, entry);
+        return entry;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Creates the key of a token, which is hashed once per request, and used to look it up and to
+     * add it to the cache.
+     *
+     * @param tenantId The tenant the token was presented to
+     * @param token    The signed JWT token
+     * @return The key
+     */
+    public String generateKey(int tenantId, String token) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            /* SHA-256 is a mandatory algorithm in every JRE */
+            throw new IllegalStateException("SHA-256 cannot be found", e);
+        }
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(digest[i] & 0xf0) >> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+        }
+        return tenantId + ":" + new String(chars);
+    }
+
+    /**
+     * Represents the verified information of a cached token.
+     */
+    public static class Entry {
+
+        private final String username;
+
+        private final long expiry;
+
+        public Entry(String username, long expiry) {
+            this.username = username;
+            this.expiry = expiry;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public long getExpiry() {
+            return expiry;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= this.expiry;
+        }
+
+    }
+
+}
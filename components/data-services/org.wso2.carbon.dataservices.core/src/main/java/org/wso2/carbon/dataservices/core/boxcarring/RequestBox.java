@@ -20,20 +20,68 @@ package org.wso2.carbon.dataservices.core.boxcarring;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
+import org.apache.axis2.context.MessageContext;
 import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.DataServiceUser;
+import org.wso2.carbon.dataservices.core.TLConnectionStore;
 import org.wso2.carbon.dataservices.core.dispatch.DataServiceRequest;
+import org.wso2.carbon.dataservices.core.dispatch.DispatchStatus;
+import org.wso2.carbon.dataservices.core.engine.DSOMDataSource;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 
 /**
  * Represents a boxcarring session service request group.
+ * <p/>
+ * If parallel request box execution is enabled for the data service, the requests found by
+ * {@link RequestDependencyAnalyzer} are executed concurrently in worker threads, on their own
+ * connections, while the rest are executed in order in the calling thread, in the request box
+ * transaction. All of them are completed before the last request is executed.
+ * <p/>
+ * The results of the requests other than the last are not written anywhere, so they are executed
+ * without an output. The result of the last request is streamed to the caller, in which case the
+ * request box transaction is finalized by {@link RequestBoxResultDataSource}, once it is written.
  */
 public class RequestBox {
 	
+	private static final Log log = LogFactory.getLog(RequestBox.class);
+	
+	/* system property to set the number of threads used for parallel request box execution */
+	private static final String PARALLELISM_PROPERTY = "dss.requestbox.parallelism";
+	
+	/* system property to set the time in milliseconds to wait for the concurrent requests */
+	private static final String TIMEOUT_PROPERTY = "dss.requestbox.timeout";
+	
+	private static final long DEFAULT_TIMEOUT = 5 * 60 * 1000;
+	
+	/* the number of requests which can wait for a thread, per thread, before the requests
+	 * are executed in order instead */
+	private static final int QUEUED_REQUESTS_PER_THREAD = 4;
+	
+	private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+	
+	private static volatile ThreadPoolExecutor executor;
+	
 	private List<DataServiceRequest> requests;
 		
 	public RequestBox() {
@@ -61,30 +109,328 @@ public class RequestBox {
 		OMElement result;
 		List<DataServiceRequest> reqList = this.getRequests();
 		int n = reqList.size();
+		boolean[] concurrent = this.findConcurrentRequests(reqList);
+		List<Future<Void>> futures = null;
+		if (concurrent != null) {
+			futures = this.submitConcurrentRequests(reqList, concurrent);
+		}
 		OMElement resultElement = null;
-		for (int i = 0; i < n; i++) {
-			result = reqList.get(i).dispatch();
-			if (result != null) {
-				try {
-					/* if it's the last request, return the result,
-					 * getXMLStreamReader() method will execute the actual request */
+		try {
+			for (int i = 0; i < n; i++) {
+				if (futures != null) {
+					if (concurrent[i]) {
+						continue;
+					}
+					if (i == (n - 1)) {
+						/* the concurrent requests must succeed, before the result is created */
+						this.waitForCompletion(futures);
+						futures = null;
+					}
+				}
+				result = reqList.get(i).dispatch();
+				if (result != null) {
+					try {
+						/* if it's the last request, return the result,
+						 * getXMLStreamReader() method will execute the actual request */
+						if (i == (n - 1)) {
+							DSOMDataSource dataSource = getStreamingDataSource(result);
+							if (dataSource != null) {
+								/* the result is streamed to the caller, and the request box
+								 * transaction is finalized after it is written */
+								return RequestBoxResultDataSource.createResultElement(
+										reqList.get(i).getDataService(), dataSource);
+							}
+							resultElement = DBUtils.cloneAndReturnBuiltElement(result);
+							return DBUtils.wrapBoxCarringResponse(resultElement);
+						} else {
+						    /* process the result of the request, no need to keep the data */
+						    discardResult(result);
+						}
+					} catch (XMLStreamException e) {
+						throw new DataServiceFault(e, "Error in request box result serializing");
+					}
+				} else {
 					if (i == (n - 1)) {
-						resultElement = DBUtils.cloneAndReturnBuiltElement(result);
 						return DBUtils.wrapBoxCarringResponse(resultElement);
-					} else {
-					    /* process the result of the request, no need to cache the data */
-					    result.serializeAndConsume(new NullOutputStream());
 					}
-				} catch (XMLStreamException e) {
-					throw new DataServiceFault(e, "Error in request box result serializing");
 				}
-			} else {
-				if (i == (n - 1)) {
-					return DBUtils.wrapBoxCarringResponse(resultElement);
+			}
+			return null;
+		} finally {
+			if (futures != null) {
+				/* an earlier request has failed, the queued requests are not required anymore */
+				for (Future<Void> future : futures) {
+					future.cancel(false);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Executes the queries of a result which is not used. If the result is still not
+	 * written, the queries are executed without an output, and the result rows which are
+	 * not needed for exported values or nested queries are not read at all.
+	 */
+	private static void discardResult(OMElement result) throws XMLStreamException {
+		DSOMDataSource dataSource = getStreamingDataSource(result);
+		if (dataSource == null) {
+			result.serializeAndConsume(new NullOutputStream());
+			return;
+		}
+		DispatchStatus.setResultDiscarded(true);
+		try {
+			dataSource.execute(null);
+		} finally {
+			DispatchStatus.setResultDiscarded(false);
+		}
+	}
+	
+	/**
+	 * Returns the data source of a result which is still not written,
+	 * or null if the result is already built.
+	 */
+	private static DSOMDataSource getStreamingDataSource(OMElement result) {
+		if (result instanceof OMSourcedElementImpl) {
+			OMSourcedElementImpl sourcedElement = (OMSourcedElementImpl) result;
+			if (!sourcedElement.isExpanded() &&
+					sourcedElement.getDataSource() instanceof DSOMDataSource) {
+				return (DSOMDataSource) sourcedElement.getDataSource();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Finalizes the request box transaction, the connections are committed or rolled back,
+	 * and closed, and the distributed transaction is ended, if it was started by us.
+	 */
+	public static void finalizeTx(DataService dataService, boolean error) throws DataServiceFault {
+		RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_COMMIT, null);
+		try {
+			finalizeTxInternal(dataService, error);
+		} finally {
+			RequestTrace.endSpan(span);
+		}
+	}
+	
+	private static void finalizeTxInternal(DataService dataService, boolean error)
+			throws DataServiceFault {
+		if (error) {
+			if (dataService.isInDTX()) {
+				TLConnectionStore.rollbackNonXAConns();
+				TLConnectionStore.closeAll();
+				if (dataService.getDSSTxManager().isDTXInitiatedByUS()) {
+					dataService.getDSSTxManager().rollback();
 				}
+			} else {
+				TLConnectionStore.rollbackAll();
+				TLConnectionStore.closeAll();
+			}
+		} else {
+			if (dataService.isInDTX()) {
+				TLConnectionStore.commitNonXAConns();
+			} else {
+				TLConnectionStore.commitAll();
+			}
+			TLConnectionStore.closeAll();
+			if (dataService.getDSSTxManager().isDTXInitiatedByUS()) {
+				dataService.getDSSTxManager().commit();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the requests that can be executed concurrently,
+	 * or null if the requests have to be executed in order.
+	 */
+	private boolean[] findConcurrentRequests(List<DataServiceRequest> reqList) {
+		/* the last request is always executed in order, so at least two others are required */
+		if (reqList.size() < 3) {
+			return null;
+		}
+		DataService dataService = reqList.get(0).getDataService();
+		if (!dataService.isParallelRequestBoxEnabled()) {
+			return null;
+		}
+		/* worker threads cannot take part in a distributed transaction started by the caller */
+		if (dataService.isInDTX() && !dataService.getDSSTxManager().isDTXInitiatedByUS()) {
+			return null;
+		}
+		boolean[] concurrent = RequestDependencyAnalyzer.findConcurrentRequests(reqList);
+		for (boolean value : concurrent) {
+			if (value) {
+				return concurrent;
 			}
 		}
 		return null;
 	}
 	
+	private List<Future<Void>> submitConcurrentRequests(List<DataServiceRequest> reqList,
+			boolean[] concurrent) {
+		ThreadPoolExecutor executorService = getExecutor();
+		DataServiceUser user = DataService.getCurrentUser();
+		MessageContext messageContext = MessageContext.getCurrentMessageContext();
+		PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+		int tenantId = carbonContext.getTenantId();
+		String tenantDomain = carbonContext.getTenantDomain();
+		RequestTrace trace = RequestTrace.getCurrent();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int i = 0; i < concurrent.length; i++) {
+			if (concurrent[i]) {
+				try {
+					futures.add(executorService.submit(new ConcurrentRequestTask(reqList.get(i), user,
+							messageContext, tenantId, tenantDomain, trace)));
+					if (log.isDebugEnabled()) {
+						log.debug("Executing request box request '" + reqList.get(i).getRequestName()
+								+ "' concurrently");
+					}
+				} catch (RejectedExecutionException e) {
+					/* all the threads are busy and the queue is full, or the executor is shut down */
+					concurrent[i] = false;
+				}
+			}
+		}
+		return futures;
+	}
+	
+	private void waitForCompletion(List<Future<Void>> futures) throws DataServiceFault {
+		long deadline = System.currentTimeMillis() + Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT);
+		for (Future<Void> future : futures) {
+			try {
+				future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				/* the requests are interrupted, so they give up their threads and connections */
+				for (Future<Void> tmpFuture : futures) {
+					tmpFuture.cancel(true);
+				}
+				throw new DataServiceFault(e, "Timed out waiting for the concurrent request box requests");
+			} catch (ExecutionException e) {
+				/* cancel the rest, they are not required anymore */
+				for (Future<Void> tmpFuture : futures) {
+					tmpFuture.cancel(false);
+				}
+				if (e.getCause() instanceof DataServiceFault) {
+					throw (DataServiceFault) e.getCause();
+				}
+				throw new DataServiceFault(e.getCause(), "Error in executing request box request: "
+						+ e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DataServiceFault(e, "Interrupted while waiting for request box requests");
+			}
+		}
+	}
+	
+	private static ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			synchronized (RequestBox.class) {
+				if (executor == null) {
+					int threads = Integer.getInteger(PARALLELISM_PROPERTY,
+							Runtime.getRuntime().availableProcessors() * 2);
+					ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads,
+							THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+							new ArrayBlockingQueue<Runnable>(threads * QUEUED_REQUESTS_PER_THREAD),
+							new ThreadFactory() {
+								private final AtomicInteger count = new AtomicInteger();
+
+								@Override
+								public Thread newThread(Runnable runnable) {
+									Thread thread = new Thread(runnable, "DSS-RequestBox-" +
+											count.incrementAndGet());
+									thread.setDaemon(true);
+									return thread;
+								}
+							});
+					/* the threads are only kept while request boxes are executed */
+					threadPool.allowCoreThreadTimeOut(true);
+					executor = threadPool;
+				}
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * Shuts down the threads executing the concurrent request box requests, the requests
+	 * which are already running are completed. This is called when the bundle is deactivated.
+	 */
+	public static void shutdownExecutor() {
+		synchronized (RequestBox.class) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
+	
+	/**
+	 * Executes a request in a worker thread, with the caller's user and tenant information,
+	 * and releases the connections it used when it is done.
+	 */
+	private static class ConcurrentRequestTask implements Callable<Void> {
+		
+		private final DataServiceRequest request;
+		
+		private final DataServiceUser user;
+		
+		private final MessageContext messageContext;
+		
+		private final int tenantId;
+		
+		private final String tenantDomain;
+		
+		private final RequestTrace trace;
+		
+		private ConcurrentRequestTask(DataServiceRequest request, DataServiceUser user,
+				MessageContext messageContext, int tenantId, String tenantDomain,
+				RequestTrace trace) {
+			this.request = request;
+			this.user = user;
+			this.messageContext = messageContext;
+			this.tenantId = tenantId;
+			this.tenantDomain = tenantDomain;
+			this.trace = trace;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			PrivilegedCarbonContext.startTenantFlow();
+			try {
+				PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+				carbonContext.setTenantId(this.tenantId);
+				carbonContext.setTenantDomain(this.tenantDomain);
+				MessageContext.setCurrentMessageContext(this.messageContext);
+				DataService.setCurrentUser(this.user);
+				/* the spans of the request are recorded in the request box trace */
+				RequestTrace.setCurrent(this.trace);
+				/* keeps the queries from finalizing the connections, as in the calling thread */
+				DispatchStatus.setBoxcarringRequest();
+				boolean error = true;
+				try {
+					OMElement result = this.request.dispatch();
+					if (result != null) {
+						discardResult(result);
+					}
+					error = false;
+				} finally {
+					if (error) {
+						TLConnectionStore.rollbackAll();
+					} else {
+						TLConnectionStore.commitAll();
+					}
+					TLConnectionStore.closeAll();
+				}
+				return null;
+			} finally {
+				DispatchStatus.clearRequestStatus();
+				RequestTrace.setCurrent(null);
+				DataService.setCurrentUser(null);
+				MessageContext.setCurrentMessageContext(null);
+				TLParamStore.clear();
+				PrivilegedCarbonContext.endTenantFlow();
+			}
+		}
+		
+	}
+	
 }
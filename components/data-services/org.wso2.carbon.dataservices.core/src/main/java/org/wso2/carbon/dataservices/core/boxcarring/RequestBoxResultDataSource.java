@@ -0,0 +1,218 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.boxcarring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.axiom.om.OMDataSource;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.DBUtils;
+import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.engine.DSOMDataSource;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
+
+/**
+ * Represents the streamed result of a request box, which is the result of the last request
+ * wrapped in the data service response element. The last request is executed while the result
+ * is written, so the request box transaction is finalized here, after the result is written,
+ * or when writing it fails. The result can only be written once. If the result is never written,
+ * i.e. the response is not sent, the transaction is rolled back by the message receiver, using
+ * {@link #finalizeUnwrittenResult(MessageContext)}.
+ */
+public class RequestBoxResultDataSource implements OMDataSource {
+
+	private static final Log log = LogFactory.getLog(RequestBoxResultDataSource.class);
+
+	private static final String RESPONSE_WRAPPER_PREFIX = "ds";
+
+	private static final int XMLREADER_DEFAULT_MESSAGE_SIZE = 1024;
+
+	/* the message context property which keeps the result of the request box, until it is written */
+	private static final String REQUEST_BOX_RESULT_PROPERTY = "DSS_REQUEST_BOX_RESULT";
+
+	private DataService dataService;
+
+	private DSOMDataSource lastResultDataSource;
+
+	private boolean consumed;
+	
+	/* the trace of the request box, which is finished when the result is written */
+	private RequestTrace requestTrace;
+
+	public RequestBoxResultDataSource(DataService dataService, DSOMDataSource lastResultDataSource) {
+		this.dataService = dataService;
+		this.lastResultDataSource = lastResultDataSource;
+	}
+
+	/**
+	 * Creates the request box response element, which streams the result of the last request.
+	 */
+	public static OMElement createResultElement(DataService dataService,
+			DSOMDataSource lastResultDataSource) {
+		RequestBoxResultDataSource dataSource = new RequestBoxResultDataSource(dataService,
+				lastResultDataSource);
+		MessageContext msgContext = MessageContext.getCurrentMessageContext();
+		if (msgContext != null) {
+			msgContext.setProperty(REQUEST_BOX_RESULT_PROPERTY, dataSource);
+		}
+		return new OMSourcedElementImpl(new QName(DBConstants.WSO2_DS_NAMESPACE,
+				DBConstants.DATA_SERVICE_RESPONSE_WRAPPER_ELEMENT, RESPONSE_WRAPPER_PREFIX),
+				DBUtils.getOMFactory(), dataSource);
+	}
+
+	/**
+	 * Finalizes the request box transaction of the given message, if its result has not been
+	 * written. The transaction is rolled back, and its connections are released. This is called
+	 * by the message receiver, once it is done with the message, in the thread which received it.
+	 *
+	 * @param msgContext The incoming message context
+	 */
+	public static void finalizeUnwrittenResult(MessageContext msgContext) {
+		RequestBoxResultDataSource dataSource = (RequestBoxResultDataSource) msgContext.getProperty(
+				REQUEST_BOX_RESULT_PROPERTY);
+		if (dataSource == null) {
+			return;
+		}
+		msgContext.removeProperty(REQUEST_BOX_RESULT_PROPERTY);
+		dataSource.discard();
+	}
+
+	/**
+	 * Rolls back the request box transaction, if the result has not been written.
+	 */
+	private synchronized void discard() {
+		if (this.consumed) {
+			return;
+		}
+		this.consumed = true;
+		if (log.isDebugEnabled()) {
+			log.debug("The request box result of data service '" + this.getDataService().getName() +
+					"' was not written, rolling back its transaction");
+		}
+		try {
+			RequestBox.finalizeTx(this.getDataService(), true);
+		} catch (DataServiceFault e) {
+			log.error("Error in finalizing the request box transaction", e);
+		} finally {
+			TLParamStore.clear();
+			if (this.requestTrace != null) {
+				this.requestTrace.finish(true);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the given request box result is streamed, if so, the request box transaction
+	 * must be left open, to be finalized after the result is written.
+	 */
+	public static boolean isStreamedResult(OMElement result) {
+		return result instanceof OMSourcedElementImpl && ((OMSourcedElementImpl) result)
+				.getDataSource() instanceof RequestBoxResultDataSource;
+	}
+
+	public DataService getDataService() {
+		return dataService;
+	}
+
+	public void setRequestTrace(RequestTrace requestTrace) {
+		this.requestTrace = requestTrace;
+	}
+
+	public void serialize(OutputStream output, OMOutputFormat format) throws XMLStreamException {
+		XMLStreamWriter xmlWriter = DBUtils.getXMLOutputFactory().createXMLStreamWriter(output);
+		this.serialize(xmlWriter);
+	}
+
+	public void serialize(Writer writer, OMOutputFormat format) throws XMLStreamException {
+		XMLStreamWriter xmlWriter = DBUtils.getXMLOutputFactory().createXMLStreamWriter(writer);
+		this.serialize(xmlWriter);
+	}
+
+	public synchronized void serialize(XMLStreamWriter xmlWriter) throws XMLStreamException {
+		if (this.consumed) {
+			throw new XMLStreamException("The request box result has already been written");
+		}
+		this.consumed = true;
+		RequestTrace.Span span = null;
+		if (this.requestTrace != null) {
+			RequestTrace.setCurrent(this.requestTrace);
+			span = RequestTrace.startSpan(RequestTrace.PHASE_SERIALIZE,
+					this.lastResultDataSource.getOpName());
+		}
+		boolean error = true;
+		try {
+			xmlWriter.writeStartElement(RESPONSE_WRAPPER_PREFIX,
+					DBConstants.DATA_SERVICE_RESPONSE_WRAPPER_ELEMENT, DBConstants.WSO2_DS_NAMESPACE);
+			xmlWriter.writeNamespace(RESPONSE_WRAPPER_PREFIX, DBConstants.WSO2_DS_NAMESPACE);
+			this.lastResultDataSource.execute(xmlWriter);
+			xmlWriter.writeEndElement();
+			xmlWriter.flush();
+			error = false;
+		} finally {
+			RequestTrace.endSpan(span);
+			try {
+				this.finalizeTx(error);
+			} finally {
+				if (this.requestTrace != null) {
+					this.requestTrace.finish(error);
+				}
+			}
+		}
+	}
+
+	private void finalizeTx(boolean error) throws XMLStreamException {
+		try {
+			RequestBox.finalizeTx(this.getDataService(), error);
+		} catch (DataServiceFault e) {
+			if (error) {
+				/* do not hide the original error */
+				log.error("Error in finalizing the request box transaction", e);
+			} else {
+				throw new XMLStreamException(e.getMessage(), e);
+			}
+		} finally {
+			TLParamStore.clear();
+		}
+	}
+
+	public XMLStreamReader getReader() throws XMLStreamException {
+		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(XMLREADER_DEFAULT_MESSAGE_SIZE);
+		XMLStreamWriter xmlWriter = DBUtils.getXMLOutputFactory().createXMLStreamWriter(byteOut);
+		this.serialize(xmlWriter);
+		xmlWriter.close();
+		ByteArrayInputStream byteIn = new ByteArrayInputStream(byteOut.toByteArray());
+		return DBUtils.getXMLInputFactory().createXMLStreamReader(byteIn);
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.boxcarring;
+
+import org.wso2.carbon.dataservices.common.DBConstants.QueryTypes;
+import org.wso2.carbon.dataservices.core.description.query.Query;
+import org.wso2.carbon.dataservices.core.dispatch.DataServiceRequest;
+import org.wso2.carbon.dataservices.core.dispatch.SingleDataServiceRequest;
+import org.wso2.carbon.dataservices.core.engine.CallQuery;
+import org.wso2.carbon.dataservices.core.engine.CallableRequest;
+import org.wso2.carbon.dataservices.core.engine.OutputElementGroup;
+import org.wso2.carbon.dataservices.core.engine.QueryParam;
+import org.wso2.carbon.dataservices.core.engine.StaticOutputElement;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the requests of a request box, which can be executed concurrently with the rest.
+ * A request is independent, if all its queries, including nested queries, are declared
+ * read-only, do not have event triggers, do not export values and do not have params which
+ * can be read from the values exported by earlier requests.
+ * <p/>
+ * The concurrent requests are executed on their own connections, while the rest are executed
+ * in the request box transaction, which holds the locks of its writes until the box is done.
+ * So a request is only executed concurrently if no request in the box writes to a config it
+ * uses, since it could otherwise wait for those locks, while the box waits for it to complete.
+ */
+public final class RequestDependencyAnalyzer {
+
+    private RequestDependencyAnalyzer() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Finds the requests which can be executed concurrently. The last request is never selected,
+     * since its result is returned as the result of the request box.
+     *
+     * @param requests The requests of the request box, in order
+     * @return A flag for each request, true if it can be executed concurrently
+     */
+    public static boolean[] findConcurrentRequests(List<DataServiceRequest> requests) {
+        int n = requests.size();
+        boolean[] concurrent = new boolean[n];
+        List<List<CallQuery>> requestCallQueries = new ArrayList<List<CallQuery>>(n);
+        Set<String> writtenConfigs = new HashSet<String>();
+        for (DataServiceRequest request : requests) {
+            List<CallQuery> callQueries = getCallQueries(request);
+            if (callQueries == null) {
+                /* i.e. batch requests, which may write to any config */
+                return concurrent;
+            }
+            for (CallQuery callQuery : callQueries) {
+                if (!callQuery.getQuery().isReadOnly()) {
+                    writtenConfigs.add(callQuery.getQuery().getConfigId());
+                }
+            }
+            requestCallQueries.add(callQueries);
+        }
+        Set<String> exportedParams = new HashSet<String>();
+        for (int i = 0; i < n - 1; i++) {
+            List<CallQuery> callQueries = requestCallQueries.get(i);
+            concurrent[i] = isIndependent(callQueries, exportedParams) &&
+                    !usesConfigs(callQueries, writtenConfigs);
+            for (CallQuery callQuery : callQueries) {
+                Query query = callQuery.getQuery();
+                if (query.hasResult() && query.getResult().getDefaultElementGroup() != null) {
+                    collectExports(query.getResult().getDefaultElementGroup(), exportedParams);
+                }
+            }
+        }
+        return concurrent;
+    }
+
+    /**
+     * Returns the call query of the request, followed by all its nested call queries,
+     * or null if the request is not a single request.
+     */
+    private static List<CallQuery> getCallQueries(DataServiceRequest request) {
+        if (!(request instanceof SingleDataServiceRequest)) {
+            return null;
+        }
+        CallableRequest callableRequest = request.getDataService().getCallableRequest(
+                request.getRequestName());
+        if (callableRequest == null || callableRequest.getCallQuery() == null ||
+                callableRequest.getCallQuery().getQuery() == null) {
+            return null;
+        }
+        List<CallQuery> callQueries = new ArrayList<CallQuery>();
+        collectCallQueries(callableRequest.getCallQuery(), callQueries, new HashSet<Query>());
+        return callQueries;
+    }
+
+    private static void collectCallQueries(CallQuery callQuery, List<CallQuery> callQueries,
+                                           Set<Query> visitedQueries) {
+        callQueries.add(callQuery);
+        Query query = callQuery.getQuery();
+        if (!visitedQueries.add(query)) {
+            return;
+        }
+        if (query.hasResult() && query.getResult().getDefaultElementGroup() != null) {
+            for (CallQuery nestedCallQuery : getNestedCallQueries(
+                    query.getResult().getDefaultElementGroup())) {
+                if (nestedCallQuery.getQuery() != null) {
+                    collectCallQueries(nestedCallQuery, callQueries, visitedQueries);
+                }
+            }
+        }
+    }
+
+    private static List<CallQuery> getNestedCallQueries(OutputElementGroup group) {
+        List<CallQuery> callQueries = new ArrayList<CallQuery>(group.getCallQueryEntries());
+        for (OutputElementGroup childGroup : group.getOutputElementGroupEntries()) {
+            callQueries.addAll(getNestedCallQueries(childGroup));
+        }
+        return callQueries;
+    }
+
+    private static boolean isIndependent(List<CallQuery> callQueries, Set<String> exportedParams) {
+        for (CallQuery callQuery : callQueries) {
+            Query query = callQuery.getQuery();
+            if (!query.isReadOnly() || query.getInputEventTrigger() != null ||
+                    query.getOutputEventTrigger() != null || readsExports(query, exportedParams)) {
+                return false;
+            }
+            if (query.hasResult() && query.getResult().getDefaultElementGroup() != null &&
+                    query.getResult().getDefaultElementGroup().hasExports()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if any input param of the query has the name of a value exported by an earlier
+     * request. Such a param is read from the exported value when the request does not give it,
+     * instead of taking its default value, so it cannot be read on a worker thread.
+     */
+    private static boolean readsExports(Query query, Set<String> exportedParams) {
+        for (QueryParam queryParam : query.getQueryParams()) {
+            if (isInputParam(queryParam) && exportedParams.contains(queryParam.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectExports(OutputElementGroup group, Set<String> exportedParams) {
+        for (StaticOutputElement element : group.getElementEntries()) {
+            if (element.getExport() != null) {
+                exportedParams.add(element.getExport());
+            }
+        }
+        for (StaticOutputElement attribute : group.getAttributeEntries()) {
+            if (attribute.getExport() != null) {
+                exportedParams.add(attribute.getExport());
+            }
+        }
+        for (OutputElementGroup childGroup : group.getOutputElementGroupEntries()) {
+            collectExports(childGroup, exportedParams);
+        }
+    }
+
+    private static boolean isInputParam(QueryParam queryParam) {
+        return !(QueryTypes.OUT.equals(queryParam.getType()) || QueryTypes.INOUT.equals(queryParam.getType()));
+    }
+
+    private static boolean usesConfigs(List<CallQuery> callQueries, Set<String> configIds) {
+        for (CallQuery callQuery : callQueries) {
+            if (configIds.contains(callQuery.getQuery().getConfigId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
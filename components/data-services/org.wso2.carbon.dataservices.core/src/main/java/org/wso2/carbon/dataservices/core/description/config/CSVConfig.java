@@ -201,7 +201,7 @@ public class CSVConfig extends Config {
     }
 
     public void close() {
-        /* nothing to close */
+        super.close();
     }
 
     @Override
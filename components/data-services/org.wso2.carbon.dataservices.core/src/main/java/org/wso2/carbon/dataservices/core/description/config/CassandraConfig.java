@@ -43,7 +43,6 @@ import org.wso2.carbon.dataservices.core.DataServiceFault;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.odata.CassandraDataHandler;
 import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
-import org.wso2.carbon.dataservices.core.odata.ODataServiceFault;
 
 import java.util.Map;
 
@@ -63,8 +62,13 @@ public class CassandraConfig extends Config {
         super(dataService, configId, DataSourceTypes.CASSANDRA, properties, odataEnable);
         Builder builder = Cluster.builder();
         this.populateSettings(builder, properties);
-        String keyspace = properties.get(DBConstants.Cassandra.KEYSPACE);
         this.cluster = builder.build();
+        this.initOrDefer();
+    }
+
+    @Override
+    protected void initialize() throws DataServiceFault {
+        String keyspace = this.getProperty(DBConstants.Cassandra.KEYSPACE);
         try {
             if (keyspace != null && keyspace.trim().length() > 0) {
                 this.session = this.cluster.connect(keyspace);
@@ -78,7 +82,8 @@ public class CassandraConfig extends Config {
         }
     }
 
-    public boolean isNativeBatchRequestsSupported() {
+    public boolean isNativeBatchRequestsSupported() throws DataServiceFault {
+        this.ensureInitialized();
         return nativeBatchRequestsSupported;
     }
     
@@ -303,7 +308,8 @@ public class CassandraConfig extends Config {
         return builder;
     }
     
-    public Session getSession() {
+    public Session getSession() throws DataServiceFault {
+        this.ensureInitialized();
         return session;
     }
     
@@ -314,12 +320,15 @@ public class CassandraConfig extends Config {
 
     @Override
     public synchronized void close() {
-        this.session.close();
+        super.close();
+        if (this.session != null) {
+            this.session.close();
+        }
         this.cluster.close();
     }
 
     @Override
-    public ODataDataHandler createODataHandler() throws ODataServiceFault {
+    public ODataDataHandler createODataHandler() throws DataServiceFault {
         return new CassandraDataHandler(getConfigId(), getSession(), getProperty(DBConstants.Cassandra.KEYSPACE));
     }
 
@@ -18,27 +18,85 @@
  */
 package org.wso2.carbon.dataservices.core.description.config;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
 
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a config in a data service.
+ * <p/>
+ * A config which connects to a data source does so in {@link #initialize()}, which is called when
+ * the config is created. If the system property "dss.config.lazy.init" is set to true, the
+ * initialization is deferred until the config is first used, and if
+ * "dss.config.lazy.init.warmup.delay" is also set, it is done in the background, the given number
+ * of seconds after the config is created. A closed config is not initialized anymore.
  */
 public abstract class Config {
 
+	private static final Log log = LogFactory.getLog(Config.class);
+
+	private static final String LAZY_INIT_PROPERTY = "dss.config.lazy.init";
+
+	private static final String WARMUP_DELAY_PROPERTY = "dss.config.lazy.init.warmup.delay";
+
+	private static final int WARMUP_THREAD_COUNT = 2;
+
+	/* the background initializations have their own threads, so a slow data source does not delay
+	 * the other tasks scheduled with DBUtils */
+	private static final ScheduledThreadPoolExecutor warmUpExecutor = new ScheduledThreadPoolExecutor(
+			WARMUP_THREAD_COUNT, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "DSS-Config-WarmUp-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	static {
+		/* the background initializations of closed configs are not kept until their delay ends */
+		warmUpExecutor.setRemoveOnCancelPolicy(true);
+	}
+
 	private String configId;
 	
 	private String type;
 	
 	private Map<String, String> properties;
 	
-	private DataService dataService;
+	private volatile DataService dataService;
+
+	/* the new version of the data service, which takes over the config once the current one,
+	 * which is redeployed, is released, i.e. after its queries in progress complete */
+	private DataService reusingDataService;
 
 	private boolean oDataEnabled;
 
+	private volatile boolean initialized;
+
+	private volatile boolean closed;
+
+	/* the background initialization, if it is scheduled */
+	private ScheduledFuture<?> warmUpTask;
+
+	private final ConfigHealth health = new ConfigHealth();
+
+	/* the properties of the config element the config is created from */
+	private Map<String, String> sourceProperties;
+
 	public Config(DataService dataService, String configId, String type, Map<String, String> properties, boolean oDataEnabled) {
 		this.dataService = dataService;
 		this.configId = configId;
@@ -50,6 +108,61 @@ public abstract class Config {
 	public DataService getDataService() {
 		return dataService;
 	}
+
+	/**
+	 * Marks the config to be reused by a new version of the data service it belongs to. The config
+	 * still belongs to the previous version, until it is released by {@link #release(DataService)}.
+	 *
+	 * @return false if the config belongs to another data service, or is already reused
+	 */
+	synchronized boolean reuse(DataService previousDataService, DataService dataService) {
+		if (this.dataService != previousDataService || this.reusingDataService != null) {
+			return false;
+		}
+		this.reusingDataService = dataService;
+		return true;
+	}
+
+	/**
+	 * Cancels the reuse of the config by the given data service, i.e. when it fails to deploy,
+	 * so the config is closed with the data service it belongs to.
+	 */
+	synchronized void cancelReuse(DataService dataService) {
+		if (this.reusingDataService == dataService) {
+			this.reusingDataService = null;
+		}
+	}
+
+	/**
+	 * Releases the config from a data service which is cleaned up. If the config belongs to the
+	 * data service, and a new version of it reuses the config, the config is handed over to the new
+	 * version, otherwise it is closed.
+	 */
+	public synchronized void release(DataService dataService) {
+		if (this.dataService == dataService) {
+			if (this.reusingDataService != null) {
+				this.dataService = this.reusingDataService;
+				this.reusingDataService = null;
+			} else {
+				this.close();
+			}
+		} else {
+			/* the new version is cleaned up before the config is handed over to it */
+			this.cancelReuse(dataService);
+		}
+	}
+
+	void setSourceProperties(Map<String, String> sourceProperties) {
+		this.sourceProperties = sourceProperties;
+	}
+
+	/**
+	 * Checks if the config is created from a config element with the given properties.
+	 */
+	boolean isCreatedFrom(Map<String, String> properties, boolean oDataEnabled) {
+		return this.sourceProperties != null && this.sourceProperties.equals(properties) &&
+				this.oDataEnabled == oDataEnabled;
+	}
 	
 	public String getProperty(String name) {
 		return this.properties.get(name);
@@ -74,11 +187,180 @@ public abstract class Config {
 	
 	public abstract boolean isActive();
 	
-	public abstract void close();
+	/**
+	 * Closes the config. The configs which keep connections, pools and sessions override this to
+	 * close them, and call this first, so a closed config is not initialized again.
+	 */
+	public void close() {
+		synchronized (this) {
+			this.closed = true;
+			if (this.warmUpTask != null) {
+				this.warmUpTask.cancel(false);
+				this.warmUpTask = null;
+			}
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
 
 	public abstract ODataDataHandler createODataHandler() throws DataServiceFault;
 
 	public boolean isODataEnabled() {
 		return oDataEnabled;
 	}
+
+	/**
+	 * Checks if the configs are initialized lazily, the system property is read for each new
+	 * config, so it can be changed without a restart.
+	 */
+	public static boolean isLazyInit() {
+		return Boolean.getBoolean(LAZY_INIT_PROPERTY);
+	}
+
+	/**
+	 * Returns the delay of the background initialization of the lazily initialized configs in
+	 * seconds, or a negative value if it is turned off.
+	 */
+	private static long getWarmUpDelay() {
+		return Long.getLong(WARMUP_DELAY_PROPERTY, -1);
+	}
+
+	/**
+	 * Creates the connections, pools and sessions of the config. This is done once, when the
+	 * config is created, or when it is first used, if it is initialized lazily. A failed
+	 * initialization is retried on the next use.
+	 */
+	protected void initialize() throws DataServiceFault {
+		/* nothing to initialize by default */
+	}
+
+	/**
+	 * Initializes the config, or schedules its background initialization if it is initialized
+	 * lazily. This is called at the end of the constructors of the configs, which override
+	 * {@link #initialize()}, when their own state is set. The configs of an inactive service
+	 * are left uninitialized.
+	 */
+	protected void initOrDefer() throws DataServiceFault {
+		if (this.getDataService().isServiceInactive()) {
+			return;
+		}
+		if (!isLazyInit()) {
+			this.ensureInitialized();
+		} else {
+			long warmUpDelay = getWarmUpDelay();
+			if (warmUpDelay >= 0) {
+				this.scheduleWarmUp(warmUpDelay);
+			}
+		}
+	}
+
+	private synchronized void scheduleWarmUp(long warmUpDelay) {
+		if (this.closed) {
+			return;
+		}
+		CarbonContext cCtx = CarbonContext.getThreadLocalCarbonContext();
+		final int tenantId = cCtx.getTenantId();
+		final String tenantDomain = cCtx.getTenantDomain();
+		this.warmUpTask = warmUpExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (isClosed()) {
+					return;
+				}
+				PrivilegedCarbonContext.startTenantFlow();
+				try {
+					PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+					PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+					ensureInitialized();
+				} catch (Throwable e) {
+					if (isClosed()) {
+						/* the config is closed while it is initialized */
+						return;
+					}
+					log.warn("Error in the background initialization of config '" + getConfigId() +
+							"' of data service '" + getDataService().getName() + "', it will be " +
+							"retried on its first use: " + e.getMessage());
+				} finally {
+					PrivilegedCarbonContext.endTenantFlow();
+				}
+			}
+		}, warmUpDelay, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Warms up the config before its data service is deployed, i.e. initializes it, and creates
+	 * the connections it keeps, so the first requests do not pay for them. Config types which
+	 * keep connections override this to create them.
+	 */
+	public void warmUp() throws DataServiceFault {
+		this.ensureInitialized();
+	}
+
+	/**
+	 * Initializes the config, if it is not already initialized.
+	 *
+	 * @throws DataServiceFault If the config is closed, or its initialization fails
+	 */
+	public void ensureInitialized() throws DataServiceFault {
+		if (this.initialized) {
+			return;
+		}
+		synchronized (this) {
+			/* this second check is necessary, in case another thread already initialized it */
+			if (this.initialized) {
+				return;
+			}
+			if (this.closed) {
+				throw new DataServiceFault("Config '" + this.getConfigId() + "' of data service '" +
+						this.getDataService().getName() + "' is closed");
+			}
+			long startTime = System.nanoTime();
+			try {
+				this.initialize();
+			} catch (DataServiceFault e) {
+				this.health.recordFailure(e.getMessage());
+				throw e;
+			} catch (RuntimeException e) {
+				this.health.recordFailure(e.getMessage());
+				throw e;
+			}
+			this.initialized = true;
+			this.health.recordInitialization(System.nanoTime() - startTime);
+			if (log.isDebugEnabled()) {
+				log.debug("Config '" + this.getConfigId() + "' of data service '" +
+						this.getDataService().getName() + "' initialized in " +
+						this.health.getInitTime() + " ms");
+			}
+		}
+	}
+
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	public ConfigHealth getHealth() {
+		return health;
+	}
+
+	/**
+	 * Checks the availability of the config using {@link #isActive()}, and records the result in
+	 * its health state.
+	 */
+	public boolean checkHealth() {
+		boolean active;
+		try {
+			active = this.isActive();
+		} catch (RuntimeException e) {
+			this.health.recordFailure(e.getMessage());
+			return false;
+		}
+		if (active) {
+			this.health.recordSuccess();
+		} else {
+			this.health.recordFailure("The config is not active");
+		}
+		return active;
+	}
 }
@@ -41,6 +41,7 @@ import org.wso2.carbon.ndatasource.core.DataSourceService;
 import org.wso2.carbon.ndatasource.rdbms.RDBMSDataSourceConstants;
 
 import javax.xml.namespace.QName;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -52,10 +53,54 @@ public class ConfigFactory {
 	
 	public static Config createConfig(DataService dataService, OMElement configEl) 
 			throws DataServiceFault {
+		return createConfig(dataService, configEl, null);
+	}
+
+	/**
+	 * Creates a config, or when a data service is redeployed, reuses the config with the same id
+	 * of its previous version, if the properties of the config are not changed. A reused config
+	 * keeps its connections and pools. It still belongs to the previous version, which may have
+	 * queries in progress, until the previous version is cleaned up, and then belongs to the new
+	 * version of the data service.
+	 *
+	 * @param previousDataService The previous version of the data service, can be null
+	 */
+	public static Config createConfig(DataService dataService, OMElement configEl,
+			DataService previousDataService) throws DataServiceFault {
 		Map<String, String> properties = DBUtils.extractProperties(configEl);
 		String configId = getConfigId(configEl);
-		String configType = getConfigType(properties);
 		boolean odataEnable = isODataEnable(configEl);
+		if (previousDataService != null) {
+			Config previousConfig = previousDataService.getConfig(configId);
+			if (previousConfig != null && previousConfig.isCreatedFrom(properties, odataEnable) &&
+					previousConfig.reuse(previousDataService, dataService)) {
+				return previousConfig;
+			}
+		}
+		/* a copy, since the properties can be modified by the config */
+		Map<String, String> sourceProperties = new HashMap<String, String>(properties);
+		Config config = createConfig(dataService, configId, properties, odataEnable);
+		if (config != null) {
+			config.setSourceProperties(sourceProperties);
+		}
+		return config;
+	}
+
+	/**
+	 * Returns the configs a data service reused from its previous version, to the previous
+	 * version, when the new version fails to deploy, so they are closed with the previous version.
+	 */
+	public static void returnReusedConfigs(DataService dataService, DataService previousDataService) {
+		for (Config config : dataService.getConfigs().values()) {
+			if (previousDataService.getConfig(config.getConfigId()) == config) {
+				config.cancelReuse(dataService);
+			}
+		}
+	}
+
+	private static Config createConfig(DataService dataService, String configId,
+			Map<String, String> properties, boolean odataEnable) throws DataServiceFault {
+		String configType = getConfigType(properties);
 		if (DataSourceTypes.RDBMS.equals(configType)) {
 			return getRDBMSConfig(dataService, configId, properties, odataEnable);
 		} else if (DataSourceTypes.JNDI.equals(configType)) {
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.description.config;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The health state of a config, which is tracked separately from its initialization. A config
+ * which is initialized lazily stays in the unknown state until it is first used, or checked,
+ * and an initialized config becomes unhealthy when its data source cannot be reached.
+ */
+public class ConfigHealth {
+
+	public enum State {
+		UNKNOWN, HEALTHY, UNHEALTHY
+	}
+
+	private volatile State state = State.UNKNOWN;
+
+	private volatile String lastError;
+
+	/* the time of the last state change, in milliseconds */
+	private volatile long lastUpdateTime;
+
+	/* the time taken to initialize the config, in milliseconds, -1 if not initialized */
+	private volatile long initTime = -1;
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/**
+	 * Records the successful initialization of the config.
+	 *
+	 * @param nanos The time taken to initialize the config
+	 */
+	public void recordInitialization(long nanos) {
+		this.initTime = nanos / 1000000;
+		this.recordSuccess();
+	}
+
+	/**
+	 * Records a successful initialization or availability check.
+	 */
+	public void recordSuccess() {
+		this.state = State.HEALTHY;
+		this.lastUpdateTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records a failed initialization or availability check.
+	 *
+	 * @param error The error message
+	 */
+	public void recordFailure(String error) {
+		this.failureCount.incrementAndGet();
+		this.lastError = error;
+		this.state = State.UNHEALTHY;
+		this.lastUpdateTime = System.currentTimeMillis();
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public long getLastUpdateTime() {
+		return lastUpdateTime;
+	}
+
+	public long getInitTime() {
+		return initTime;
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("state=").append(this.getState());
+		builder.append(", initTimeMs=").append(this.getInitTime());
+		builder.append(", failures=").append(this.getFailureCount());
+		if (this.getLastUpdateTime() > 0) {
+			builder.append(", lastUpdate=").append(new Date(this.getLastUpdateTime()));
+		}
+		if (this.getLastError() != null) {
+			builder.append(", lastError=").append(this.getLastError());
+		}
+		return builder.toString();
+	}
+
+}
@@ -37,6 +37,7 @@ public abstract class CustomQueryBasedDSConfig extends Config {
 	
 	@Override
 	public void close() {
+		super.close();
 		this.getDataSource().close();
 	}
 
@@ -71,7 +71,7 @@ public class ExcelConfig extends Config {
 	}
 	
 	public void close() {
-		/* nothing to close */
+		super.close();
 	}
 
 	@Override
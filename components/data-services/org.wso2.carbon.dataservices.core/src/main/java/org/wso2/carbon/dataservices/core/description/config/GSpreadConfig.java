@@ -134,7 +134,7 @@ public class GSpreadConfig extends Config {
 	}
 
 	public void close() {
-		/* nothing to close */
+		super.close();
 	}
 
 	@Override
@@ -30,7 +30,6 @@ import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
-import java.sql.SQLException;
 import java.util.Map;
 import java.util.Properties;
 
@@ -46,14 +45,8 @@ public class JNDIConfig extends SQLConfig {
 		super(dataService, configId, DataSourceTypes.JNDI, properties, odataEnable);
 		if (!dataService.isServiceInactive()) {
 			this.validateJNDIConfig();
-		    this.dataSource = this.createDataSource();
-		    try {
-			    this.initSQLDataSource();
-		    } catch (SQLException e) {
-			    throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR,
-			    		e.getMessage());
-		    }
 		}
+		this.initOrDefer();
 	}
 	
 	private void validateJNDIConfig() throws DataServiceFault {
@@ -97,6 +90,12 @@ public class JNDIConfig extends SQLConfig {
 		}
 	}
 
+	@Override
+	protected void initialize() throws DataServiceFault {
+		/* the data source is looked up by getDataSource */
+		this.initSQLDataSource();
+	}
+
 	@Override
 	public DataSource getDataSource() throws DataServiceFault {
 		if (this.dataSource == null) {
@@ -126,6 +125,7 @@ public class JNDIConfig extends SQLConfig {
 
 	@Override
 	public void close() {
+		super.close();
 	}
 
 	@Override
@@ -115,7 +115,7 @@ public class MongoConfig extends Config {
 
     @Override
     public void close() {
-         /* nothing to close */
+         super.close();
     }
 
     @Override
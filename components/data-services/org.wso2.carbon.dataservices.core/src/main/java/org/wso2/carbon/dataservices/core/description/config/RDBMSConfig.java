@@ -18,16 +18,13 @@
  */
 package org.wso2.carbon.dataservices.core.description.config;
 
-import org.wso2.carbon.dataservices.common.DBConstants;
 import org.wso2.carbon.dataservices.common.DBConstants.DataSourceTypes;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
 import org.wso2.carbon.dataservices.core.JDBCPoolSQLConfig;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
-import org.wso2.carbon.dataservices.core.odata.ODataServiceFault;
 import org.wso2.carbon.dataservices.core.odata.RDBMSDataHandler;
 
-import java.sql.SQLException;
 import java.util.Map;
 
 /**
@@ -38,29 +35,39 @@ public class RDBMSConfig extends JDBCPoolSQLConfig {
 	public RDBMSConfig(DataService dataService, String configId, Map<String, String> properties, boolean odataEnable)
 			throws DataServiceFault {
 		super(dataService, configId, DataSourceTypes.RDBMS, properties, odataEnable);
-		if (!dataService.isServiceInactive()) {
-			try {
-				this.initSQLDataSource();
-			} catch (SQLException e) {
-				throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR, e.getMessage());
-			}
-		}
+		this.initConfig();
 	}
 
 	public RDBMSConfig(DataService dataService, String configId, Map<String, String> properties)
 			throws DataServiceFault {
 		super(dataService, configId, DataSourceTypes.RDBMS, properties, false);
-		if (!dataService.isServiceInactive()) {
-			try {
-				this.initSQLDataSource();
-			} catch (SQLException e) {
-				throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR, e.getMessage());
-			}
+		this.initConfig();
+	}
+
+	/**
+	 * Initializes the config. If the initialization fails, the config is not created, so it is
+	 * closed here, with the pool it may have created.
+	 */
+	private void initConfig() throws DataServiceFault {
+		try {
+			this.initOrDefer();
+		} catch (DataServiceFault e) {
+			this.close();
+			throw e;
+		} catch (RuntimeException e) {
+			this.close();
+			throw e;
 		}
 	}
 
+	@Override
+	protected void initialize() throws DataServiceFault {
+		this.initSQLDataSource();
+	}
+
 	@Override
 	public ODataDataHandler createODataHandler() throws DataServiceFault {
+		this.ensureInitialized();
 		return new RDBMSDataHandler(getDataSource(), getConfigId());
 	}
 
@@ -30,7 +30,6 @@ import org.wso2.carbon.dataservices.core.description.config.TabularDataBasedConf
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.internal.DataServicesDSComponent;
 import org.wso2.carbon.dataservices.core.odata.ODataDataHandler;
-import org.wso2.carbon.dataservices.core.odata.ODataServiceFault;
 import org.wso2.carbon.dataservices.core.odata.RDBMSDataHandler;
 import org.wso2.carbon.ndatasource.common.DataSourceException;
 import org.wso2.carbon.ndatasource.core.CarbonDataSource;
@@ -38,7 +37,6 @@ import org.wso2.carbon.ndatasource.core.DataSourceService;
 import org.wso2.carbon.ndatasource.rdbms.RDBMSDataSourceConstants;
 
 import javax.sql.DataSource;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -59,14 +57,7 @@ public class SQLCarbonDataSourceConfig extends SQLConfig {
 		super(dataService, configId, DataSourceTypes.CARBON, properties, odataEnable);
 		this.dataSourceName = properties.get(DBConstants.CarbonDatasource.NAME);
         this.dataSource = initDataSource();
-        if (!dataService.isServiceInactive()) {
-            try {
-                this.initSQLDataSource();
-            } catch (SQLException e) {
-                throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR,
-                                           e.getMessage());
-            }
-        }
+        this.initOrDefer();
 	}
 
 	public SQLCarbonDataSourceConfig(DataService dataService, String configId, Map<String, String> properties)
@@ -74,14 +65,12 @@ public class SQLCarbonDataSourceConfig extends SQLConfig {
 		super(dataService, configId, DataSourceTypes.CARBON, properties, false);
         this.dataSourceName = properties.get(DBConstants.CarbonDatasource.NAME);
         this.dataSource = initDataSource();
-        if (!dataService.isServiceInactive()) {
-            try {
-                this.initSQLDataSource();
-            } catch (SQLException e) {
-                throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR,
-                                           e.getMessage());
-            }
-        }
+        this.initOrDefer();
+	}
+
+	@Override
+	protected void initialize() throws DataServiceFault {
+		this.initSQLDataSource();
 	}
 
 	@Override
@@ -211,11 +200,12 @@ public class SQLCarbonDataSourceConfig extends SQLConfig {
 	}
 
 	public void close() {
-		/* nothing to close */
+		super.close();
 	}
 
 	@Override
-	public ODataDataHandler createODataHandler() throws ODataServiceFault {
+	public ODataDataHandler createODataHandler() throws DataServiceFault {
+		this.ensureInitialized();
 		return new RDBMSDataHandler(getDataSource(), getConfigId());
 	}
 }
@@ -22,13 +22,16 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
 import org.wso2.carbon.dataservices.common.DBConstants.AutoCommit;
+import org.wso2.carbon.dataservices.common.DBConstants.FaultCodes;
 import org.wso2.carbon.dataservices.common.DBConstants.RDBMS;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
 import org.wso2.carbon.dataservices.core.auth.ConfigurationBasedAuthenticator;
 import org.wso2.carbon.dataservices.core.auth.DynamicUserAuthenticator;
 import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
 
 import javax.sql.DataSource;
 import javax.sql.XAConnection;
@@ -37,7 +40,10 @@ import javax.transaction.xa.XAResource;
 import javax.xml.stream.XMLStreamException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -147,17 +153,87 @@ public abstract class SQLConfig extends Config {
 		return autoCommit;
 	}
 		
-	protected void initSQLDataSource() throws SQLException, DataServiceFault {
-		Connection conn = this.createConnection();
+	/**
+	 * Checks the connectivity of the data source, and its JDBC batch update support.
+	 * This is called in {@link #initialize()} by the configs that connect to a database.
+	 */
+	protected void initSQLDataSource() throws DataServiceFault {
+		try {
+			/* not using createConnection, which waits for this initialization */
+			Connection conn = this.getDataSource().getConnection();
+			try {
+				/* check if we have JDBC batch update support */
+				this.jdbcBatchUpdateSupport = conn.getMetaData().supportsBatchUpdates();
+			} finally {
+				conn.close();
+			}
+		} catch (SQLException e) {
+			throw new DataServiceFault(e, FaultCodes.CONNECTION_UNAVAILABLE_ERROR, e.getMessage());
+		}
+	}
+		
+	/**
+	 * Warms up the connections of the data source, by acquiring the number of connections the
+	 * pool keeps idle at the same time, and validating them using the validation query, if given.
+	 */
+	@Override
+	public void warmUp() throws DataServiceFault {
+		super.warmUp();
+		int count = this.getWarmupConnectionCount();
+		List<Connection> conns = new ArrayList<Connection>(count);
 		try {
-		    /* check if we have JDBC batch update support */
-		    this.jdbcBatchUpdateSupport = conn.getMetaData().supportsBatchUpdates();
+			DataSource ds = this.getDataSource();
+			for (int i = 0; i < count; i++) {
+				conns.add(ds.getConnection());
+			}
+			String validationQuery = this.getValidationQuery();
+			if (!DBUtils.isEmptyString(validationQuery)) {
+				for (Connection conn : conns) {
+					Statement stmt = conn.createStatement();
+					try {
+						stmt.execute(validationQuery);
+					} finally {
+						stmt.close();
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new DataServiceFault(e, FaultCodes.CONNECTION_UNAVAILABLE_ERROR,
+					"Error in warming up the connections of config '" + this.getConfigId() + "': " +
+							e.getMessage());
 		} finally {
-		    conn.close();
+			for (Connection conn : conns) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					log.debug("Error in closing a warm-up connection: " + e.getMessage(), e);
+				}
+			}
 		}
 	}
+
+	/**
+	 * Returns the number of connections acquired in the warm-up, which is the number of idle
+	 * connections kept by the connection pool.
+	 */
+	protected int getWarmupConnectionCount() throws DataServiceFault {
+		return 1;
+	}
 		
 	public abstract DataSource getDataSource() throws DataServiceFault;
+
+	/**
+	 * Checks if the pool of the data source has an idle connection, i.e. one can be acquired
+	 * without waiting for a connection to be returned. The data sources which are not pools known
+	 * to the data services are assumed not to have one, as they can't tell.
+	 */
+	public boolean hasIdleConnection() throws DataServiceFault {
+		if (!this.isInitialized()) {
+			return false;
+		}
+		DataSource ds = this.getDataSource();
+		return ds instanceof DataSourceProxy && ((DataSourceProxy) ds).getIdle() > 0;
+	}
 	
 	public abstract boolean isStatsAvailable() throws DataServiceFault;
 	
@@ -165,6 +241,22 @@ public abstract class SQLConfig extends Config {
 	
 	public abstract int getIdleConnectionCount() throws DataServiceFault;
 		
+	/**
+	 * Returns the connection pool statistics of this config,
+	 * or null if they are not collected for this type of config.
+	 */
+	public ConnectionPoolStatistics getConnectionPoolStatistics() {
+		return null;
+	}
+	
+	/**
+	 * Checks if the given connection acquisition error is due to all the connections
+	 * of the pool being in use.
+	 */
+	protected boolean isPoolExhausted(SQLException e) {
+		return false;
+	}
+	
 	public String getValidationQuery() {
 		return validationQuery;
 	}
@@ -178,13 +270,27 @@ public abstract class SQLConfig extends Config {
 		if (log.isDebugEnabled()){
 			log.debug("Creating data source connection");
 		}
+		this.ensureInitialized();
 		DataSource ds = this.getDataSource();
 		if (ds != null) {
 			Connection conn;
-			if (user != null) {
-				conn = ds.getConnection(user, pass);
-			} else {
-			    conn = ds.getConnection();
+			ConnectionPoolStatistics poolStats = this.getConnectionPoolStatistics();
+			long startTime = System.nanoTime();
+			try {
+				if (user != null) {
+					conn = ds.getConnection(user, pass);
+				} else {
+				    conn = ds.getConnection();
+				}
+			} catch (SQLException e) {
+				if (poolStats != null) {
+					poolStats.recordAcquisitionFailure(System.nanoTime() - startTime,
+							this.isPoolExhausted(e));
+				}
+				throw e;
+			}
+			if (poolStats != null) {
+				poolStats.recordAcquisition(System.nanoTime() - startTime);
 			}
 			if (conn instanceof XAConnection) {
 				try {
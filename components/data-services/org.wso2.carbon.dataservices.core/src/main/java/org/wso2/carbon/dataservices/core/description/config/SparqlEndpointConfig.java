@@ -50,7 +50,7 @@ public class SparqlEndpointConfig extends Config {
 	}
 	
 	public void close() {
-		/* nothing to close */
+		super.close();
 	}
 
 	@Override
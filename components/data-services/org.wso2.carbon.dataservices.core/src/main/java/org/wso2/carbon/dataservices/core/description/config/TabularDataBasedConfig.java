@@ -106,6 +106,7 @@ public class TabularDataBasedConfig extends SQLConfig {
 
 	@Override
 	public void close() {
+		super.close();
 		this.dataSource.close();
 	}
 
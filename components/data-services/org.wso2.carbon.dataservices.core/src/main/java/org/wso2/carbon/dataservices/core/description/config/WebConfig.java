@@ -100,7 +100,7 @@ public class WebConfig extends Config {
     }
     
     public void close() {
-    	/* nothing to close */
+    	super.close();
     }
 
     @Override
@@ -94,11 +94,11 @@ public class CassandraQuery extends ExpressionQuery {
         return statement;
     }
 
-    public Session getSession() {
+    public Session getSession() throws DataServiceFault {
         return this.config.getSession();
     }
 
-    public boolean isNativeBatchRequestsSupported() {
+    public boolean isNativeBatchRequestsSupported() throws DataServiceFault {
         return this.config.isNativeBatchRequestsSupported();
     }
 
@@ -37,10 +37,13 @@ import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.engine.ExternalParamCollection;
 import org.wso2.carbon.dataservices.core.engine.InternalParam;
 import org.wso2.carbon.dataservices.core.engine.InternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.OutputElementGroup;
 import org.wso2.carbon.dataservices.core.engine.ParamValue;
 import org.wso2.carbon.dataservices.core.engine.QueryParam;
 import org.wso2.carbon.dataservices.core.engine.Result;
 import org.wso2.carbon.dataservices.core.engine.XMLWriterHelper;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 import org.wso2.carbon.dataservices.core.validation.ValidationContext;
 import org.wso2.carbon.dataservices.core.validation.ValidationException;
 import org.wso2.carbon.dataservices.core.validation.Validator;
@@ -49,8 +52,11 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a query in a data service.
@@ -82,6 +88,17 @@ public abstract class Query extends XMLWriterHelper {
 	private boolean preBuildResult;
 	
 	private boolean useColumnNumbers;
+	
+	/* set to true if the query is declared to only read data, with the readOnly attribute */
+	private boolean readOnly;
+	
+	/* execution statistics of this query, by the calling operation or resource */
+	private final ConcurrentMap<String, QueryStatistics> statistics =
+			new ConcurrentHashMap<String, QueryStatistics>();
+	
+	/* set to true if writing the result entries has effects other than the output,
+	 * resolved lazily, since the result is populated after the query is created */
+	private volatile Boolean resultEntrySideEffects;
 
 	private static ThreadLocal<Object> queryPreprocessObjects = new ThreadLocal<Object>() {
 	    @Override
@@ -213,7 +230,7 @@ public abstract class Query extends XMLWriterHelper {
 			for (int ordinal : queryParam.getOrdinals()) {
 			    ipc.addParam(new InternalParam(queryParam.getName(), tmpParamValue,
                         queryParam.getSqlType(), queryParam.getType(), queryParam.getStructType(),
-                        ordinal));
+                        ordinal, queryParam.getConverter()));
 			}
 		}
 		return ipc;
@@ -269,20 +286,36 @@ public abstract class Query extends XMLWriterHelper {
 		this.preprocessParams(params);
 		/* extract parameters, to be used internally in queries */
 		InternalParamCollection internalParams = this.extractParams(params);
+		QueryStatistics queryStats = this.getCurrentStatistics();
+		if (queryStats != null) {
+			queryStats.begin();
+		}
 		boolean error = true;
         Object result;
+        DataService dataService = this.getDataService();
+        dataService.queryStarted();
         try {
             boolean initial = Query.isQueryPreprocessInitial();
             boolean secondary = Query.isQueryPreprocessSecondary();
             /* write the content */
             if (initial) {
                 /* validate params */
-                this.validateParams(params);
+                RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_VALIDATE,
+                        this.getQueryId());
+                try {
+                    this.validateParams(params);
+                } finally {
+                    RequestTrace.endSpan(span);
+                }
                 /* check user role based content filtering */
                 this.processContentFiltering();
                 /* process input events */
                 this.processInputEvents(internalParams);
+                long startTime = System.nanoTime();
                 result = this.runPreQuery(internalParams, queryLevel);
+                if (queryStats != null) {
+                    queryStats.recordPreQuery(System.nanoTime() - startTime);
+                }
                 Query.addQueryPreprocessedObject(result);
             }
             if (secondary) {
@@ -290,10 +323,18 @@ public abstract class Query extends XMLWriterHelper {
                  * must execute both phases at once */
                 Query.setQueryPreprocessingInitial(true);
                 result = Query.getAndRemoveQueryPreprocessObject();
-                this.runPostQuery(result, xmlWriter, internalParams, queryLevel);
+                if (queryStats != null) {
+                    this.runPostQueryWithStatistics(result, xmlWriter, internalParams, queryLevel, queryStats);
+                } else {
+                    this.runPostQuery(result, xmlWriter, internalParams, queryLevel);
+                }
             }
             error = false;
         } finally {
+            dataService.queryFinished();
+            if (queryStats != null) {
+                queryStats.end(error);
+            }
             if (error || (queryLevel == 0 && isQueryPreprocessSecondary())
                     || (isQueryPreprocessInitial() && !this.hasResult())) {
                 /* we are at the end of the outer most query, i.e. in nested query situations,
@@ -303,6 +344,58 @@ public abstract class Query extends XMLWriterHelper {
         }
 	}
 
+    /**
+     * Runs the post query phase, and records its latency, and the rows and characters written.
+     */
+    private void runPostQueryWithStatistics(Object result, XMLStreamWriter xmlWriter,
+                                            InternalParamCollection params, int queryLevel,
+                                            QueryStatistics queryStats) throws DataServiceFault {
+        QueryStatistics.OutputCounter counter = QueryStatistics.getOutputCounter();
+        long rowsBefore = counter.getRows();
+        long charactersBefore = counter.getCharacters();
+        long startTime = System.nanoTime();
+        try {
+            this.runPostQuery(result, xmlWriter, params, queryLevel);
+        } finally {
+            queryStats.recordPostQuery(System.nanoTime() - startTime, counter.getRows() - rowsBefore,
+                    counter.getCharacters() - charactersBefore);
+            /* the rows and characters of this query are not counted for the enclosing query */
+            counter.setRows(rowsBefore);
+            counter.setCharacters(charactersBefore);
+        }
+    }
+
+    /**
+     * Returns the statistics of this query for the current operation or resource,
+     * or null if the query statistics are turned off.
+     */
+    private QueryStatistics getCurrentStatistics() {
+        if (!QueryStatistics.ENABLED) {
+            return null;
+        }
+        String operationName = QueryStatistics.getCurrentOperation();
+        if (operationName == null) {
+            operationName = "";
+        }
+        QueryStatistics queryStats = this.statistics.get(operationName);
+        if (queryStats == null) {
+            queryStats = new QueryStatistics(operationName, this.getQueryId());
+            QueryStatistics existingStats = this.statistics.putIfAbsent(operationName, queryStats);
+            if (existingStats != null) {
+                queryStats = existingStats;
+            }
+        }
+        return queryStats;
+    }
+
+    /**
+     * Returns the execution statistics of this query, one for each operation or resource
+     * which has called it.
+     */
+    public Collection<QueryStatistics> getStatistics() {
+        return this.statistics.values();
+    }
+
     private void processContentFiltering() throws DataServiceFault {
         if (this.hasResult()) {
 			/* set required roles in result */
@@ -318,6 +411,15 @@ public abstract class Query extends XMLWriterHelper {
 	    if (DispatchStatus.isInBatchBoxcarring()) {
 	        return;
 	    }
+        RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_COMMIT, null);
+        try {
+            this.commitOrRollback(error);
+        } finally {
+            RequestTrace.endSpan(span);
+        }
+	}
+
+	private void commitOrRollback(boolean error) {
         if (error) {
             if (this.getDataService().isInDTX()) {
                 TLConnectionStore.rollbackNonXAConns();
@@ -382,6 +484,20 @@ public abstract class Query extends XMLWriterHelper {
 		}
 	}
 	
+	/**
+	 * Checks if the query is declared to only read data, and to have no other side effects,
+	 * such queries can be executed concurrently with each other, i.e. in request boxes.
+	 * This is not inferred from the query itself, since i.e. a SELECT statement can call
+	 * functions which write data, or take locks.
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+	
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+	
 	/**
 	 * This method must be implemented by concrete implementations of this class,
 	 * to provide the logic to execute the query.
@@ -396,11 +512,38 @@ public abstract class Query extends XMLWriterHelper {
     public abstract void runPostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params,
                                   int queryLevel) throws DataServiceFault;
 	
+	/**
+	 * Checks if the result entries of the current execution can be skipped, without writing
+	 * or even reading them. This is the case when the result of the current request is discarded,
+	 * i.e. for intermediate request box requests, and the result entries do not export values
+	 * or call nested queries.
+	 */
+	public boolean isResultEntriesDiscardable() {
+		if (!DispatchStatus.isResultDiscarded()) {
+			return false;
+		}
+		Boolean sideEffects = this.resultEntrySideEffects;
+		if (sideEffects == null) {
+			OutputElementGroup group = this.hasResult() ?
+					this.getResult().getDefaultElementGroup() : null;
+			sideEffects = group != null && (group.hasExports() || group.hasCallQueries());
+			this.resultEntrySideEffects = sideEffects;
+		}
+		return !sideEffects;
+	}
+	
 	/**
 	 * writes an result entry to the output.
 	 */
 	public void writeResultEntry(XMLStreamWriter xmlWriter, DataEntry dataEntry, 
 			InternalParamCollection ipc, int queryLevel) throws DataServiceFault {
+		/* nothing to do, if the result is not used */
+		if (this.isResultEntriesDiscardable()) {
+			return;
+		}
+		if (QueryStatistics.ENABLED) {
+			QueryStatistics.getOutputCounter().addRow();
+		}
 		/* increment query level */
 		queryLevel++;
 		
@@ -88,6 +88,8 @@ public class QueryFactory {
 			throw new DataServiceFault("Invalid configType: " + 
 					sourceType + " in :- \n" + queryEl);
 		}		
+		query.setReadOnly(Boolean.parseBoolean(queryEl.getAttributeValue(
+				new QName(DBSFields.READ_ONLY))));
 		return query;
 	}
 	
@@ -52,6 +52,9 @@ public class QuerySerializer {
 		} else {
 			queryEl.addAttribute(DBSFields.USE_CONFIG, DBConstants.DEFAULT_CONFIG_ID, null);
 		}
+		if (query.isReadOnly()) {
+			queryEl.addAttribute(DBSFields.READ_ONLY, Boolean.TRUE.toString(), null);
+		}
 		/* populate the query element according to the query type, 
 		 * note: no CSV specific query props */
 		if (query instanceof SQLQuery) {
@@ -26,6 +26,7 @@ import javax.sql.XAConnection;
 
 import org.wso2.carbon.dataservices.core.DataServiceConnection;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
 
 /**
  * This class represents a SQL data services connection.
@@ -34,10 +35,33 @@ public class SQLDataServicesConnection implements DataServiceConnection {
 
     private Connection jdbcConn;
     
+    private ConnectionPoolStatistics poolStatistics;
+    
+    private String operationName;
+    
+    private long leaseStartTime;
+    
     public SQLDataServicesConnection(Connection jdbcConn) {
         this.jdbcConn = jdbcConn;
     }
     
+    /**
+     * Creates a connection whose lease is recorded in the given statistics, until it is closed.
+     * 
+     * @param jdbcConn The JDBC connection
+     * @param poolStatistics The connection pool statistics of the config, can be null
+     * @param operationName The operation or resource which acquired the connection
+     */
+    public SQLDataServicesConnection(Connection jdbcConn, ConnectionPoolStatistics poolStatistics,
+            String operationName) {
+        this.jdbcConn = jdbcConn;
+        this.poolStatistics = poolStatistics;
+        this.operationName = operationName;
+        if (poolStatistics != null) {
+            this.leaseStartTime = poolStatistics.startLease();
+        }
+    }
+    
     @Override
     public void commit() throws DataServiceFault {
         try {
@@ -68,6 +92,12 @@ public class SQLDataServicesConnection implements DataServiceConnection {
             }
         } catch (SQLException e) {
             throw new DataServiceFault(e);
+        } finally {
+            if (this.poolStatistics != null) {
+                this.poolStatistics.endLease(this.operationName, this.leaseStartTime);
+                /* a lease is only ended once */
+                this.poolStatistics = null;
+            }
         }
     }
 
@@ -41,18 +41,21 @@ import org.wso2.carbon.dataservices.core.engine.DataEntry;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.engine.InternalParam;
 import org.wso2.carbon.dataservices.core.engine.InternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.ParamConverter;
 import org.wso2.carbon.dataservices.core.engine.ParamValue;
 import org.wso2.carbon.dataservices.core.engine.QueryParam;
 import org.wso2.carbon.dataservices.core.engine.Result;
 import org.wso2.carbon.dataservices.core.engine.ResultSetWrapper;
+import org.wso2.carbon.dataservices.core.engine.ValueFormatter;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
+import org.wso2.carbon.dataservices.core.stats.SlowQueryLog;
 
 import javax.xml.stream.XMLStreamWriter;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
 import java.sql.Array;
@@ -74,6 +77,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents an SQL query in a data service.
@@ -88,10 +92,16 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     public static final int ORACLE_REF_CURSOR_TYPE = -10;
 
+    /* query timeout of the statements capturing execution plans, in seconds */
+    private static final int EXPLAIN_PLAN_QUERY_TIMEOUT = 10;
+
     private SQLConfig config;
 
     private int queryType;
 
+    /* true if this is a plain SELECT statement, whose execution plan can be captured */
+    private boolean plainSelect;
+
     private List<QueryParam> outQueryParams;
 
     private boolean hasOutParams;
@@ -130,7 +140,9 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     private String[] keyColumns;
 
-    private boolean hasBatchQuerySupport;
+    private volatile boolean hasBatchQuerySupport;
+
+    private volatile boolean batchQuerySupportResolved;
 
     private AutoCommit autoCommit;
 
@@ -140,6 +152,9 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     private Calendar calendar;
 
+    /* the last time the execution plan of this query was captured by the slow query log */
+    private final AtomicLong lastExplainTime = new AtomicLong();
+
     /**
      * thread local variable to keep the ordinal of the ref cursor if there is any
      */
@@ -188,6 +203,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         /* process the advanced/additional properties */
         this.processAdvancedProps(this.getAdvancedProperties());
         this.queryType = this.retrieveQueryType(this.getQuery());
+        this.plainSelect = this.isPlainSelect(this.getQuery());
         this.outQueryParams = this.extractOutQueryParams(this.getQueryParams());
         /* check for existence of any ref cursors */
         this.checkRefCursor(this.getQueryParams());
@@ -210,15 +226,30 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         } else {
             this.fetchSizeProperty = new FetchSizeProperty(false, 0);
         }
-        /* set batch update support for this query */
+        /* set batch update support for this query, if the config is not initialized lazily,
+         * otherwise it is done on the first use */
+        if (this.getConfig().isInitialized()) {
+            this.resolveBatchQuerySupport();
+        }
+    }
+
+    private synchronized void resolveBatchQuerySupport() {
+        if (this.batchQuerySupportResolved) {
+            return;
+        }
         try {
             this.hasBatchQuerySupport = this.getDataService().isBatchRequestsEnabled()
                     && (this.isForceJDBCBatchReqs() || this.calculateBatchQuerySupport());
         } catch (DataServiceFault e) {
             this.hasBatchQuerySupport = false;
+            if (!this.getConfig().isInitialized()) {
+                /* the config could not be initialized, retry on the next use */
+                return;
+            }
             log.warn("Unable to determine batch query support for query '" + this.getQueryId()
                     + "' : " + e.getMessage() + " - batch query support is disabled.");
         }
+        this.batchQuerySupportResolved = true;
     }
 
     private boolean calculateResultOnlyOutParams() {
@@ -291,6 +322,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
     }
 
     private boolean calculateBatchQuerySupport() throws DataServiceFault {
+        this.getConfig().ensureInitialized();
         Object[] resultMap;
         List<Connection> connections = new ArrayList<Connection>();
         if (this.getConfig().hasJDBCBatchUpdateSupport()) {
@@ -354,6 +386,9 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
     }
 
     public boolean hasBatchQuerySupport() {
+        if (!this.batchQuerySupportResolved) {
+            this.resolveBatchQuerySupport();
+        }
         return hasBatchQuerySupport;
     }
 
@@ -633,8 +668,16 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             Connection connection;
             DataServiceConnection dsCon = TLConnectionStore.getConnection(this.getConfigId(), creds[0], queryLevel);
             if (dsCon == null) {
-                connection = this.getConfig().createConnection(creds[0], creds[1]);
-                dsCon = new SQLDataServicesConnection(connection);
+                RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_CONNECTION,
+                        this.getConfigId());
+                try {
+                    connection = this.getConfig().createConnection(creds[0], creds[1]);
+                } finally {
+                    RequestTrace.endSpan(span);
+                }
+                dsCon = new SQLDataServicesConnection(connection,
+                        this.getConfig().getConnectionPoolStatistics(),
+                        QueryStatistics.getCurrentOperation());
                 TLConnectionStore.addConnection(this.getConfigId(), creds[0], queryLevel, dsCon);
             } else {
                 connection = ((SQLDataServicesConnection) dsCon).getJDBCConnection();
@@ -681,6 +724,41 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         return SQLQuery.DS_QUERY_TYPE_STORED_PROC;
     }
 
+    private boolean isPlainSelect(String query) {
+        if (this.getQueryType() != SQLQuery.DS_QUERY_TYPE_NORMAL) {
+            return false;
+        }
+        query = query.trim().replaceAll("\\s+", " ").toUpperCase();
+        return query.startsWith("SELECT") && !query.contains(" INTO ") && !query.contains(" FOR UPDATE");
+    }
+
+    /**
+     * Prepares the statement of the query on the given connection, and closes it, without
+     * executing it, to validate the query, and to let the driver and the database parse and cache
+     * it before the first request. Queries whose SQL depends on the parameter values, i.e. with
+     * array or query string parameters, are not prepared.
+     *
+     * @return true if the statement was prepared
+     */
+    public boolean prepareForWarmup(Connection conn) throws SQLException {
+        for (QueryParam queryParam : this.getQueryParams()) {
+            if (DBConstants.QueryParamTypes.ARRAY.equals(queryParam.getParamType()) ||
+                    DBConstants.DataTypes.QUERY_STRING.equals(queryParam.getSqlType())) {
+                return false;
+            }
+        }
+        Statement stmt;
+        if (this.getQueryType() == SQLQuery.DS_QUERY_TYPE_STORED_PROC) {
+            stmt = conn.prepareCall(this.getQuery());
+        } else if (this.getQueryType() == SQLQuery.DS_QUERY_TYPE_NORMAL) {
+            stmt = conn.prepareStatement(this.getQuery());
+        } else {
+            return false;
+        }
+        stmt.close();
+        return true;
+    }
+
     private boolean isJDBCBatchRequest() {
         return (DispatchStatus.isBatchRequest() && this.hasBatchQuerySupport());
     }
@@ -699,7 +777,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         ResultSet krs = stmt.getGeneratedKeys();
         DataEntry dataEntry;
         while (krs.next()) {
-            dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(krs));
+            dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(krs), true);
             this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
         }
     }
@@ -730,9 +808,14 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         PreparedStatement stmt = null;
         ResultSet rs = null;
         boolean isError = false;
+        int updateCount = 0;
+        RequestTrace.Span span = null;
         try {
             Connection conn = this.createConnection(queryLevel);
+            span = RequestTrace.startSpan(RequestTrace.PHASE_PREPARE, this.getQueryId());
             stmt = this.createProcessedPreparedStatement(SQLQuery.DS_QUERY_TYPE_NORMAL, params, conn);
+            RequestTrace.endSpan(span);
+            span = RequestTrace.startSpan(RequestTrace.PHASE_EXECUTE, this.getQueryId());
             /* check if this is a batch request */
             if (this.isJDBCFirstBatchRequest()) {
                 this.setBatchPreparedStatement(stmt);
@@ -750,17 +833,20 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                     }
                 } else {
                     /* normal update operation */
-                    stmt.executeUpdate();
+                    updateCount = stmt.executeUpdate();
                 }
             } else {
                 rs = stmt.executeQuery();
             }
-            return new QueryResultInfo(stmt, rs);
+            QueryResultInfo resultInfo = new QueryResultInfo(stmt, rs);
+            resultInfo.setRowCount(updateCount);
+            return resultInfo;
         } catch (Throwable e) {
             isError = true;
             throw new DataServiceFault(e, FaultCodes.DATABASE_ERROR,
                     "Error in 'SQLQuery.processPreNormalQuery': " + e.getMessage());
         } finally {
+            RequestTrace.endSpan(span);
             if (isError) {
                 this.releaseResources(rs, this.isStatementClosable(isError) ? stmt : null);
             }
@@ -773,6 +859,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         PreparedStatement stmt = (PreparedStatement) resultInfo.getStatement();
         ResultSet rs = resultInfo.getResultSet();
         boolean isError = false;
+        RequestTrace.Span span = null;
         try {
             /* check if this is a batch request */
             if (this.isJDBCFirstBatchRequest()) {
@@ -793,11 +880,17 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                     /* normal update operation */
                     this.writeGeneratedElements(stmt, xmlWriter, params, queryLevel);
                 }
-            } else {
+            } else if (!this.isResultEntriesDiscardable()) {
+                /* the rows are not read at all, if the result is not used */
+                span = RequestTrace.startSpan(RequestTrace.PHASE_ROWS, this.getQueryId());
                 DataEntry dataEntry;
                 while (rs.next()) {
-                    dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(rs));
+                    if (span != null && resultInfo.getRowCount() == 0) {
+                        RequestTrace.mark(RequestTrace.PHASE_FIRST_ROW, this.getQueryId());
+                    }
+                    dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(rs), true);
                     this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
+                    resultInfo.addRow();
                 }
             }
         } catch (Throwable e) {
@@ -806,6 +899,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             throw new DataServiceFault(e, FaultCodes.DATABASE_ERROR,
                     "Error in 'SQLQuery.processPostNormalQuery': " + e.getMessage());
         } finally {
+            RequestTrace.endSpan(span);
             this.releaseResources(rs, this.isStatementClosable(isError) ? stmt : null);
         }
     }
@@ -838,6 +932,11 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
         private ResultSet resultSet;
 
+        /* the rows read, or the update count of an update */
+        private long rowCount;
+
+        private long preQueryTime;
+
         public QueryResultInfo(PreparedStatement statement, ResultSet resultSet) {
             this.statement = statement;
             this.resultSet = resultSet;
@@ -851,6 +950,29 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             return resultSet;
         }
 
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public void setRowCount(long rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public void addRow() {
+            this.rowCount++;
+        }
+
+        /**
+         * Returns the time taken to execute the query in the first phase, in nanoseconds.
+         */
+        public long getPreQueryTime() {
+            return preQueryTime;
+        }
+
+        public void setPreQueryTime(long preQueryTime) {
+            this.preQueryTime = preQueryTime;
+        }
+
     }
 
     private boolean isRSClosed(ResultSet rs) throws SQLException {
@@ -872,10 +994,15 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         boolean isError = false;
         CallableStatement stmt = null;
         ResultSet rs = null;
+        int updateCount = 0;
+        RequestTrace.Span span = null;
         try {
             Connection conn = this.createConnection(queryLevel);
+            span = RequestTrace.startSpan(RequestTrace.PHASE_PREPARE, this.getQueryId());
             stmt = (CallableStatement) this.createProcessedPreparedStatement(
                     SQLQuery.DS_QUERY_TYPE_STORED_PROC, params, conn);
+            RequestTrace.endSpan(span);
+            span = RequestTrace.startSpan(RequestTrace.PHASE_EXECUTE, this.getQueryId());
             /* check if this is a batch request */
             if (this.isJDBCFirstBatchRequest()) {
                 this.setBatchPreparedStatement(stmt);
@@ -891,7 +1018,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                         stmt.executeBatch();
                     }
                 } else {
-                    stmt.executeUpdate();
+                    updateCount = stmt.executeUpdate();
                 }
             } else {
                 /*
@@ -908,13 +1035,16 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                     rs = this.getFirstRSOfStoredProc(stmt);
                 }
             }
-            return new QueryResultInfo(stmt, rs);
+            QueryResultInfo resultInfo = new QueryResultInfo(stmt, rs);
+            resultInfo.setRowCount(updateCount);
+            return resultInfo;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             isError = true;
             throw new DataServiceFault(e, FaultCodes.DATABASE_ERROR,
                     "Error in 'SQLQuery.processStoredProcQuery': " + e.getMessage());
         } finally {
+            RequestTrace.endSpan(span);
             if (isError) {
                 this.releaseResources(rs, this.isStatementClosable(isError) ? stmt : null);                
             }
@@ -927,6 +1057,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         boolean isError = false;
         CallableStatement stmt = (CallableStatement) resultInfo.getStatement();
         ResultSet rs = resultInfo.getResultSet();
+        RequestTrace.Span span = null;
         try {
             /* check if this is a batch request */
             if (!this.hasResult() || (this.hasResult() && this.isReturnGeneratedKeys()) ||
@@ -941,11 +1072,13 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                     this.writeGeneratedElements(stmt, xmlWriter, params, queryLevel);
                 }
             } else {
+                span = RequestTrace.startSpan(RequestTrace.PHASE_ROWS, this.getQueryId());
                 if (rs == null || this.isRSClosed(rs) || !rs.next()) {
                     if (this.hasOutParams()) {
                         DataEntry outParamDataEntry = this.getDataEntryFromOutParams(stmt);
                         if (outParamDataEntry != null) {
                             this.writeResultEntry(xmlWriter, outParamDataEntry, params, queryLevel);
+                            resultInfo.addRow();
                         }
                     }
                 } else {
@@ -959,13 +1092,15 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                         for (DataEntry dataEntry : entries) {
                             this.mergeDataEntries(dataEntry, outParamDataEntry);
                             this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
+                            resultInfo.addRow();
                         }
                     } else {
                         /* do-while loop since, 'rs.next()' has already been called once */
                         DataEntry dataEntry;
                         do {
-                            dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(rs));
+                            dataEntry = this.getDataEntryFromRS(new ResultSetWrapper(rs), true);
                             this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
+                            resultInfo.addRow();
                         } while (rs.next());
                     }
                 }
@@ -976,6 +1111,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             throw new DataServiceFault(e, FaultCodes.DATABASE_ERROR,
                     "Error in 'SQLQuery.processStoredProcQuery': " + e.getMessage());
         } finally {
+            RequestTrace.endSpan(span);
             this.releaseResources(rs, this.isStatementClosable(isError) ? stmt : null);
         }
     }
@@ -1012,7 +1148,8 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             }
         }
         do {
-            entries.add(this.getDataEntryFromRS(new ResultSetWrapper(rs)));
+            /* the rows are buffered, so LOBs are read before moving to the next row */
+            entries.add(this.getDataEntryFromRS(new ResultSetWrapper(rs), false));
         } while (rs.next());
         return entries;
     }
@@ -1068,7 +1205,16 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         return dataEntry;
     }
 
-    private DataEntry getDataEntryFromRS(ResultSet rs) throws SQLException {
+    /**
+     * Creates a data entry from the current row of the result set.
+     *
+     * @param rs         The result set
+     * @param streamLobs If true, BLOB and CLOB values are read when they are written out, in
+     *                   chunks, so the entry must be written out before moving to the next row
+     * @return The data entry
+     * @throws SQLException
+     */
+    private DataEntry getDataEntryFromRS(ResultSet rs, boolean streamLobs) throws SQLException {
         DataEntry dataEntry = new DataEntry();
         ResultSetMetaData metaData = rs.getMetaData();
         int columnCount = metaData.getColumnCount();
@@ -1079,8 +1225,14 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         Date sqlDate;
         Timestamp sqlTimestamp;
         Blob sqlBlob;
+        Clob sqlClob;
         BigDecimal bigDecimal;
         InputStream binInStream;
+        int intValue;
+        long longValue;
+        double doubleValue;
+        float floatValue;
+        boolean booleanValue;
         boolean useColumnNumbers = this.isUsingColumnNumbers();
         for (int i = 1; i <= columnCount; i++) {
             /* retrieve values according to the column type */
@@ -1093,40 +1245,52 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 /* fall through */
             case Types.CHAR:
                 /* fall through */
-            case Types.CLOB:
-                /* fall through */
             case Types.NCHAR:
                 /* fall through */
-            case Types.NCLOB:
-                /* fall through */
             case Types.NVARCHAR:
                 /* fall through */
             case Types.LONGNVARCHAR:
                 value = rs.getString(i);
                 paramValue = new ParamValue(value);
                 break;
+            case Types.CLOB:
+                /* fall through */
+            case Types.NCLOB:
+                if (streamLobs) {
+                    sqlClob = columnType == Types.NCLOB ? rs.getNClob(i) : rs.getClob(i);
+                    paramValue = sqlClob == null ? new ParamValue((String) null) :
+                            ParamValue.createCharacterValue(sqlClob);
+                } else {
+                    value = rs.getString(i);
+                    paramValue = new ParamValue(value);
+                }
+                break;
             /* handle numbers */
             case Types.INTEGER:
                 /* fall through */
             case Types.TINYINT:
                 /* fall through */
             case Types.SMALLINT:
-                value = ConverterUtil.convertToString(rs.getInt(i));
-                paramValue = new ParamValue(rs.wasNull() ? null : value);
+                intValue = rs.getInt(i);
+                paramValue = rs.wasNull() ? new ParamValue((String) null) :
+                        ParamValue.createLongValue(intValue);
                 break;
             case Types.DOUBLE:
-                value = ConverterUtil.convertToString(rs.getDouble(i));
-                paramValue = new ParamValue(rs.wasNull() ? null : value);
+                doubleValue = rs.getDouble(i);
+                paramValue = rs.wasNull() ? new ParamValue((String) null) :
+                        ParamValue.createDoubleValue(doubleValue);
                 break;
             case Types.FLOAT:
-                value = ConverterUtil.convertToString(rs.getFloat(i));
-                paramValue = new ParamValue(rs.wasNull() ? null : value);
+                floatValue = rs.getFloat(i);
+                paramValue = rs.wasNull() ? new ParamValue((String) null) :
+                        ParamValue.createFloatValue(floatValue);
                 break;
             case Types.BOOLEAN:
                 /* fall through */
             case Types.BIT:
-                value = ConverterUtil.convertToString(rs.getBoolean(i));
-                paramValue = new ParamValue(rs.wasNull() ? null : value);
+                booleanValue = rs.getBoolean(i);
+                paramValue = rs.wasNull() ? new ParamValue((String) null) :
+                        ParamValue.createBooleanValue(booleanValue);
                 break;
             case Types.DECIMAL:
                 bigDecimal = rs.getBigDecimal(i);
@@ -1142,40 +1306,39 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 /* handle time data type */
                 sqlTime = rs.getTime(i);
                 if (sqlTime != null) {
-                    value = this.convertToTimeString(sqlTime);
+                    paramValue = ParamValue.createTimeValue(sqlTime.getTime());
                 } else {
-                    value = null;
+                    paramValue = new ParamValue((String) null);
                 }
-                paramValue = new ParamValue(value);
                 break;
             case Types.DATE:
                 /* handle date data type */
                 sqlDate = rs.getDate(i);
                 if (sqlDate != null) {
-                    value = ConverterUtil.convertToString(sqlDate);
+                    paramValue = ParamValue.createDateValue(sqlDate.getTime());
                 } else {
-                    value = null;
+                    paramValue = new ParamValue((String) null);
                 }
-                paramValue = new ParamValue(value);
                 break;
             case Types.TIMESTAMP:
                 sqlTimestamp = rs.getTimestamp(i, calendar);
                 if (sqlTimestamp != null) {
-                    value = this.convertToTimestampString(sqlTimestamp);
+                    paramValue = ParamValue.createTimestampValue(sqlTimestamp.getTime());
                 } else {
-                    value = null;
+                    paramValue = new ParamValue((String) null);
                 }
-                paramValue = new ParamValue(value);
                 break;
             /* handle binary types */
             case Types.BLOB:
                 sqlBlob = rs.getBlob(i);
-                if (sqlBlob != null) {
-                    value = this.getBase64StringFromInputStream(sqlBlob.getBinaryStream());
+                if (sqlBlob == null) {
+                    paramValue = new ParamValue((String) null);
+                } else if (streamLobs) {
+                    paramValue = ParamValue.createBinaryValue(sqlBlob);
                 } else {
-                    value = null;
+                    paramValue = new ParamValue(this.getBase64StringFromInputStream(
+                            sqlBlob.getBinaryStream()));
                 }
-                paramValue = new ParamValue(value);
                 break;
             case Types.BINARY:
                 /* fall through */
@@ -1213,8 +1376,9 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 paramValue = new ParamValue(value);
                 break;
             case Types.BIGINT:
-                value = ConverterUtil.convertToString(rs.getLong(i));
-                paramValue = new ParamValue(rs.wasNull() ? null : value);
+                longValue = rs.getLong(i);
+                paramValue = rs.wasNull() ? new ParamValue((String) null) :
+                        ParamValue.createLongValue(longValue);
                 break;
 
             /* handle all other types as strings */
@@ -1266,15 +1430,11 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
     }
 
     private String convertToTimeString(Time sqlTime) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTimeInMillis(sqlTime.getTime());
-        return new org.apache.axis2.databinding.types.Time(cal).toString();
+        return ValueFormatter.formatTime(sqlTime.getTime());
     }
 
     private String convertToTimestampString(Timestamp sqlTimestamp) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTimeInMillis(sqlTimestamp.getTime());
-        return ConverterUtil.convertToString(cal);
+        return ValueFormatter.formatTimestamp(sqlTimestamp.getTime());
     }
 
     private String getBase64StringFromInputStream(InputStream in) throws SQLException {
@@ -1393,40 +1553,75 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 }
             }
 
-            int currentOrdinal = 0;
-            InternalParam param;
-            ParamValue value;
-            for (int i = 1; i <= currentParamCount; i++) {
-                param = params.getParam(i);
-                value = param.getValue();
-                /*
-                 * handle array values, if value is null, this param has to be
-                 * an OUT param
-                 */
-                if (value != null && value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
-                    for (ParamValue arrayElement : value.getArrayValue()) {
+            this.bindParams(stmt, params, currentParamCount, queryType);
+
+            /* if we are in JDBC batch processing mode, batch it! */
+            if (this.isJDBCBatchRequest()) {
+                stmt.addBatch();
+            }
+
+            return stmt;
+        } catch (SQLException e) {
+            throw new DataServiceFault(e, "Error in 'createProcessedPreparedStatement'");
+        }
+    }
+
+    private void bindParams(PreparedStatement stmt, InternalParamCollection params, int paramCount,
+                            int queryType) throws SQLException, DataServiceFault {
+        int currentOrdinal = 0;
+        InternalParam param;
+        ParamValue value;
+        for (int i = 1; i <= paramCount; i++) {
+            param = params.getParam(i);
+            value = param.getValue();
+            /*
+             * handle array values, if value is null, this param has to be
+             * an OUT param
+             */
+            if (value != null && value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
+                for (ParamValue arrayElement : value.getArrayValue()) {
+                    if (!this.setConvertedParamInPreparedStatement(stmt, param, arrayElement,
+                            currentOrdinal)) {
                         this.setParamInPreparedStatement(
                                 stmt, param, arrayElement == null ? null : arrayElement.toString(),
                                 queryType, currentOrdinal);
-                        currentOrdinal++;
                     }
-                } else { /* scalar value */
+                    currentOrdinal++;
+                }
+            } else { /* scalar value */
+                if (!this.setConvertedParamInPreparedStatement(stmt, param, value, currentOrdinal)) {
                     this.setParamInPreparedStatement(stmt, param,
                             value != null ? value.getScalarValue() : null, queryType,
                             currentOrdinal);
-                    currentOrdinal++;
                 }
+                currentOrdinal++;
             }
+        }
+    }
 
-            /* if we are in JDBC batch processing mode, batch it! */
-            if (this.isJDBCBatchRequest()) {
-                stmt.addBatch();
-            }
-
-            return stmt;
-        } catch (SQLException e) {
-            throw new DataServiceFault(e, "Error in 'createProcessedPreparedStatement'");
+    /**
+     * Binds an IN parameter using the converter resolved for its query param at deployment time,
+     * where the converted value is cached in the param value, and the matching typed setter is called
+     * directly, instead of re-parsing the string value for each binding.
+     *
+     * @return true if the value was bound, false if the parameter has to be bound
+     * using {@link #setParamInPreparedStatement}
+     */
+    private boolean setConvertedParamInPreparedStatement(PreparedStatement stmt, InternalParam param,
+            ParamValue value, int index) throws SQLException, DataServiceFault {
+        ParamConverter converter = param.getConverter();
+        if (converter == null || !QueryTypes.IN.equals(param.getType())) {
+            return false;
+        }
+        if (value == null) {
+            converter.bind(stmt, index + 1, null, this.calendar);
+        } else if (value.getValueType() == ParamValue.PARAM_VALUE_SCALAR) {
+            converter.bind(stmt, index + 1, value.getConvertedScalarValue(converter, param.getName()),
+                    this.calendar);
+        } else {
+            return false;
         }
+        return true;
     }
 
     private void setParamInPreparedStatement(PreparedStatement stmt, InternalParam param,
@@ -2045,14 +2240,15 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 return new ParamValue(elementValue == null ? null
                         : this.convertToTimestampString((Timestamp) elementValue));
             } else if (type.equals(DBConstants.DataTypes.BLOB)) {
+                /* out parameters are written out before the statement is closed, so the
+                 * LOB is streamed from the statement */
                 elementValue = cs.getBlob(ordinal);
-                return new ParamValue(elementValue == null ? null
-                        : this.getBase64StringFromInputStream(((Blob) elementValue)
-                                .getBinaryStream()));
+                return elementValue == null ? new ParamValue((String) null)
+                        : ParamValue.createBinaryValue((Blob) elementValue);
             } else if (type.equals(DBConstants.DataTypes.CLOB)) {
                 elementValue = cs.getClob(ordinal);
-                return new ParamValue(elementValue == null ? null :
-                       deriveValueFromClob((Clob) elementValue));
+                return elementValue == null ? new ParamValue((String) null)
+                        : ParamValue.createCharacterValue((Clob) elementValue);
             } else if (type.equals(DBConstants.DataTypes.STRUCT)) {
                 elementValue = cs.getObject(ordinal);
                 return new ParamValue(elementValue == null ? null : (Struct) elementValue);
@@ -2096,35 +2292,33 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         }
     }
 
-    private String deriveValueFromClob(Clob data) throws DataServiceFault {
-        Reader r = null;
+    public boolean hasRefCursor() {
+        return hasRefCursor;
+    }
+
+    public Object runPreQuery(InternalParamCollection params, int queryLevel)
+            throws DataServiceFault {
+        if (!SlowQueryLog.isEnabled()) {
+            return this.executePreQuery(params, queryLevel);
+        }
+        long startTime = System.nanoTime();
+        boolean error = true;
         try {
-            StringBuilder sb = new StringBuilder();
-            r = new BufferedReader((data).getCharacterStream());
-            int pos;
-            while ((pos = r.read()) != -1) {
-                sb.append((char)pos);
-            }
-            return sb.toString();
-        } catch(IOException e) {
-            throw new DataServiceFault(e, "Error occurred while reading CLOB value");
-        } catch (SQLException e) {
-            throw new DataServiceFault(e, "Error occurred while reading CLOB value");
+            QueryResultInfo resultInfo = (QueryResultInfo) this.executePreQuery(params, queryLevel);
+            resultInfo.setPreQueryTime(System.nanoTime() - startTime);
+            error = false;
+            return resultInfo;
         } finally {
-            if (r != null) {
-                try {
-                    r.close();
-                } catch (IOException ignore) {
+            if (error) {
+                long preQueryTime = System.nanoTime() - startTime;
+                if (SlowQueryLog.isSlow(preQueryTime)) {
+                    this.logSlowQuery(params, -1, preQueryTime, 0, true, false);
                 }
             }
         }
     }
 
-    public boolean hasRefCursor() {
-        return hasRefCursor;
-    }
-
-    public Object runPreQuery(InternalParamCollection params, int queryLevel)
+    private Object executePreQuery(InternalParamCollection params, int queryLevel)
             throws DataServiceFault {
         int type = this.getQueryType();
         if (type == SQLQuery.DS_QUERY_TYPE_NORMAL) {
@@ -2138,6 +2332,27 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     public void runPostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params, int queryLevel)
             throws DataServiceFault {
+        if (!SlowQueryLog.isEnabled()) {
+            this.executePostQuery(result, xmlWriter, params, queryLevel);
+            return;
+        }
+        QueryResultInfo resultInfo = (QueryResultInfo) result;
+        long startTime = System.nanoTime();
+        boolean error = true;
+        try {
+            this.executePostQuery(result, xmlWriter, params, queryLevel);
+            error = false;
+        } finally {
+            long postQueryTime = System.nanoTime() - startTime;
+            if (SlowQueryLog.isSlow(resultInfo.getPreQueryTime() + postQueryTime)) {
+                this.logSlowQuery(params, resultInfo.getRowCount(), resultInfo.getPreQueryTime(),
+                        postQueryTime, error, resultInfo.getResultSet() != null);
+            }
+        }
+    }
+
+    private void executePostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params,
+                                  int queryLevel) throws DataServiceFault {
         int type = this.getQueryType();
         if (type == SQLQuery.DS_QUERY_TYPE_NORMAL) {
             this.processPostNormalQuery(result, xmlWriter, params, queryLevel);
@@ -2148,6 +2363,35 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         }
     }
 
+    /**
+     * Logs a slow execution of this query, and captures its execution plan if it is sampled.
+     */
+    private void logSlowQuery(InternalParamCollection params, long rows, long preQueryTime,
+                              long postQueryTime, boolean error, boolean hasResultSet) {
+        long number = SlowQueryLog.logSlowQuery(this.getDataService().getName(),
+                QueryStatistics.getCurrentOperation(), this.getQueryId(), this.getQuery(), params,
+                rows, preQueryTime, postQueryTime, error);
+        /* only the plans of plain SELECT statements are captured, which are safe to re-run */
+        if (hasResultSet && this.plainSelect && SlowQueryLog.isExplainSampled(this.lastExplainTime)) {
+            SlowQueryLog.captureExplainPlan(new ExplainPlanTask(number, params));
+        }
+    }
+
+    /**
+     * Returns the statement prefix to get the execution plan of a query from the given DBMS,
+     * or null if it is not supported.
+     */
+    private static String getExplainPrefix(String productName) {
+        String name = productName.toLowerCase();
+        if (name.contains("mysql") || name.contains("mariadb") || name.contains("postgresql") ||
+                name.equals("h2")) {
+            return "EXPLAIN ";
+        } else if (name.contains("hsql") || name.contains("oracle")) {
+            return "EXPLAIN PLAN FOR ";
+        }
+        return null;
+    }
+
     @Override
     public void releaseBatchRequestResources() {
         /* clear the TL batch prepared statement */
@@ -2162,6 +2406,97 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         }
     }
 
+    /**
+     * Captures the execution plan of a slow query using a separate connection, and logs it.
+     * The query is re-bound with the same parameters, but it is not executed. The capture is
+     * skipped if the pool has no idle connection, rather than waiting for one.
+     */
+    private class ExplainPlanTask implements Runnable {
+
+        private final long number;
+
+        private final InternalParamCollection params;
+
+        public ExplainPlanTask(long number, InternalParamCollection params) {
+            this.number = number;
+            this.params = params;
+        }
+
+        @Override
+        public void run() {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            try {
+                if (getConfig().isClosed() || !getConfig().hasIdleConnection()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("No idle connection to capture the execution plan of slow query #" +
+                                this.number);
+                    }
+                    return;
+                }
+                conn = getConfig().createConnection();
+                String productName = conn.getMetaData().getDatabaseProductName();
+                String prefix = getExplainPrefix(productName);
+                if (prefix == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Execution plans are not supported for " + productName +
+                                ", slow query #" + this.number);
+                    }
+                    return;
+                }
+                Object[] result = processDynamicQuery(getQuery(), this.params);
+                int paramCount = (Integer) result[1];
+                String sql = createProcessedQuery((String) result[0], this.params, paramCount);
+                stmt = conn.prepareStatement(prefix + sql);
+                stmt.setQueryTimeout(EXPLAIN_PLAN_QUERY_TIMEOUT);
+                bindParams(stmt, this.params, paramCount, SQLQuery.DS_QUERY_TYPE_NORMAL);
+                if (productName.toLowerCase().contains("oracle")) {
+                    /* Oracle writes the plan to the plan table, which is read separately */
+                    stmt.execute();
+                    releaseResources(null, stmt);
+                    stmt = conn.prepareStatement("SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY())");
+                    stmt.setQueryTimeout(EXPLAIN_PLAN_QUERY_TIMEOUT);
+                }
+                rs = stmt.executeQuery();
+                SlowQueryLog.logExplainPlan(this.number, getQueryId(), this.readPlan(rs));
+            } catch (Throwable e) {
+                log.warn("Error in capturing the execution plan of slow query #" + this.number +
+                        ": " + e.getMessage(), e);
+            } finally {
+                releaseResources(rs, stmt);
+                if (conn != null) {
+                    try {
+                        if (!conn.getAutoCommit()) {
+                            conn.rollback();
+                        }
+                        conn.close();
+                    } catch (SQLException e) {
+                        log.debug("Error in closing the execution plan connection: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+
+        private String readPlan(ResultSet rs) throws SQLException {
+            int columnCount = rs.getMetaData().getColumnCount();
+            StringBuilder builder = new StringBuilder();
+            while (rs.next()) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        builder.append(" | ");
+                    }
+                    builder.append(rs.getString(i));
+                }
+            }
+            return builder.toString();
+        }
+
+    }
+
     /**
      * This class contains the stored procedure metadata collection.
      */
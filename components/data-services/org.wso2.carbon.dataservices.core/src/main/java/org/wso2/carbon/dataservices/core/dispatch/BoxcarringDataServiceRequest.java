@@ -26,7 +26,8 @@ import org.wso2.carbon.dataservices.common.DBConstants.BoxcarringOps;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DSSessionManager;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
-import org.wso2.carbon.dataservices.core.TLConnectionStore;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBox;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBoxResultDataSource;
 import org.wso2.carbon.dataservices.core.boxcarring.TLParamStore;
 
 /**
@@ -61,6 +62,7 @@ public class BoxcarringDataServiceRequest extends DataServiceRequest {
 		} else if (BoxcarringOps.END_BOXCAR.equals(this.getRequestName())) {
 			/* execute all the stored requests */
 		    boolean error = true;
+		    boolean streamed = false;
 			try {
 				DispatchStatus.setBoxcarringRequest();
 				if (!this.getDataService().isInDTX()) {
@@ -68,12 +70,16 @@ public class BoxcarringDataServiceRequest extends DataServiceRequest {
 				}
 			    OMElement lastRequestResult = DSSessionManager.getCurrentRequestBox().execute();
 			    error = false;
+			    /* a streamed result finalizes the transaction itself, once it is written */
+			    streamed = RequestBoxResultDataSource.isStreamedResult(lastRequestResult);
 			    return lastRequestResult;
 			} finally {
-			    this.finalizeTx(error);
+			    if (!streamed) {
+			        this.finalizeTx(error);
+			        TLParamStore.clear();
+			    }
 				DSSessionManager.getCurrentRequestBox().clear();
 				DSSessionManager.setBoxcarring(false);
-				TLParamStore.clear();
 			}			
 		} else if (BoxcarringOps.ABORT_BOXCAR.equals(this.getRequestName())) {
 			DSSessionManager.getCurrentRequestBox().clear();
@@ -89,29 +95,8 @@ public class BoxcarringDataServiceRequest extends DataServiceRequest {
 	}
 	
 	private void finalizeTx(boolean error) throws DataServiceFault {
-        if (error) {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.rollbackNonXAConns();
-                TLConnectionStore.closeAll();
-                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                    this.getDataService().getDSSTxManager().rollback();
-                }
-            } else {
-                TLConnectionStore.rollbackAll();
-                TLConnectionStore.closeAll();
-            }
-        } else {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.commitNonXAConns();
-            } else {
-                TLConnectionStore.commitAll();
-            }
-            TLConnectionStore.closeAll();
-            if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                this.getDataService().getDSSTxManager().commit();
-            }
-        }
-    }
+		RequestBox.finalizeTx(this.getDataService(), error);
+	}
 	
 	private OMElement createBoxcarringRequestResultWrapper() {
 		String resultWrapper = this.getDataService().getResultWrapperForRequest(
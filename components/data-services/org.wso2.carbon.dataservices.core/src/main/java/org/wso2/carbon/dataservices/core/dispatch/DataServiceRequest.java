@@ -32,6 +32,7 @@ import org.wso2.carbon.dataservices.core.DataServiceUser;
 import org.wso2.carbon.dataservices.core.engine.CallableRequest;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 
 import javax.xml.namespace.QName;
 import java.util.*;
@@ -83,7 +84,6 @@ public abstract class DataServiceRequest {
 			MessageContext msgContext) throws DataServiceFault {
 		AxisService axisService = msgContext.getAxisService();
 		AxisOperation axisOp = msgContext.getAxisOperation();
-		OMElement inputMessage = msgContext.getEnvelope().getBody().getFirstElement();
 		/* get operation/request name */
 		String requestName = axisOp.getName().getLocalPart();
 		/* retrieve the DataService object representing the current data service */
@@ -91,22 +91,34 @@ public abstract class DataServiceRequest {
 				DBConstants.DATA_SERVICE_OBJECT).getValue();
 		
 		DataServiceRequest dsRequest;
-        /* Check whether the request is collection of requests (request box), if so create RequestBoxRequest */
-        if (isRequestBoxRequest(requestName)) {
-            dsRequest = createRequestBoxRequest(dataService, requestName, inputMessage);
-            return dsRequest;
-        }
-		/* check if batch or single request */
-		if (isBatchRequest(inputMessage)) {
-			dsRequest = new BatchDataServiceRequest(
-					dataService, requestName, getBatchInputValuesFromOM(inputMessage));
-		} else {
-			dsRequest = new SingleDataServiceRequest(
-					dataService, requestName, getSingleInputValuesFromOM(inputMessage)); 
+		/* the incoming message is parsed on demand, while reading the input values */
+		RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_PARSE, requestName);
+		try {
+			OMElement inputMessage = msgContext.getEnvelope().getBody().getFirstElement();
+	        /* Check whether the request is collection of requests (request box), if so create RequestBoxRequest */
+	        if (isRequestBoxRequest(requestName)) {
+	            dsRequest = createRequestBoxRequest(dataService, requestName, inputMessage);
+	            return dsRequest;
+	        }
+			/* check if batch or single request */
+			if (isBatchRequest(inputMessage)) {
+				dsRequest = new BatchDataServiceRequest(
+						dataService, requestName, getBatchInputValuesFromOM(inputMessage));
+			} else {
+				dsRequest = new SingleDataServiceRequest(
+						dataService, requestName, getSingleInputValuesFromOM(inputMessage)); 
+			}
+		} finally {
+			RequestTrace.endSpan(span);
 		}
 		
 		/* set user information */
-		populateUserInfo(dataService, dsRequest, msgContext);
+		span = RequestTrace.startSpan(RequestTrace.PHASE_AUTH, null);
+		try {
+			populateUserInfo(dataService, dsRequest, msgContext);
+		} finally {
+			RequestTrace.endSpan(span);
+		}
 		
 		/* checks if this is a boxcarring session */
 		if (isBoxcarringRequest(requestName)) {
@@ -347,7 +359,13 @@ public abstract class DataServiceRequest {
 			/* if result is of type OMSourcedElementImpl, that means,
 			 * it is still in streaming mode, result.isComplete does not work */
 			if (result instanceof OMSourcedElementImpl) {
-				result = DBUtils.cloneAndReturnBuiltElement(result);
+				RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_SERIALIZE,
+						this.getRequestName());
+				try {
+					result = DBUtils.cloneAndReturnBuiltElement(result);
+				} finally {
+					RequestTrace.endSpan(span);
+				}
 			}
 		}
 		return result;
@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.dispatch;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.AxisOperation;
+import org.apache.axis2.description.AxisService;
+import org.apache.axis2.description.HandlerDescription;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.dispatchers.HTTPLocationBasedDispatcher;
+import org.apache.axis2.engine.AbstractDispatcher;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.axis2.engine.Handler;
+import org.apache.axis2.engine.Phase;
+import org.apache.axis2.phaseresolver.PhaseMetadata;
+import org.apache.axis2.transport.http.HTTPConstants;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.List;
+
+/**
+ * Dispatches the REST requests of the data services to their resources and operations, using the
+ * {@link ResourceDispatchTrie} of each data service, which is created when it is deployed. This
+ * dispatcher is added to the Dispatch phase before the Axis2 HTTP location based dispatcher,
+ * which matches the request against the regular expression of each resource in turn. The requests
+ * which do not match a template in the trie, and the requests of the other services, are left to
+ * the Axis2 dispatchers.
+ */
+public class DataServiceResourceDispatcher extends AbstractDispatcher {
+
+    private static final Log log = LogFactory.getLog(DataServiceResourceDispatcher.class);
+
+    public static final String NAME = "DataServiceResourceDispatcher";
+
+    /**
+     * The AxisService parameter which holds the resource trie of a data service
+     */
+    public static final String RESOURCE_TRIE_PARAMETER = "DataServiceResourceTrie";
+
+    @Override
+    public void initDispatcher() {
+        this.init(new HandlerDescription(NAME));
+    }
+
+    @Override
+    public AxisService findService(MessageContext messageContext) throws AxisFault {
+        /* the service is found by the other dispatchers */
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public AxisOperation findOperation(AxisService service, MessageContext messageContext)
+            throws AxisFault {
+        if (!messageContext.isDoingREST()) {
+            return null;
+        }
+        Parameter trieParam = service.getParameter(RESOURCE_TRIE_PARAMETER);
+        if (trieParam == null) {
+            return null;
+        }
+        String method = (String) messageContext.getProperty(HTTPConstants.HTTP_METHOD);
+        EndpointReference to = messageContext.getTo();
+        if (method == null || to == null || to.getAddress() == null) {
+            return null;
+        }
+        String path = getResourcePath(to.getAddress(), service.getName());
+        if (path == null) {
+            return null;
+        }
+        AxisOperation axisOperation = ((ResourceDispatchTrie<AxisOperation>) trieParam.getValue())
+                .match(method, path);
+        if (log.isDebugEnabled()) {
+            log.debug("Resource dispatch of " + method + " " + path + " in service " +
+                    service.getName() + ": " + (axisOperation != null ?
+                    axisOperation.getName().getLocalPart() : "no match"));
+        }
+        return axisOperation;
+    }
+
+    /**
+     * Returns the part of the request address after the service name and the endpoint name if
+     * present, without the query string, e.g. "customers/5" for the address
+     * "http://localhost:9763/services/CustomerService.HTTPEndpoint/customers/5?details=true".
+     *
+     * @return The resource path, or null if the address does not contain the service name
+     */
+    public static String getResourcePath(String address, String serviceName) {
+        String servicePath = "/" + serviceName;
+        /* skip the scheme and the host */
+        int index = address.indexOf("://");
+        index = index == -1 ? 0 : address.indexOf('/', index + 3);
+        if (index != -1) {
+            index = address.indexOf(servicePath, index);
+        }
+        int end;
+        while (true) {
+            if (index == -1) {
+                return null;
+            }
+            end = index + servicePath.length();
+            if (end == address.length()) {
+                return "";
+            }
+            char next = address.charAt(end);
+            if (next == '/' || next == '?' || next == '.') {
+                break;
+            }
+            index = address.indexOf(servicePath, end);
+        }
+        int queryStart = address.indexOf('?', end);
+        if (queryStart == -1) {
+            queryStart = address.length();
+        }
+        if (address.charAt(end) == '.') {
+            /* skip the endpoint name */
+            int pathStart = address.indexOf('/', end);
+            end = pathStart == -1 || pathStart > queryStart ? queryStart : pathStart;
+        }
+        return address.substring(end, queryStart);
+    }
+
+    /**
+     * Adds the dispatcher to the Dispatch phase of the given configuration, before the HTTP
+     * location based dispatcher, if it is not already added.
+     */
+    public static synchronized void register(AxisConfiguration axisConfig) {
+        for (Phase phase : axisConfig.getInFlowPhases()) {
+            if (!PhaseMetadata.PHASE_DISPATCH.equals(phase.getPhaseName())) {
+                continue;
+            }
+            List<Handler> handlers = phase.getHandlers();
+            int index = handlers.size();
+            for (int i = 0; i < handlers.size(); i++) {
+                Handler handler = handlers.get(i);
+                if (NAME.equals(handler.getName())) {
+                    return;
+                }
+                if (handler instanceof HTTPLocationBasedDispatcher && i < index) {
+                    index = i;
+                }
+            }
+            DataServiceResourceDispatcher dispatcher = new DataServiceResourceDispatcher();
+            dispatcher.initDispatcher();
+            phase.addHandler(dispatcher, index);
+            if (log.isDebugEnabled()) {
+                log.debug("Added the data service resource dispatcher to the Dispatch phase at " + index);
+            }
+        }
+    }
+
+}
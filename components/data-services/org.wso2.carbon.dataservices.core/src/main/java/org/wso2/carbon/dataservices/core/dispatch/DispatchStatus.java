@@ -55,9 +55,20 @@ public class DispatchStatus {
         }
     };
 
+    /**
+     * thread local variable to mark that the result of the current request is not used,
+     * i.e. the intermediate requests of a request box
+     */
+    private static ThreadLocal<Boolean> resultDiscarded = new ThreadLocal<Boolean>() {
+        protected synchronized Boolean initialValue() {
+            return false;
+        }
+    };
+
     public static void clearRequestStatus() {
         batchRequest.set(false);
         boxcarringRequest.set(false);
+        resultDiscarded.set(false);
         batchRequestCount.set(0);
         batchRequestNumber.set(0);
     }
@@ -94,6 +105,14 @@ public class DispatchStatus {
         return boxcarringRequest.get();
     }
     
+    public static boolean isResultDiscarded() {
+        return resultDiscarded.get();
+    }
+
+    public static void setResultDiscarded(boolean val) {
+        resultDiscarded.set(val);
+    }
+
     public static boolean isInBatchBoxcarring() {
         return isBatchRequest() || isBoxcarringRequest();
     }
@@ -21,8 +21,8 @@ package org.wso2.carbon.dataservices.core.dispatch;
 import org.apache.axiom.om.OMElement;
 import org.wso2.carbon.dataservices.core.DSSessionManager;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
-import org.wso2.carbon.dataservices.core.TLConnectionStore;
 import org.wso2.carbon.dataservices.core.boxcarring.RequestBox;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBoxResultDataSource;
 import org.wso2.carbon.dataservices.core.boxcarring.TLParamStore;
 import org.wso2.carbon.dataservices.core.engine.DataService;
 
@@ -62,6 +62,7 @@ public class RequestBoxRequest extends DataServiceRequest {
     public OMElement processRequest() throws DataServiceFault {
 
         boolean error = true;
+        boolean streamed = false;
         try {
             DispatchStatus.setBoxcarringRequest();
             if (!this.getDataService().isInDTX()) {
@@ -69,43 +70,15 @@ public class RequestBoxRequest extends DataServiceRequest {
             }
             OMElement lastRequestResult = this.requestBox.execute();
             error = false;
+            /* a streamed result finalizes the transaction itself, once it is written */
+            streamed = RequestBoxResultDataSource.isStreamedResult(lastRequestResult);
             return lastRequestResult;
         } finally {
-            this.finalizeTx(error);
-            TLParamStore.clear();
-        }
-
-    }
-
-    /**
-     * Helper method to finish the transaction.
-     *
-     * @param error whether operation successful or not.
-     * @throws DataServiceFault
-     */
-    private void finalizeTx(boolean error) throws DataServiceFault {
-        if (error) {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.rollbackNonXAConns();
-                TLConnectionStore.closeAll();
-                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                    this.getDataService().getDSSTxManager().rollback();
-                }
-            } else {
-                TLConnectionStore.rollbackAll();
-                TLConnectionStore.closeAll();
-            }
-        } else {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.commitNonXAConns();
-            } else {
-                TLConnectionStore.commitAll();
-            }
-            TLConnectionStore.closeAll();
-            if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                this.getDataService().getDSSTxManager().commit();
+            if (!streamed) {
+                RequestBox.finalizeTx(this.getDataService(), error);
+                TLParamStore.clear();
             }
         }
+
     }
 }
-
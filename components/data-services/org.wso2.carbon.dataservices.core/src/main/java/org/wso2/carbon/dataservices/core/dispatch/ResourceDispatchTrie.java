@@ -0,0 +1,207 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.dispatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A trie of REST resource path templates, by path segment, which finds the value of a request
+ * path and HTTP method by walking the segments of the path, rather than matching the path against
+ * each template in turn. At each level, the literal segment is tried first, then the segments
+ * which have template variables within literal text, e.g. "{id}.xml", and last a segment which is
+ * a single template variable, e.g. "{id}". If a branch has no match further down the path, the
+ * next less specific branch is tried.
+ * <p/>
+ * The trie is built when a data service is deployed and only read afterwards, so the lookups are
+ * not synchronized with the additions.
+ *
+ * @param <V> The type of the values, i.e. the operations the requests are dispatched to
+ */
+public class ResourceDispatchTrie<V> {
+
+    private final Node<V> root = new Node<V>(null);
+
+    private int size;
+
+    /**
+     * Adds a resource template.
+     *
+     * @param method   The HTTP method
+     * @param template The path template, e.g. "customers/{id}/orders", with or without a leading '/'
+     * @param value    The value returned for the requests matching the template and method
+     * @return false if the template has a query part, which is not supported by the trie, or if the
+     * template is already added for the method
+     */
+    public boolean add(String method, String template, V value) {
+        if (template.indexOf('?') != -1) {
+            return false;
+        }
+        Node<V> node = this.root;
+        for (String segment : template.split("/")) {
+            if (segment.length() > 0) {
+                node = node.getOrCreateChild(segment);
+            }
+        }
+        String methodKey = method.toUpperCase(Locale.ENGLISH);
+        if (node.values == null) {
+            node.values = new HashMap<String, V>(4);
+        } else if (node.values.containsKey(methodKey)) {
+            return false;
+        }
+        node.values.put(methodKey, value);
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Finds the value of the template matching the given request path and method.
+     *
+     * @param method The HTTP method, in upper case
+     * @param path   The request path, without the query string
+     * @return The value, or null if there is no template matching the path for the method
+     */
+    public V match(String method, String path) {
+        return find(this.root, path, 0, method);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static <V> V find(Node<V> node, String path, int start, String method) {
+        int length = path.length();
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start == length) {
+            return node.values != null ? node.values.get(method) : null;
+        }
+        int end = path.indexOf('/', start);
+        if (end == -1) {
+            end = length;
+        }
+        String segment = path.substring(start, end);
+        V value;
+        if (node.literalChildren != null) {
+            Node<V> child = node.literalChildren.get(segment);
+            if (child != null && (value = find(child, path, end, method)) != null) {
+                return value;
+            }
+        }
+        if (node.patternChildren != null) {
+            for (Node<V> child : node.patternChildren) {
+                if (child.pattern.matcher(segment).matches() &&
+                        (value = find(child, path, end, method)) != null) {
+                    return value;
+                }
+            }
+        }
+        if (node.variableChild != null) {
+            return find(node.variableChild, path, end, method);
+        }
+        return null;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.startsWith("{") && segment.endsWith("}") && segment.indexOf('{', 1) == -1;
+    }
+
+    /**
+     * Creates the pattern of a segment with template variables within literal text,
+     * where each variable matches one or more characters.
+     */
+    private static Pattern createSegmentPattern(String segment) {
+        StringBuilder regex = new StringBuilder();
+        int index = 0;
+        while (index < segment.length()) {
+            int varStart = segment.indexOf('{', index);
+            int varEnd = varStart == -1 ? -1 : segment.indexOf('}', varStart);
+            if (varEnd == -1) {
+                regex.append(Pattern.quote(segment.substring(index)));
+                break;
+            }
+            if (varStart > index) {
+                regex.append(Pattern.quote(segment.substring(index, varStart)));
+            }
+            regex.append(".+?");
+            index = varEnd + 1;
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static class Node<V> {
+
+        /* the template segment of a node with a pattern, used to share the node between templates */
+        private final String segment;
+
+        private final Pattern pattern;
+
+        private Map<String, Node<V>> literalChildren;
+
+        private List<Node<V>> patternChildren;
+
+        private Node<V> variableChild;
+
+        /* the values of the templates ending at this node, by HTTP method */
+        private Map<String, V> values;
+
+        private Node(String segment) {
+            this.segment = segment;
+            this.pattern = segment != null ? createSegmentPattern(segment) : null;
+        }
+
+        private Node<V> getOrCreateChild(String segment) {
+            Node<V> child;
+            if (segment.indexOf('{') == -1) {
+                if (this.literalChildren == null) {
+                    this.literalChildren = new HashMap<String, Node<V>>();
+                }
+                child = this.literalChildren.get(segment);
+                if (child == null) {
+                    child = new Node<V>(null);
+                    this.literalChildren.put(segment, child);
+                }
+            } else if (isVariable(segment)) {
+                if (this.variableChild == null) {
+                    this.variableChild = new Node<V>(null);
+                }
+                child = this.variableChild;
+            } else {
+                if (this.patternChildren == null) {
+                    this.patternChildren = new ArrayList<Node<V>>();
+                }
+                for (Node<V> patternChild : this.patternChildren) {
+                    if (patternChild.segment.equals(segment)) {
+                        return patternChild;
+                    }
+                }
+                child = new Node<V>(segment);
+                this.patternChildren.add(child);
+            }
+            return child;
+        }
+
+    }
+
+}
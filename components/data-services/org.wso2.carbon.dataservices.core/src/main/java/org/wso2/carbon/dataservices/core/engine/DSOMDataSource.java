@@ -33,6 +33,7 @@ import org.apache.axiom.om.OMOutputFormat;
 import org.apache.commons.io.output.NullOutputStream;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 
 /**
  * This class represents the data source for an OMElement,
@@ -49,6 +50,9 @@ public class DSOMDataSource implements OMDataSource {
 	private String opName;
 	
 	private Map<String, ParamValue> params;
+	
+	/* the trace of the request, which is finished when the result is written */
+	private RequestTrace requestTrace;
 			
 	public DSOMDataSource(DataService dataService, String opName, 
 			Map<String, ParamValue> params) {
@@ -68,6 +72,10 @@ public class DSOMDataSource implements OMDataSource {
 	public Map<String, ParamValue> getParams() {
 		return params;
 	}
+	
+	public void setRequestTrace(RequestTrace requestTrace) {
+		this.requestTrace = requestTrace;
+	}
 
 	/**
 	 * This method is called when the current request is a in-only operations,
@@ -104,7 +112,22 @@ public class DSOMDataSource implements OMDataSource {
 	}
 	
 	public void serialize(XMLStreamWriter xmlWriter) throws XMLStreamException {
-		this.execute(xmlWriter);
+		RequestTrace trace = this.requestTrace;
+		if (trace == null) {
+			this.execute(xmlWriter);
+			return;
+		}
+		this.requestTrace = null;
+		RequestTrace.setCurrent(trace);
+		RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.PHASE_SERIALIZE, this.getOpName());
+		boolean error = true;
+		try {
+			this.execute(xmlWriter);
+			error = false;
+		} finally {
+			RequestTrace.endSpan(span);
+			trace.finish(error);
+		}
 	}
 
 	public XMLStreamReader getReader() throws XMLStreamException {
@@ -39,6 +39,7 @@ import org.wso2.carbon.dataservices.core.description.resource.Resource;
 import org.wso2.carbon.dataservices.core.description.resource.Resource.ResourceID;
 import org.wso2.carbon.dataservices.core.description.xa.DSSXATransactionManager;
 import org.wso2.carbon.dataservices.core.internal.DataServicesDSComponent;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
 import org.wso2.carbon.event.core.EventBroker;
 import org.wso2.carbon.event.core.exception.EventBrokerException;
 import org.wso2.carbon.event.core.subscription.Subscription;
@@ -47,9 +48,11 @@ import javax.transaction.TransactionManager;
 import javax.xml.stream.XMLStreamWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is the logical representation of a data service, and is the
@@ -146,6 +149,22 @@ public class DataService {
      */
     private boolean boxcarringEnabled;
 
+    /**
+     * States if independent read-only requests in a request box are executed concurrently
+     */
+    private boolean parallelRequestBoxEnabled;
+
+    /**
+     * States if the connections, statements and the warm-up operations are warmed up, before
+     * the data service is deployed
+     */
+    private boolean warmupEnabled;
+
+    /**
+     * The operations invoked in the warm-up of the data service
+     */
+    private List<WarmupOperation> warmupOperations = new ArrayList<WarmupOperation>();
+
     /**
      * The current user who is sending requests
      */
@@ -177,6 +196,11 @@ public class DataService {
      */
     private AuthorizationProvider authorizationProvider;
 
+    /**
+     * The number of queries of the data service which are being executed
+     */
+    private final AtomicInteger activeQueryCount = new AtomicInteger();
+
 	public DataService(String name, String description,
                        String defaultNamespace, String dsLocation, String serviceStatus,
                        boolean batchRequestsEnabled, boolean boxcarringEnabled,
@@ -355,6 +379,30 @@ public class DataService {
 		return tenantId;
 	}
 
+    public boolean isParallelRequestBoxEnabled() {
+        return parallelRequestBoxEnabled;
+    }
+
+    public void setParallelRequestBoxEnabled(boolean parallelRequestBoxEnabled) {
+        this.parallelRequestBoxEnabled = parallelRequestBoxEnabled;
+    }
+
+    public boolean isWarmupEnabled() {
+        return warmupEnabled;
+    }
+
+    public void setWarmupEnabled(boolean warmupEnabled) {
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    public List<WarmupOperation> getWarmupOperations() {
+        return warmupOperations;
+    }
+
+    public void addWarmupOperation(WarmupOperation warmupOperation) {
+        this.warmupOperations.add(warmupOperation);
+    }
+
     public boolean isDisableStreaming() {
         return disableStreaming;
     }
@@ -371,6 +419,28 @@ public class DataService {
         return containerUserTxName;
     }
     
+    /**
+     * Marks the start of a query execution of the data service.
+     */
+    public void queryStarted() {
+        this.activeQueryCount.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a query execution of the data service.
+     */
+    public void queryFinished() {
+        this.activeQueryCount.decrementAndGet();
+    }
+
+    /**
+     * Returns the number of queries of the data service which are being executed, which is used
+     * to drain the requests of a data service before it is cleaned up, when it is redeployed.
+     */
+    public int getActiveQueryCount() {
+        return activeQueryCount.get();
+    }
+
     /**
      * Cleanup operations done when undeploying the data service.
      */
@@ -378,18 +448,33 @@ public class DataService {
         if (log.isDebugEnabled()) {
             log.debug("Data Service '" + this.getName() + "' cleanup start..");
         }
-        /* remove event subscriptions */
+        this.clearEventSubscriptions();
+        this.closeConfigs();
+        if (log.isDebugEnabled()) {
+            log.debug("Data Service '" + this.getName() + "' cleanup end.");
+        }
+    }
+
+    /**
+     * Removes the event subscriptions of the data service.
+     */
+    public void clearEventSubscriptions() throws DataServiceFault {
         EventBroker eventBroker =
                 DataServicesDSComponent.getEventBroker();
         if (eventBroker != null) {
             this.clearDataServicesEventSubscriptions(eventBroker);
         }
-        /* cleanup configs */
+    }
+
+    /**
+     * Closes the configs of the data service, except the ones reused by a new version of the
+     * data service, which are handed over to the new version.
+     *
+     * @see Config#release(DataService)
+     */
+    public void closeConfigs() {
         for (Config config : this.getConfigs().values()) {
-        	config.close();
-        }
-        if (log.isDebugEnabled()) {
-            log.debug("Data Service '" + this.getName() + "' cleanup end.");
+            config.release(this);
         }
     }
 
@@ -579,6 +664,9 @@ public class DataService {
     public void invoke(XMLStreamWriter xmlWriter,
                                    String requestName, Map<String, ParamValue> params)
             throws DataServiceFault {
+        /* the query statistics are kept by the calling operation */
+        String previousOperation = QueryStatistics.getCurrentOperation();
+        QueryStatistics.setCurrentOperation(requestName);
         try {
             this.getCallableRequest(requestName).execute(xmlWriter, 
             		this.extractParams(params));
@@ -591,6 +679,8 @@ public class DataService {
             this.fillInDataServiceFault(dsf, requestName, params);
             log.error(dsf.getFullMessage(), e);
             throw dsf;
+        } finally {
+            QueryStatistics.setCurrentOperation(previousOperation);
         }
     }
 
@@ -18,6 +18,7 @@
  */
 package org.wso2.carbon.dataservices.core.engine;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
@@ -68,6 +69,15 @@ public class DataServiceSerializer {
         /* set 'enableBoxcarring' attribute */
         dataEl.addAttribute(DBSFields.ENABLE_BOXCARRING, 
         		Boolean.toString(dataService.isBoxcarringEnabled()), null);
+        /* set 'enableParallelRequestBox' attribute */
+        if (dataService.isParallelRequestBoxEnabled()) {
+            dataEl.addAttribute(DBSFields.ENABLE_PARALLEL_REQUEST_BOX, Boolean.TRUE.toString(), null);
+        }
+        
+        /* set 'enableWarmup' attribute */
+        if (dataService.isWarmupEnabled()) {
+            dataEl.addAttribute(DBSFields.ENABLE_WARMUP, Boolean.TRUE.toString(), null);
+        }
         
         /* add configs */
         for (Config config : dataService.getConfigs().values()) {
@@ -91,6 +101,18 @@ public class DataServiceSerializer {
         	dataEl.addChild(ResourceSerializer.serializeResource(
         	   		dataService.getResource(resourceId)));
         }
+        /* add warm-up operations */
+        for (WarmupOperation warmupOperation : dataService.getWarmupOperations()) {
+            OMElement warmupOpEl = fac.createOMElement(new QName(DBSFields.WARMUP_OPERATION));
+            warmupOpEl.addAttribute(DBSFields.NAME, warmupOperation.getName(), null);
+            for (Map.Entry<String, String> param : warmupOperation.getParams().entrySet()) {
+                OMElement paramEl = fac.createOMElement(new QName(DBSFields.WITH_PARAM));
+                paramEl.addAttribute(DBSFields.NAME, param.getKey(), null);
+                paramEl.addAttribute(DBSFields.VALUE, param.getValue(), null);
+                warmupOpEl.addChild(paramEl);
+            }
+            dataEl.addChild(warmupOpEl);
+        }
         fac.createOMDocument().addChild(dataEl);
 		return dataEl;
 	}
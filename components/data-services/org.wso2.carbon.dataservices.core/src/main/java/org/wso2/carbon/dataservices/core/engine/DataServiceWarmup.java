@@ -0,0 +1,212 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.engine;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.dataservices.core.description.config.Config;
+import org.wso2.carbon.dataservices.core.description.config.SQLConfig;
+import org.wso2.carbon.dataservices.core.description.operation.Operation;
+import org.wso2.carbon.dataservices.core.description.query.Query;
+import org.wso2.carbon.dataservices.core.description.query.SQLQuery;
+import org.wso2.carbon.dataservices.core.dispatch.SingleDataServiceRequest;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warms up a data service before it is deployed, so the first requests after a deployment or a
+ * restart do not pay for filling the connection pools, loading the JDBC drivers and preparing
+ * the statements. The warm-up is done in three steps:
+ * <ul>
+ * <li>the configs are initialized, and the SQL configs acquire as many connections as their
+ * pools keep idle</li>
+ * <li>the statements of the SQL queries are prepared on a pooled connection, without being
+ * executed</li>
+ * <li>the declared warm-up operations, whose queries, including the nested queries, must be
+ * declared read-only with the 'readOnly' attribute, are invoked with their sample parameters,
+ * and their results are discarded</li>
+ * </ul>
+ * The warm-up is enabled using the 'enableWarmup' attribute of a data service, or for the data
+ * services which do not set it, using the dss.warmup system property. A failure in the warm-up
+ * does not fail the deployment, it is logged, and the data service is warmed up by its requests.
+ */
+public final class DataServiceWarmup {
+
+    private static final Log log = LogFactory.getLog(DataServiceWarmup.class);
+
+    public static final String WARMUP_PROPERTY = "dss.warmup";
+
+    private DataServiceWarmup() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Warms up the given data service, in the current thread.
+     */
+    public static void warmUp(DataService dataService) {
+        long startTime = System.nanoTime();
+        int configCount = warmUpConfigs(dataService);
+        int statementCount = prepareStatements(dataService);
+        int operationCount = invokeWarmupOperations(dataService);
+        if (log.isInfoEnabled()) {
+            log.info("Data service '" + dataService.getName() + "' warmed up in " +
+                    (System.nanoTime() - startTime) / 1000000 + " ms, configs: " + configCount +
+                    ", prepared statements: " + statementCount + ", operations: " + operationCount);
+        }
+    }
+
+    private static int warmUpConfigs(DataService dataService) {
+        int count = 0;
+        for (Config config : dataService.getConfigs().values()) {
+            try {
+                config.warmUp();
+                count++;
+            } catch (Exception e) {
+                log.warn("Error in warming up config '" + config.getConfigId() + "' of data service '" +
+                        dataService.getName() + "': " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private static int prepareStatements(DataService dataService) {
+        /* the queries are prepared on one connection of each config */
+        Map<SQLConfig, List<SQLQuery>> configQueries = new LinkedHashMap<SQLConfig, List<SQLQuery>>();
+        for (Query query : dataService.getQueries().values()) {
+            if (!(query instanceof SQLQuery)) {
+                continue;
+            }
+            SQLConfig config = ((SQLQuery) query).getConfig();
+            if (config == null || !config.isInitialized()) {
+                continue;
+            }
+            List<SQLQuery> queries = configQueries.get(config);
+            if (queries == null) {
+                queries = new ArrayList<SQLQuery>();
+                configQueries.put(config, queries);
+            }
+            queries.add((SQLQuery) query);
+        }
+        int count = 0;
+        for (Map.Entry<SQLConfig, List<SQLQuery>> entry : configQueries.entrySet()) {
+            Connection conn = null;
+            try {
+                conn = entry.getKey().getDataSource().getConnection();
+                for (SQLQuery query : entry.getValue()) {
+                    try {
+                        if (query.prepareForWarmup(conn)) {
+                            count++;
+                        }
+                    } catch (SQLException e) {
+                        log.warn("Error in preparing the statement of query '" + query.getQueryId() +
+                                "' of data service '" + dataService.getName() + "': " + e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Error in preparing the statements of config '" + entry.getKey().getConfigId() +
+                        "' of data service '" + dataService.getName() + "': " + e.getMessage());
+            } finally {
+                if (conn != null) {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        log.debug("Error in closing the warm-up connection: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int invokeWarmupOperations(DataService dataService) {
+        int count = 0;
+        for (WarmupOperation warmupOperation : dataService.getWarmupOperations()) {
+            String name = warmupOperation.getName();
+            Operation operation = dataService.getOperation(name);
+            if (operation == null) {
+                log.warn("The warm-up operation '" + name + "' of data service '" +
+                        dataService.getName() + "' does not exist");
+                continue;
+            }
+            Query query = operation.getCallQuery() != null ? operation.getCallQuery().getQuery() : null;
+            if (query == null || !isReadOnly(query, new HashSet<Query>())) {
+                log.warn("The warm-up operation '" + name + "' of data service '" +
+                        dataService.getName() + "' is not read-only, it is not invoked");
+                continue;
+            }
+            Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+            for (Map.Entry<String, String> param : warmupOperation.getParams().entrySet()) {
+                params.put(param.getKey(), new ParamValue(param.getValue()));
+            }
+            try {
+                OMElement result = new SingleDataServiceRequest(dataService, name, params).dispatch();
+                if (result != null) {
+                    /* the streamed result is only executed when it is written */
+                    result.serializeAndConsume(new NullOutputStream());
+                }
+                count++;
+            } catch (Exception e) {
+                log.warn("Error in invoking the warm-up operation '" + name + "' of data service '" +
+                        dataService.getName() + "': " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the query and its nested queries are all declared read-only, and do not trigger
+     * events, so invoking it has no side effects.
+     */
+    private static boolean isReadOnly(Query query, Set<Query> visitedQueries) {
+        if (!visitedQueries.add(query)) {
+            return true;
+        }
+        if (!query.isReadOnly() || query.getInputEventTrigger() != null ||
+                query.getOutputEventTrigger() != null) {
+            return false;
+        }
+        return !query.hasResult() || query.getResult().getDefaultElementGroup() == null ||
+                isReadOnly(query.getResult().getDefaultElementGroup(), visitedQueries);
+    }
+
+    private static boolean isReadOnly(OutputElementGroup group, Set<Query> visitedQueries) {
+        for (CallQuery callQuery : group.getCallQueryEntries()) {
+            if (callQuery.getQuery() == null || !isReadOnly(callQuery.getQuery(), visitedQueries)) {
+                return false;
+            }
+        }
+        for (OutputElementGroup childGroup : group.getOutputElementGroupEntries()) {
+            if (!isReadOnly(childGroup, visitedQueries)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -38,14 +38,23 @@ public class InternalParam {
 
     private String structType;
 
+    /** i.e. the converter resolved for the query param */
+    private ParamConverter converter;
+
     public InternalParam(String name, ParamValue value, String sqlType, String type,
             String structType, int ordinal) {
+        this(name, value, sqlType, type, structType, ordinal, ParamConverter.getConverter(sqlType));
+    }
+
+    public InternalParam(String name, ParamValue value, String sqlType, String type,
+            String structType, int ordinal, ParamConverter converter) {
         this.name = name;
         this.value = value;
         this.sqlType = sqlType;
         this.type = type;
         this.structType = structType;
         this.ordinal = ordinal;
+        this.converter = converter;
     }
 
     public InternalParam(InternalParam param, int ordinal) {
@@ -54,6 +63,7 @@ public class InternalParam {
         this.sqlType = param.sqlType;
         this.type = param.type;
         this.structType = param.structType;
+        this.converter = param.converter;
         this.ordinal = ordinal;
     }
 
@@ -85,6 +95,10 @@ public class InternalParam {
         return structType;
     }
 
+    public ParamConverter getConverter() {
+        return converter;
+    }
+
     public String toString() {
         return "{" + this.getName() + ":" + this.getValue() + "}";
     }
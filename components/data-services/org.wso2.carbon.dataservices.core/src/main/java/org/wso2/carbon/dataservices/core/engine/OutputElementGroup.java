@@ -212,4 +212,41 @@ public class OutputElementGroup extends OutputElement {
         return roleAllElements.get();
     }
 
+    /**
+     * Checks if this group, or any of its child groups, exports values from its elements or attributes.
+     */
+    public boolean hasExports() {
+        for (StaticOutputElement element : this.getElementEntries()) {
+            if (element.getExport() != null) {
+                return true;
+            }
+        }
+        for (StaticOutputElement attribute : this.getAttributeEntries()) {
+            if (attribute.getExport() != null) {
+                return true;
+            }
+        }
+        for (OutputElementGroup childGroup : this.getOutputElementGroupEntries()) {
+            if (childGroup.hasExports()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if this group, or any of its child groups, calls nested queries.
+     */
+    public boolean hasCallQueries() {
+        if (!this.getCallQueryEntries().isEmpty()) {
+            return true;
+        }
+        for (OutputElementGroup childGroup : this.getOutputElementGroupEntries()) {
+            if (childGroup.hasCallQueries()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
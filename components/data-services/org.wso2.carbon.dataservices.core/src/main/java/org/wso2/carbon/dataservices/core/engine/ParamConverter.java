@@ -0,0 +1,316 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.engine;
+
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.DBUtils;
+import org.wso2.carbon.dataservices.core.DataServiceFault;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.ParseException;
+import java.util.Calendar;
+
+/**
+ * Converts the string values of scalar input parameters to their Java types and binds them
+ * to prepared statements. A converter is resolved for each query param at deployment time,
+ * so the SQL type is not looked up again for every binding, and a converted value is cached
+ * in its {@link ParamValue} to be re-used when the same value is bound more than once.
+ */
+public enum ParamConverter {
+
+    STRING(Types.VARCHAR) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return value;
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setString(index, (String) value);
+        }
+    },
+
+    INTEGER(Types.INTEGER) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Integer.parseInt(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setInt(index, (Integer) value);
+        }
+    },
+
+    BIGINT(Types.BIGINT) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Long.parseLong(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setLong(index, (Long) value);
+        }
+    },
+
+    SMALLINT(Types.SMALLINT) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Short.parseShort(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setShort(index, (Short) value);
+        }
+    },
+
+    TINYINT(Types.TINYINT) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Byte.parseByte(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setByte(index, (Byte) value);
+        }
+    },
+
+    DOUBLE(Types.DOUBLE) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setDouble(index, (Double) value);
+        }
+    },
+
+    REAL(Types.FLOAT) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Float.parseFloat(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setFloat(index, (Float) value);
+        }
+    },
+
+    NUMERIC(Types.NUMERIC) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return new BigDecimal(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setBigDecimal(index, (BigDecimal) value);
+        }
+    },
+
+    BIT(Types.BIT) {
+        @Override
+        protected Object doConvert(String paramName, String value) {
+            return Boolean.valueOf(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setBoolean(index, (Boolean) value);
+        }
+    },
+
+    DATE(Types.DATE) {
+        @Override
+        protected Object doConvert(String paramName, String value) throws DataServiceFault {
+            return DBUtils.getDate(value);
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setDate(index, (Date) value);
+        }
+    },
+
+    TIME(Types.TIME) {
+        @Override
+        protected Object doConvert(String paramName, String value) throws DataServiceFault {
+            try {
+                return DBUtils.getTime(value);
+            } catch (ParseException e) {
+                throw new DataServiceFault(e, "Incorrect Time format for parameter : " + paramName
+                        + ". Time should be in the format hh:mm:ss");
+            } catch (DataServiceFault e) {
+                throw new DataServiceFault(e, "Error processing parameter - " + paramName + ", Error - "
+                        + e.getMessage());
+            }
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            stmt.setTime(index, (Time) value);
+        }
+    },
+
+    TIMESTAMP(Types.TIMESTAMP) {
+        @Override
+        protected Object doConvert(String paramName, String value) throws DataServiceFault {
+            try {
+                return DBUtils.getTimestamp(value);
+            } catch (ParseException e) {
+                throw new DataServiceFault(e, "Incorrect Timestamp format for parameter : " + paramName
+                        + ". Timestamp should be in one of following formats "
+                        + "yyyy-MM-dd'T'hh:mm:ss.sss'+'hh:mm, " + "yyyy-MM-dd'T'hh:mm:ss.sss'-'hh:mm, "
+                        + "yyyy-MM-dd'T'hh:mm:ss.sss'Z', " + "yyyy-MM-dd hh:mm:ss.SSSSSS or "
+                        + "yyyy-MM-dd hh:mm:ss");
+            } catch (DataServiceFault e) {
+                throw new DataServiceFault(e, "Error processing parameter - " + paramName + ", Error - "
+                        + e.getMessage());
+            }
+        }
+
+        @Override
+        protected void doBind(PreparedStatement stmt, int index, Object value,
+                              Calendar calendar) throws SQLException {
+            if (calendar == null) {
+                stmt.setTimestamp(index, (Timestamp) value);
+            } else {
+                stmt.setTimestamp(index, (Timestamp) value, calendar);
+            }
+        }
+    };
+
+    private final int jdbcType;
+
+    ParamConverter(int jdbcType) {
+        this.jdbcType = jdbcType;
+    }
+
+    /**
+     * Returns the java.sql.Types value used when binding null values.
+     */
+    public int getJdbcType() {
+        return jdbcType;
+    }
+
+    /**
+     * Converts the given string value to the Java type of this converter.
+     *
+     * @param paramName The name of the parameter, used in error messages
+     * @param value     The string value, can be null
+     * @return The converted value, or null if the given value is null
+     * @throws DataServiceFault If the value is not in the expected format
+     */
+    public Object convert(String paramName, String value) throws DataServiceFault {
+        if (value == null) {
+            return null;
+        }
+        return this.doConvert(paramName, value);
+    }
+
+    /**
+     * Binds a value converted by this converter to the given prepared statement.
+     *
+     * @param stmt     The prepared statement
+     * @param index    The 1-based index of the parameter
+     * @param value    The converted value, can be null
+     * @param calendar The calendar to be used for temporal values, can be null
+     * @throws SQLException
+     */
+    public void bind(PreparedStatement stmt, int index, Object value,
+                     Calendar calendar) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, this.getJdbcType());
+        } else {
+            this.doBind(stmt, index, value, calendar);
+        }
+    }
+
+    protected abstract Object doConvert(String paramName, String value) throws DataServiceFault;
+
+    protected abstract void doBind(PreparedStatement stmt, int index, Object value,
+                                   Calendar calendar) throws SQLException;
+
+    /**
+     * Returns the converter for the given query param SQL type.
+     *
+     * @param sqlType The SQL type, i.e. STRING, INTEGER
+     * @return The converter, or null if values of the given type are not bound using a converter
+     */
+    public static ParamConverter getConverter(String sqlType) {
+        if (sqlType == null) {
+            return null;
+        } else if (DBConstants.DataTypes.INTEGER.equals(sqlType)) {
+            return INTEGER;
+        } else if (DBConstants.DataTypes.STRING.equals(sqlType) ||
+                DBConstants.DataTypes.UUID.equals(sqlType) ||
+                DBConstants.DataTypes.INETADDRESS.equals(sqlType)) {
+            return STRING;
+        } else if (DBConstants.DataTypes.DOUBLE.equals(sqlType)) {
+            return DOUBLE;
+        } else if (DBConstants.DataTypes.NUMERIC.equals(sqlType)) {
+            return NUMERIC;
+        } else if (DBConstants.DataTypes.BIT.equals(sqlType) ||
+                DBConstants.DataTypes.BOOLEAN.equals(sqlType)) {
+            return BIT;
+        } else if (DBConstants.DataTypes.TINYINT.equals(sqlType)) {
+            return TINYINT;
+        } else if (DBConstants.DataTypes.SMALLINT.equals(sqlType)) {
+            return SMALLINT;
+        } else if (DBConstants.DataTypes.BIGINT.equals(sqlType) ||
+                DBConstants.DataTypes.VARINT.equals(sqlType)) {
+            return BIGINT;
+        } else if (DBConstants.DataTypes.REAL.equals(sqlType)) {
+            return REAL;
+        } else if (DBConstants.DataTypes.DATE.equals(sqlType)) {
+            return DATE;
+        } else if (DBConstants.DataTypes.TIMESTAMP.equals(sqlType)) {
+            return TIMESTAMP;
+        } else if (DBConstants.DataTypes.TIME.equals(sqlType)) {
+            return TIME;
+        } else {
+            /* binary, LOB, UDT, array and ref cursor values are handled by the query itself */
+            return null;
+        }
+    }
+
+}
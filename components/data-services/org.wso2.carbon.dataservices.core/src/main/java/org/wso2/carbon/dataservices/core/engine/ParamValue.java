@@ -20,7 +20,12 @@ package org.wso2.carbon.dataservices.core.engine;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.dataservices.core.DataServiceFault;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.Struct;
 import java.util.ArrayList;
@@ -38,14 +43,53 @@ public class ParamValue {
 
     public static final int PARAM_VALUE_UDT = 0x03;
 
+    /* kinds of typed scalar values, which are formatted to strings only when required */
+
+    public static final int TYPED_NONE = 0;
+
+    public static final int TYPED_LONG = 1;
+
+    public static final int TYPED_DOUBLE = 2;
+
+    public static final int TYPED_FLOAT = 3;
+
+    public static final int TYPED_BOOLEAN = 4;
+
+    public static final int TYPED_TIMESTAMP = 5;
+
+    public static final int TYPED_DATE = 6;
+
+    public static final int TYPED_TIME = 7;
+
+    /** binary LOB values, written out as base64 */
+    public static final int TYPED_BINARY_STREAM = 8;
+
+    /** character LOB values */
+    public static final int TYPED_CHARACTER_STREAM = 9;
+
     private int valueType;
 
+    /** i.e. TYPED_LONG, TYPED_TIMESTAMP, or TYPED_NONE if the scalar value is given as a string */
+    private int typedKind;
+
+    /** value of integral, boolean and date/time (in milliseconds) typed scalars */
+    private long longValue;
+
+    /** value of floating point typed scalars */
+    private double doubleValue;
+
+    /** source of LOB typed scalars, i.e. a Blob or a Clob */
+    private Object lobValue;
+
     private List<ParamValue> arrayValue;
 
     private String scalarValue;
 
     private Struct udt;
 
+    /** the scalar value converted to its Java type, along with the converter used */
+    private volatile ConvertedValue convertedValue;
+
     private static final Log log = LogFactory.getLog(ParamValue.class);
 
     /**
@@ -77,6 +121,76 @@ public class ParamValue {
         this.udt = udt;
     }
 
+    /**
+     * Constructor which creates a ParamValue object with a typed scalar value.
+     */
+    private ParamValue(int typedKind, long longValue, double doubleValue) {
+        this.valueType = ParamValue.PARAM_VALUE_SCALAR;
+        this.typedKind = typedKind;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+    }
+
+    public static ParamValue createLongValue(long value) {
+        return new ParamValue(TYPED_LONG, value, 0);
+    }
+
+    public static ParamValue createDoubleValue(double value) {
+        return new ParamValue(TYPED_DOUBLE, 0, value);
+    }
+
+    public static ParamValue createFloatValue(float value) {
+        return new ParamValue(TYPED_FLOAT, 0, value);
+    }
+
+    public static ParamValue createBooleanValue(boolean value) {
+        return new ParamValue(TYPED_BOOLEAN, value ? 1 : 0, 0);
+    }
+
+    /**
+     * Creates a timestamp value.
+     * @param millis The timestamp in milliseconds since epoch
+     */
+    public static ParamValue createTimestampValue(long millis) {
+        return new ParamValue(TYPED_TIMESTAMP, millis, 0);
+    }
+
+    /**
+     * Creates a date value.
+     * @param millis The date in milliseconds since epoch
+     */
+    public static ParamValue createDateValue(long millis) {
+        return new ParamValue(TYPED_DATE, millis, 0);
+    }
+
+    /**
+     * Creates a time value.
+     * @param millis The time in milliseconds since epoch
+     */
+    public static ParamValue createTimeValue(long millis) {
+        return new ParamValue(TYPED_TIME, millis, 0);
+    }
+
+    /**
+     * Creates a binary value, which is read from the given BLOB when it is written out.
+     * @param blob The BLOB, which must be valid until the value is written out
+     */
+    public static ParamValue createBinaryValue(Blob blob) {
+        ParamValue value = new ParamValue(TYPED_BINARY_STREAM, 0, 0);
+        value.lobValue = blob;
+        return value;
+    }
+
+    /**
+     * Creates a character value, which is read from the given CLOB when it is written out.
+     * @param clob The CLOB, which must be valid until the value is written out
+     */
+    public static ParamValue createCharacterValue(Clob clob) {
+        ParamValue value = new ParamValue(TYPED_CHARACTER_STREAM, 0, 0);
+        value.lobValue = clob;
+        return value;
+    }
+
     /**
      * Converts a ParamValue object containing a scalar to another ParamValue object containing
      * an array.
@@ -105,6 +219,10 @@ public class ParamValue {
      */
     public String getScalarValue() {
         if (this.getValueType() == PARAM_VALUE_SCALAR) {
+            if (scalarValue == null && typedKind != TYPED_NONE) {
+                /* the string form is only created when it is asked for */
+                scalarValue = ValueFormatter.toString(this);
+            }
             return scalarValue;
         } else if (this.getValueType() == PARAM_VALUE_ARRAY) {
             if (this.getArrayValue().size() > 0) {
@@ -193,6 +311,74 @@ public class ParamValue {
 
     public void setScalarValue(String scalarValue) {
         this.scalarValue = scalarValue;
+        this.typedKind = TYPED_NONE;
+        this.lobValue = null;
+        this.convertedValue = null;
+    }
+
+    /**
+     * Checks if this is a typed scalar value, which can be written out using
+     * {@link ValueFormatter} without creating its string form.
+     */
+    public boolean hasTypedScalarValue() {
+        return this.getValueType() == PARAM_VALUE_SCALAR && typedKind != TYPED_NONE && scalarValue == null;
+    }
+
+    /**
+     * Opens the binary stream of a TYPED_BINARY_STREAM value.
+     *
+     * @return The stream, which has to be closed by the caller
+     * @throws SQLException If the BLOB cannot be read
+     */
+    public InputStream openBinaryStream() throws SQLException {
+        if (lobValue instanceof Blob) {
+            return ((Blob) lobValue).getBinaryStream();
+        }
+        throw new IllegalStateException("The value is not a binary LOB");
+    }
+
+    /**
+     * Opens the character stream of a TYPED_CHARACTER_STREAM value.
+     *
+     * @return The reader, which has to be closed by the caller
+     * @throws SQLException If the CLOB cannot be read
+     */
+    public Reader openCharacterStream() throws SQLException {
+        if (lobValue instanceof Clob) {
+            return ((Clob) lobValue).getCharacterStream();
+        }
+        throw new IllegalStateException("The value is not a character LOB");
+    }
+
+    public int getTypedKind() {
+        return typedKind;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Returns the scalar value converted using the given converter. The converted value is cached,
+     * so a value bound more than once, i.e. in multiple ordinals or nested queries, is only parsed once.
+     *
+     * @param converter The converter of the query param
+     * @param paramName The name of the parameter, used in error messages
+     * @return The converted value
+     * @throws DataServiceFault If the value cannot be converted
+     */
+    public Object getConvertedScalarValue(ParamConverter converter, String paramName) throws DataServiceFault {
+        ConvertedValue current = this.convertedValue;
+        if (current != null && current.converter == converter) {
+            return current.value;
+        }
+        Object value = converter.convert(paramName, this.getScalarValue());
+        this.convertedValue = new ConvertedValue(converter, value);
+        return value;
     }
 
     public void setArrayValue(List<ParamValue> arrayValue) {
@@ -211,4 +397,20 @@ public class ParamValue {
         return udt;
     }
 
+    /**
+     * Holds a converted scalar value with the converter used to create it.
+     */
+    private static class ConvertedValue {
+
+        private final ParamConverter converter;
+
+        private final Object value;
+
+        private ConvertedValue(ParamConverter converter, Object value) {
+            this.converter = converter;
+            this.value = value;
+        }
+
+    }
+
 }
@@ -59,6 +59,9 @@ public class QueryParam {
     private List<Validator> validators;
 
     private String structType;
+
+    /** converter used to bind values, null if the type is not bound using a converter */
+    private ParamConverter converter;
 	
 	public QueryParam(String name, String sqlType, String type, String paramType, 
 			int ordinal, ParamValue defaultValue, String structType,
@@ -74,6 +77,8 @@ public class QueryParam {
         this.validators = validators;
         /* validate the current query param */
         this.validateQueryParam();
+        /* resolve the converter once, rather than for each binding */
+        this.converter = ParamConverter.getConverter(sqlType);
 	}
 	
 	private void validateQueryParam() throws DataServiceFault {
@@ -159,6 +164,10 @@ public class QueryParam {
     public String getStructType() {
         return structType;
     }
+
+    public ParamConverter getConverter() {
+        return converter;
+    }
     
     public boolean hasDefaultValue() {
     	return this.getDefaultValue() != null;
@@ -0,0 +1,227 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.engine;
+
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.context.OperationContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.activation.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Activation data source of a binary LOB, which is sent as an MTOM attachment. Attachments are
+ * written after the SOAP envelope, by which time the query has released its connection, so the LOB
+ * is copied out of the database while the result row is written: small values are kept in memory,
+ * and larger ones are spooled to a temporary file.
+ * <p/>
+ * The files are tracked in the operation context of the current message, and are deleted by
+ * {@link #deleteSpooledFiles(MessageContext)} when the message receiver is done with the message,
+ * whether the response was sent, failed, or the client went away. Until then, the attachment can
+ * be read any number of times. If there is no current message, the file is deleted once its
+ * content is read.
+ */
+public class SpooledBlobDataSource implements DataSource {
+
+    private static final Log log = LogFactory.getLog(SpooledBlobDataSource.class);
+
+    /* LOBs up to this size are kept in memory */
+    private static final int MEMORY_THRESHOLD = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    /* operation context property, which holds the files spooled for the messages of the operation */
+    private static final String SPOOLED_FILES_PROPERTY = "DSS_SPOOLED_LOB_FILES";
+
+    private final byte[] data;
+
+    private final int length;
+
+    private final File file;
+
+    /* true if the file is deleted with the message, instead of after it is read */
+    private final boolean tracked;
+
+    private SpooledBlobDataSource(byte[] data, int length, File file, boolean tracked) {
+        this.data = data;
+        this.length = length;
+        this.file = file;
+        this.tracked = tracked;
+    }
+
+    /**
+     * Copies the content of the given binary LOB value.
+     *
+     * @param value The value, of type {@link ParamValue#TYPED_BINARY_STREAM}
+     * @return The data source
+     * @throws SQLException If the BLOB cannot be read
+     * @throws IOException  If the temporary file cannot be written
+     */
+    public static SpooledBlobDataSource spool(ParamValue value) throws SQLException, IOException {
+        InputStream in = value.openBinaryStream();
+        try {
+            byte[] data = new byte[BUFFER_SIZE];
+            int length = 0;
+            int count;
+            while ((count = in.read(data, length, data.length - length)) != -1) {
+                length += count;
+                if (length == data.length) {
+                    if (data.length >= MEMORY_THRESHOLD) {
+                        File file = spoolToFile(data, in);
+                        return new SpooledBlobDataSource(null, 0, file, trackFile(file));
+                    }
+                    byte[] newData = new byte[data.length * 2];
+                    System.arraycopy(data, 0, newData, 0, length);
+                    data = newData;
+                }
+            }
+            return new SpooledBlobDataSource(data, length, null, false);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File spoolToFile(byte[] head, InputStream in) throws IOException {
+        File file = File.createTempFile("dss-lob-", ".bin");
+        OutputStream out = new FileOutputStream(file);
+        boolean success = false;
+        try {
+            out.write(head);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            success = true;
+        } finally {
+            out.close();
+            if (!success) {
+                deleteFile(file);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Adds the file to the spooled files of the current message.
+     *
+     * @return true if the file is tracked, false if there is no current message
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean trackFile(File file) {
+        MessageContext msgContext = MessageContext.getCurrentMessageContext();
+        OperationContext opContext = msgContext != null ? msgContext.getOperationContext() : null;
+        if (opContext == null) {
+            return false;
+        }
+        synchronized (opContext) {
+            List<File> files = (List<File>) opContext.getProperty(SPOOLED_FILES_PROPERTY);
+            if (files == null) {
+                files = new ArrayList<File>();
+                opContext.setProperty(SPOOLED_FILES_PROPERTY, files);
+            }
+            files.add(file);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the files spooled for the attachments of the given message, and of the other
+     * messages of its operation. This is called once the response has been sent, or has failed.
+     *
+     * @param msgContext The message context
+     */
+    @SuppressWarnings("unchecked")
+    public static void deleteSpooledFiles(MessageContext msgContext) {
+        OperationContext opContext = msgContext.getOperationContext();
+        if (opContext == null) {
+            return;
+        }
+        List<File> files;
+        synchronized (opContext) {
+            files = (List<File>) opContext.getProperty(SPOOLED_FILES_PROPERTY);
+            if (files == null) {
+                return;
+            }
+            opContext.removeProperty(SPOOLED_FILES_PROPERTY);
+        }
+        for (File file : files) {
+            deleteFile(file);
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete() && log.isDebugEnabled()) {
+            log.debug("Unable to delete the temporary LOB file: " + file.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (this.file == null) {
+            return new ByteArrayInputStream(this.data, 0, this.length);
+        }
+        try {
+            if (this.tracked) {
+                return new FileInputStream(this.file);
+            }
+            return new FileInputStream(this.file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deleteFile(file);
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            throw new IOException("The LOB value is not available anymore", e);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("The LOB data source is read-only");
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+
+}
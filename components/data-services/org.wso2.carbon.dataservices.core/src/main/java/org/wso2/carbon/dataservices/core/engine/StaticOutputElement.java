@@ -237,7 +237,11 @@ public class StaticOutputElement extends OutputElement {
         if (paramValue == null) {
         	return;
         }
-        if (escapeNonPrintableChar && paramValue.getScalarValue() != null) {
+        /* typed values, i.e. numbers and dates, do not contain non-printable characters, but character
+         * LOBs can, so those are read in full to be escaped */
+        if (escapeNonPrintableChar && (!paramValue.hasTypedScalarValue() ||
+                paramValue.getTypedKind() == ParamValue.TYPED_CHARACTER_STREAM) &&
+                paramValue.getScalarValue() != null) {
             paramValue.setScalarValue(paramValue.getScalarValue().replaceAll(NON_PRINTABLE_CHARS, "?"));
         }
         /* export it if told, and only if it's boxcarring */
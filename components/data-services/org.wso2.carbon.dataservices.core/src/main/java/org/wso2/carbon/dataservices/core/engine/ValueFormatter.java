@@ -0,0 +1,532 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.engine;
+
+import org.apache.axis2.databinding.utils.ConverterUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Formats typed scalar values of {@link ParamValue} objects to their lexical (XML schema) form.
+ * Integral values are written digit by digit, and date/time values are formatted using a per-thread
+ * cache of the current date prefix and time zone offset, into a per-thread character buffer, so
+ * writing a value out does not create any intermediate objects.
+ * <p/>
+ * The date/time formats are checked against the Axis2 ConverterUtil formats when this class is
+ * loaded, and if they differ, the Axis2 conversions are used instead, so the output is the same
+ * as when the values were converted to strings.
+ * <p/>
+ * Binary and character LOB values are read and written out in fixed size chunks, binary values
+ * being encoded to base64 chunk by chunk, so a LOB is never held in memory as a whole.
+ */
+public final class ValueFormatter {
+
+    private static final Log log = LogFactory.getLog(ValueFormatter.class);
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /* long enough for any long value and any formatted date/time value */
+    private static final int BUFFER_SIZE = 64;
+
+    /* bytes read per chunk of a binary LOB, a multiple of 3 so each chunk is encoded without padding */
+    private static final int LOB_BYTE_CHUNK_SIZE = 3 * 2048;
+
+    /* characters read per chunk of a character LOB */
+    private static final int LOB_CHAR_CHUNK_SIZE = 8192;
+
+    private static final char[] BASE64_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final char[] TRUE_CHARS = "true".toCharArray();
+
+    private static final char[] FALSE_CHARS = "false".toCharArray();
+
+    private static final boolean FAST_TIMESTAMP;
+
+    private static final boolean FAST_DATE;
+
+    private static final boolean FAST_TIME;
+
+    private static final ThreadLocal<FormatContext> formatContext = new ThreadLocal<FormatContext>() {
+        protected FormatContext initialValue() {
+            return new FormatContext();
+        }
+    };
+
+    static {
+        FAST_TIMESTAMP = isCompatible(ParamValue.TYPED_TIMESTAMP);
+        FAST_DATE = isCompatible(ParamValue.TYPED_DATE);
+        FAST_TIME = isCompatible(ParamValue.TYPED_TIME);
+    }
+
+    private ValueFormatter() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Checks if the fast date/time formatting of the given type, gives the same
+     * results as the Axis2 conversions.
+     */
+    private static boolean isCompatible(int typedKind) {
+        long[] samples = { 0L, 951782400123L, 1466000000987L, 1478399400050L, -1000000000001L,
+                System.currentTimeMillis() };
+        FormatContext context = new FormatContext();
+        try {
+            for (long sample : samples) {
+                int length = formatTemporal(typedKind, sample, context);
+                if (length < 0 || !new String(context.buffer, 0, length).equals(
+                        formatTemporalDefault(typedKind, sample))) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Fast date/time formatting is disabled for value type: " + typedKind);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } catch (Throwable e) {
+            log.debug("Fast date/time formatting is disabled for value type: " + typedKind
+                    + " - " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Formats the given typed value to a string.
+     *
+     * @param value The typed value
+     * @return The lexical form of the value
+     */
+    public static String toString(ParamValue value) {
+        if (isLob(value.getTypedKind())) {
+            StringBuilder builder = new StringBuilder();
+            try {
+                writeLob(value, new LobSink(builder));
+            } catch (XMLStreamException e) {
+                /* not thrown when writing to a string builder */
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return builder.toString();
+        }
+        FormatContext context = formatContext.get();
+        int length = format(value, context);
+        if (length < 0) {
+            return formatTemporalDefault(value.getTypedKind(), value.getLongValue());
+        }
+        return new String(context.buffer, 0, length);
+    }
+
+    /**
+     * Writes the given typed value to the XML stream writer as characters.
+     *
+     * @param xmlWriter The XML stream writer
+     * @param value     The typed value
+     * @return The number of characters written
+     * @throws XMLStreamException
+     */
+    public static long writeCharacters(XMLStreamWriter xmlWriter, ParamValue value)
+            throws XMLStreamException {
+        if (isLob(value.getTypedKind())) {
+            LobSink sink = new LobSink(xmlWriter);
+            writeLob(value, sink);
+            return sink.count;
+        }
+        FormatContext context = formatContext.get();
+        int length = format(value, context);
+        if (length < 0) {
+            String formattedValue = formatTemporalDefault(value.getTypedKind(), value.getLongValue());
+            xmlWriter.writeCharacters(formattedValue);
+            return formattedValue.length();
+        } else {
+            xmlWriter.writeCharacters(context.buffer, 0, length);
+            return length;
+        }
+    }
+
+    private static boolean isLob(int typedKind) {
+        return typedKind == ParamValue.TYPED_BINARY_STREAM || typedKind == ParamValue.TYPED_CHARACTER_STREAM;
+    }
+
+    /**
+     * Reads the given LOB value chunk by chunk, and writes it to the sink.
+     */
+    private static void writeLob(ParamValue value, LobSink sink) throws XMLStreamException {
+        FormatContext context = formatContext.get();
+        try {
+            if (value.getTypedKind() == ParamValue.TYPED_BINARY_STREAM) {
+                InputStream in = value.openBinaryStream();
+                if (in == null) {
+                    return;
+                }
+                try {
+                    byte[] bytes = context.getLobBytes();
+                    char[] chars = context.getLobChars();
+                    int count;
+                    while ((count = readFully(in, bytes)) > 0) {
+                        sink.write(chars, encodeBase64(bytes, count, chars));
+                    }
+                } finally {
+                    in.close();
+                }
+            } else {
+                Reader reader = value.openCharacterStream();
+                if (reader == null) {
+                    return;
+                }
+                try {
+                    char[] chars = context.getLobChars();
+                    int count;
+                    while ((count = reader.read(chars, 0, LOB_CHAR_CHUNK_SIZE)) != -1) {
+                        sink.write(chars, count);
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in reading LOB value: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new XMLStreamException("Error in reading LOB value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the end of the stream is reached, so only the last chunk
+     * can have a length which is not a multiple of 3.
+     *
+     * @return The number of bytes read, 0 at the end of the stream
+     */
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        int read;
+        while (count < buffer.length && (read = in.read(buffer, count, buffer.length - count)) != -1) {
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Encodes the given bytes to base64, without line breaks.
+     *
+     * @return The number of characters written to the output buffer
+     */
+    private static int encodeBase64(byte[] bytes, int length, char[] out) {
+        int pos = 0;
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int bits = ((bytes[i] & 0xff) << 16) | ((bytes[i + 1] & 0xff) << 8) | (bytes[i + 2] & 0xff);
+            out[pos++] = BASE64_CHARS[(bits >>> 18) & 0x3f];
+            out[pos++] = BASE64_CHARS[(bits >>> 12) & 0x3f];
+            out[pos++] = BASE64_CHARS[(bits >>> 6) & 0x3f];
+            out[pos++] = BASE64_CHARS[bits & 0x3f];
+        }
+        int remaining = length - i;
+        if (remaining > 0) {
+            int bits = (bytes[i] & 0xff) << 16;
+            if (remaining == 2) {
+                bits |= (bytes[i + 1] & 0xff) << 8;
+            }
+            out[pos++] = BASE64_CHARS[(bits >>> 18) & 0x3f];
+            out[pos++] = BASE64_CHARS[(bits >>> 12) & 0x3f];
+            out[pos++] = remaining == 2 ? BASE64_CHARS[(bits >>> 6) & 0x3f] : '=';
+            out[pos++] = '=';
+        }
+        return pos;
+    }
+
+    /**
+     * Formats a timestamp, given in milliseconds, in the default time zone.
+     */
+    public static String formatTimestamp(long millis) {
+        return formatTemporal(ParamValue.TYPED_TIMESTAMP, millis, FAST_TIMESTAMP);
+    }
+
+    /**
+     * Formats a date, given in milliseconds, in the default time zone.
+     */
+    public static String formatDate(long millis) {
+        return formatTemporal(ParamValue.TYPED_DATE, millis, FAST_DATE);
+    }
+
+    /**
+     * Formats a time, given in milliseconds, in the default time zone.
+     */
+    public static String formatTime(long millis) {
+        return formatTemporal(ParamValue.TYPED_TIME, millis, FAST_TIME);
+    }
+
+    private static String formatTemporal(int typedKind, long millis, boolean fast) {
+        if (fast) {
+            FormatContext context = formatContext.get();
+            int length = formatTemporal(typedKind, millis, context);
+            if (length >= 0) {
+                return new String(context.buffer, 0, length);
+            }
+        }
+        return formatTemporalDefault(typedKind, millis);
+    }
+
+    /**
+     * Formats the value into the context buffer.
+     *
+     * @return The number of characters written, or -1 if the value has to be formatted
+     * using {@link #formatTemporalDefault(int, long)}
+     */
+    private static int format(ParamValue value, FormatContext context) {
+        char[] buffer = context.buffer;
+        switch (value.getTypedKind()) {
+        case ParamValue.TYPED_LONG:
+            return formatLong(value.getLongValue(), buffer);
+        case ParamValue.TYPED_DOUBLE:
+            return copy(ConverterUtil.convertToString(value.getDoubleValue()), buffer);
+        case ParamValue.TYPED_FLOAT:
+            return copy(ConverterUtil.convertToString((float) value.getDoubleValue()), buffer);
+        case ParamValue.TYPED_BOOLEAN:
+            char[] chars = value.getLongValue() != 0 ? TRUE_CHARS : FALSE_CHARS;
+            System.arraycopy(chars, 0, buffer, 0, chars.length);
+            return chars.length;
+        case ParamValue.TYPED_TIMESTAMP:
+            return FAST_TIMESTAMP ? formatTemporal(ParamValue.TYPED_TIMESTAMP, value.getLongValue(), context) : -1;
+        case ParamValue.TYPED_DATE:
+            return FAST_DATE ? formatTemporal(ParamValue.TYPED_DATE, value.getLongValue(), context) : -1;
+        case ParamValue.TYPED_TIME:
+            return FAST_TIME ? formatTemporal(ParamValue.TYPED_TIME, value.getLongValue(), context) : -1;
+        default:
+            throw new IllegalArgumentException("Unsupported typed value kind: " + value.getTypedKind());
+        }
+    }
+
+    private static int copy(String value, char[] buffer) {
+        int length = value.length();
+        value.getChars(0, length, buffer, 0);
+        return length;
+    }
+
+    /**
+     * Writes the decimal digits of the given value to the buffer.
+     *
+     * @return The number of characters written
+     */
+    private static int formatLong(long value, char[] buffer) {
+        if (value == Long.MIN_VALUE) {
+            return copy(Long.toString(value), buffer);
+        }
+        int pos = BUFFER_SIZE;
+        boolean negative = value < 0;
+        long remaining = negative ? -value : value;
+        do {
+            buffer[--pos] = (char) ('0' + (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        int length = BUFFER_SIZE - pos;
+        System.arraycopy(buffer, pos, buffer, 0, length);
+        return length;
+    }
+
+    /**
+     * Formats a date/time value in the default time zone, in the forms, yyyy-MM-ddTHH:mm:ss.SSS+hh:mm
+     * for timestamps, yyyy-MM-dd+hh:mm for dates and HH:mm:ss.SSS+hh:mm for times.
+     *
+     * @return The number of characters written, or -1 if the value is not supported, i.e. BC dates
+     */
+    private static int formatTemporal(int typedKind, long millis, FormatContext context) {
+        char[] buffer = context.buffer;
+        int offset = context.timeZone.getOffset(millis);
+        long local = millis + offset;
+        long day = local / MILLIS_PER_DAY;
+        if (local % MILLIS_PER_DAY < 0) {
+            day--;
+        }
+        int pos = 0;
+        if (typedKind != ParamValue.TYPED_TIME) {
+            if (!context.updateDate(day)) {
+                return -1;
+            }
+            System.arraycopy(context.datePrefix, 0, buffer, 0, context.datePrefixLength);
+            pos = context.datePrefixLength;
+        }
+        if (typedKind == ParamValue.TYPED_TIMESTAMP) {
+            buffer[pos++] = 'T';
+        }
+        if (typedKind != ParamValue.TYPED_DATE) {
+            int timeOfDay = (int) (local - day * MILLIS_PER_DAY);
+            pos = appendTwoDigits(buffer, pos, timeOfDay / 3600000);
+            buffer[pos++] = ':';
+            pos = appendTwoDigits(buffer, pos, (timeOfDay / 60000) % 60);
+            buffer[pos++] = ':';
+            pos = appendTwoDigits(buffer, pos, (timeOfDay / 1000) % 60);
+            buffer[pos++] = '.';
+            int fraction = timeOfDay % 1000;
+            buffer[pos++] = (char) ('0' + fraction / 100);
+            pos = appendTwoDigits(buffer, pos, fraction % 100);
+        }
+        int offsetMinutes = offset / 60000;
+        if (offsetMinutes < 0) {
+            buffer[pos++] = '-';
+            offsetMinutes = -offsetMinutes;
+        } else {
+            buffer[pos++] = '+';
+        }
+        pos = appendTwoDigits(buffer, pos, offsetMinutes / 60);
+        buffer[pos++] = ':';
+        pos = appendTwoDigits(buffer, pos, offsetMinutes % 60);
+        return pos;
+    }
+
+    private static int appendTwoDigits(char[] buffer, int pos, int value) {
+        buffer[pos++] = (char) ('0' + value / 10);
+        buffer[pos++] = (char) ('0' + value % 10);
+        return pos;
+    }
+
+    /**
+     * Formats a date/time value using the Axis2 conversions.
+     */
+    private static String formatTemporalDefault(int typedKind, long millis) {
+        switch (typedKind) {
+        case ParamValue.TYPED_TIMESTAMP:
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(millis);
+            return ConverterUtil.convertToString(cal);
+        case ParamValue.TYPED_DATE:
+            return ConverterUtil.convertToString(new java.sql.Date(millis));
+        case ParamValue.TYPED_TIME:
+            cal = Calendar.getInstance();
+            cal.setTimeInMillis(millis);
+            return new org.apache.axis2.databinding.types.Time(cal).toString();
+        default:
+            throw new IllegalArgumentException("Unsupported date/time value kind: " + typedKind);
+        }
+    }
+
+    /**
+     * Per-thread formatting state.
+     */
+    private static class FormatContext {
+
+        private final char[] buffer = new char[BUFFER_SIZE];
+
+        private final TimeZone timeZone = TimeZone.getDefault();
+
+        /* used to calculate the date fields of a day, from the local time in milliseconds */
+        private final Calendar dayCalendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+
+        private final char[] datePrefix = new char[BUFFER_SIZE];
+
+        private int datePrefixLength;
+
+        private long currentDay = Long.MIN_VALUE;
+
+        /* LOB buffers, only allocated in threads which write out LOB values */
+        private byte[] lobBytes;
+
+        private char[] lobChars;
+
+        private byte[] getLobBytes() {
+            if (this.lobBytes == null) {
+                this.lobBytes = new byte[LOB_BYTE_CHUNK_SIZE];
+            }
+            return this.lobBytes;
+        }
+
+        private char[] getLobChars() {
+            if (this.lobChars == null) {
+                this.lobChars = new char[Math.max(LOB_BYTE_CHUNK_SIZE / 3 * 4, LOB_CHAR_CHUNK_SIZE)];
+            }
+            return this.lobChars;
+        }
+
+        /**
+         * Updates the cached yyyy-MM-dd prefix for the given day, if required.
+         *
+         * @return false if the date is not supported
+         */
+        private boolean updateDate(long day) {
+            if (day == this.currentDay) {
+                return true;
+            }
+            this.dayCalendar.setTimeInMillis(day * MILLIS_PER_DAY);
+            if (this.dayCalendar.get(Calendar.ERA) != GregorianCalendar.AD) {
+                return false;
+            }
+            int year = this.dayCalendar.get(Calendar.YEAR);
+            int pos;
+            if (year < 10000) {
+                this.datePrefix[0] = (char) ('0' + year / 1000);
+                this.datePrefix[1] = (char) ('0' + (year / 100) % 10);
+                pos = appendTwoDigits(this.datePrefix, 2, year % 100);
+            } else {
+                pos = formatLong(year, this.datePrefix);
+            }
+            this.datePrefix[pos++] = '-';
+            pos = appendTwoDigits(this.datePrefix, pos, this.dayCalendar.get(Calendar.MONTH) + 1);
+            this.datePrefix[pos++] = '-';
+            pos = appendTwoDigits(this.datePrefix, pos, this.dayCalendar.get(Calendar.DAY_OF_MONTH));
+            this.datePrefixLength = pos;
+            this.currentDay = day;
+            return true;
+        }
+
+    }
+
+    /**
+     * The destination of LOB chunks, either an XML stream writer or a string builder.
+     */
+    private static class LobSink {
+
+        private final XMLStreamWriter xmlWriter;
+
+        private final StringBuilder builder;
+
+        private long count;
+
+        private LobSink(XMLStreamWriter xmlWriter) {
+            this.xmlWriter = xmlWriter;
+            this.builder = null;
+        }
+
+        private LobSink(StringBuilder builder) {
+            this.xmlWriter = null;
+            this.builder = builder;
+        }
+
+        private void write(char[] chars, int length) throws XMLStreamException {
+            this.count += length;
+            if (this.xmlWriter != null) {
+                this.xmlWriter.writeCharacters(chars, 0, length);
+            } else {
+                this.builder.append(chars, 0, length);
+            }
+        }
+
+    }
+
+}
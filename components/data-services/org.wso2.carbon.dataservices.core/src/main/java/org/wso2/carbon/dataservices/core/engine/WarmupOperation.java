@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An operation invoked with the given parameter values, in the warm-up of a data service.
+ */
+public class WarmupOperation {
+
+    private final String name;
+
+    private final Map<String, String> params = new LinkedHashMap<String, String>();
+
+    public WarmupOperation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public void addParam(String name, String value) {
+        this.params.put(name, value);
+    }
+
+}
@@ -18,19 +18,27 @@
  */
 package org.wso2.carbon.dataservices.core.engine;
 
+import org.apache.axiom.om.impl.MTOMXMLStreamWriter;
+import org.apache.axiom.util.stax.XMLStreamWriterUtils;
 import org.wso2.carbon.dataservices.common.DBConstants;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
 
+import javax.activation.DataHandler;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.sql.SQLException;
 
 /**
  * This class is used as a helper class in handling XML writing operations.
  */
 public class XMLWriterHelper {
 
+    private static final String BASE64_BINARY = "base64Binary";
+
 	private String namespace;
 		
 	public XMLWriterHelper(String namespace) {
@@ -115,22 +123,60 @@ public class XMLWriterHelper {
         if (xmlWriter == null) {
             return;
         }
-		if (value.getArrayValue() == null && value.getScalarValue() == null &&
+        long count = 0;
+        if (value.hasTypedScalarValue()) {
+            /* format numeric and date/time values directly to the writer */
+            count = ValueFormatter.writeCharacters(xmlWriter, value);
+        } else if (value.getArrayValue() == null && value.getScalarValue() == null &&
                 value.getUdt() == null) {
 			xmlWriter.writeNamespace(DBConstants.XSI_PREFIX, DBConstants.XSI_NAMESPACE);
 			xmlWriter.writeAttribute(DBConstants.XSI_PREFIX, 
 					DBConstants.XSI_NAMESPACE, "nil", "true");
 		} else {
+            String text;
             if (value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
                 for (ParamValue val : value.getArrayValue()) {
-		            xmlWriter.writeCharacters(val.toString());
+                    text = val.toString();
+		            xmlWriter.writeCharacters(text);
+		            count += text == null ? 0 : text.length();
                 }
             } else {
-                xmlWriter.writeCharacters(value.toString());
+                text = value.toString();
+                xmlWriter.writeCharacters(text);
+                count = text == null ? 0 : text.length();
             }
 		}
+        if (QueryStatistics.ENABLED) {
+            QueryStatistics.getOutputCounter().addCharacters(count);
+        }
 	}
 	
+    /**
+     * Checks if the given value can be sent as an MTOM attachment, which is done for binary LOBs
+     * written to base64Binary elements, when MTOM is enabled for the current message, i.e. using
+     * the "enableMTOM" service parameter.
+     */
+    private boolean isOptimizable(XMLStreamWriter xmlWriter, ParamValue value, QName xsdType) {
+        return value.hasTypedScalarValue() && value.getTypedKind() == ParamValue.TYPED_BINARY_STREAM &&
+                xsdType != null && BASE64_BINARY.equals(xsdType.getLocalPart()) &&
+                xmlWriter instanceof MTOMXMLStreamWriter && ((MTOMXMLStreamWriter) xmlWriter).isOptimized();
+    }
+
+    /**
+     * Writes a XOP include to the element and attaches the binary value to the message.
+     */
+    private void writeOptimizedValue(XMLStreamWriter xmlWriter, ParamValue value)
+            throws XMLStreamException {
+        try {
+            XMLStreamWriterUtils.writeDataHandler(xmlWriter,
+                    new DataHandler(SpooledBlobDataSource.spool(value)), null, true);
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in writing binary attachment: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new XMLStreamException("Error in writing binary attachment: " + e.getMessage(), e);
+        }
+    }
+
 	public void writeResultElement(XMLStreamWriter xmlWriter, String name, ParamValue value,
 			QName xsdType, int categoryType, int resultType, ExternalParamCollection params) 
 			throws XMLStreamException {
@@ -150,7 +196,11 @@ public class XMLWriterHelper {
 		        xmlWriter.writeDefaultNamespace(namespace);
 		    }
             if (value != null) {
-			    this.writeElementValue(xmlWriter, value);
+                if (this.isOptimizable(xmlWriter, value, xsdType)) {
+                    this.writeOptimizedValue(xmlWriter, value);
+                } else {
+                    this.writeElementValue(xmlWriter, value);
+                }
             }
 			xmlWriter.writeEndElement();
 			break;
@@ -189,8 +239,12 @@ public class XMLWriterHelper {
         }
 		switch (resultType) {
 		case DBConstants.ResultTypes.XML:
-			if (value != null && value.toString() != null) {
-			    xmlWriter.writeAttribute(name, value.toString());
+			String text = value == null ? null : value.toString();
+			if (text != null) {
+			    xmlWriter.writeAttribute(name, text);
+			    if (QueryStatistics.ENABLED) {
+			        QueryStatistics.getOutputCounter().addCharacters(text.length());
+			    }
 			}
 			break;
 		}		
@@ -24,6 +24,7 @@ import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBox;
 import org.wso2.carbon.dataservices.core.description.event.EventTrigger;
 import org.wso2.carbon.event.core.EventBroker;
 import org.wso2.carbon.ndatasource.core.DataSourceService;
@@ -103,6 +104,7 @@ public class DataServicesDSComponent {
     }
 
     protected void deactivate(ComponentContext ctxt) {
+        RequestBox.shutdownExecutor();
         log.debug("Data Services bundle is deactivated ");
     }
 
@@ -35,6 +35,9 @@ import org.wso2.carbon.dataservices.core.description.operation.Operation;
 import org.wso2.carbon.dataservices.core.description.query.Query;
 import org.wso2.carbon.dataservices.core.description.resource.Resource.ResourceID;
 import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
+import org.wso2.carbon.dataservices.core.stats.QueryStatistics;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
 
 /**
  * JMX MBean implementation to represent a data service.
@@ -113,12 +116,22 @@ public class DataServiceInstance implements DataServiceInstanceMBean {
 	public boolean isConfigActive(String configId) {
 		Config config = this.getDataService().getConfig(configId);
 		if (config != null) {
-			return config.isActive();
+			return config.checkHealth();
 		} else {
 		    return false;
 		}
 	}
 	
+	public boolean isConfigInitialized(String configId) {
+		Config config = this.getDataService().getConfig(configId);
+		return config != null && config.isInitialized();
+	}
+	
+	public String getConfigHealth(String configId) {
+		Config config = this.getDataService().getConfig(configId);
+		return config != null ? config.getHealth().toString() : null;
+	}
+	
 	public String getConfigTypeFromId(String configId) {
 		Config config = this.getDataService().getConfig(configId);
 		if (config instanceof RDBMSConfig) {
@@ -166,4 +179,148 @@ public class DataServiceInstance implements DataServiceInstanceMBean {
 		}
 	}
 	
+	public String[] getQueryStatistics() {
+		List<String> list = new ArrayList<String>();
+		for (Query query : this.getDataService().getQueries().values()) {
+			for (QueryStatistics queryStats : query.getStatistics()) {
+				list.add(queryStats.toString());
+			}
+		}
+		return list.toArray(new String[0]);
+	}
+	
+	public long getQueryExecutionCount(String operationName, String queryId) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getExecutionCount() : 0;
+	}
+	
+	public long getQueryErrorCount(String operationName, String queryId) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getErrorCount() : 0;
+	}
+	
+	public int getQueryInFlightCount(String operationName, String queryId) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getInFlightCount() : 0;
+	}
+	
+	public long getQueryRowCount(String operationName, String queryId) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getRowCount() : 0;
+	}
+	
+	public long getQueryOutputCharacterCount(String operationName, String queryId) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getOutputCharacterCount() : 0;
+	}
+	
+	public long getPreQueryLatencyPercentile(String operationName, String queryId,
+			double percentile) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getPreQueryLatency().getSnapshot()
+				.getValueAtPercentile(percentile) : 0;
+	}
+	
+	public long getPostQueryLatencyPercentile(String operationName, String queryId,
+			double percentile) {
+		QueryStatistics queryStats = this.findQueryStatistics(operationName, queryId);
+		return queryStats != null ? queryStats.getPostQueryLatency().getSnapshot()
+				.getValueAtPercentile(percentile) : 0;
+	}
+	
+	public void resetQueryStatistics() {
+		for (Query query : this.getDataService().getQueries().values()) {
+			for (QueryStatistics queryStats : query.getStatistics()) {
+				queryStats.reset();
+			}
+		}
+	}
+	
+	public String getConnectionPoolStatistics(String configId) {
+		ConnectionPoolStatistics poolStats = this.findConnectionPoolStatistics(configId);
+		return poolStats != null ? poolStats.toString() : null;
+	}
+	
+	public long getConnectionWaitTimePercentile(String configId, double percentile) {
+		ConnectionPoolStatistics poolStats = this.findConnectionPoolStatistics(configId);
+		return poolStats != null ? poolStats.getWaitTime().getSnapshot()
+				.getValueAtPercentile(percentile) : -1;
+	}
+	
+	public long getConnectionLeaseTimePercentile(String configId, double percentile) {
+		ConnectionPoolStatistics poolStats = this.findConnectionPoolStatistics(configId);
+		return poolStats != null ? poolStats.getLeaseTime().getSnapshot()
+				.getValueAtPercentile(percentile) : -1;
+	}
+	
+	public long getConnectionPoolExhaustedCount(String configId) {
+		ConnectionPoolStatistics poolStats = this.findConnectionPoolStatistics(configId);
+		return poolStats != null ? poolStats.getPoolExhaustedCount() : -1;
+	}
+	
+	public String[] getTopConnectionLeaseHolders(String configId, int count) {
+		ConnectionPoolStatistics poolStats = this.findConnectionPoolStatistics(configId);
+		if (poolStats == null) {
+			return new String[0];
+		}
+		List<String> list = new ArrayList<String>();
+		for (ConnectionPoolStatistics.LeaseHolder holder : poolStats.getTopLeaseHolders(count)) {
+			list.add(holder.toString());
+		}
+		return list.toArray(new String[0]);
+	}
+	
+	public void resetConnectionPoolStatistics() {
+		for (Config config : this.getDataService().getConfigs().values()) {
+			if (config instanceof SQLConfig) {
+				ConnectionPoolStatistics poolStats = ((SQLConfig) config).getConnectionPoolStatistics();
+				if (poolStats != null) {
+					poolStats.reset();
+				}
+			}
+		}
+	}
+	
+	public String[] getRecentRequestTraces() {
+		List<String> list = new ArrayList<String>();
+		for (RequestTrace trace : RequestTrace.getRecentTraces(this.getServiceName())) {
+			list.add(trace.toJSON());
+		}
+		return list.toArray(new String[0]);
+	}
+	
+	public double getRequestTraceSampleRate() {
+		return RequestTrace.getSampleRate();
+	}
+	
+	public void setRequestTraceSampleRate(double sampleRate) {
+		RequestTrace.setSampleRate(sampleRate);
+	}
+	
+	public void clearRequestTraces() {
+		RequestTrace.clearRecentTraces();
+	}
+	
+	private ConnectionPoolStatistics findConnectionPoolStatistics(String configId) {
+		Config config = this.getDataService().getConfig(configId);
+		if (config instanceof SQLConfig) {
+			return ((SQLConfig) config).getConnectionPoolStatistics();
+		} else {
+			return null;
+		}
+	}
+	
+	private QueryStatistics findQueryStatistics(String operationName, String queryId) {
+		Query query = this.getDataService().getQuery(queryId);
+		if (query == null) {
+			return null;
+		}
+		for (QueryStatistics queryStats : query.getStatistics()) {
+			if (queryStats.getOperationName().equals(operationName)) {
+				return queryStats;
+			}
+		}
+		return null;
+	}
+	
 }
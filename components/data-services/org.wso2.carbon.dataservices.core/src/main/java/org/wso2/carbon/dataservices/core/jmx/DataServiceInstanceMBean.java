@@ -41,12 +41,98 @@ public interface DataServiceInstanceMBean {
 	
 	String[] getHTTPMethodsForResourcePath(String resPath);
 	
+	/**
+	 * Checks the availability of the config, and records the result in its health state.
+	 * This connects to the data source, even if the config is initialized lazily.
+	 */
 	boolean isConfigActive(String configId);
 	
+	/**
+	 * Checks if the config has been initialized, i.e. if it has connected to its data source.
+	 */
+	boolean isConfigInitialized(String configId);
+	
+	/**
+	 * Returns a summary of the health state of the config, without checking its availability,
+	 * or null if the config does not exist.
+	 */
+	String getConfigHealth(String configId);
+	
 	String getConfigTypeFromId(String configId);
 	
 	boolean isDatabaseConnectionStatsAvailable(String configId);
 	
 	int getOpenDatabaseConnectionsCount(String configId);
+	
+	/**
+	 * Returns a summary of the execution statistics of each query, by the calling operation
+	 * or resource, including the latency percentiles in microseconds.
+	 */
+	String[] getQueryStatistics();
+	
+	long getQueryExecutionCount(String operationName, String queryId);
+	
+	long getQueryErrorCount(String operationName, String queryId);
+	
+	int getQueryInFlightCount(String operationName, String queryId);
+	
+	long getQueryRowCount(String operationName, String queryId);
+	
+	long getQueryOutputCharacterCount(String operationName, String queryId);
+	
+	/**
+	 * Returns the latency of executing the query at the given percentile, in microseconds.
+	 */
+	long getPreQueryLatencyPercentile(String operationName, String queryId, double percentile);
+	
+	/**
+	 * Returns the latency of writing the query result at the given percentile, in microseconds.
+	 */
+	long getPostQueryLatencyPercentile(String operationName, String queryId, double percentile);
+	
+	/**
+	 * Clears the execution statistics of all the queries.
+	 */
+	void resetQueryStatistics();
+	
+	/**
+	 * Returns a summary of the connection pool statistics of the config, including the connection
+	 * wait and lease time percentiles in microseconds, or null if they are not available.
+	 */
+	String getConnectionPoolStatistics(String configId);
+	
+	long getConnectionWaitTimePercentile(String configId, double percentile);
+	
+	long getConnectionLeaseTimePercentile(String configId, double percentile);
+	
+	long getConnectionPoolExhaustedCount(String configId);
+	
+	/**
+	 * Returns the operations and resources which have held connections of the config
+	 * the longest, in total.
+	 */
+	String[] getTopConnectionLeaseHolders(String configId, int count);
+	
+	/**
+	 * Clears the connection pool statistics of all the configs.
+	 */
+	void resetConnectionPoolStatistics();
+	
+	/**
+	 * Returns the recent request traces of the data service as JSON, the latest first.
+	 */
+	String[] getRecentRequestTraces();
+	
+	/**
+	 * Returns the ratio of the requests which are traced, this is shared by all the data services.
+	 */
+	double getRequestTraceSampleRate();
+	
+	void setRequestTraceSampleRate(double sampleRate);
+	
+	/**
+	 * Clears the recent request traces of all the data services.
+	 */
+	void clearRequestTraces();
 
 }
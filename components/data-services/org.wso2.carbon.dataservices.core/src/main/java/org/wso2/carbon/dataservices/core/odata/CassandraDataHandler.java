@@ -28,8 +28,11 @@ import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SimpleStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.exceptions.DriverException;
 import org.apache.axis2.databinding.utils.ConverterUtil;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.dataservices.common.DBConstants;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
@@ -46,6 +49,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class implements cassandra datasource related operations for ODataDataHandler.
@@ -54,15 +58,23 @@ import java.util.Map;
  */
 public class CassandraDataHandler implements ODataDataHandler {
 
+    private static final Log log = LogFactory.getLog(CassandraDataHandler.class);
+
+    /**
+     * Whether the entities of a table are counted using the partition count estimated by the cluster, which
+     * avoids scanning the whole table.
+     */
+    private static final boolean COUNT_ESTIMATE = Boolean.getBoolean("dss.odata.cassandra.count.estimate");
+
     /**
      * Table metadata.
      */
-    private Map<String, Map<String, DataColumn>> tableMetaData;
+    private volatile Map<String, Map<String, DataColumn>> tableMetaData;
 
     /**
      * Primary Keys of the Tables (Map<Table Name, List>).
      */
-    private Map<String, List<String>> primaryKeys;
+    private volatile Map<String, List<String>> primaryKeys;
 
     /**
      * Config ID.
@@ -72,7 +84,7 @@ public class CassandraDataHandler implements ODataDataHandler {
     /**
      * List of Tables in the Database.
      */
-    private List<String> tableList;
+    private volatile List<String> tableList;
 
     /**
      * Cassandra session.
@@ -125,6 +137,128 @@ public class CassandraDataHandler implements ODataDataHandler {
         return entryList;
     }
 
+    @Override
+    public List<ODataEntry> readTable(String tableName, ODataQuery query) throws ODataServiceFault {
+        /* the query options are applied in memory, as CQL can only filter on the keys and indexed columns,
+           therefore the columns are only left out when there is no filter or ordering */
+        if (query.getSelectedProperties() == null || query.getFilter() != null || query.getOrderBy() != null) {
+            return readTable(tableName);
+        }
+        ResultSet resultSet = this.session.execute(new SimpleStatement(createSelectCql(tableName,
+                                                                                       query.getSelectedProperties())));
+        Iterator<Row> iterator = resultSet.iterator();
+        List<ODataEntry> entryList = new ArrayList<>();
+        ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
+        while (iterator.hasNext()) {
+            entryList.add(createDataEntryFromRow(tableName, iterator.next(), columnDefinitions, false));
+        }
+        return entryList;
+    }
+
+    @Override
+    public ODataEntryCursor openTableCursor(final String tableName, ODataQuery query) throws ODataServiceFault {
+        /* the driver fetches the rows page by page while they are iterated, therefore only the options which are
+           applied in memory prevent a cursor */
+        if (query.getFilter() != null || query.getOrderBy() != null || query.hasLimit()) {
+            return null;
+        }
+        final boolean withETag = query.getSelectedProperties() == null;
+        String cql = withETag ? "Select * from " + this.keyspace + "." + tableName :
+                     createSelectCql(tableName, query.getSelectedProperties());
+        final ResultSet resultSet;
+        try {
+            resultSet = this.session.execute(new SimpleStatement(cql));
+        } catch (DriverException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :" +
+                                           e.getMessage());
+        }
+        final Iterator<Row> iterator = resultSet.iterator();
+        final ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
+        return new ODataEntryCursor() {
+            @Override
+            public ODataEntry next() throws ODataServiceFault {
+                try {
+                    if (!iterator.hasNext()) {
+                        return null;
+                    }
+                    return createDataEntryFromRow(tableName, iterator.next(), columnDefinitions, withETag);
+                } catch (DriverException e) {
+                    throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName +
+                                                   " table. :" + e.getMessage());
+                }
+            }
+
+            @Override
+            public void close() {
+                // the driver releases the result set when the last page is fetched
+            }
+        };
+    }
+
+    /**
+     * This method creates the CQL to read the primary keys and the selected columns of the table.
+     *
+     * @param tableName          Name of the table
+     * @param selectedProperties Selected columns
+     * @return CQL
+     */
+    private String createSelectCql(String tableName, Set<String> selectedProperties) {
+        StringBuilder cql = new StringBuilder("SELECT ");
+        boolean first = true;
+        for (String column : this.tableMetaData.get(tableName).keySet()) {
+            if (this.primaryKeys.get(tableName).contains(column) || selectedProperties.contains(column)) {
+                if (!first) {
+                    cql.append(", ");
+                }
+                first = false;
+                cql.append(column);
+            }
+        }
+        cql.append(" FROM ").append(this.keyspace).append(".").append(tableName);
+        return cql.toString();
+    }
+
+    @Override
+    public Long countTable(String tableName, ODataQuery query) throws ODataServiceFault {
+        if (query.getFilter() != null) {
+            return null;
+        }
+        if (COUNT_ESTIMATE) {
+            Long estimate = estimatePartitionCount(tableName);
+            if (estimate != null) {
+                return estimate;
+            }
+        }
+        /* the rows are counted in the cluster, instead of being read to count them here */
+        Statement statement = new SimpleStatement("SELECT COUNT(*) FROM " + this.keyspace + "." + tableName);
+        return this.session.execute(statement).one().getLong(0);
+    }
+
+    /**
+     * This method returns the partition count of a table, estimated by the cluster, which is the row count of a
+     * table without clustering columns.
+     *
+     * @param tableName Name of the table
+     * @return estimated partition count, null if there is no estimate yet
+     */
+    private Long estimatePartitionCount(String tableName) {
+        Statement statement = new SimpleStatement("SELECT partitions_count FROM system.size_estimates " +
+                                                  "WHERE keyspace_name = ? AND table_name = ?", this.keyspace,
+                                                  tableName);
+        try {
+            long count = 0;
+            boolean estimated = false;
+            for (Row row : this.session.execute(statement)) {
+                count += row.getLong("partitions_count");
+                estimated = true;
+            }
+            return estimated ? count : null;
+        } catch (DriverException e) {
+            log.warn("Error in reading the size estimates of " + tableName + " table. :" + e.getMessage());
+            return null;
+        }
+    }
+
     @Override
     public List<ODataEntry> readTableWithKeys(String tableName, ODataEntry keys) throws ODataServiceFault {
         List<ColumnMetadata> cassandraTableMetaData = this.session.getCluster().getMetadata().getKeyspace(this.keyspace)
@@ -153,6 +287,17 @@ public class CassandraDataHandler implements ODataDataHandler {
         return entryList;
     }
 
+    @Override
+    public List<ODataEntry> readTableWithKeys(String tableName, List<ODataEntry> keys, ODataQuery query)
+            throws ODataServiceFault {
+        /* CQL can only match the partition keys with IN, therefore the key sets are read one by one */
+        List<ODataEntry> entryList = new ArrayList<>();
+        for (ODataEntry keySet : keys) {
+            entryList.addAll(readTableWithKeys(tableName, keySet));
+        }
+        return entryList;
+    }
+
     @Override
     public String insertEntityToTable(String tableName, ODataEntry entity) throws ODataServiceFault {
         List<ColumnMetadata> cassandraTableMetaData = this.session.getCluster().getMetadata().getKeyspace(this.keyspace)
@@ -305,6 +450,18 @@ public class CassandraDataHandler implements ODataDataHandler {
         return null;
     }
 
+    @Override
+    public Map<String, NavigationTable> getImportedNavigationProperties() {
+        return null;
+    }
+
+    @Override
+    public void refreshMetadata() throws ODataServiceFault {
+        this.tableList = generateTableList();
+        this.primaryKeys = generatePrimaryKeyList();
+        this.tableMetaData = generateMetaData();
+    }
+
     @Override
     public void openTransaction() throws ODataServiceFault {
         this.transactionAvailable.set(true);
@@ -346,6 +503,22 @@ public class CassandraDataHandler implements ODataDataHandler {
      */
     private ODataEntry createDataEntryFromRow(String tableName, Row row, ColumnDefinitions columnDefinitions)
             throws ODataServiceFault {
+        return createDataEntryFromRow(tableName, row, columnDefinitions, true);
+    }
+
+    /**
+     * This method wraps row data in to DataEntry. The ETag is a digest of all the columns, therefore it is left
+     * out when some of the columns are not read.
+     *
+     * @param tableName         Table Name
+     * @param row               Row
+     * @param columnDefinitions Column Definition
+     * @param withETag          Whether to set the ETag of the entry
+     * @return DataEntry
+     * @throws ODataServiceFault
+     */
+    private ODataEntry createDataEntryFromRow(String tableName, Row row, ColumnDefinitions columnDefinitions,
+                                              boolean withETag) throws ODataServiceFault {
         String paramValue;
         ODataEntry entry = new ODataEntry();
         //Creating a unique string to represent the
@@ -430,8 +603,10 @@ public class CassandraDataHandler implements ODataDataHandler {
         } catch (DataServiceFault e) {
             throw new ODataServiceFault(e, "Error occurred when creating OData entry. :" + e.getMessage());
         }
-        //Set E-Tag to the entity
-        entry.addValue("ETag", ODataUtils.generateETag(this.configID, tableName, entry));
+        if (withETag) {
+            //Set E-Tag to the entity
+            entry.addValue("ETag", ODataUtils.generateETag(this.configID, tableName, entry));
+        }
         return entry;
     }
 
@@ -32,10 +32,15 @@ import org.apache.olingo.commons.api.edm.provider.CsdlPropertyRef;
 import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class implements Olingo CsdlAbstractEdmProvider, OData EDM provider which contains the service metadata.
@@ -55,29 +60,46 @@ public class EDMProvider extends CsdlAbstractEdmProvider {
     private FullQualifiedName containerFullQName;
 
     /**
-     * Map of One-To-Many relations list.
+     * Names of the tables, which are the entity types and entity sets.
      */
-    private Map<String, HashSet<String>> oneToManyRelationList;
+    private List<String> tableList;
+
+    private Set<String> tableSet;
+
+    /**
+     * Map of the properties of the entity types, which is read when an entity type is first built.
+     */
+    private Map<String, List<CsdlProperty>> propertiesMap;
 
     /**
-     * Map of Many-To-One relations list.
+     * Map of the keys of the entity types.
      */
-    private Map<String, HashSet<String>> manyToOneRelationList;
+    private Map<String, List<CsdlPropertyRef>> keysMap;
 
     /**
-     * Map of OData entity types.
+     * Map of the one-to-many relations, by the table which the foreign keys refer to.
      */
-    private Map<String, CsdlEntityType> csdlEntityTypesMap;
+    private Map<String, NavigationTable> navigationProperties;
 
     /**
-     * List of OData schemas.
+     * Map of the many-to-one relations, by the table which has the foreign keys.
      */
-    private List<CsdlSchema> csdlSchemaList;
+    private Map<String, NavigationTable> importedNavigationProperties;
+
+    /**
+     * Map of OData entity types, which are built when they are first accessed.
+     */
+    private ConcurrentMap<String, CsdlEntityType> csdlEntityTypesMap = new ConcurrentHashMap<>();
+
+    /**
+     * List of OData schemas, which is built when the whole schema is first accessed.
+     */
+    private volatile List<CsdlSchema> csdlSchemaList;
 
     /**
      * OData entity container.
      */
-    private CsdlEntityContainer csdlEntityContainer;
+    private volatile CsdlEntityContainer csdlEntityContainer;
 
     /**
      * OData entity container info.
@@ -85,151 +107,175 @@ public class EDMProvider extends CsdlAbstractEdmProvider {
     private CsdlEntityContainerInfo csdlEntityContainerInfo;
 
     /**
-     * Map of OData entity sets for quick retrieval.
+     * Map of OData entity sets for quick retrieval, which are built when they are first accessed.
      */
-    private Map<String, CsdlEntitySet> csdlEntitySetMap;
+    private ConcurrentMap<String, CsdlEntitySet> csdlEntitySetMap = new ConcurrentHashMap<>();
 
+    /**
+     * Creates the EDM provider of the given tables. The entity types and entity sets are built from the given maps
+     * when they are first accessed, so the metadata of a table is only read when its entity type is needed, while the
+     * metadata of all the tables is read at once when the whole schema is needed.
+     *
+     * @param tableList                    Names of the tables
+     * @param containerName                Name of the container
+     * @param namespace                    Namespace
+     * @param propertiesMap                Properties of the entity types
+     * @param pkeys                        Keys of the entity types
+     * @param navigationProperties         Navigation properties, by the table the foreign keys refer to
+     * @param importedNavigationProperties Navigation properties, by the table which has the foreign keys
+     */
     public EDMProvider(List<String> tableList, String containerName, String namespace,
                        Map<String, List<CsdlProperty>> propertiesMap, Map<String, List<CsdlPropertyRef>> pkeys,
-                       List<String> entitySet, Map<String, NavigationTable> navigationProperties) {
+                       Map<String, NavigationTable> navigationProperties,
+                       Map<String, NavigationTable> importedNavigationProperties) {
         this.containerFullQName = new FullQualifiedName(containerName, namespace);
         this.namespace = namespace;
-        if (navigationProperties != null) {
-            this.manyToOneRelationList = generateManyToOneRelationships(navigationProperties);
-            this.oneToManyRelationList = generateOneToManyRelationships(navigationProperties);
-        } else {
-            this.manyToOneRelationList = null;
-            this.oneToManyRelationList = null;
-        }
-        this.csdlEntityTypesMap = generateEntityTypes(propertiesMap, tableList, pkeys);
-        this.csdlEntitySetMap = generateEntitySets(entitySet);
-        this.csdlEntityContainer = generateCsdlEntityContainer();
+        this.tableList = tableList;
+        this.tableSet = new HashSet<>(tableList);
+        this.propertiesMap = propertiesMap;
+        this.keysMap = pkeys;
+        this.navigationProperties = navigationProperties;
+        this.importedNavigationProperties = importedNavigationProperties;
         this.csdlEntityContainerInfo = generateCsdlEntityContainerInfo();
-        this.csdlSchemaList = generateSchemaList();
     }
 
     /**
-     * This method creates a map of Csdl entity types.
+     * This method creates a Csdl entity type.
      *
-     * @param properties Properties
-     * @param entityList EntityList
-     * @param pKeyList   Primary keys list
-     * @return List of Csdl entity types (Common Schema Definition Language Entity Type)
+     * @param entityTypeName Name of the entity type
+     * @param properties     Properties of the entity type
+     * @return Csdl entity type (Common Schema Definition Language Entity Type)
      * @see CsdlEntityType
      */
-    private Map<String, CsdlEntityType> generateEntityTypes(Map<String, List<CsdlProperty>> properties,
-                                                            List<String> entityList,
-                                                            Map<String, List<CsdlPropertyRef>> pKeyList) {
-        Map<String, CsdlEntityType> csdlEntityTypesMap = new HashMap<>();
-        for (String entityTypeName : entityList) {
-            CsdlEntityType entity = new CsdlEntityType();
-            entity.setName(entityTypeName);
-            for (CsdlProperty property : properties.get(entityTypeName)) {
-                if (EdmPrimitiveTypeKind.Stream.getFullQualifiedName().getFullQualifiedNameAsString()
-                                               .equals(property.getType())) {
-                    entity.setHasStream(true);
-                    break;
-                }
+    private CsdlEntityType generateEntityType(String entityTypeName, List<CsdlProperty> properties) {
+        CsdlEntityType entity = new CsdlEntityType();
+        entity.setName(entityTypeName);
+        for (CsdlProperty property : properties) {
+            if (EdmPrimitiveTypeKind.Stream.getFullQualifiedName().getFullQualifiedNameAsString()
+                                           .equals(property.getType())) {
+                entity.setHasStream(true);
+                break;
             }
-            List<CsdlPropertyRef> keys = pKeyList.get(entityTypeName);
-            //Adding Keys
-            if (keys.size() != 0) {
-                entity.setKey(keys);
+        }
+        List<CsdlPropertyRef> keys = keysMap.get(entityTypeName);
+        //Adding Keys
+        if (keys.size() != 0) {
+            entity.setKey(keys);
+        }
+        //Adding Properties (Columns)
+        entity.setProperties(properties);
+        //Adding Navigation
+        List<CsdlNavigationProperty> navigationProperties = new ArrayList<>();
+        //if navigationProperties is null, Obviously importedNavigationProperties should be NULL.
+        if (this.navigationProperties != null) {
+            // One To Many relations
+            for (String navigation : getOneToManyRelations(entityTypeName)) {
+                CsdlNavigationProperty navProp = new CsdlNavigationProperty();
+                navProp.setName(navigation);
+                navProp.setType(new FullQualifiedName(namespace, navigation));
+                navProp.setCollection(true);
+                navProp.setPartner(entityTypeName);
+                navigationProperties.add(navProp);
             }
-            //Adding Properties (Columns)
-            entity.setProperties(properties.get(entityTypeName));
-            //Adding Navigation
-            List<CsdlNavigationProperty> navigationProperties = new ArrayList<>();
-            //if oneToManyRelationList is null, Obviously manyToOneRelationList should be NULL.
-            if (oneToManyRelationList != null) {
-                // One To Many relations
-                if (oneToManyRelationList.get(entityTypeName) != null) {
-                    for (String navigation : oneToManyRelationList.get(entityTypeName)) {
-                        CsdlNavigationProperty navProp = new CsdlNavigationProperty();
-                        navProp.setName(navigation);
-                        navProp.setType(new FullQualifiedName(namespace, navigation));
-                        navProp.setCollection(true);
-                        navProp.setPartner(entityTypeName);
-                        navigationProperties.add(navProp);
-                    }
-                }
-                //Many to one relations
-                if (manyToOneRelationList.get(entityTypeName) != null) {
-                    for (String navigation : manyToOneRelationList.get(entityTypeName)) {
-                        CsdlNavigationProperty navProp = new CsdlNavigationProperty();
-                        navProp.setName(navigation);
-                        navProp.setType(new FullQualifiedName(namespace, navigation));
-                        navProp.setPartner(entityTypeName);
-                        navigationProperties.add(navProp);
-                    }
-                }
-                if (!navigationProperties.isEmpty()) {
-                    entity.setNavigationProperties(navigationProperties);
-                }
+            //Many to one relations
+            for (String navigation : getManyToOneRelations(entityTypeName)) {
+                CsdlNavigationProperty navProp = new CsdlNavigationProperty();
+                navProp.setName(navigation);
+                navProp.setType(new FullQualifiedName(namespace, navigation));
+                navProp.setPartner(entityTypeName);
+                navigationProperties.add(navProp);
+            }
+            if (!navigationProperties.isEmpty()) {
+                entity.setNavigationProperties(navigationProperties);
             }
-            csdlEntityTypesMap.put(entityTypeName, entity);
         }
-        return csdlEntityTypesMap;
+        return entity;
     }
 
     /**
-     * This method creates a map of Csdl Entity set for the easy retrieve.
+     * This method creates a Csdl Entity set.
      *
-     * @param entitySetList List of entity sets
-     * @return Map of Csdl entity set
+     * @param entitySetName Name of the entity set
+     * @return Csdl entity set
      * @see CsdlEntitySet
      */
-    private Map<String, CsdlEntitySet> generateEntitySets(List<String> entitySetList) {
-        Map<String, CsdlEntitySet> csdlEntitySetsMap = new HashMap<>();
-        for (String entitySetName : entitySetList) {
-            CsdlEntitySet entitySet = new CsdlEntitySet();
-            entitySet.setType(new FullQualifiedName(namespace, entitySetName));
-            entitySet.setName(entitySetName);
-            //if oneToManyRelationList is null, Obviously manyToOneRelationList should be NULL.
-            if (oneToManyRelationList != null) {
-                //Set Navigational Bindings to oneToMany
+    private CsdlEntitySet generateEntitySet(String entitySetName) {
+        CsdlEntitySet entitySet = new CsdlEntitySet();
+        entitySet.setType(new FullQualifiedName(namespace, entitySetName));
+        entitySet.setName(entitySetName);
+        //if navigationProperties is null, Obviously importedNavigationProperties should be NULL.
+        if (this.navigationProperties != null) {
+            //Set Navigational Bindings to oneToMany and manyToOne
+            List<CsdlNavigationPropertyBinding> navPropBindingList = new ArrayList<>();
+            Set<String> navigations = new LinkedHashSet<>(getOneToManyRelations(entitySetName));
+            navigations.addAll(getManyToOneRelations(entitySetName));
+            for (String navigation : navigations) {
                 CsdlNavigationPropertyBinding navPropBinding = new CsdlNavigationPropertyBinding();
-                List<CsdlNavigationPropertyBinding> navPropBindingList = new ArrayList<>();
-                if (oneToManyRelationList.get(entitySetName) != null) {
-                    for (String navigation : oneToManyRelationList.get(entitySetName)) {
-                        // the target entity set, where the navigation property points to
-                        navPropBinding.setTarget(navigation);
-                        // the path from entity type to navigation property
-                        navPropBinding.setPath(navigation);
-                        navPropBindingList.add(navPropBinding);
-                    }
-                }
-                if (manyToOneRelationList.get(entitySetName) != null) {
-                    for (String navigation : manyToOneRelationList.get(entitySetName)) {
-                        // the target entity set, where the navigation property points to
-                        navPropBinding.setTarget(navigation);
-                        // the path from entity type to navigation property
-                        navPropBinding.setPath(navigation);
-                        navPropBindingList.add(navPropBinding);
-                    }
-                }
-                if (!navPropBindingList.isEmpty()) {
-                    entitySet.setNavigationPropertyBindings(navPropBindingList);
+                // the target entity set, where the navigation property points to
+                navPropBinding.setTarget(navigation);
+                // the path from entity type to navigation property
+                navPropBinding.setPath(navigation);
+                navPropBindingList.add(navPropBinding);
+            }
+            if (!navPropBindingList.isEmpty()) {
+                entitySet.setNavigationPropertyBindings(navPropBindingList);
+            }
+        }
+        return entitySet;
+    }
+
+    private Set<String> getOneToManyRelations(String tableName) {
+        NavigationTable navigationTable = this.navigationProperties.get(tableName);
+        return navigationTable == null ? Collections.<String>emptySet() : navigationTable.getTables();
+    }
+
+    private Set<String> getManyToOneRelations(String tableName) {
+        NavigationTable navigationTable = this.importedNavigationProperties == null ? null :
+                                          this.importedNavigationProperties.get(tableName);
+        return navigationTable == null ? Collections.<String>emptySet() : navigationTable.getTables();
+    }
+
+    /**
+     * This method builds all the entity types and entity sets, with the schema and the entity container. The
+     * properties of all the tables are read at once, which lets the data handler read their metadata in parallel.
+     */
+    private synchronized void generateSchema() {
+        if (this.csdlSchemaList != null) {
+            return;
+        }
+        Map<String, List<CsdlProperty>> properties = new HashMap<>(this.propertiesMap);
+        List<CsdlEntityType> entityTypes = new ArrayList<>();
+        List<CsdlEntitySet> entitySets = new ArrayList<>();
+        for (String tableName : this.tableList) {
+            CsdlEntityType entityType = this.csdlEntityTypesMap.get(tableName);
+            if (entityType == null) {
+                entityType = generateEntityType(tableName, properties.get(tableName));
+                CsdlEntityType existingEntityType = this.csdlEntityTypesMap.putIfAbsent(tableName, entityType);
+                if (existingEntityType != null) {
+                    entityType = existingEntityType;
                 }
             }
-            csdlEntitySetsMap.put(entitySetName, entitySet);
+            entityTypes.add(entityType);
+            entitySets.add(getCsdlEntitySet(tableName));
         }
-        return csdlEntitySetsMap;
+        this.csdlEntityContainer = generateCsdlEntityContainer(entitySets);
+        this.csdlSchemaList = generateSchemaList(entityTypes);
     }
 
     /**
      * This method creates a list of Csdl schema.
      *
+     * @param entityTypes Entity types
      * @return List of Csdl schema
      * @see CsdlSchema
      */
-    private List<CsdlSchema> generateSchemaList() {
+    private List<CsdlSchema> generateSchemaList(List<CsdlEntityType> entityTypes) {
         List<CsdlSchema> schemaList = new ArrayList<>();
         CsdlSchema schema = new CsdlSchema();
         schema.setNamespace(namespace);
         // EntityTypes
-        if (!csdlEntityTypesMap.isEmpty()) {
-            schema.setEntityTypes(new ArrayList<>(csdlEntityTypesMap.values()));
+        if (!entityTypes.isEmpty()) {
+            schema.setEntityTypes(entityTypes);
         }
         schema.setEntityContainer(csdlEntityContainer);
         schemaList.add(schema);
@@ -239,13 +285,14 @@ public class EDMProvider extends CsdlAbstractEdmProvider {
     /**
      * This method creates a Csdl entity container.
      *
+     * @param entitySets Entity sets
      * @return Csdl entity container
      * @see CsdlEntityContainer
      */
-    private CsdlEntityContainer generateCsdlEntityContainer() {
+    private CsdlEntityContainer generateCsdlEntityContainer(List<CsdlEntitySet> entitySets) {
         CsdlEntityContainer container = new CsdlEntityContainer();
         container.setName(containerFullQName.getName());
-        container.setEntitySets(new ArrayList<>(csdlEntitySetMap.values()));
+        container.setEntitySets(entitySets);
         return container;
     }
 
@@ -258,27 +305,52 @@ public class EDMProvider extends CsdlAbstractEdmProvider {
         return new CsdlEntityContainerInfo().setContainerName(containerFullQName);
     }
 
+    private CsdlEntitySet getCsdlEntitySet(String entitySetName) {
+        CsdlEntitySet entitySet = csdlEntitySetMap.get(entitySetName);
+        if (entitySet == null) {
+            entitySet = generateEntitySet(entitySetName);
+            CsdlEntitySet existingEntitySet = csdlEntitySetMap.putIfAbsent(entitySetName, entitySet);
+            if (existingEntitySet != null) {
+                entitySet = existingEntitySet;
+            }
+        }
+        return entitySet;
+    }
+
     @Override
     public CsdlEntityType getEntityType(final FullQualifiedName entityTypeName) {
-        return csdlEntityTypesMap.get(entityTypeName.getName());
-
+        String tableName = entityTypeName.getName();
+        if (!tableSet.contains(tableName)) {
+            return null;
+        }
+        CsdlEntityType entityType = csdlEntityTypesMap.get(tableName);
+        if (entityType == null) {
+            entityType = generateEntityType(tableName, propertiesMap.get(tableName));
+            CsdlEntityType existingEntityType = csdlEntityTypesMap.putIfAbsent(tableName, entityType);
+            if (existingEntityType != null) {
+                entityType = existingEntityType;
+            }
+        }
+        return entityType;
     }
 
     @Override
     public CsdlEntitySet getEntitySet(final FullQualifiedName entityContainer, final String entitySetName) {
-        if (containerFullQName.equals(entityContainer)) {
-            return csdlEntitySetMap.get(entitySetName);
+        if (containerFullQName.equals(entityContainer) && tableSet.contains(entitySetName)) {
+            return getCsdlEntitySet(entitySetName);
         }
         return null;
     }
 
     @Override
     public List<CsdlSchema> getSchemas() {
+        generateSchema();
         return csdlSchemaList;
     }
 
     @Override
     public CsdlEntityContainer getEntityContainer() {
+        generateSchema();
         return csdlEntityContainer;
     }
 
@@ -289,45 +361,4 @@ public class EDMProvider extends CsdlAbstractEdmProvider {
         }
         return null;
     }
-
-    /**
-     * This method create a Map with onetoMany relationship,
-     * which contains table name as the keys and the values as the table names which has oneToMany relationship.
-     *
-     * @param navigationProperties Map of Navigation properties in ODataDataHandler
-     * @return oneToManyRelationship
-     * @see ODataDataHandler#getNavigationProperties()
-     */
-    private Map<String, HashSet<String>> generateOneToManyRelationships(
-            Map<String, NavigationTable> navigationProperties) {
-        Map<String, HashSet<String>> relationship = new HashMap<>();
-        for (String tableName : navigationProperties.keySet()) {
-            relationship.put(tableName, new HashSet<>(navigationProperties.get(tableName).getTables()));
-        }
-        return relationship;
-    }
-
-    /**
-     * This method create a Map with manytoOne relationship,
-     * which contains table name as the keys and the values as the table names which has manyToOne relationship.
-     *
-     * @param navigationProperties Map of Navigation properties in ODataDataHandler
-     * @return manyToOneRelationship
-     * @see ODataDataHandler#getNavigationProperties()
-     */
-    private Map<String, HashSet<String>> generateManyToOneRelationships(
-            Map<String, NavigationTable> navigationProperties) {
-        Map<String, HashSet<String>> relationship = new HashMap<>();
-        for (String exportedTableName : navigationProperties.keySet()) {
-            for (String importedTableName : navigationProperties.get(exportedTableName).getTables()) {
-                HashSet<String> tableList = relationship.get(importedTableName);
-                if (tableList == null) {
-                    tableList = new HashSet<>();
-                    relationship.put(importedTableName, tableList);
-                }
-                tableList.add(exportedTableName);
-            }
-        }
-        return relationship;
-    }
 }
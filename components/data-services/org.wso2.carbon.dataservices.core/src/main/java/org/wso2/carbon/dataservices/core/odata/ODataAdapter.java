@@ -32,6 +32,7 @@ import org.apache.olingo.commons.api.edm.EdmBindingTarget;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -61,10 +62,16 @@ import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceAction;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceFunction;
+import org.apache.olingo.server.api.uri.UriResourceKind;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectItem;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.api.uri.queryoption.SkipOption;
 import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
 import org.apache.olingo.server.api.uri.queryoption.TopOption;
@@ -96,15 +103,25 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.Types;
 import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * This class implements the olingo serviceHandler to process requests and response.
@@ -119,6 +136,8 @@ public class ODataAdapter implements ServiceHandler {
 
     private static final String ODATA_MAX_PAGE_SIZE = "odata.maxpagesize";
 
+    private static final Pattern NUMERIC_VALUE_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
     /**
      * Service metadata of the odata service.
      */
@@ -168,6 +187,112 @@ public class ODataAdapter implements ServiceHandler {
         response.writeServiceDocument(request.getODataRequest().getRawBaseUri());
     }
 
+    /**
+     * Entity collection whose entities are read from a cursor while the collection is serialized, so the entities of
+     * the collection are not all held in memory at once. Iterating the entities streams them only once, while any
+     * other access to the entities reads all the remaining entities in to memory.
+     */
+    private class StreamedEntityCollection extends EntityCollection {
+
+        private final ODataEntryCursor cursor;
+
+        private final String tableName;
+
+        private final String baseUrl;
+
+        private final EdmEntityType entityType;
+
+        private List<Entity> readEntities;
+
+        private boolean streamed;
+
+        private final List<Entity> entities = new AbstractList<Entity>() {
+            @Override
+            public Entity get(int index) {
+                return readAll().get(index);
+            }
+
+            @Override
+            public int size() {
+                return readAll().size();
+            }
+
+            @Override
+            public Iterator<Entity> iterator() {
+                if (readEntities != null || streamed) {
+                    return readAll().iterator();
+                }
+                streamed = true;
+                return new Iterator<Entity>() {
+                    private Entity next = readNext();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entity next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Entity entity = next;
+                        next = readNext();
+                        return entity;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        StreamedEntityCollection(ODataEntryCursor cursor, String tableName, String baseUrl) {
+            this.cursor = cursor;
+            this.tableName = tableName;
+            this.baseUrl = baseUrl;
+            this.entityType = serviceMetadata.getEdm().getEntityType(new FullQualifiedName(namespace, tableName));
+        }
+
+        @Override
+        public List<Entity> getEntities() {
+            return this.entities;
+        }
+
+        private List<Entity> readAll() {
+            if (this.streamed) {
+                throw new IllegalStateException("The entities of " + this.tableName + " have already been streamed.");
+            }
+            if (this.readEntities == null) {
+                this.readEntities = new ArrayList<>();
+                Entity entity = readNext();
+                while (entity != null) {
+                    this.readEntities.add(entity);
+                    entity = readNext();
+                }
+            }
+            return this.readEntities;
+        }
+
+        private Entity readNext() {
+            try {
+                ODataEntry entry = this.cursor.next();
+                return entry == null ? null : createEntityFromDataEntry(this.tableName, this.entityType, entry,
+                                                                         this.baseUrl);
+            } catch (ODataServiceFault e) {
+                this.cursor.close();
+                log.error("Error in reading the entities of " + this.tableName + " : " + e.getMessage(), e);
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        void close() {
+            this.cursor.close();
+        }
+    }
+
     private static class EntityDetails {
         EntityCollection entitySet = null;
         Entity entity = null;
@@ -189,6 +314,10 @@ public class ODataAdapter implements ServiceHandler {
         Entity parentEntity;
         EntityDetails details = new EntityDetails();
         String baseURL = request.getODataRequest().getRawBaseUri();
+        ODataQuery query = null;
+        Long count = null;
+        boolean countRequest = isCountRequest(request.getUriInfo());
+        boolean processed = false;
         try {
             if (request.isSingleton()) {
                 log.error(new ODataServiceFault("Singletons are not supported."));
@@ -204,7 +333,19 @@ public class ODataAdapter implements ServiceHandler {
                         details.eTagMatched = true;
                     }
                 } else {
-                    entitySet = getEntityCollection(edmEntitySet.getName(), baseURL);
+                    query = createQuery(request);
+                    CountOption countOption = request.getUriInfo().getCountOption();
+                    if (countRequest || (countOption != null && countOption.getValue())) {
+                        count = this.dataHandler.countTable(edmEntitySet.getName(), query);
+                    }
+                    if (countRequest && count != null) {
+                        // The entities are not read when only the count is requested
+                        entitySet = new EntityCollection();
+                    } else if (isStreamable(request, countRequest, count)) {
+                        entitySet = openEntityCollection(edmEntitySet.getName(), query, baseURL);
+                    } else {
+                        entitySet = getEntityCollection(edmEntitySet.getName(), query, baseURL);
+                    }
                 }
             }
             if (!request.getNavigations().isEmpty() && entity != null) {
@@ -231,33 +372,158 @@ public class ODataAdapter implements ServiceHandler {
             SkipOption skipOption = uriInfo.getSkipOption();
             TopOption topOption = uriInfo.getTopOption();
             SkipTokenOption skipTokenOption = uriInfo.getSkipTokenOption();
-            if (filterOption != null) {
+            if (filterOption != null && (query == null || !query.isFilterApplied())) {
                 QueryHandler.applyFilterSystemQuery(filterOption, details.entitySet, edmEntitySet);
             }
-            if (countOption != null) {
+            if (count != null) {
+                details.entitySet.setCount(count > Integer.MAX_VALUE ? Integer.MAX_VALUE : count.intValue());
+            } else if (countOption != null) {
                 QueryHandler.applyCountSystemQueryOption(countOption, details.entitySet);
+            } else if (countRequest && details.entitySet != null) {
+                details.entitySet.setCount(details.entitySet.getEntities().size());
             }
-            if (orderByOption != null) {
+            if (orderByOption != null && (query == null || !query.isOrderByApplied())) {
                 QueryHandler.applyOrderByOption(orderByOption, details.entitySet, edmEntitySet);
             }
-            if (skipOption != null) {
-                QueryHandler.applySkipSystemQueryHandler(skipOption, details.entitySet);
-            }
-            if (topOption != null) {
-                QueryHandler.applyTopSystemQueryOption(topOption, details.entitySet);
+            if (query != null && query.isLimitApplied()) {
+                if (query.getNextSkipToken() != null) {
+                    QueryHandler.applyNextLink(details.entitySet, edmEntitySet, baseURL,
+                                               request.getODataRequest().getRawQueryPath(), query.getNextSkipToken());
+                }
+            } else {
+                if (skipOption != null) {
+                    QueryHandler.applySkipSystemQueryHandler(skipOption, details.entitySet);
+                }
+                if (topOption != null) {
+                    QueryHandler.applyTopSystemQueryOption(topOption, details.entitySet);
+                }
+                if (skipTokenOption != null) {
+                    QueryHandler.applyServerSidePaging(skipTokenOption, details.entitySet, edmEntitySet, baseURL,
+                                                       getPreferredPageSize(request));
+                }
             }
-            if (skipTokenOption != null) {
-                int pageSize = request.getOdata().createPreferences(request.getODataRequest()
-                                                                           .getHeaders(HttpHeader.PREFER))
-                                      .getMaxPageSize();
-                QueryHandler.applyServerSidePaging(skipTokenOption, details.entitySet, edmEntitySet, baseURL, pageSize);
+            // The navigation properties are expanded after paging, so only the entities of the page are expanded
+            ExpandOption expandOption = uriInfo.getExpandOption();
+            if (expandOption != null && !countRequest) {
+                if (details.entitySet != null) {
+                    expandEntities(expandOption, details.entitySet.getEntities(), details.entityType, baseURL);
+                } else if (details.entity != null) {
+                    expandEntities(expandOption, Collections.singletonList(details.entity), details.entityType,
+                                   baseURL);
+                }
             }
+            processed = true;
             return details;
         } catch (ODataServiceFault dataServiceFault) {
             log.error("Error in processing the read request. : " + dataServiceFault.getMessage(), dataServiceFault);
             throw new ODataApplicationException(dataServiceFault.getMessage(),
                                                 HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        } finally {
+            // The caller only closes the cursor of the entities it gets back, so it is closed here on failures
+            if (!processed && entitySet instanceof StreamedEntityCollection) {
+                ((StreamedEntityCollection) entitySet).close();
+            }
+        }
+    }
+
+    /**
+     * This method creates the query options of an entity set read, which the data handler can apply while reading.
+     *
+     * @param request DataRequest
+     * @return ODataQuery
+     */
+    private ODataQuery createQuery(final DataRequest request) {
+        UriInfo uriInfo = request.getUriInfo();
+        ODataQuery query = new ODataQuery();
+        if (uriInfo.getFilterOption() != null) {
+            query.setFilter(uriInfo.getFilterOption().getExpression());
+        }
+        if (uriInfo.getOrderByOption() != null) {
+            query.setOrderBy(uriInfo.getOrderByOption().getOrders());
+        }
+        Set<String> selectedProperties = getSelectedProperties(uriInfo.getSelectOption());
+        if (selectedProperties != null && uriInfo.getExpandOption() != null) {
+            // The key columns of the expanded navigation properties are needed to read the related entities
+            selectedProperties = addExpandedKeyColumns(selectedProperties, request.getEntitySet().getEntityType(),
+                                                       uriInfo.getExpandOption());
+        }
+        query.setSelectedProperties(selectedProperties);
+        // The count is taken separately by the data handler, therefore the limits do not change it
+        if (!isCountRequest(uriInfo)) {
+            if (uriInfo.getTopOption() != null) {
+                query.setTop(uriInfo.getTopOption().getValue());
+            }
+            if (uriInfo.getSkipOption() != null) {
+                query.setSkip(uriInfo.getSkipOption().getValue());
+            }
+            if (uriInfo.getSkipTokenOption() != null) {
+                query.setSkipToken(uriInfo.getSkipTokenOption().getValue());
+                query.setPageSize(QueryHandler.getPageSize(getPreferredPageSize(request)));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * This method returns the names of the properties selected by the $select option.
+     *
+     * @param selectOption Select option
+     * @return Selected property names, null if all the properties are selected
+     */
+    private Set<String> getSelectedProperties(final SelectOption selectOption) {
+        if (selectOption == null || selectOption.getSelectItems().isEmpty()) {
+            return null;
+        }
+        Set<String> properties = new HashSet<>();
+        for (SelectItem item : selectOption.getSelectItems()) {
+            if (item.isStar() || item.getResourcePath() == null) {
+                return null;
+            }
+            List<UriResource> parts = item.getResourcePath().getUriResourceParts();
+            if (parts.size() != 1 || !(parts.get(0) instanceof UriResourceProperty)) {
+                return null;
+            }
+            properties.add(((UriResourceProperty) parts.get(0)).getProperty().getName());
         }
+        return properties;
+    }
+
+    /**
+     * This method adds the columns of the entity type which the expanded navigation properties are joined on, to the
+     * selected properties.
+     *
+     * @param selectedProperties Selected property names
+     * @param entityType         Entity type
+     * @param expandOption       Expand option
+     * @return Selected property names, null if all the properties have to be read
+     */
+    private Set<String> addExpandedKeyColumns(Set<String> selectedProperties, EdmEntityType entityType,
+                                              ExpandOption expandOption) {
+        for (ExpandItem item : expandOption.getExpandItems()) {
+            EdmNavigationProperty navigationProperty = getExpandedNavigationProperty(item);
+            if (item.isStar() || navigationProperty == null) {
+                return null;
+            }
+            List<NavigationKeys> navigationKeys = getNavigationKeys(entityType.getName(), navigationProperty);
+            if (navigationKeys != null) {
+                for (NavigationKeys keys : navigationKeys) {
+                    selectedProperties.add(navigationProperty.isCollection() ? keys.getPrimaryKey() :
+                                           keys.getForeignKey());
+                }
+            }
+        }
+        return selectedProperties;
+    }
+
+    private boolean isCountRequest(final UriInfo uriInfo) {
+        List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+        return !resourceParts.isEmpty() &&
+               resourceParts.get(resourceParts.size() - 1).getKind() == UriResourceKind.count;
+    }
+
+    private Integer getPreferredPageSize(final DataRequest request) {
+        return request.getOdata().createPreferences(request.getODataRequest().getHeaders(HttpHeader.PREFER))
+                      .getMaxPageSize();
     }
 
     private EdmEntitySet getEdmEntitySet(final UriInfoResource uriInfo) throws ODataApplicationException {
@@ -328,68 +594,77 @@ public class ODataAdapter implements ServiceHandler {
 
         final EntityDetails details = process(request);
 
-        response.accepts(new ServiceResponseVisior() {
-            @Override
-            public void visit(CountResponse response) throws ODataApplicationException, SerializerException {
-                response.writeCount(details.entitySet.getCount());
-            }
+        try {
+            response.accepts(new ServiceResponseVisior() {
+                @Override
+                public void visit(CountResponse response) throws ODataApplicationException, SerializerException {
+                    response.writeCount(details.entitySet.getCount());
+                }
 
-            @Override
-            public void visit(PrimitiveValueResponse response) throws ODataApplicationException, SerializerException {
-                EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
-                Property property = details.entity.getProperty(edmProperty.getName());
-                response.write(property.getValue());
-            }
+                @Override
+                public void visit(PrimitiveValueResponse response)
+                        throws ODataApplicationException, SerializerException {
+                    EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
+                    Property property = details.entity.getProperty(edmProperty.getName());
+                    response.write(property.getValue());
+                }
 
-            @Override
-            public void visit(PropertyResponse response) throws ODataApplicationException, SerializerException {
-                EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
-                Property property = details.entity.getProperty(edmProperty.getName());
-                response.writeProperty(edmProperty.getType(), property);
-            }
+                @Override
+                public void visit(PropertyResponse response) throws ODataApplicationException, SerializerException {
+                    EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
+                    Property property = details.entity.getProperty(edmProperty.getName());
+                    response.writeProperty(edmProperty.getType(), property);
+                }
 
-            @Override
-            public void visit(StreamResponse response) throws ODataApplicationException {
-                EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
-                Property property = details.entity.getProperty(edmProperty.getName());
-                response.writeStreamResponse(new ByteArrayInputStream((byte[]) (property.getValue())),
-                                             ContentType.APPLICATION_OCTET_STREAM);
+                @Override
+                public void visit(StreamResponse response) throws ODataApplicationException {
+                    EdmProperty edmProperty = request.getUriResourceProperty().getProperty();
+                    Property property = details.entity.getProperty(edmProperty.getName());
+                    response.writeStreamResponse(new ByteArrayInputStream((byte[]) (property.getValue())),
+                                                 ContentType.APPLICATION_OCTET_STREAM);
 
-            }
-
-            @Override
-            public void visit(EntitySetResponse response) throws ODataApplicationException, SerializerException {
-                if (request.getPreference(ODATA_MAX_PAGE_SIZE) != null) {
-                    response.writeHeader("Preference-Applied", ODATA_MAX_PAGE_SIZE + "=" +
-                                                               request.getPreference(ODATA_MAX_PAGE_SIZE));
-                }
-                if (details.entity == null && !request.getNavigations().isEmpty()) {
-                    response.writeReadEntitySet(details.entityType, new EntityCollection());
-                } else {
-                    response.writeReadEntitySet(details.entityType, details.entitySet);
                 }
-            }
 
-            @Override
-            public void visit(EntityResponse response) throws ODataApplicationException, SerializerException {
-                if (details.entity == null) {
-                    /*Sometimes there can be navigation entity might be null,
-					therefore according to the ODATA spec we should send NoContent Header
-					 */
-                    if (details.eTagMatched) {
-                        response.writeNoContent(true);
+                @Override
+                public void visit(EntitySetResponse response) throws ODataApplicationException, SerializerException {
+                    if (request.getPreference(ODATA_MAX_PAGE_SIZE) != null) {
+                        response.writeHeader("Preference-Applied", ODATA_MAX_PAGE_SIZE + "=" +
+                                                                   request.getPreference(ODATA_MAX_PAGE_SIZE));
+                    }
+                    if (details.entity == null && !request.getNavigations().isEmpty()) {
+                        response.writeReadEntitySet(details.entityType, new EntityCollection());
                     } else {
-                        response.writeNotFound(true);
+                        response.writeReadEntitySet(details.entityType, details.entitySet);
                     }
-                } else {
-                    if (details.eTagMatched) {
-                        response.writeReadEntity(details.entityType, details.entity);
+                }
+
+                @Override
+                public void visit(EntityResponse response) throws ODataApplicationException, SerializerException {
+                    if (details.entity == null) {
+                        /*Sometimes there can be navigation entity might be null,
+    					therefore according to the ODATA spec we should send NoContent Header
+    					 */
+                        if (details.eTagMatched) {
+                            response.writeNoContent(true);
+                        } else {
+                            response.writeNotFound(true);
+                        }
                     } else {
-                        response.getODataResponse().setStatusCode(HttpStatusCode.PRECONDITION_FAILED.getStatusCode());
+                        if (details.eTagMatched) {
+                            response.writeReadEntity(details.entityType, details.entity);
+                        } else {
+                            response.getODataResponse()
+                                    .setStatusCode(HttpStatusCode.PRECONDITION_FAILED.getStatusCode());
+                        }
                     }
                 }
+            });
+        } finally {
+            // The cursor of a streamed entity collection is open until the entities are written
+            if (details.entitySet instanceof StreamedEntityCollection) {
+                ((StreamedEntityCollection) details.entitySet).close();
             }
-        });
+        }
     }
 
     @Override
@@ -938,27 +1213,41 @@ public class ODataAdapter implements ServiceHandler {
      */
     private EntityCollection createEntityCollectionFromDataEntryList(String tableName, List<ODataEntry> entries,
                                                                      String baseURL) throws ODataServiceFault {
+        EntityCollection entitySet = new EntityCollection();
+        EdmEntityType entityType = this.serviceMetadata.getEdm()
+                                                       .getEntityType(new FullQualifiedName(this.namespace, tableName));
+        int count = 0;
+        for (ODataEntry entry : entries) {
+            entitySet.getEntities().add(createEntityFromDataEntry(tableName, entityType, entry, baseURL));
+            count++;
+        }
+        entitySet.setCount(count);
+        return entitySet;
+    }
+
+    /**
+     * Returns the entity of a data entry to use in olingo.
+     *
+     * @param tableName  Name of the table
+     * @param entityType Entity type of the table
+     * @param entry      Data Entry
+     * @param baseURL    Base URL
+     * @return Entity
+     * @throws ODataServiceFault
+     */
+    private Entity createEntityFromDataEntry(String tableName, EdmEntityType entityType, ODataEntry entry,
+                                             String baseURL) throws ODataServiceFault {
         try {
-            EntityCollection entitySet = new EntityCollection();
-            int count = 0;
-            for (ODataEntry entry : entries) {
-                Entity entity = new Entity();
-                for (DataColumn column : this.dataHandler.getTableMetadata().get(tableName).values()) {
-                    String columnName = column.getColumnName();
-                    entity.addProperty(createPrimitive(column.getColumnType(), columnName, entry.getValue(columnName)));
-                }
-                //Set ETag to the entity
-                EdmEntityType entityType = this.serviceMetadata.getEdm()
-                                                               .getEntityType(new FullQualifiedName(this.namespace,
-                                                                                                    tableName));
-                entity.setId(new URI(EntityResponse.buildLocation(baseURL, entity, entityType.getName(), entityType)));
-                entity.setETag(entry.getValue("ETag"));
-                entity.setType(new FullQualifiedName(this.namespace, tableName).getFullQualifiedNameAsString());
-                entitySet.getEntities().add(entity);
-                count++;
-            }
-            entitySet.setCount(count);
-            return entitySet;
+            Entity entity = new Entity();
+            for (DataColumn column : this.dataHandler.getTableMetadata().get(tableName).values()) {
+                String columnName = column.getColumnName();
+                entity.addProperty(createPrimitive(column.getColumnType(), columnName, entry.getValue(columnName)));
+            }
+            //Set ETag to the entity
+            entity.setId(new URI(EntityResponse.buildLocation(baseURL, entity, entityType.getName(), entityType)));
+            entity.setETag(entry.getValue("ETag"));
+            entity.setType(new FullQualifiedName(this.namespace, tableName).getFullQualifiedNameAsString());
+            return entity;
         } catch (URISyntaxException e) {
             throw new ODataServiceFault(e, "Error occurred when creating id for the entity. :" + e.getMessage());
         } catch (ParseException e) {
@@ -1160,11 +1449,53 @@ public class ODataAdapter implements ServiceHandler {
      * This method returns the entity collection from the ODataDataHandler
      *
      * @param tableName Name of the table
+     * @param query     Query options, which the data handler marks as applied
+     * @param baseUrl   Base URL
      * @return EntityCollection
      * @throws ODataServiceFault
      */
-    private EntityCollection getEntityCollection(String tableName, String baseUrl) throws ODataServiceFault {
-        return createEntityCollectionFromDataEntryList(tableName, this.dataHandler.readTable(tableName), baseUrl);
+    private EntityCollection getEntityCollection(String tableName, ODataQuery query, String baseUrl)
+            throws ODataServiceFault {
+        return createEntityCollectionFromDataEntryList(tableName, this.dataHandler.readTable(tableName, query),
+                                                       baseUrl);
+    }
+
+    /**
+     * This method returns the entity collection from a cursor of the ODataDataHandler, whose entities are read while
+     * they are written to the response. If the data handler cannot apply all the query options, the entities are read
+     * in to memory instead.
+     *
+     * @param tableName Name of the table
+     * @param query     Query options, which the data handler marks as applied
+     * @param baseUrl   Base URL
+     * @return EntityCollection
+     * @throws ODataServiceFault
+     */
+    private EntityCollection openEntityCollection(String tableName, ODataQuery query, String baseUrl)
+            throws ODataServiceFault {
+        ODataEntryCursor cursor = this.dataHandler.openTableCursor(tableName, query);
+        if (cursor == null) {
+            return getEntityCollection(tableName, query, baseUrl);
+        }
+        return new StreamedEntityCollection(cursor, tableName, baseUrl);
+    }
+
+    /**
+     * This method checks if the entities of an entity set request can be written to the response while they are read,
+     * i.e. none of the requested options needs all the entities in memory. The options applied by the data handler
+     * are checked by the data handler itself.
+     *
+     * @param request      DataRequest
+     * @param countRequest Whether only the count is requested
+     * @param count        Count taken by the data handler, null if not taken
+     * @return true if the entities can be streamed
+     */
+    private boolean isStreamable(final DataRequest request, boolean countRequest, Long count) {
+        UriInfo uriInfo = request.getUriInfo();
+        CountOption countOption = uriInfo.getCountOption();
+        return !countRequest && request.getNavigations().isEmpty() && uriInfo.getExpandOption() == null &&
+               uriInfo.getSkipTokenOption() == null &&
+               (count != null || countOption == null || !countOption.getValue());
     }
 
     /**
@@ -1418,16 +1749,243 @@ public class ODataAdapter implements ServiceHandler {
         }
     }
 
-    private Map<String, List<CsdlPropertyRef>> getKeysCsdlMap() throws ODataServiceFault {
-        Map<String, List<CsdlPropertyRef>> keyMap = new HashMap<>();
-        for (String tableName : this.dataHandler.getTableList()) {
-            List<CsdlPropertyRef> propertyList = new ArrayList<>();
-            for (String element : this.dataHandler.getPrimaryKeys().get(tableName)) {
-                propertyList.add(new CsdlPropertyRef().setName(element));
+    /**
+     * This method expands the navigation properties given by the $expand option, of all the given entities at once.
+     * The related entities of a navigation property are read with a single query for all the entities, instead of a
+     * query for each entity, and are then linked to each entity in memory.
+     *
+     * @param expandOption Expand option
+     * @param entities     Entities to expand
+     * @param entityType   Entity type of the entities
+     * @param baseUrl      Base URL
+     * @throws ODataServiceFault
+     * @throws ODataApplicationException
+     */
+    private void expandEntities(ExpandOption expandOption, List<Entity> entities, EdmEntityType entityType,
+                                String baseUrl) throws ODataServiceFault, ODataApplicationException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        for (ExpandItem item : expandOption.getExpandItems()) {
+            if (item.isStar()) {
+                for (String name : entityType.getNavigationPropertyNames()) {
+                    expandNavigationProperty(entities, entityType, entityType.getNavigationProperty(name), null,
+                                             baseUrl);
+                }
+            } else {
+                EdmNavigationProperty navigationProperty = getExpandedNavigationProperty(item);
+                if (navigationProperty == null) {
+                    throw new ODataApplicationException("Expand option is not supported.",
+                                                        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+                }
+                expandNavigationProperty(entities, entityType, navigationProperty, item, baseUrl);
+            }
+        }
+    }
+
+    /**
+     * This method reads the related entities of the given entities using the navigation property, and links them to
+     * the entities. The nested $filter is applied by the data handler if it can, while the nested $orderby, $skip,
+     * $top and $count are applied to the related entities of each entity in memory.
+     *
+     * @param entities           Entities to expand
+     * @param entityType         Entity type of the entities
+     * @param navigationProperty Navigation property to expand
+     * @param item               Expand item of the navigation property, null if all the properties are expanded
+     * @param baseUrl            Base URL
+     * @throws ODataServiceFault
+     * @throws ODataApplicationException
+     */
+    private void expandNavigationProperty(List<Entity> entities, EdmEntityType entityType,
+                                          EdmNavigationProperty navigationProperty, ExpandItem item, String baseUrl)
+            throws ODataServiceFault, ODataApplicationException {
+        String linkName = navigationProperty.getName();
+        boolean collection = navigationProperty.isCollection();
+        List<NavigationKeys> navigationKeys = getNavigationKeys(entityType.getName(), navigationProperty);
+        if (navigationKeys == null || navigationKeys.isEmpty()) {
+            return;
+        }
+        List<String> parentColumns = new ArrayList<>();
+        List<String> targetColumns = new ArrayList<>();
+        for (NavigationKeys keys : navigationKeys) {
+            parentColumns.add(collection ? keys.getPrimaryKey() : keys.getForeignKey());
+            targetColumns.add(collection ? keys.getForeignKey() : keys.getPrimaryKey());
+        }
+        // The key values of each entity, in the order of the entities, and the distinct key sets to read
+        List<String> entityKeyValues = new ArrayList<>(entities.size());
+        Map<String, ODataEntry> keySets = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            ODataEntry keySet = new ODataEntry();
+            for (int i = 0; i < parentColumns.size(); i++) {
+                Property property = entity.getProperty(parentColumns.get(i));
+                if (property == null || property.getValue() == null) {
+                    keySet = null;
+                    break;
+                }
+                keySet.addValue(targetColumns.get(i), readPrimitiveValueInString(
+                        (EdmProperty) entityType.getProperty(parentColumns.get(i)), property.getValue()));
+            }
+            String keyValues = keySet == null ? null : getKeyValues(keySet, targetColumns);
+            entityKeyValues.add(keyValues);
+            if (keyValues != null && !keySets.containsKey(keyValues)) {
+                keySets.put(keyValues, keySet);
+            }
+        }
+        ODataQuery query = new ODataQuery();
+        if (item != null && item.getFilterOption() != null) {
+            query.setFilter(item.getFilterOption().getExpression());
+        }
+        List<ODataEntry> entries = this.dataHandler.readTableWithKeys(linkName, new ArrayList<>(keySets.values()),
+                                                                      query);
+        EntityCollection relatedEntities = createEntityCollectionFromDataEntryList(linkName, entries, baseUrl);
+        if (item != null && item.getExpandOption() != null) {
+            expandEntities(item.getExpandOption(), relatedEntities.getEntities(), navigationProperty.getType(),
+                           baseUrl);
+        }
+        Map<String, List<Entity>> relatedEntityMap = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            String keyValues = getKeyValues(entries.get(i), targetColumns);
+            List<Entity> related = relatedEntityMap.get(keyValues);
+            if (related == null) {
+                related = new ArrayList<>();
+                relatedEntityMap.put(keyValues, related);
+            }
+            related.add(relatedEntities.getEntities().get(i));
+        }
+        EdmEntitySet edmEntitySet = this.serviceMetadata.getEdm().getEntityContainer(null).getEntitySet(linkName);
+        for (int i = 0; i < entities.size(); i++) {
+            List<Entity> related = entityKeyValues.get(i) == null ? null :
+                                   relatedEntityMap.get(entityKeyValues.get(i));
+            Link link = new Link();
+            link.setTitle(linkName);
+            if (collection) {
+                EntityCollection inlineEntitySet = new EntityCollection();
+                if (related != null) {
+                    inlineEntitySet.getEntities().addAll(related);
+                }
+                if (item != null) {
+                    applyExpandItemOptions(item, query, inlineEntitySet, edmEntitySet);
+                }
+                link.setInlineEntitySet(inlineEntitySet);
+            } else if (related != null) {
+                link.setInlineEntity(related.get(0));
+            }
+            entities.get(i).getNavigationLinks().add(link);
+        }
+    }
+
+    private void applyExpandItemOptions(ExpandItem item, ODataQuery query, EntityCollection entitySet,
+                                        EdmEntitySet edmEntitySet) throws ODataApplicationException {
+        if (item.getFilterOption() != null && !query.isFilterApplied()) {
+            QueryHandler.applyFilterSystemQuery(item.getFilterOption(), entitySet, edmEntitySet);
+        }
+        if (item.getCountOption() != null) {
+            QueryHandler.applyCountSystemQueryOption(item.getCountOption(), entitySet);
+        }
+        if (item.getOrderByOption() != null) {
+            QueryHandler.applyOrderByOption(item.getOrderByOption(), entitySet, edmEntitySet);
+        }
+        if (item.getSkipOption() != null) {
+            QueryHandler.applySkipSystemQueryHandler(item.getSkipOption(), entitySet);
+        }
+        if (item.getTopOption() != null) {
+            QueryHandler.applyTopSystemQueryOption(item.getTopOption(), entitySet);
+        }
+    }
+
+    /**
+     * This method returns the navigation property of an expand item.
+     *
+     * @param item Expand item
+     * @return Navigation property, null if the item is not a navigation property
+     */
+    private EdmNavigationProperty getExpandedNavigationProperty(ExpandItem item) {
+        if (item.getResourcePath() == null) {
+            return null;
+        }
+        List<UriResource> parts = item.getResourcePath().getUriResourceParts();
+        if (parts.size() != 1 || !(parts.get(0) instanceof UriResourceNavigation)) {
+            return null;
+        }
+        return ((UriResourceNavigation) parts.get(0)).getProperty();
+    }
+
+    /**
+     * This method returns the keys which join the table with the target table of the navigation property. For a
+     * collection, the primary keys are the columns of the table, otherwise the foreign keys are.
+     *
+     * @param tableName          Name of the table
+     * @param navigationProperty Navigation property
+     * @return List of NavigationKeys, null if the tables are not related
+     */
+    private List<NavigationKeys> getNavigationKeys(String tableName, EdmNavigationProperty navigationProperty) {
+        Map<String, NavigationTable> navigationProperties = this.dataHandler.getNavigationProperties();
+        if (navigationProperties == null) {
+            return null;
+        }
+        if (navigationProperty.isCollection()) {
+            NavigationTable table = navigationProperties.get(tableName);
+            return table == null ? null : table.getNavigationKeys(navigationProperty.getName());
+        } else {
+            NavigationTable table = navigationProperties.get(navigationProperty.getName());
+            return table == null ? null : table.getNavigationKeys(tableName);
+        }
+    }
+
+    /**
+     * This method returns the values of the given columns of the entry as a single string, to match the related
+     * entities by. The numeric values are normalized, since the values of the two tables are formatted separately.
+     *
+     * @param entry   Data entry
+     * @param columns Columns
+     * @return Key values, null if any of the values is null
+     */
+    private String getKeyValues(ODataEntry entry, List<String> columns) {
+        StringBuilder keyValues = new StringBuilder();
+        for (String column : columns) {
+            String value = entry.getValue(column);
+            if (value == null) {
+                return null;
+            }
+            if (NUMERIC_VALUE_PATTERN.matcher(value).matches()) {
+                value = new BigDecimal(value).stripTrailingZeros().toPlainString();
             }
-            keyMap.put(tableName, propertyList);
+            keyValues.append(value).append('\u0000');
         }
-        return keyMap;
+        return keyValues.toString();
+    }
+
+    /**
+     * This method returns Map with table names as key, and contains list of CsdlPropertyRef of the primary keys of
+     * tables. The keys of a table are created when they are accessed.
+     *
+     * @return Map
+     * @see #initializeEdmProvider(String)
+     */
+    private Map<String, List<CsdlPropertyRef>> getKeysCsdlMap() {
+        return new AbstractMap<String, List<CsdlPropertyRef>>() {
+            @Override
+            public List<CsdlPropertyRef> get(Object tableName) {
+                List<String> keys = dataHandler.getPrimaryKeys().get(tableName);
+                if (keys == null) {
+                    return null;
+                }
+                List<CsdlPropertyRef> propertyList = new ArrayList<>();
+                for (String element : keys) {
+                    propertyList.add(new CsdlPropertyRef().setName(element));
+                }
+                return propertyList;
+            }
+
+            @Override
+            public Set<Entry<String, List<CsdlPropertyRef>>> entrySet() {
+                Map<String, List<CsdlPropertyRef>> keyMap = new HashMap<>();
+                for (String tableName : dataHandler.getPrimaryKeys().keySet()) {
+                    keyMap.put(tableName, get(tableName));
+                }
+                return keyMap.entrySet();
+            }
+        };
     }
 
     /**
@@ -1627,17 +2185,31 @@ public class ODataAdapter implements ServiceHandler {
 
     /**
      * This method returns Map with table names as key, and contains list of CsdlProperty of tables.
-     * This map is used to initialize the EDMProvider.
+     * This map is used to initialize the EDMProvider, where the properties of a table are created when they are
+     * accessed, and iterating the map reads the metadata of all the tables at once.
      *
      * @return Map
      * @see #initializeEdmProvider(String)
      */
     private Map<String, List<CsdlProperty>> getPropertiesMap() {
-        Map<String, List<CsdlProperty>> propertiesMap = new HashMap<>();
-        for (String tableName : this.dataHandler.getTableList()) {
-            propertiesMap.put(tableName, getProperties(tableName));
-        }
-        return propertiesMap;
+        return new AbstractMap<String, List<CsdlProperty>>() {
+            @Override
+            public List<CsdlProperty> get(Object tableName) {
+                if (!dataHandler.getTableMetadata().containsKey(tableName)) {
+                    return null;
+                }
+                return getProperties((String) tableName);
+            }
+
+            @Override
+            public Set<Entry<String, List<CsdlProperty>>> entrySet() {
+                Map<String, List<CsdlProperty>> propertiesMap = new HashMap<>();
+                for (String tableName : dataHandler.getTableMetadata().keySet()) {
+                    propertiesMap.put(tableName, getProperties(tableName));
+                }
+                return propertiesMap.entrySet();
+            }
+        };
     }
 
     /**
@@ -1864,8 +2436,8 @@ public class ODataAdapter implements ServiceHandler {
      */
     private CsdlEdmProvider initializeEdmProvider(String configID) throws ODataServiceFault {
         return new EDMProvider(this.dataHandler.getTableList(), configID, this.namespace, getPropertiesMap(),
-                               getKeysCsdlMap(), this.dataHandler.getTableList(),
-                               this.dataHandler.getNavigationProperties());
+                               getKeysCsdlMap(), this.dataHandler.getNavigationProperties(),
+                               this.dataHandler.getImportedNavigationProperties());
     }
 
     private void initializeTransactionalConnection() throws ODataServiceFault {
@@ -39,6 +39,42 @@ public interface ODataDataHandler {
      */
     List<ODataEntry> readTable(String tableName) throws ODataServiceFault;
 
+    /**
+     * This method reads the table data, applying the given query options which the data handler supports,
+     * and marks the applied options in the query. The options which are not applied, are applied to the
+     * returned entries by the caller.
+     *
+     * @param tableName Name of the table
+     * @param query     Query options of the request
+     * @return EntityCollection
+     * @throws ODataServiceFault
+     * @see ODataQuery
+     */
+    List<ODataEntry> readTable(String tableName, ODataQuery query) throws ODataServiceFault;
+
+    /**
+     * This method opens a cursor over the entities of the table, which are read while the cursor is iterated, so
+     * they do not have to be held in memory all at once. A cursor is only returned when the data handler can apply
+     * all the filter, ordering and limits of the query, which are then marked as applied in the query.
+     *
+     * @param tableName Name of the table
+     * @param query     Query options of the request
+     * @return Cursor, null if the entities have to be read with readTable
+     * @throws ODataServiceFault
+     */
+    ODataEntryCursor openTableCursor(String tableName, ODataQuery query) throws ODataServiceFault;
+
+    /**
+     * This method counts the entities of the table which match the filter of the query, without reading them.
+     *
+     * @param tableName Name of the table
+     * @param query     Query options of the request
+     * @return Number of entities, null if the data handler cannot apply the filter, so the entities are counted
+     * in memory
+     * @throws ODataServiceFault
+     */
+    Long countTable(String tableName, ODataQuery query) throws ODataServiceFault;
+
     /**
      * This method read the table with Keys and return.
      * Return a list of DataEntry object which has been wrapped the entity.
@@ -51,6 +87,20 @@ public interface ODataDataHandler {
      */
     List<ODataEntry> readTableWithKeys(String tableName, ODataEntry keys) throws ODataServiceFault;
 
+    /**
+     * This method reads the entities of the table which match any of the given key sets, which is used to read
+     * the related entities of several entities at once. All the key sets have the same columns. The data handler
+     * applies the filter of the query if it can, and marks it as applied in the query.
+     *
+     * @param tableName Name of the table
+     * @param keys      Key sets to match
+     * @param query     Query options of the request
+     * @return List of DataEntry
+     * @throws ODataServiceFault
+     */
+    List<ODataEntry> readTableWithKeys(String tableName, List<ODataEntry> keys, ODataQuery query)
+            throws ODataServiceFault;
+
     /**
      * This method inserts entity to table.
      *
@@ -121,6 +171,22 @@ public interface ODataDataHandler {
      */
     Map<String, NavigationTable> getNavigationProperties();
 
+    /**
+     * This method returns the navigation property map in the reverse direction of getNavigationProperties, which
+     * contains the Navigation table of the foreign keys of the table, by the tables they refer to.
+     *
+     * @return NavigationProperty Map
+     */
+    Map<String, NavigationTable> getImportedNavigationProperties();
+
+    /**
+     * This method discards the metadata read from the data source, so the tables and their metadata are read again
+     * when they are next accessed.
+     *
+     * @throws ODataServiceFault
+     */
+    void refreshMetadata() throws ODataServiceFault;
+
     /**
      * This method opens the transaction.
      *
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.dataservices.core.odata;
+
+/**
+ * This interface iterates the entries of a table, which are read from the data source while they are consumed,
+ * instead of all at once. The cursor holds the resources of the read, such as the connection, until it is closed.
+ *
+ * @see ODataDataHandler#openTableCursor(String, ODataQuery)
+ */
+public interface ODataEntryCursor {
+
+    /**
+     * This method reads the next entry.
+     *
+     * @return Next entry, null if there are no more entries
+     * @throws ODataServiceFault
+     */
+    ODataEntry next() throws ODataServiceFault;
+
+    /**
+     * This method releases the resources of the cursor. The cursor is closed when all the entries are read, and
+     * closing it again has no effect.
+     */
+    void close();
+}
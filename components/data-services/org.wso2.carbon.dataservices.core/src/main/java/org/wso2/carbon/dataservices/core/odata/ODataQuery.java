@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.dataservices.core.odata;
+
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The system query options of a request to read an entity set, which a data handler can apply while
+ * reading the table, instead of them being applied to the whole table in memory. The data handler
+ * marks the options it has applied, the adapter applies the rest.
+ *
+ * @see ODataDataHandler#readTable(String, ODataQuery)
+ */
+public class ODataQuery {
+
+    /**
+     * $filter expression.
+     */
+    private Expression filter;
+
+    private boolean filterApplied;
+
+    /**
+     * $orderby items.
+     */
+    private List<OrderByItem> orderBy;
+
+    private boolean orderByApplied;
+
+    /**
+     * $top value, null if not given.
+     */
+    private Integer top;
+
+    /**
+     * $skip value, null if not given.
+     */
+    private Integer skip;
+
+    /**
+     * $skiptoken value, which turns on server side paging, null if not given.
+     */
+    private String skipToken;
+
+    private int pageSize;
+
+    private boolean limitApplied;
+
+    /**
+     * The skip token of the next page, if the data handler has applied the paging.
+     */
+    private String nextSkipToken;
+
+    /**
+     * $select properties, null if all the properties are selected.
+     */
+    private Set<String> selectedProperties;
+
+    public Expression getFilter() {
+        return filter;
+    }
+
+    public void setFilter(Expression filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Checks if the data handler has applied the whole filter, so the entries it has read need not
+     * be filtered again.
+     */
+    public boolean isFilterApplied() {
+        return filterApplied;
+    }
+
+    public void setFilterApplied(boolean filterApplied) {
+        this.filterApplied = filterApplied;
+    }
+
+    public List<OrderByItem> getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(List<OrderByItem> orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public boolean isOrderByApplied() {
+        return orderByApplied;
+    }
+
+    public void setOrderByApplied(boolean orderByApplied) {
+        this.orderByApplied = orderByApplied;
+    }
+
+    public Integer getTop() {
+        return top;
+    }
+
+    public void setTop(Integer top) {
+        this.top = top;
+    }
+
+    public Integer getSkip() {
+        return skip;
+    }
+
+    public void setSkip(Integer skip) {
+        this.skip = skip;
+    }
+
+    public String getSkipToken() {
+        return skipToken;
+    }
+
+    public void setSkipToken(String skipToken) {
+        this.skipToken = skipToken;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Checks if there is a $top, $skip or $skiptoken to apply.
+     */
+    public boolean hasLimit() {
+        return top != null || skip != null || skipToken != null;
+    }
+
+    /**
+     * Checks if the data handler has applied the $top, $skip and $skiptoken, along with the filter and the
+     * ordering they depend on.
+     */
+    public boolean isLimitApplied() {
+        return limitApplied;
+    }
+
+    public void setLimitApplied(boolean limitApplied) {
+        this.limitApplied = limitApplied;
+    }
+
+    public String getNextSkipToken() {
+        return nextSkipToken;
+    }
+
+    public void setNextSkipToken(String nextSkipToken) {
+        this.nextSkipToken = nextSkipToken;
+    }
+
+    public Set<String> getSelectedProperties() {
+        return selectedProperties;
+    }
+
+    /**
+     * Sets the properties to read. The data handler reads the key properties as well, and may leave out the
+     * ETag of the entries, as it covers all the properties.
+     */
+    public void setSelectedProperties(Set<String> selectedProperties) {
+        this.selectedProperties = selectedProperties;
+    }
+
+}
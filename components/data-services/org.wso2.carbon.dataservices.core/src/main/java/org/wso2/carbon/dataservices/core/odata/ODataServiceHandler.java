@@ -18,12 +18,15 @@
 
 package org.wso2.carbon.dataservices.core.odata;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.edmx.EdmxReference;
 import org.apache.olingo.server.core.OData4Impl;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.description.config.Config;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.DispatcherType;
@@ -52,18 +55,87 @@ import java.util.Map;
  * This class pass the OData requests into Olingo ODataHTTPHandler to process.
  */
 public class ODataServiceHandler {
+
+    private static final Log log = LogFactory.getLog(ODataServiceHandler.class);
+
     /**
      * Olingo ODataHTTPHandler
      */
-    private ODataHttpHandler handler;
+    private volatile ODataHttpHandler handler;
+
+    /**
+     * The config of a lazily created handler
+     */
+    private Config config;
+
+    private String namespace;
+
+    /**
+     * The data handler of the created handler, whose metadata is refreshed
+     */
+    private ODataDataHandler dataHandler;
+
+    private String configID;
 
     public ODataServiceHandler(ODataDataHandler dataHandler, String namespace, String configID)
             throws ODataServiceFault {
+        this.dataHandler = dataHandler;
+        this.namespace = namespace;
+        this.configID = configID;
+        this.handler = createHandler(dataHandler, namespace, configID);
+    }
+
+    /**
+     * Creates a handler which reads the metadata of the given config, and initializes the config,
+     * when the first request is processed.
+     *
+     * @param config    Config of the OData service
+     * @param namespace Namespace of the data service
+     */
+    public ODataServiceHandler(Config config, String namespace) {
+        this.config = config;
+        this.namespace = namespace;
+    }
+
+    private static ODataHttpHandler createHandler(ODataDataHandler dataHandler, String namespace, String configID)
+            throws ODataServiceFault {
         ODataAdapter processor = new ODataAdapter(dataHandler, namespace, configID);
         OData odata = OData4Impl.newInstance();
         ServiceMetadata edm = odata.createServiceMetadata(processor.getEdmProvider(), new ArrayList<EdmxReference>());
-        this.handler = odata.createHandler(edm);
-        this.handler.register(processor);
+        ODataHttpHandler handler = odata.createHandler(edm);
+        handler.register(processor);
+        return handler;
+    }
+
+    private ODataHttpHandler getHandler() throws DataServiceFault {
+        if (this.handler == null) {
+            synchronized (this) {
+                /* this second check is necessary, in case another thread already created it */
+                if (this.handler == null) {
+                    this.dataHandler = this.config.createODataHandler();
+                    this.configID = this.config.getConfigId();
+                    this.handler = createHandler(this.dataHandler, this.namespace, this.configID);
+                }
+            }
+        }
+        return this.handler;
+    }
+
+    /**
+     * Discards the metadata of the OData service, such as the tables and the EDM built from them, which are read
+     * again when they are next accessed. This picks up the changes to the database schema, without redeploying the
+     * data service.
+     *
+     * @throws ODataServiceFault
+     */
+    public synchronized void refreshMetadata() throws ODataServiceFault {
+        /* a lazily created handler which is not created yet reads the metadata on the first request */
+        if (this.handler == null) {
+            return;
+        }
+        this.dataHandler.refreshMetadata();
+        /* Olingo caches the EDM elements it reads from the EDM provider, therefore the handler is created again */
+        this.handler = createHandler(this.dataHandler, this.namespace, this.configID);
     }
 
     /**
@@ -74,6 +146,15 @@ public class ODataServiceHandler {
      * @param serviceRootPath Service root Path
      */
     public void process(HttpServletRequest req, HttpServletResponse resp, String serviceRootPath) {
+        ODataHttpHandler handler;
+        try {
+            handler = this.getHandler();
+        } catch (DataServiceFault e) {
+            log.error("Error in initializing the OData service of config '" + this.config.getConfigId() +
+                      "': " + e.getMessage(), e);
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
         handler.process(modifyServletPath(req, serviceRootPath), resp);
     }
 
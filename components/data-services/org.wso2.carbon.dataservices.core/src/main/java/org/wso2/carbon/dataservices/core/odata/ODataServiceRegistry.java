@@ -28,6 +28,7 @@ import org.wso2.carbon.utils.ConfigurationContextService;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class stores the OData Service handlers for services.
@@ -35,9 +36,10 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ODataServiceRegistry {
     private static Log log = LogFactory.getLog(ODataServiceRegistry.class);
 
-    private static ODataServiceRegistry instance;
+    private static volatile ODataServiceRegistry instance;
 
-    private Map<String, ConcurrentHashMap<String, ODataServiceHandler>> registry = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, ODataServiceHandler>> registry =
+            new ConcurrentHashMap<>();
 
     public ODataServiceRegistry() {
         // ignore
@@ -55,10 +57,15 @@ public class ODataServiceRegistry {
     }
 
     public void registerODataService(String dataServiceName, ODataServiceHandler handler, String tenantDomain) {
-        ConcurrentHashMap<String, ODataServiceHandler> oDataServiceHandlerMap = this.registry.get(tenantDomain);
+        ConcurrentMap<String, ODataServiceHandler> oDataServiceHandlerMap = this.registry.get(tenantDomain);
         if (oDataServiceHandlerMap == null) {
+            /* services of a tenant can be registered concurrently */
             oDataServiceHandlerMap = new ConcurrentHashMap<>();
-            this.registry.put(tenantDomain, oDataServiceHandlerMap);
+            ConcurrentMap<String, ODataServiceHandler> existingMap =
+                    this.registry.putIfAbsent(tenantDomain, oDataServiceHandlerMap);
+            if (existingMap != null) {
+                oDataServiceHandlerMap = existingMap;
+            }
         }
         oDataServiceHandlerMap.putIfAbsent(dataServiceName, handler);
     }
@@ -81,14 +88,18 @@ public class ODataServiceRegistry {
                 log.error("ConfigurationContext is not found.", e);
             }
         }
-        if (this.registry.get(tenantDomain) != null) {
-            return this.registry.get(tenantDomain).get(serviceKey);
+        Map<String, ODataServiceHandler> oDataServiceHandlerMap = this.registry.get(tenantDomain);
+        if (oDataServiceHandlerMap != null) {
+            return oDataServiceHandlerMap.get(serviceKey);
         } else {
             return null;
         }
     }
 
     public void removeODataService(String tenantDomain, String serviceName) {
-        this.registry.get(tenantDomain).remove(serviceName);
+        Map<String, ODataServiceHandler> oDataServiceHandlerMap = this.registry.get(tenantDomain);
+        if (oDataServiceHandlerMap != null) {
+            oDataServiceHandlerMap.remove(serviceName);
+        }
     }
 }
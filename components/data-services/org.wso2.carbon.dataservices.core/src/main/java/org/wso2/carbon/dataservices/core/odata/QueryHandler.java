@@ -206,13 +206,44 @@ public class QueryHandler {
         }
     }
 
+    /**
+     * This method sets the next link of a page, which the data handler has read.
+     *
+     * @param entityCollection Entity collection
+     * @param edmEntitySet     EDM entity set
+     * @param rawRequestUri    Request URI (used to construct the next link)
+     * @param rawQueryPath     Query options of the request, which are kept in the next link
+     * @param skipToken        Skip token of the next page
+     * @throws ODataApplicationException
+     */
+    public static void applyNextLink(EntityCollection entityCollection, final EdmEntitySet edmEntitySet,
+                                     final String rawRequestUri, final String rawQueryPath, final String skipToken)
+            throws ODataApplicationException {
+        StringBuilder nextLink = new StringBuilder(rawRequestUri).append('/').append(edmEntitySet.getName())
+                                                                   .append('?');
+        if (rawQueryPath != null) {
+            for (String option : rawQueryPath.split("&")) {
+                if (!option.isEmpty() && !option.startsWith("$skiptoken=") && !option.startsWith("%24skiptoken=")) {
+                    nextLink.append(option).append('&');
+                }
+            }
+        }
+        nextLink.append("$skiptoken=").append(skipToken);
+        try {
+            entityCollection.setNext(new URI(nextLink.toString()));
+        } catch (final URISyntaxException e) {
+            throw new ODataApplicationException("Exception while constructing next link",
+                                                HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+        }
+    }
+
     /**
      * This method returns the page size.
      *
      * @param preferredPageSize Preferred page size
      * @return page size
      */
-    private static int getPageSize(final Integer preferredPageSize) {
+    public static int getPageSize(final Integer preferredPageSize) {
         return preferredPageSize == null ? MAX_PAGE_SIZE : preferredPageSize;
     }
 
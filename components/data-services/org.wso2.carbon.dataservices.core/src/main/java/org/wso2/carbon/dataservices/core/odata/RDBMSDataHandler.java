@@ -26,13 +26,18 @@ import org.wso2.carbon.dataservices.common.DBConstants;
 import org.wso2.carbon.dataservices.core.DBUtils;
 import org.wso2.carbon.dataservices.core.DataServiceFault;
 import org.wso2.carbon.dataservices.core.engine.DataEntry;
+import org.wso2.carbon.dataservices.core.engine.ValueFormatter;
 import org.wso2.carbon.dataservices.core.odata.DataColumn.ODataDataType;
+import org.wso2.carbon.dataservices.core.odata.expression.SQLExpressionVisitor;
+import org.wso2.carbon.dataservices.core.odata.expression.SQLExpressionVisitor.Condition;
+import org.wso2.carbon.dataservices.core.odata.expression.SQLExpressionVisitor.Parameter;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.io.StringReader;
 import java.math.BigDecimal;
 import java.sql.Blob;
@@ -47,11 +52,28 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.ParseException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class implements RDBMS datasource related operations for ODataDataHandler.
@@ -60,17 +82,51 @@ import java.util.Map;
  */
 public class RDBMSDataHandler implements ODataDataHandler {
     private static final Log log = LogFactory.getLog(RDBMSDataHandler.class);
+
+    private static final String KEYSET_SKIP_TOKEN_PREFIX = "k";
+
+    /**
+     * Maximum number of key sets matched by a single query, when reading the entities of several key sets.
+     */
+    private static final int KEY_SET_BATCH_SIZE = 500;
+    /**
+     * Number of threads which read the metadata of the tables in parallel, each using its own connection.
+     */
+    private static final int METADATA_THREAD_COUNT = Math.max(1, Integer.getInteger(
+            "dss.odata.metadata.threads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    /**
+     * Metadata of the tables, which is read when a table is first accessed.
+     */
+    private final ConcurrentMap<String, TableMetadata> metadataCache = new ConcurrentHashMap<>();
+
     /**
      * Table metadata.
      */
-    private Map<String, Map<String, Integer>> rdbmsDataTypes;
+    private final Map<String, Map<String, Integer>> rdbmsDataTypes = new TableMetadataView<Map<String, Integer>>() {
+        @Override
+        protected Map<String, Integer> select(TableMetadata metadata) {
+            return metadata.dataTypes;
+        }
+    };
 
-    private Map<String, Map<String, DataColumn>> tableMetaData;
+    private final Map<String, Map<String, DataColumn>> tableMetaData =
+            new TableMetadataView<Map<String, DataColumn>>() {
+                @Override
+                protected Map<String, DataColumn> select(TableMetadata metadata) {
+                    return metadata.columns;
+                }
+            };
 
     /**
      * Primary Keys of the Tables (Map<Table Name, List>).
      */
-    private Map<String, List<String>> primaryKeys;
+    private final Map<String, List<String>> primaryKeys = new TableMetadataView<List<String>>() {
+        @Override
+        protected List<String> select(TableMetadata metadata) {
+            return metadata.primaryKeys;
+        }
+    };
 
     /**
      * Config ID.
@@ -85,7 +141,9 @@ public class RDBMSDataHandler implements ODataDataHandler {
     /**
      * List of Tables in the Database.
      */
-    private List<String> tableList;
+    private volatile List<String> tableList;
+
+    private volatile Set<String> tableSet;
 
     private ThreadLocal<Connection> transactionalConnection = new ThreadLocal<Connection>() {
         protected synchronized Connection initialValue() {
@@ -99,14 +157,33 @@ public class RDBMSDataHandler implements ODataDataHandler {
     /**
      * Navigation properties map <Target Table Name, Map<Source Table Name, List<String>).
      */
-    private Map<String, NavigationTable> navigationProperties;
+    private final Map<String, NavigationTable> navigationProperties = new TableMetadataView<NavigationTable>() {
+        @Override
+        protected NavigationTable select(TableMetadata metadata) {
+            return metadata.exportedKeys;
+        }
+    };
+
+    /**
+     * Navigation properties map in the reverse direction <Source Table Name, Map<Target Table Name, List<String>).
+     */
+    private final Map<String, NavigationTable> importedNavigationProperties =
+            new TableMetadataView<NavigationTable>() {
+                @Override
+                protected NavigationTable select(TableMetadata metadata) {
+                    return metadata.importedKeys;
+                }
+            };
+
+    /**
+     * SQL dialect of the database, which the query options are translated to.
+     */
+    private RDBMSDialect dialect;
 
     public RDBMSDataHandler(DataSource dataSource, String configId) throws ODataServiceFault {
         this.dataSource = dataSource;
-        this.tableList = generateTableList();
         this.configID = configId;
-        this.rdbmsDataTypes = new HashMap<>(this.tableList.size());
-        initializeMetaData();
+        setTableList(generateTableList());
     }
 
     @Override
@@ -114,6 +191,22 @@ public class RDBMSDataHandler implements ODataDataHandler {
         return this.navigationProperties;
     }
 
+    @Override
+    public Map<String, NavigationTable> getImportedNavigationProperties() {
+        return this.importedNavigationProperties;
+    }
+
+    @Override
+    public void refreshMetadata() throws ODataServiceFault {
+        setTableList(generateTableList());
+        this.metadataCache.clear();
+    }
+
+    private void setTableList(List<String> tableList) {
+        this.tableSet = new HashSet<>(tableList);
+        this.tableList = tableList;
+    }
+
     @Override
     public void openTransaction() throws ODataServiceFault {
         try {
@@ -378,6 +471,528 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    @Override
+    public List<ODataEntry> readTable(String tableName, ODataQuery query) throws ODataServiceFault {
+        TableRead read = createTableRead(tableName, query);
+        if (read.sql == null) {
+            return readTable(tableName);
+        }
+        Page page = read.page;
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            statement = connection.prepareStatement(read.sql);
+            int index = 1;
+            for (Parameter parameter : read.parameters) {
+                bindValuesToPreparedStatement(parameter.getSqlType(), parameter.getValue(), index, statement);
+                index++;
+            }
+            resultSet = statement.executeQuery();
+            List<ODataEntry> entries;
+            if (read.columns == null) {
+                entries = createDataEntryCollectionFromRS(tableName, resultSet);
+            } else {
+                entries = createDataEntryCollectionFromRS(tableName, resultSet, read.columns, false);
+            }
+            if (page != null && page.pageSize > 0 && entries.size() > page.pageSize) {
+                /* one more row than the page size is read, to find out if there is a next page */
+                while (entries.size() > page.pageSize) {
+                    entries.remove(entries.size() - 1);
+                }
+                if (page.keyset) {
+                    query.setNextSkipToken(createKeysetSkipToken(tableName, entries.get(entries.size() - 1)));
+                } else {
+                    query.setNextSkipToken(String.valueOf(page.number + 1));
+                }
+            }
+            query.setFilterApplied(read.filterApplied);
+            query.setOrderByApplied(read.orderByApplied);
+            query.setLimitApplied(page != null);
+            return entries;
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :" +
+                                           e.getMessage());
+        } finally {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+        }
+    }
+
+    @Override
+    public ODataEntryCursor openTableCursor(String tableName, ODataQuery query) throws ODataServiceFault {
+        /* a batch request shares its connection between the operations, which cannot be held by an open cursor */
+        if (getTransactionalConnection() != null) {
+            return null;
+        }
+        TableRead read = createTableRead(tableName, query);
+        /* the rows of a server side page are counted to find the next page, therefore a page is read fully */
+        if (!read.filterApplied || !read.orderByApplied || (query.hasLimit() && read.page == null) ||
+            (read.page != null && read.page.pageSize > 0)) {
+            return null;
+        }
+        String sql = read.sql == null ? "SELECT * FROM " + tableName : read.sql;
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(this.dialect.getCursorFetchSize());
+            int index = 1;
+            for (Parameter parameter : read.parameters) {
+                bindValuesToPreparedStatement(parameter.getSqlType(), parameter.getValue(), index, statement);
+                index++;
+            }
+            resultSet = statement.executeQuery();
+            query.setFilterApplied(true);
+            query.setOrderByApplied(true);
+            query.setLimitApplied(read.page != null);
+            Collection<String> columns = read.columns == null ? this.rdbmsDataTypes.get(tableName).keySet() :
+                                         read.columns;
+            return new ResultSetCursor(tableName, connection, statement, resultSet, columns, read.columns == null);
+        } catch (SQLException | ParseException e) {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :" +
+                                           e.getMessage());
+        }
+    }
+
+    /**
+     * This method translates the query options of a table read to SQL, as far as they can be applied by the
+     * database.
+     *
+     * @param tableName Name of the table
+     * @param query     Query options
+     * @return TableRead, whose SQL is null when the whole table has to be read
+     */
+    private TableRead createTableRead(String tableName, ODataQuery query) {
+        Map<String, Integer> columnTypes = this.rdbmsDataTypes.get(tableName);
+        List<String> conditions = new ArrayList<>();
+        List<Parameter> parameters = new ArrayList<>();
+        boolean filterApplied = true;
+        if (query.getFilter() != null) {
+            Condition condition = SQLExpressionVisitor.translateFilter(query.getFilter(), columnTypes, this.dialect);
+            filterApplied = condition.isComplete();
+            if (condition.getSql() != null) {
+                conditions.add(condition.getSql());
+                parameters.addAll(condition.getParameters());
+            }
+        }
+        List<String> orderBy = new ArrayList<>();
+        boolean orderByApplied = true;
+        if (query.getOrderBy() != null && !query.getOrderBy().isEmpty()) {
+            List<String> orderByItems = SQLExpressionVisitor.translateOrderBy(query.getOrderBy(), columnTypes,
+                                                                              this.dialect);
+            orderByApplied = orderByItems != null;
+            if (orderByApplied) {
+                orderBy.addAll(orderByItems);
+            }
+        }
+        /* the rows can only be limited in SQL, if they are filtered and ordered in SQL */
+        Page page = null;
+        if (query.hasLimit() && filterApplied && orderByApplied) {
+            page = createPage(tableName, query, orderBy.isEmpty());
+        }
+        if (page != null) {
+            if (page.afterKeys != null) {
+                conditions.add(createKeysetCondition(tableName, page.afterKeys, parameters));
+            }
+            /* the primary keys make the order of the rows unique, so the pages do not overlap */
+            List<String> keys = this.primaryKeys.get(tableName);
+            if (keys != null) {
+                for (String key : keys) {
+                    if (!containsOrderByColumn(orderBy, key)) {
+                        orderBy.add(key + " ASC");
+                    }
+                }
+            }
+        }
+        /* the columns which are not selected are needed, if the filter or the ordering is applied in memory */
+        List<String> columns = null;
+        if (query.getSelectedProperties() != null && filterApplied && orderByApplied) {
+            columns = getProjectedColumns(tableName, query.getSelectedProperties());
+        }
+        TableRead read = new TableRead();
+        read.filterApplied = filterApplied;
+        read.orderByApplied = orderByApplied;
+        read.page = page;
+        read.columns = columns;
+        read.parameters = parameters;
+        if (conditions.isEmpty() && orderBy.isEmpty() && page == null && columns == null) {
+            return read;
+        }
+        StringBuilder sql = new StringBuilder();
+        if (columns == null) {
+            sql.append("SELECT *");
+        } else {
+            appendClause(sql, "SELECT ", ", ", columns);
+        }
+        sql.append(" FROM ").append(tableName);
+        appendClause(sql, " WHERE ", " AND ", conditions);
+        if (orderBy.isEmpty() && page != null && this.dialect.isOrderByRequiredForLimit()) {
+            sql.append(" ORDER BY (SELECT NULL)");
+        } else {
+            appendClause(sql, " ORDER BY ", ", ", orderBy);
+        }
+        if (page != null) {
+            sql.append(this.dialect.getLimitClause(page.offset, page.limit));
+        }
+        read.sql = sql.toString();
+        return read;
+    }
+
+    @Override
+    public Long countTable(String tableName, ODataQuery query) throws ODataServiceFault {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(tableName);
+        List<Parameter> parameters = new ArrayList<>();
+        if (query.getFilter() != null) {
+            Condition condition = SQLExpressionVisitor.translateFilter(query.getFilter(),
+                                                                       this.rdbmsDataTypes.get(tableName),
+                                                                       this.dialect);
+            if (!condition.isComplete()) {
+                return null;
+            }
+            sql.append(" WHERE ").append(condition.getSql());
+            parameters.addAll(condition.getParameters());
+        }
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            statement = connection.prepareStatement(sql.toString());
+            int index = 1;
+            for (Parameter parameter : parameters) {
+                bindValuesToPreparedStatement(parameter.getSqlType(), parameter.getValue(), index, statement);
+                index++;
+            }
+            resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while counting entities in " + tableName + " table. :" +
+                                           e.getMessage());
+        } finally {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+        }
+    }
+
+    /**
+     * This method works out the rows to read for the $top, $skip and $skiptoken of the query. A skip token is
+     * either a page number, or the primary key values of the last entity of the previous page, where the next
+     * page is read from the primary key index, instead of skipping all the preceding rows. Key set paging is
+     * used when the entities are ordered by the primary keys, i.e. there is no $orderby, $top or $skip.
+     *
+     * @param tableName     Name of the table
+     * @param query         Query options
+     * @param orderedByKeys Whether there is no $orderby
+     * @return Page, null if the skip token is not valid, so the limits are applied in memory
+     */
+    private Page createPage(String tableName, ODataQuery query, boolean orderedByKeys) {
+        if ((query.getSkip() != null && query.getSkip() < 0) || (query.getTop() != null && query.getTop() < 0)) {
+            return null;
+        }
+        Page page = new Page();
+        page.offset = query.getSkip() == null ? 0 : query.getSkip();
+        page.limit = query.getTop() == null ? -1 : query.getTop();
+        String skipToken = query.getSkipToken();
+        if (skipToken == null) {
+            return page;
+        }
+        page.pageSize = query.getPageSize();
+        if (page.pageSize <= 0) {
+            return null;
+        }
+        page.keyset = orderedByKeys && query.getTop() == null && query.getSkip() == null &&
+                      isKeysetPageable(tableName);
+        if (skipToken.startsWith(KEYSET_SKIP_TOKEN_PREFIX)) {
+            if (!page.keyset) {
+                return null;
+            }
+            page.afterKeys = parseKeysetSkipToken(tableName, skipToken);
+            if (page.afterKeys == null) {
+                return null;
+            }
+        } else {
+            try {
+                page.number = Integer.parseInt(skipToken);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (page.number < 0) {
+                return null;
+            }
+            long skipped = (long) page.number * page.pageSize;
+            page.offset += skipped;
+            if (page.limit >= 0) {
+                page.limit = Math.max(page.limit - skipped, 0);
+            }
+        }
+        page.limit = page.limit >= 0 ? Math.min(page.limit, page.pageSize + 1L) : page.pageSize + 1L;
+        return page;
+    }
+
+    private boolean isKeysetPageable(String tableName) {
+        List<String> keys = this.primaryKeys.get(tableName);
+        if (keys == null || keys.isEmpty()) {
+            return false;
+        }
+        for (String key : keys) {
+            Integer type = this.rdbmsDataTypes.get(tableName).get(key);
+            if (type == null || !SQLExpressionVisitor.isComparableType(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method creates the condition which selects the rows after the given primary key values, in the order
+     * of the primary keys, e.g. (k1 > ? OR (k1 = ? AND k2 > ?)).
+     */
+    private String createKeysetCondition(String tableName, List<String> afterKeys, List<Parameter> parameters) {
+        List<String> keys = this.primaryKeys.get(tableName);
+        Map<String, Integer> columnTypes = this.rdbmsDataTypes.get(tableName);
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append('(');
+            for (int j = 0; j < i; j++) {
+                condition.append(keys.get(j)).append(" = ? AND ");
+                parameters.add(new Parameter(afterKeys.get(j), columnTypes.get(keys.get(j))));
+            }
+            condition.append(keys.get(i)).append(" > ?)");
+            parameters.add(new Parameter(afterKeys.get(i), columnTypes.get(keys.get(i))));
+        }
+        return condition.append(')').toString();
+    }
+
+    private String createKeysetSkipToken(String tableName, ODataEntry lastEntry) throws ODataServiceFault {
+        StringBuilder token = new StringBuilder(KEYSET_SKIP_TOKEN_PREFIX);
+        boolean first = true;
+        for (String key : this.primaryKeys.get(tableName)) {
+            if (!first) {
+                token.append('.');
+            }
+            first = false;
+            try {
+                byte[] value = lastEntry.getValue(key).getBytes(DBConstants.DEFAULT_CHAR_SET_TYPE);
+                token.append(Base64.encodeBase64URLSafeString(value));
+            } catch (UnsupportedEncodingException e) {
+                throw new ODataServiceFault(e, "Error in creating the skip token. :" + e.getMessage());
+            }
+        }
+        return token.toString();
+    }
+
+    private List<String> parseKeysetSkipToken(String tableName, String skipToken) {
+        String[] values = skipToken.substring(KEYSET_SKIP_TOKEN_PREFIX.length()).split("\\.", -1);
+        if (values.length != this.primaryKeys.get(tableName).size()) {
+            return null;
+        }
+        List<String> keys = new ArrayList<>(values.length);
+        for (String value : values) {
+            if (value.isEmpty() || !Base64.isBase64(value)) {
+                return null;
+            }
+            try {
+                keys.add(new String(Base64.decodeBase64(value), DBConstants.DEFAULT_CHAR_SET_TYPE));
+            } catch (UnsupportedEncodingException e) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * This method returns the columns to read for the selected properties, which include the primary keys.
+     *
+     * @param tableName          Name of the table
+     * @param selectedProperties Selected properties
+     * @return Columns to read
+     */
+    private List<String> getProjectedColumns(String tableName, Set<String> selectedProperties) {
+        Set<String> columns = new LinkedHashSet<>();
+        List<String> keys = this.primaryKeys.get(tableName);
+        if (keys != null) {
+            columns.addAll(keys);
+        }
+        for (String column : this.rdbmsDataTypes.get(tableName).keySet()) {
+            if (selectedProperties.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return new ArrayList<>(columns);
+    }
+
+    private boolean containsOrderByColumn(List<String> orderBy, String column) {
+        for (String item : orderBy) {
+            if (item.startsWith(column + " ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendClause(StringBuilder sql, String keyword, String separator, List<String> items) {
+        for (int i = 0; i < items.size(); i++) {
+            sql.append(i == 0 ? keyword : separator).append(items.get(i));
+        }
+    }
+
+    /**
+     * The rows of a table to read for a page.
+     */
+    private static class Page {
+        long offset;
+        /* -1 if not limited */
+        long limit;
+        /* page size of server side paging, 0 if not paged */
+        int pageSize;
+        int number;
+        boolean keyset;
+        /* primary key values of the last entity of the previous page */
+        List<String> afterKeys;
+    }
+
+    /**
+     * The metadata of a table.
+     */
+    private static class TableMetadata {
+        Map<String, DataColumn> columns;
+        Map<String, Integer> dataTypes;
+        List<String> primaryKeys;
+        NavigationTable exportedKeys;
+        NavigationTable importedKeys;
+    }
+
+    /**
+     * A view of a part of the metadata of the tables, which reads the metadata of a table when it is first accessed.
+     * Iterating the view reads the metadata of all the tables which are not read yet, in parallel.
+     */
+    private abstract class TableMetadataView<V> extends AbstractMap<String, V> {
+
+        protected abstract V select(TableMetadata metadata);
+
+        @Override
+        public V get(Object tableName) {
+            if (!containsKey(tableName)) {
+                return null;
+            }
+            try {
+                return select(getCachedTableMetadata((String) tableName));
+            } catch (ODataServiceFault e) {
+                log.error(e.getMessage(), e);
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object tableName) {
+            return tableSet.contains(tableName);
+        }
+
+        @Override
+        public int size() {
+            return tableList.size();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            List<String> tables = tableList;
+            try {
+                readAllTableMetadata(tables);
+            } catch (ODataServiceFault e) {
+                log.error(e.getMessage(), e);
+                throw new RuntimeException(e.getMessage(), e);
+            }
+            Map<String, V> entries = new LinkedHashMap<>();
+            for (String tableName : tables) {
+                TableMetadata metadata = metadataCache.get(tableName);
+                if (metadata != null) {
+                    entries.put(tableName, select(metadata));
+                }
+            }
+            return Collections.unmodifiableMap(entries).entrySet();
+        }
+    }
+
+    /**
+     * The SQL of a table read, and the query options it applies.
+     */
+    private static class TableRead {
+        String sql;
+        List<Parameter> parameters;
+        /* null if all the columns are read */
+        List<String> columns;
+        Page page;
+        boolean filterApplied;
+        boolean orderByApplied;
+    }
+
+    /**
+     * Cursor over the rows of a result set, which holds the connection until it is closed.
+     */
+    private class ResultSetCursor implements ODataEntryCursor {
+
+        private final String tableName;
+
+        private final Connection connection;
+
+        private final Statement statement;
+
+        private final ResultSet resultSet;
+
+        private final Collection<String> columns;
+
+        private final boolean withETag;
+
+        private boolean closed;
+
+        ResultSetCursor(String tableName, Connection connection, Statement statement, ResultSet resultSet,
+                        Collection<String> columns, boolean withETag) {
+            this.tableName = tableName;
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.columns = columns;
+            this.withETag = withETag;
+        }
+
+        @Override
+        public ODataEntry next() throws ODataServiceFault {
+            if (this.closed) {
+                return null;
+            }
+            try {
+                if (!this.resultSet.next()) {
+                    close();
+                    return null;
+                }
+                return createDataEntryFromRS(this.tableName, this.resultSet, this.columns, this.withETag);
+            } catch (SQLException e) {
+                close();
+                throw new ODataServiceFault(e, "Error occurred while reading entities from " + this.tableName +
+                                               " table. :" + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                releaseResources(this.resultSet, this.statement);
+                releaseConnection(this.connection);
+            }
+        }
+    }
+
     @Override
     public List<String> getTableList() {
         return this.tableList;
@@ -389,15 +1004,11 @@ public class RDBMSDataHandler implements ODataDataHandler {
     }
 
     private String convertToTimeString(Time sqlTime) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTimeInMillis(sqlTime.getTime());
-        return new org.apache.axis2.databinding.types.Time(cal).toString();
+        return ValueFormatter.formatTime(sqlTime.getTime());
     }
 
     private String convertToTimestampString(Timestamp sqlTimestamp) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTimeInMillis(sqlTimestamp.getTime());
-        return ConverterUtil.convertToString(cal);
+        return ValueFormatter.formatTimestamp(sqlTimestamp.getTime());
     }
 
     @Override
@@ -460,6 +1071,60 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    @Override
+    public List<ODataEntry> readTableWithKeys(String tableName, List<ODataEntry> keys, ODataQuery query)
+            throws ODataServiceFault {
+        List<ODataEntry> entries = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return entries;
+        }
+        Map<String, Integer> columnTypes = this.rdbmsDataTypes.get(tableName);
+        List<String> keyColumns = new ArrayList<>(keys.get(0).getNames());
+        Condition condition = null;
+        if (query.getFilter() != null) {
+            condition = SQLExpressionVisitor.translateFilter(query.getFilter(), columnTypes, this.dialect);
+        }
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            for (int start = 0; start < keys.size(); start += KEY_SET_BATCH_SIZE) {
+                List<ODataEntry> batch = keys.subList(start, Math.min(start + KEY_SET_BATCH_SIZE, keys.size()));
+                statement = connection.prepareStatement(createReadSqlWithKeySets(tableName, keyColumns,
+                                                                                 batch.size(), condition));
+                int index = 1;
+                for (ODataEntry keySet : batch) {
+                    for (String column : keyColumns) {
+                        bindValuesToPreparedStatement(columnTypes.get(column), keySet.getValue(column), index,
+                                                      statement);
+                        index++;
+                    }
+                }
+                if (condition != null && condition.getSql() != null) {
+                    for (Parameter parameter : condition.getParameters()) {
+                        bindValuesToPreparedStatement(parameter.getSqlType(), parameter.getValue(), index,
+                                                      statement);
+                        index++;
+                    }
+                }
+                resultSet = statement.executeQuery();
+                entries.addAll(createDataEntryCollectionFromRS(tableName, resultSet));
+                releaseResources(resultSet, statement);
+                resultSet = null;
+                statement = null;
+            }
+            query.setFilterApplied(condition == null || condition.isComplete());
+            return entries;
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :" +
+                                           e.getMessage());
+        } finally {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+        }
+    }
+
     /**
      * This method bind values to prepared statement.
      *
@@ -759,15 +1424,6 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
-    private void addDataType(String tableName, String columnName, int dataType) {
-        Map<String, Integer> tableMap = this.rdbmsDataTypes.get(tableName);
-        if (tableMap == null) {
-            tableMap = new HashMap<>();
-            this.rdbmsDataTypes.put(tableName, tableMap);
-        }
-        tableMap.put(columnName, dataType);
-    }
-
     /**
      * This method wraps result set data in to DataEntry and creates a list of DataEntry.
      *
@@ -779,20 +1435,28 @@ public class RDBMSDataHandler implements ODataDataHandler {
      */
     private List<ODataEntry> createDataEntryCollectionFromRS(String tableName, ResultSet resultSet)
             throws ODataServiceFault {
+        return createDataEntryCollectionFromRS(tableName, resultSet, this.rdbmsDataTypes.get(tableName).keySet(),
+                                               true);
+    }
+
+    /**
+     * This method wraps the given columns of the result set data in to DataEntry and creates a list of DataEntry.
+     * The ETag is a digest of all the columns, therefore it is left out when some of the columns are not read.
+     *
+     * @param tableName Name of the table
+     * @param resultSet Result set
+     * @param columns   Columns to read
+     * @param withETag  Whether to set the ETag of the entries
+     * @return List of DataEntry
+     * @throws ODataServiceFault
+     */
+    private List<ODataEntry> createDataEntryCollectionFromRS(String tableName, ResultSet resultSet,
+                                                             Collection<String> columns, boolean withETag)
+            throws ODataServiceFault {
         List<ODataEntry> entitySet = new ArrayList<>();
         try {
-            String paramValue;
             while (resultSet.next()) {
-                ODataEntry entry = new ODataEntry();
-                //Creating a unique string to represent the
-                for (String column : this.rdbmsDataTypes.get(tableName).keySet()) {
-                    int columnType = this.rdbmsDataTypes.get(tableName).get(column);
-                    paramValue = getValueFromResultSet(columnType, column, resultSet);
-                    entry.addValue(column, paramValue);
-                }
-                //Set Etag to the entity
-                entry.addValue("ETag", ODataUtils.generateETag(this.configID, tableName, entry));
-                entitySet.add(entry);
+                entitySet.add(createDataEntryFromRS(tableName, resultSet, columns, withETag));
             }
             return entitySet;
         } catch (SQLException e) {
@@ -800,6 +1464,31 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    /**
+     * This method wraps the given columns of the current row of the result set in to DataEntry.
+     *
+     * @param tableName Name of the table
+     * @param resultSet Result set
+     * @param columns   Columns to read
+     * @param withETag  Whether to set the ETag of the entry
+     * @return DataEntry
+     * @throws SQLException
+     * @throws ODataServiceFault
+     */
+    private ODataEntry createDataEntryFromRS(String tableName, ResultSet resultSet, Collection<String> columns,
+                                             boolean withETag) throws SQLException, ODataServiceFault {
+        ODataEntry entry = new ODataEntry();
+        for (String column : columns) {
+            int columnType = this.rdbmsDataTypes.get(tableName).get(column);
+            entry.addValue(column, getValueFromResultSet(columnType, column, resultSet));
+        }
+        if (withETag) {
+            //Set Etag to the entity
+            entry.addValue("ETag", ODataUtils.generateETag(this.configID, tableName, entry));
+        }
+        return entry;
+    }
+
     private String getValueFromResultSet(int columnType, String column, ResultSet resultSet) throws SQLException {
         String paramValue;
         switch (columnType) {
@@ -962,8 +1651,8 @@ public class RDBMSDataHandler implements ODataDataHandler {
      * @return table MetaData
      * @throws ODataServiceFault
      */
-    private Map<String, DataColumn> readTableColumnMetaData(String tableName, DatabaseMetaData meta)
-            throws ODataServiceFault {
+    private Map<String, DataColumn> readTableColumnMetaData(String tableName, DatabaseMetaData meta,
+                                                            Map<String, Integer> dataTypes) throws ODataServiceFault {
         ResultSet resultSet = null;
         Map<String, DataColumn> columnMap = new HashMap<>();
         try {
@@ -992,7 +1681,7 @@ public class RDBMSDataHandler implements ODataDataHandler {
                     }
                 }
                 columnMap.put(columnName, column);
-                addDataType(tableName, columnName, columnType);
+                dataTypes.put(columnName, columnType);
                 i++;
             }
             return columnMap;
@@ -1005,23 +1694,114 @@ public class RDBMSDataHandler implements ODataDataHandler {
     }
 
     /**
-     * This method initializes metadata.
+     * This method returns the metadata of a table, which is read from the database on the first access.
+     *
+     * @param tableName Name of the table
+     * @return Table metadata
+     * @throws ODataServiceFault
+     */
+    private TableMetadata getCachedTableMetadata(String tableName) throws ODataServiceFault {
+        TableMetadata metadata = this.metadataCache.get(tableName);
+        if (metadata == null) {
+            Connection connection = null;
+            try {
+                connection = initializeConnection();
+                metadata = readTableMetadata(tableName, connection.getMetaData(), connection.getCatalog());
+            } catch (SQLException e) {
+                throw new ODataServiceFault(e, "Error in reading " + tableName + " table meta data. :" +
+                                               e.getMessage());
+            } finally {
+                releaseConnection(connection);
+            }
+            TableMetadata existingMetadata = this.metadataCache.putIfAbsent(tableName, metadata);
+            if (existingMetadata != null) {
+                metadata = existingMetadata;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * This method reads the metadata of all the given tables which are not read yet. The tables are shared between
+     * a few threads, each reading the tables one by one using its own connection, so a large schema is read in a
+     * fraction of the time, without taking many connections from the pool.
      *
+     * @param tables Names of the tables
      * @throws ODataServiceFault
      */
-    private void initializeMetaData() throws ODataServiceFault {
-        this.tableMetaData = new HashMap<>();
-        this.primaryKeys = new HashMap<>();
-        this.navigationProperties = new HashMap<>();
+    private void readAllTableMetadata(List<String> tables) throws ODataServiceFault {
+        final Queue<String> pendingTables = new ConcurrentLinkedQueue<>();
+        for (String tableName : tables) {
+            if (!this.metadataCache.containsKey(tableName)) {
+                pendingTables.add(tableName);
+            }
+        }
+        int threadCount = Math.min(METADATA_THREAD_COUNT, pendingTables.size());
+        if (threadCount <= 1) {
+            readPendingTableMetadata(pendingTables);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dss-odata-metadata-" + configID + "-" +
+                                                     this.threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Void>> results = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws ODataServiceFault {
+                        readPendingTableMetadata(pendingTables);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ODataServiceFault) {
+                throw (ODataServiceFault) e.getCause();
+            }
+            throw new ODataServiceFault(e, "Error in reading tables from the database. :" +
+                                           e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ODataServiceFault(e, "Interrupted while reading tables from the database.");
+        } finally {
+            executor.shutdownNow();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Read the metadata of " + tables.size() + " tables of config '" + this.configID + "' using " +
+                      threadCount + " threads");
+        }
+    }
+
+    /**
+     * This method reads the metadata of the tables taken from the given queue, until it is empty, using a single
+     * connection.
+     *
+     * @param pendingTables Names of the tables to read
+     * @throws ODataServiceFault
+     */
+    private void readPendingTableMetadata(Queue<String> pendingTables) throws ODataServiceFault {
         Connection connection = null;
         try {
             connection = initializeConnection();
             DatabaseMetaData metadata = connection.getMetaData();
             String catalog = connection.getCatalog();
-            for (String tableName : this.tableList) {
-                this.tableMetaData.put(tableName, readTableColumnMetaData(tableName, metadata));
-                this.navigationProperties.put(tableName, readForeignKeys(tableName, metadata, catalog));
-                this.primaryKeys.put(tableName, readTablePrimaryKeys(tableName, metadata, catalog));
+            String tableName;
+            while ((tableName = pendingTables.poll()) != null) {
+                if (!this.metadataCache.containsKey(tableName)) {
+                    this.metadataCache.putIfAbsent(tableName, readTableMetadata(tableName, metadata, catalog));
+                }
             }
         } catch (SQLException e) {
             throw new ODataServiceFault(e, "Error in reading tables from the database. :" + e.getMessage());
@@ -1030,6 +1810,26 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    /**
+     * This method reads the columns, primary keys and foreign keys of a table.
+     *
+     * @param tableName Name of the table
+     * @param metadata  Database metadata
+     * @param catalog   Catalog of the connection
+     * @return Table metadata
+     * @throws ODataServiceFault
+     */
+    private TableMetadata readTableMetadata(String tableName, DatabaseMetaData metadata, String catalog)
+            throws ODataServiceFault {
+        TableMetadata tableMetadata = new TableMetadata();
+        tableMetadata.dataTypes = new HashMap<>();
+        tableMetadata.columns = readTableColumnMetaData(tableName, metadata, tableMetadata.dataTypes);
+        tableMetadata.exportedKeys = readForeignKeys(tableName, metadata, catalog);
+        tableMetadata.importedKeys = readImportedKeys(tableName, metadata, catalog);
+        tableMetadata.primaryKeys = readTablePrimaryKeys(tableName, metadata, catalog);
+        return tableMetadata;
+    }
+
     /**
      * This method creates a list of tables available in the DB.
      *
@@ -1043,6 +1843,7 @@ public class RDBMSDataHandler implements ODataDataHandler {
         try {
             connection = initializeConnection();
             DatabaseMetaData meta = connection.getMetaData();
+            this.dialect = RDBMSDialect.getDialect(meta.getDatabaseProductName());
             rs = meta.getTables(null, null, null, new String[] { "TABLE" });
             while (rs.next()) {
                 String tableName = rs.getString("TABLE_NAME");
@@ -1115,6 +1916,37 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    /**
+     * This method reads the imported keys of the table, i.e. its foreign keys by the tables they refer to.
+     *
+     * @param tableName Name of the table
+     * @throws ODataServiceFault
+     */
+    private NavigationTable readImportedKeys(String tableName, DatabaseMetaData metaData, String catalog)
+            throws ODataServiceFault {
+        ResultSet resultSet = null;
+        try {
+            resultSet = metaData.getImportedKeys(catalog, null, tableName);
+            NavigationTable navigationLinks = new NavigationTable();
+            while (resultSet.next()) {
+                String primaryKeyTableName = resultSet.getString("PKTABLE_NAME");
+                String primaryKeyColumnName = resultSet.getString("PKCOLUMN_NAME");
+                String foreignKeyColumnName = resultSet.getString("FKCOLUMN_NAME");
+                List<NavigationKeys> columnList = navigationLinks.getNavigationKeys(primaryKeyTableName);
+                if (columnList == null) {
+                    columnList = new ArrayList<>();
+                    navigationLinks.addNavigationKeys(primaryKeyTableName, columnList);
+                }
+                columnList.add(new NavigationKeys(primaryKeyColumnName, foreignKeyColumnName));
+            }
+            return navigationLinks;
+        } catch (SQLException e) {
+            throw new ODataServiceFault(e, "Error in reading " + tableName + " table meta data. :" + e.getMessage());
+        } finally {
+            releaseResources(resultSet, null);
+        }
+    }
+
     @Override
     public Map<String, Map<String, DataColumn>> getTableMetadata() {
         return this.tableMetaData;
@@ -1211,6 +2043,52 @@ public class RDBMSDataHandler implements ODataDataHandler {
         return sql.toString();
     }
 
+    /**
+     * This method creates SQL query to read the rows which match any of the given number of key sets, and the
+     * filter condition if given. A single key column is matched with IN, and composite keys with OR.
+     *
+     * @param tableName   Name of the table
+     * @param keyColumns  Key columns
+     * @param keySetCount Number of key sets
+     * @param condition   Filter condition, can be null
+     * @return sql Query
+     */
+    private String createReadSqlWithKeySets(String tableName, List<String> keyColumns, int keySetCount,
+                                            Condition condition) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT * FROM ").append(tableName).append(" WHERE ");
+        if (keyColumns.size() == 1) {
+            sql.append(keyColumns.get(0)).append(" IN (");
+            for (int i = 0; i < keySetCount; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append('?');
+            }
+            sql.append(')');
+        } else {
+            sql.append('(');
+            for (int i = 0; i < keySetCount; i++) {
+                if (i > 0) {
+                    sql.append(" OR ");
+                }
+                sql.append('(');
+                for (int j = 0; j < keyColumns.size(); j++) {
+                    if (j > 0) {
+                        sql.append(" AND ");
+                    }
+                    sql.append(keyColumns.get(j)).append(" = ?");
+                }
+                sql.append(')');
+            }
+            sql.append(')');
+        }
+        if (condition != null && condition.getSql() != null) {
+            sql.append(" AND (").append(condition.getSql()).append(')');
+        }
+        return sql.toString();
+    }
+
     /**
      * This method creates SQL query to delete data.
      *
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.dataservices.core.odata;
+
+import java.util.Locale;
+
+/**
+ * The SQL dialects of the databases which OData queries are translated to. The functions are given
+ * as templates, where {0}, {1} and {2} are replaced with the SQL of the function arguments.
+ *
+ * @see org.wso2.carbon.dataservices.core.odata.expression.SQLExpressionVisitor
+ */
+public enum RDBMSDialect {
+
+    GENERIC("CHAR_LENGTH({0})", "(POSITION({1} IN {0}) - 1)", "SUBSTRING({0} FROM {1} FOR {2})",
+            "SUBSTRING({0} FROM {1})", "({0} || {1})", "MOD({0}, {1})", "TRIM({0})", "EXTRACT(%s FROM {0})",
+            "ROUND({0})", "CEILING({0})"),
+
+    MYSQL("CHAR_LENGTH({0})", "(LOCATE({1}, {0}) - 1)", "SUBSTRING({0}, {1}, {2})", "SUBSTRING({0}, {1})",
+          "CONCAT({0}, {1})", "MOD({0}, {1})", "TRIM({0})", "EXTRACT(%s FROM {0})", "ROUND({0})",
+          "CEILING({0})"),
+
+    POSTGRESQL("CHAR_LENGTH({0})", "(POSITION({1} IN {0}) - 1)", "SUBSTRING({0} FROM {1} FOR {2})",
+               "SUBSTRING({0} FROM {1})", "({0} || {1})", "MOD({0}, {1})", "TRIM({0})",
+               "EXTRACT(%s FROM {0})", "ROUND({0})", "CEILING({0})"),
+
+    ORACLE("LENGTH({0})", "(INSTR({0}, {1}) - 1)", "SUBSTR({0}, {1}, {2})", "SUBSTR({0}, {1})",
+           "CONCAT({0}, {1})", "MOD({0}, {1})", "TRIM({0})", "EXTRACT(%s FROM {0})", "ROUND({0})",
+           "CEIL({0})"),
+
+    MSSQL("LEN({0})", "(CHARINDEX({1}, {0}) - 1)", "SUBSTRING({0}, {1}, {2})", "SUBSTRING({0}, {1}, LEN({0}))",
+          "({0} + {1})", "({0} % {1})", "LTRIM(RTRIM({0}))", "DATEPART(%s, {0})", "ROUND({0}, 0)",
+          "CEILING({0})"),
+
+    H2("CHAR_LENGTH({0})", "(LOCATE({1}, {0}) - 1)", "SUBSTRING({0}, {1}, {2})", "SUBSTRING({0}, {1})",
+       "CONCAT({0}, {1})", "MOD({0}, {1})", "TRIM({0})", "EXTRACT(%s FROM {0})", "ROUND({0})",
+       "CEILING({0})"),
+
+    DB2("LENGTH({0})", "(LOCATE({1}, {0}) - 1)", "SUBSTR({0}, {1}, {2})", "SUBSTR({0}, {1})",
+        "CONCAT({0}, {1})", "MOD({0}, {1})", "TRIM({0})", "EXTRACT(%s FROM {0})", "ROUND({0}, 0)",
+        "CEILING({0})");
+
+    private static final int CURSOR_FETCH_SIZE = 1000;
+
+    private final String lengthTemplate;
+
+    private final String indexOfTemplate;
+
+    private final String substringTemplate;
+
+    private final String substringToEndTemplate;
+
+    private final String concatTemplate;
+
+    private final String modTemplate;
+
+    private final String trimTemplate;
+
+    private final String datePartTemplate;
+
+    private final String roundTemplate;
+
+    private final String ceilingTemplate;
+
+    RDBMSDialect(String lengthTemplate, String indexOfTemplate, String substringTemplate,
+                 String substringToEndTemplate, String concatTemplate, String modTemplate, String trimTemplate,
+                 String datePartTemplate, String roundTemplate, String ceilingTemplate) {
+        this.lengthTemplate = lengthTemplate;
+        this.indexOfTemplate = indexOfTemplate;
+        this.substringTemplate = substringTemplate;
+        this.substringToEndTemplate = substringToEndTemplate;
+        this.concatTemplate = concatTemplate;
+        this.modTemplate = modTemplate;
+        this.trimTemplate = trimTemplate;
+        this.datePartTemplate = datePartTemplate;
+        this.roundTemplate = roundTemplate;
+        this.ceilingTemplate = ceilingTemplate;
+    }
+
+    /**
+     * Returns the dialect of a database.
+     *
+     * @param databaseProductName The product name given by the JDBC driver's database metadata
+     * @return The dialect, GENERIC if the database is not known
+     */
+    public static RDBMSDialect getDialect(String databaseProductName) {
+        if (databaseProductName == null) {
+            return GENERIC;
+        }
+        String name = databaseProductName.toLowerCase(Locale.ENGLISH);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        } else if (name.contains("postgresql")) {
+            return POSTGRESQL;
+        } else if (name.contains("oracle")) {
+            return ORACLE;
+        } else if (name.contains("microsoft sql server")) {
+            return MSSQL;
+        } else if (name.equals("h2")) {
+            return H2;
+        } else if (name.startsWith("db2")) {
+            return DB2;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * The number of characters in {0}.
+     */
+    public String getLengthTemplate() {
+        return lengthTemplate;
+    }
+
+    /**
+     * The zero based position of {1} in {0}, -1 if not found.
+     */
+    public String getIndexOfTemplate() {
+        return indexOfTemplate;
+    }
+
+    /**
+     * {2} characters of {0}, from the one based position {1}.
+     */
+    public String getSubstringTemplate() {
+        return substringTemplate;
+    }
+
+    /**
+     * The characters of {0}, from the one based position {1} to the end.
+     */
+    public String getSubstringToEndTemplate() {
+        return substringToEndTemplate;
+    }
+
+    public String getConcatTemplate() {
+        return concatTemplate;
+    }
+
+    public String getModTemplate() {
+        return modTemplate;
+    }
+
+    public String getTrimTemplate() {
+        return trimTemplate;
+    }
+
+    /**
+     * Returns the template which extracts a part of the date or timestamp {0}.
+     *
+     * @param part YEAR, MONTH, DAY, HOUR, MINUTE or SECOND
+     */
+    public String getDatePartTemplate(String part) {
+        return String.format(datePartTemplate, part);
+    }
+
+    public String getRoundTemplate() {
+        return roundTemplate;
+    }
+
+    public String getCeilingTemplate() {
+        return ceilingTemplate;
+    }
+
+    /**
+     * Returns the null ordering of an ORDER BY item, where nulls come before the other values, as when
+     * ordering in memory.
+     *
+     * @param descending Whether the item is in descending order
+     * @return The null ordering, which is empty if it is the default of the database
+     */
+    public String getNullOrdering(boolean descending) {
+        if (this == MYSQL || this == MSSQL) {
+            return "";
+        }
+        return descending ? " NULLS LAST" : " NULLS FIRST";
+    }
+
+    /**
+     * Checks if the database needs an ORDER BY clause, for a limit clause to be used.
+     */
+    public boolean isOrderByRequiredForLimit() {
+        return this == MSSQL;
+    }
+
+    /**
+     * Returns the fetch size of a statement whose rows are read through a cursor. The MySQL driver only streams
+     * the rows, instead of reading all of them up front, with a fetch size of Integer.MIN_VALUE.
+     */
+    public int getCursorFetchSize() {
+        return this == MYSQL ? Integer.MIN_VALUE : CURSOR_FETCH_SIZE;
+    }
+
+    /**
+     * Returns the clause which skips and limits the rows of a query.
+     *
+     * @param offset The number of rows to skip
+     * @param limit  The maximum number of rows to return, -1 if not limited
+     * @return The clause to be appended after the ORDER BY clause
+     */
+    public String getLimitClause(long offset, long limit) {
+        StringBuilder clause = new StringBuilder();
+        switch (this) {
+            case MYSQL:
+                /* MySQL has no offset without a limit */
+                clause.append(" LIMIT ").append(limit >= 0 ? limit : Long.MAX_VALUE);
+                if (offset > 0) {
+                    clause.append(" OFFSET ").append(offset);
+                }
+                break;
+            case POSTGRESQL:
+            case H2:
+                if (limit >= 0) {
+                    clause.append(" LIMIT ").append(limit);
+                }
+                if (offset > 0) {
+                    clause.append(" OFFSET ").append(offset);
+                }
+                break;
+            default:
+                if (offset > 0 || this == MSSQL) {
+                    clause.append(" OFFSET ").append(offset).append(" ROWS");
+                }
+                if (limit >= 0) {
+                    clause.append(" FETCH FIRST ").append(limit).append(" ROWS ONLY");
+                }
+                break;
+        }
+        return clause.toString();
+    }
+
+}
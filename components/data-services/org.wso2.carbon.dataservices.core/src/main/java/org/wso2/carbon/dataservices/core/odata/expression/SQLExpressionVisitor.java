@@ -0,0 +1,788 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.dataservices.core.odata.expression;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+import org.wso2.carbon.dataservices.core.odata.RDBMSDialect;
+import org.wso2.carbon.dataservices.core.odata.expression.operand.TypedOperand;
+import org.wso2.carbon.dataservices.core.odata.expression.operand.UntypedOperand;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a $filter expression to a SQL condition on the columns of a table, where the literals
+ * are bound as parameters, and the $orderby expressions to an ORDER BY clause. The nodes which have no portable SQL translation, such as lambdas, casts
+ * and comparisons of incompatible types, are not translated, the top level AND operands which
+ * contain them are left to be evaluated in memory.
+ * <p/>
+ * The translation keeps the OData null semantics, where null eq null is true, and a comparison with
+ * null is otherwise false, instead of the SQL three valued logic.
+ */
+public class SQLExpressionVisitor implements ExpressionVisitor<SQLExpressionVisitor.Fragment> {
+
+    private static final Log log = LogFactory.getLog(SQLExpressionVisitor.class);
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final int CATEGORY_STRING = 1;
+
+    private static final int CATEGORY_INTEGER = 2;
+
+    private static final int CATEGORY_DECIMAL = 3;
+
+    private static final int CATEGORY_BOOLEAN = 4;
+
+    private static final int CATEGORY_DATE = 5;
+
+    private static final int CATEGORY_TIMESTAMP = 6;
+
+    private static final int CATEGORY_TIME = 7;
+
+    private static final int CATEGORY_OTHER = 0;
+
+    /**
+     * The SQL types of the table columns, by column name.
+     */
+    private final Map<String, Integer> columnTypes;
+
+    private final RDBMSDialect dialect;
+
+    public SQLExpressionVisitor(Map<String, Integer> columnTypes, RDBMSDialect dialect) {
+        this.columnTypes = columnTypes;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Translates the top level AND operands of a filter which can be translated, to a SQL condition.
+     *
+     * @param filter      The $filter expression
+     * @param columnTypes The SQL types of the table columns, by column name
+     * @param dialect     The SQL dialect of the database
+     * @return The SQL condition
+     */
+    public static Condition translateFilter(Expression filter, Map<String, Integer> columnTypes,
+                                            RDBMSDialect dialect) {
+        List<Expression> operands = new ArrayList<>();
+        collectAndOperands(filter, operands);
+        SQLExpressionVisitor visitor = new SQLExpressionVisitor(columnTypes, dialect);
+        StringBuilder sql = new StringBuilder();
+        List<Parameter> parameters = new ArrayList<>();
+        boolean complete = true;
+        for (Expression operand : operands) {
+            Fragment fragment;
+            try {
+                fragment = visitor.toPredicate(operand.accept(visitor));
+            } catch (ExpressionVisitException | ODataApplicationException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Filter expression '" + operand + "' is evaluated in memory. :" + e.getMessage());
+                }
+                complete = false;
+                continue;
+            }
+            if (sql.length() > 0) {
+                sql.append(" AND ");
+            }
+            sql.append(fragment.sql);
+            parameters.addAll(fragment.parameters);
+        }
+        return new Condition(sql.length() > 0 ? sql.toString() : null, parameters, complete);
+    }
+
+    /**
+     * Translates the $orderby items to the items of an ORDER BY clause, where nulls come first as when
+     * ordering in memory.
+     *
+     * @param orderBy     The $orderby items
+     * @param columnTypes The SQL types of the table columns, by column name
+     * @param dialect     The SQL dialect of the database
+     * @return The ORDER BY items, null if any of the items cannot be translated
+     */
+    public static List<String> translateOrderBy(List<OrderByItem> orderBy, Map<String, Integer> columnTypes,
+                                                RDBMSDialect dialect) {
+        SQLExpressionVisitor visitor = new SQLExpressionVisitor(columnTypes, dialect);
+        List<String> items = new ArrayList<>(orderBy.size());
+        for (OrderByItem item : orderBy) {
+            Fragment fragment;
+            try {
+                fragment = item.getExpression().accept(visitor);
+            } catch (ExpressionVisitException | ODataApplicationException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Order by expression '" + item.getExpression() + "' is evaluated in memory. :" +
+                              e.getMessage());
+                }
+                return null;
+            }
+            /* parameters are not portable in an ORDER BY clause */
+            if (fragment.predicate || fragment.isLiteral() || fragment.isNull() || !fragment.parameters.isEmpty()) {
+                return null;
+            }
+            items.add(fragment.sql + (item.isDescending() ? " DESC" : " ASC") +
+                      dialect.getNullOrdering(item.isDescending()));
+        }
+        return items;
+    }
+
+    /**
+     * Checks if the values of a column of the given SQL type can be compared in SQL.
+     */
+    public static boolean isComparableType(int sqlType) {
+        return getColumnCategory(sqlType) != CATEGORY_OTHER;
+    }
+
+    private static void collectAndOperands(Expression expression, List<Expression> operands) {
+        if (expression instanceof Binary && ((Binary) expression).getOperator() == BinaryOperatorKind.AND) {
+            collectAndOperands(((Binary) expression).getLeftOperand(), operands);
+            collectAndOperands(((Binary) expression).getRightOperand(), operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    @Override
+    public Fragment visitBinaryOperator(BinaryOperatorKind operator, Fragment left, Fragment right)
+            throws ExpressionVisitException, ODataApplicationException {
+        switch (operator) {
+            case AND:
+                return compose(true, Types.BOOLEAN, "({0} AND {1})", toPredicate(left), toPredicate(right));
+            case OR:
+                return compose(true, Types.BOOLEAN, "({0} OR {1})", toPredicate(left), toPredicate(right));
+            case EQ:
+                return equality(true, left, right);
+            case NE:
+                return equality(false, left, right);
+            case GT:
+                return comparison(">", left, right);
+            case GE:
+                return comparison(">=", left, right);
+            case LT:
+                return comparison("<", left, right);
+            case LE:
+                return comparison("<=", left, right);
+            case ADD:
+                return arithmetic("({0} + {1})", false, left, right);
+            case SUB:
+                return arithmetic("({0} - {1})", false, left, right);
+            case MUL:
+                return arithmetic("({0} * {1})", false, left, right);
+            case DIV:
+                return arithmetic("({0} / {1})", false, left, right);
+            case MOD:
+                return arithmetic(this.dialect.getModTemplate(), true, left, right);
+            default:
+                throw unsupported("operator " + operator);
+        }
+    }
+
+    @Override
+    public Fragment visitUnaryOperator(UnaryOperatorKind operator, Fragment operand)
+            throws ExpressionVisitException, ODataApplicationException {
+        switch (operator) {
+            case NOT:
+                /* an unknown condition is false here, so its negation is true */
+                return compose(true, Types.BOOLEAN, "(CASE WHEN {0} THEN 1 ELSE 0 END = 0)", toPredicate(operand));
+            case MINUS:
+                Fragment value = value(operand);
+                checkCategory(value, CATEGORY_INTEGER, CATEGORY_DECIMAL);
+                return compose(false, value.sqlType, "(-{0})", value);
+            default:
+                throw unsupported("operator " + operator);
+        }
+    }
+
+    @Override
+    public Fragment visitMethodCall(MethodKind methodCall, List<Fragment> parameters)
+            throws ExpressionVisitException, ODataApplicationException {
+        switch (methodCall) {
+            case CONTAINS:
+                return like(parameters, true, true);
+            case STARTSWITH:
+                return like(parameters, false, true);
+            case ENDSWITH:
+                return like(parameters, true, false);
+            case TOLOWER:
+                return compose(false, Types.VARCHAR, "LOWER({0})", stringValue(parameters.get(0)));
+            case TOUPPER:
+                return compose(false, Types.VARCHAR, "UPPER({0})", stringValue(parameters.get(0)));
+            case TRIM:
+                return compose(false, Types.VARCHAR, this.dialect.getTrimTemplate(), stringValue(parameters.get(0)));
+            case LENGTH:
+                return compose(false, Types.INTEGER, this.dialect.getLengthTemplate(),
+                               stringValue(parameters.get(0)));
+            case CONCAT:
+                return compose(false, Types.VARCHAR, this.dialect.getConcatTemplate(),
+                               stringValue(parameters.get(0)), stringValue(parameters.get(1)));
+            case INDEXOF:
+                return compose(false, Types.INTEGER, this.dialect.getIndexOfTemplate(),
+                               stringValue(parameters.get(0)), stringValue(parameters.get(1)));
+            case SUBSTRING:
+                return substring(parameters);
+            case YEAR:
+                return datePart("YEAR", parameters.get(0), CATEGORY_DATE, CATEGORY_TIMESTAMP);
+            case MONTH:
+                return datePart("MONTH", parameters.get(0), CATEGORY_DATE, CATEGORY_TIMESTAMP);
+            case DAY:
+                return datePart("DAY", parameters.get(0), CATEGORY_DATE, CATEGORY_TIMESTAMP);
+            case HOUR:
+                return datePart("HOUR", parameters.get(0), CATEGORY_TIMESTAMP, CATEGORY_TIME);
+            case MINUTE:
+                return datePart("MINUTE", parameters.get(0), CATEGORY_TIMESTAMP, CATEGORY_TIME);
+            case SECOND:
+                return datePart("SECOND", parameters.get(0), CATEGORY_TIMESTAMP, CATEGORY_TIME);
+            case ROUND:
+                return rounding(this.dialect.getRoundTemplate(), parameters.get(0));
+            case FLOOR:
+                return rounding("FLOOR({0})", parameters.get(0));
+            case CEILING:
+                return rounding(this.dialect.getCeilingTemplate(), parameters.get(0));
+            default:
+                throw unsupported("method " + methodCall);
+        }
+    }
+
+    @Override
+    public Fragment visitLambdaExpression(String lambdaFunction, String lambdaVariable, Expression expression)
+            throws ExpressionVisitException, ODataApplicationException {
+        throw unsupported("lambda expression");
+    }
+
+    @Override
+    public Fragment visitLiteral(Literal literal) throws ExpressionVisitException, ODataApplicationException {
+        TypedOperand operand = new UntypedOperand(literal.getText()).determineType();
+        EdmType type = operand.getType();
+        if (type == ODataConstants.primitiveNull) {
+            return Fragment.nullLiteral();
+        }
+        int category = getLiteralCategory(type);
+        if (category == CATEGORY_OTHER) {
+            throw unsupported("literal " + literal.getText());
+        }
+        try {
+            return Fragment.literal(((EdmPrimitiveType) type).fromUriLiteral(literal.getText()), category,
+                                    getLiteralSqlType(type));
+        } catch (EdmPrimitiveTypeException e) {
+            throw unsupported("literal " + literal.getText());
+        }
+    }
+
+    @Override
+    public Fragment visitMember(UriInfoResource member) throws ExpressionVisitException, ODataApplicationException {
+        List<UriResource> parts = member.getUriResourceParts();
+        if (parts.size() != 1 || !(parts.get(0) instanceof UriResourcePrimitiveProperty)) {
+            throw unsupported("member " + parts);
+        }
+        String column = ((UriResourcePrimitiveProperty) parts.get(0)).getProperty().getName();
+        Integer sqlType = this.columnTypes.get(column);
+        if (sqlType == null || getColumnCategory(sqlType) == CATEGORY_OTHER) {
+            throw unsupported("column " + column);
+        }
+        return new Fragment(false, column, Collections.<Parameter>emptyList(), sqlType,
+                            getColumnCategory(sqlType));
+    }
+
+    @Override
+    public Fragment visitAlias(String aliasName) throws ExpressionVisitException, ODataApplicationException {
+        throw unsupported("alias " + aliasName);
+    }
+
+    @Override
+    public Fragment visitTypeLiteral(EdmType type) throws ExpressionVisitException, ODataApplicationException {
+        throw unsupported("type literal");
+    }
+
+    @Override
+    public Fragment visitLambdaReference(String variableName)
+            throws ExpressionVisitException, ODataApplicationException {
+        throw unsupported("lambda reference");
+    }
+
+    @Override
+    public Fragment visitEnum(EdmEnumType type, List<String> enumValues)
+            throws ExpressionVisitException, ODataApplicationException {
+        throw unsupported("enum");
+    }
+
+    private Fragment equality(boolean equals, Fragment left, Fragment right) throws ExpressionVisitException {
+        if (left.isNull() && right.isNull()) {
+            return constant(equals);
+        }
+        if (left.isNull() || right.isNull()) {
+            Fragment operand = left.isNull() ? right : left;
+            if (operand.isLiteral()) {
+                return constant(!equals);
+            }
+            return compose(true, Types.BOOLEAN, equals ? "({0} IS NULL)" : "({0} IS NOT NULL)", value(operand));
+        }
+        Fragment[] operands = bindOperands(left, right);
+        if (right.isLiteral()) {
+            /* only the left operand can be null */
+            return compose(true, Types.BOOLEAN, equals ? "({0} = {1})" : "({0} <> {1} OR {0} IS NULL)",
+                           operands[0], operands[1]);
+        } else if (left.isLiteral()) {
+            return compose(true, Types.BOOLEAN, equals ? "({1} = {0})" : "({1} <> {0} OR {1} IS NULL)",
+                           operands[0], operands[1]);
+        }
+        return compose(true, Types.BOOLEAN, equals ? "({0} = {1} OR ({0} IS NULL AND {1} IS NULL))" :
+                "({0} <> {1} OR ({0} IS NULL AND {1} IS NOT NULL) OR ({0} IS NOT NULL AND {1} IS NULL))",
+                       operands[0], operands[1]);
+    }
+
+    private Fragment comparison(String operator, Fragment left, Fragment right) throws ExpressionVisitException {
+        if (left.isNull() || right.isNull()) {
+            throw unsupported("comparison with null");
+        }
+        Fragment[] operands = bindOperands(left, right);
+        if (operands[0].category == CATEGORY_BOOLEAN || operands[1].category == CATEGORY_BOOLEAN) {
+            throw unsupported("ordering of booleans");
+        }
+        return compose(true, Types.BOOLEAN, "({0} " + operator + " {1})", operands[0], operands[1]);
+    }
+
+    private Fragment arithmetic(String template, boolean integerOnly, Fragment left, Fragment right)
+            throws ExpressionVisitException {
+        if (left.isNull() || right.isNull()) {
+            throw unsupported("arithmetic with null");
+        }
+        Fragment[] operands = bindOperands(left, right);
+        for (Fragment operand : operands) {
+            if (integerOnly) {
+                checkCategory(operand, CATEGORY_INTEGER);
+            } else {
+                checkCategory(operand, CATEGORY_INTEGER, CATEGORY_DECIMAL);
+            }
+        }
+        boolean integer = operands[0].category == CATEGORY_INTEGER && operands[1].category == CATEGORY_INTEGER;
+        if (integer && "({0} / {1})".equals(template)) {
+            /* the databases do not agree on the result of an integer division */
+            throw unsupported("integer division");
+        }
+        return compose(false, integer ? Types.BIGINT : Types.DECIMAL, template, operands[0], operands[1]);
+    }
+
+    private Fragment like(List<Fragment> parameters, boolean anyPrefix, boolean anySuffix)
+            throws ExpressionVisitException {
+        Fragment value = stringValue(parameters.get(0));
+        Fragment pattern = parameters.get(1);
+        if (!pattern.isLiteral() || pattern.category != CATEGORY_STRING) {
+            throw unsupported("pattern which is not a string literal");
+        }
+        StringBuilder builder = new StringBuilder();
+        if (anyPrefix) {
+            builder.append('%');
+        }
+        for (char c : pattern.literalValue.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                builder.append(LIKE_ESCAPE);
+            }
+            builder.append(c);
+        }
+        if (anySuffix) {
+            builder.append('%');
+        }
+        Fragment boundPattern = Fragment.parameter(new Parameter(builder.toString(), Types.VARCHAR),
+                                                   CATEGORY_STRING);
+        return compose(true, Types.BOOLEAN, "({0} LIKE {1} ESCAPE '" + LIKE_ESCAPE + "')", value, boundPattern);
+    }
+
+    private Fragment substring(List<Fragment> parameters) throws ExpressionVisitException {
+        Fragment value = stringValue(parameters.get(0));
+        /* OData positions are zero based */
+        Fragment start = parameters.get(1);
+        if (start.isLiteral() && start.category == CATEGORY_INTEGER) {
+            start = Fragment.parameter(new Parameter(String.valueOf(Long.parseLong(start.literalValue) + 1),
+                                                     Types.BIGINT), CATEGORY_INTEGER);
+        } else {
+            start = value(start);
+            checkCategory(start, CATEGORY_INTEGER);
+            start = compose(false, Types.BIGINT, "({0} + 1)", start);
+        }
+        if (parameters.size() < 3) {
+            return compose(false, Types.VARCHAR, this.dialect.getSubstringToEndTemplate(), value, start);
+        }
+        Fragment length = value(parameters.get(2));
+        checkCategory(length, CATEGORY_INTEGER);
+        return compose(false, Types.VARCHAR, this.dialect.getSubstringTemplate(), value, start, length);
+    }
+
+    private Fragment datePart(String part, Fragment operand, int... categories) throws ExpressionVisitException {
+        if (operand.isLiteral()) {
+            throw unsupported("date part of a literal");
+        }
+        Fragment value = value(operand);
+        checkCategory(value, categories);
+        String template = this.dialect.getDatePartTemplate(part);
+        if ("SECOND".equals(part)) {
+            /* some databases return the fractional seconds as well */
+            template = "FLOOR(" + template + ")";
+        }
+        return compose(false, Types.INTEGER, template, value);
+    }
+
+    private Fragment rounding(String template, Fragment operand) throws ExpressionVisitException {
+        Fragment value = value(operand);
+        checkCategory(value, CATEGORY_INTEGER, CATEGORY_DECIMAL);
+        return compose(false, value.sqlType, template, value);
+    }
+
+    /**
+     * Returns the given fragment as a condition. A boolean value is true if it is true, and false if
+     * it is false or null.
+     */
+    private Fragment toPredicate(Fragment fragment) throws ExpressionVisitException {
+        if (fragment.predicate) {
+            return fragment;
+        }
+        if (fragment.category != CATEGORY_BOOLEAN) {
+            throw unsupported("non boolean condition");
+        }
+        if (fragment.isLiteral()) {
+            return constant(Boolean.parseBoolean(fragment.literalValue));
+        }
+        return compose(true, Types.BOOLEAN, "({0} = {1})", fragment,
+                       Fragment.parameter(new Parameter("true", fragment.sqlType), CATEGORY_BOOLEAN));
+    }
+
+    /**
+     * Returns the given fragment as a value, where a literal is bound with the SQL type of its own.
+     */
+    private Fragment value(Fragment fragment) throws ExpressionVisitException {
+        if (fragment.predicate) {
+            throw unsupported("condition used as a value");
+        }
+        if (fragment.isNull()) {
+            throw unsupported("null used as a value");
+        }
+        if (fragment.isLiteral()) {
+            return Fragment.parameter(new Parameter(fragment.literalValue, fragment.sqlType), fragment.category);
+        }
+        return fragment;
+    }
+
+    private Fragment stringValue(Fragment fragment) throws ExpressionVisitException {
+        Fragment value = value(fragment);
+        checkCategory(value, CATEGORY_STRING);
+        return value;
+    }
+
+    /**
+     * Binds the literals of a comparison, where a string or a boolean literal compared with a column
+     * is bound with the SQL type of the column, e.g. NVARCHAR or BIT.
+     */
+    private Fragment[] bindOperands(Fragment left, Fragment right) throws ExpressionVisitException {
+        if (left.isLiteral() && right.isLiteral()) {
+            throw unsupported("comparison of two literals");
+        }
+        Fragment[] operands = new Fragment[] { value(left), value(right) };
+        if (left.isLiteral()) {
+            operands[0] = bindLiteral(left, operands[1]);
+        } else if (right.isLiteral()) {
+            operands[1] = bindLiteral(right, operands[0]);
+        }
+        if (!isComparable(operands[0].category, operands[1].category)) {
+            throw unsupported("comparison of incompatible types");
+        }
+        return operands;
+    }
+
+    private Fragment bindLiteral(Fragment literal, Fragment other) {
+        int sqlType = literal.sqlType;
+        if (literal.category == other.category &&
+            (literal.category == CATEGORY_STRING || literal.category == CATEGORY_BOOLEAN)) {
+            sqlType = other.sqlType;
+        }
+        return Fragment.parameter(new Parameter(literal.literalValue, sqlType), literal.category);
+    }
+
+    private static boolean isComparable(int category1, int category2) {
+        if (category1 == category2) {
+            return true;
+        }
+        boolean numeric1 = category1 == CATEGORY_INTEGER || category1 == CATEGORY_DECIMAL;
+        boolean numeric2 = category2 == CATEGORY_INTEGER || category2 == CATEGORY_DECIMAL;
+        boolean date1 = category1 == CATEGORY_DATE || category1 == CATEGORY_TIMESTAMP;
+        boolean date2 = category2 == CATEGORY_DATE || category2 == CATEGORY_TIMESTAMP;
+        return (numeric1 && numeric2) || (date1 && date2);
+    }
+
+    private static void checkCategory(Fragment fragment, int... categories) throws ExpressionVisitException {
+        for (int category : categories) {
+            if (fragment.category == category) {
+                return;
+            }
+        }
+        throw unsupported("operand of an incompatible type");
+    }
+
+    private static Fragment constant(boolean value) {
+        return new Fragment(true, value ? "(1 = 1)" : "(1 = 0)", Collections.<Parameter>emptyList(),
+                            Types.BOOLEAN, CATEGORY_BOOLEAN);
+    }
+
+    /**
+     * Creates a fragment from a template, where {0}, {1} and {2} are replaced with the SQL of the
+     * given arguments, and the parameters of the arguments are added in the order they appear.
+     */
+    private static Fragment compose(boolean predicate, int sqlType, String template, Fragment... arguments) {
+        StringBuilder sql = new StringBuilder();
+        List<Parameter> parameters = new ArrayList<>();
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            if (c == '{' && i + 2 < length && Character.isDigit(template.charAt(i + 1)) &&
+                template.charAt(i + 2) == '}') {
+                Fragment argument = arguments[template.charAt(i + 1) - '0'];
+                sql.append(argument.sql);
+                parameters.addAll(argument.parameters);
+                i += 2;
+            } else {
+                sql.append(c);
+            }
+        }
+        return new Fragment(predicate, sql.toString(), parameters, sqlType,
+                            predicate ? CATEGORY_BOOLEAN : getColumnCategory(sqlType));
+    }
+
+    private static int getColumnCategory(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return CATEGORY_STRING;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return CATEGORY_INTEGER;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return CATEGORY_DECIMAL;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return CATEGORY_BOOLEAN;
+            case Types.DATE:
+                return CATEGORY_DATE;
+            case Types.TIMESTAMP:
+                return CATEGORY_TIMESTAMP;
+            case Types.TIME:
+                return CATEGORY_TIME;
+            default:
+                /* LOBs, binaries and the vendor specific types are not compared in SQL */
+                return CATEGORY_OTHER;
+        }
+    }
+
+    private static int getLiteralCategory(EdmType type) {
+        if (type == ODataConstants.primitiveString) {
+            return CATEGORY_STRING;
+        } else if (type == ODataConstants.primitiveBoolean) {
+            return CATEGORY_BOOLEAN;
+        } else if (type == ODataConstants.primitiveSByte || type == ODataConstants.primitiveByte ||
+                   type == ODataConstants.primitiveInt16 || type == ODataConstants.primitiveInt32 ||
+                   type == ODataConstants.primitiveInt64) {
+            return CATEGORY_INTEGER;
+        } else if (type == ODataConstants.primitiveDecimal || type == ODataConstants.primitiveSingle ||
+                   type == ODataConstants.primitiveDouble) {
+            return CATEGORY_DECIMAL;
+        } else if (type == ODataConstants.primitiveDate) {
+            return CATEGORY_DATE;
+        } else if (type == ODataConstants.primitiveDateTimeOffset) {
+            return CATEGORY_TIMESTAMP;
+        } else if (type == ODataConstants.primitiveTimeOfDay) {
+            return CATEGORY_TIME;
+        }
+        return CATEGORY_OTHER;
+    }
+
+    private static int getLiteralSqlType(EdmType type) {
+        if (type == ODataConstants.primitiveString) {
+            return Types.VARCHAR;
+        } else if (type == ODataConstants.primitiveBoolean) {
+            return Types.BOOLEAN;
+        } else if (type == ODataConstants.primitiveInt64) {
+            return Types.BIGINT;
+        } else if (type == ODataConstants.primitiveDecimal) {
+            return Types.DECIMAL;
+        } else if (type == ODataConstants.primitiveSingle || type == ODataConstants.primitiveDouble) {
+            return Types.DOUBLE;
+        } else if (type == ODataConstants.primitiveDate) {
+            return Types.DATE;
+        } else if (type == ODataConstants.primitiveDateTimeOffset) {
+            return Types.TIMESTAMP;
+        } else if (type == ODataConstants.primitiveTimeOfDay) {
+            return Types.TIME;
+        }
+        return Types.INTEGER;
+    }
+
+    private static ExpressionVisitException unsupported(String node) {
+        return new ExpressionVisitException("SQL translation is not supported for " + node);
+    }
+
+    /**
+     * A parameter of the SQL condition, with its value as given in the filter.
+     */
+    public static class Parameter {
+
+        private final String value;
+
+        private final int sqlType;
+
+        public Parameter(String value, int sqlType) {
+            this.value = value;
+            this.sqlType = sqlType;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the java.sql.Types type the value is bound as.
+         */
+        public int getSqlType() {
+            return sqlType;
+        }
+
+    }
+
+    /**
+     * The SQL condition translated from a filter.
+     */
+    public static class Condition {
+
+        private final String sql;
+
+        private final List<Parameter> parameters;
+
+        private final boolean complete;
+
+        private Condition(String sql, List<Parameter> parameters, boolean complete) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.complete = complete;
+        }
+
+        /**
+         * Returns the SQL condition, null if no part of the filter could be translated.
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Parameter> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Checks if the whole filter is translated, otherwise the rows selected by the condition
+         * have to be filtered again in memory.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+    }
+
+    /**
+     * A translated expression node, which is a condition or a value. A literal is not bound until
+     * it is known which SQL type it is compared with.
+     */
+    static final class Fragment {
+
+        private final boolean predicate;
+
+        private final String sql;
+
+        private final List<Parameter> parameters;
+
+        private final int sqlType;
+
+        private final int category;
+
+        /* the unquoted value of an unbound literal */
+        private final String literalValue;
+
+        private final boolean nullLiteral;
+
+        private Fragment(boolean predicate, String sql, List<Parameter> parameters, int sqlType, int category) {
+            this(predicate, sql, parameters, sqlType, category, null, false);
+        }
+
+        private Fragment(boolean predicate, String sql, List<Parameter> parameters, int sqlType, int category,
+                         String literalValue, boolean nullLiteral) {
+            this.predicate = predicate;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.sqlType = sqlType;
+            this.category = category;
+            this.literalValue = literalValue;
+            this.nullLiteral = nullLiteral;
+        }
+
+        private static Fragment literal(String value, int category, int sqlType) {
+            return new Fragment(false, "?", Collections.<Parameter>emptyList(), sqlType, category, value, false);
+        }
+
+        private static Fragment nullLiteral() {
+            return new Fragment(false, "NULL", Collections.<Parameter>emptyList(), Types.NULL, CATEGORY_OTHER,
+                                null, true);
+        }
+
+        private static Fragment parameter(Parameter parameter, int category) {
+            return new Fragment(false, "?", Collections.singletonList(parameter), parameter.getSqlType(), category);
+        }
+
+        private boolean isLiteral() {
+            return literalValue != null;
+        }
+
+        private boolean isNull() {
+            return nullLiteral;
+        }
+
+    }
+
+}
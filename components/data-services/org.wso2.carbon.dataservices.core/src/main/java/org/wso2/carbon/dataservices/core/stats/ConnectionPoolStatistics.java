@@ -0,0 +1,274 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.stats;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool statistics of a config. The time spent waiting for a connection from the pool,
+ * and the lease duration, i.e. the time from acquiring a connection until it is returned to the
+ * pool by TLConnectionStore.closeAll, are tracked in microseconds. A lease of a request with a
+ * streamed result includes the time taken to write the result to the client. The lease durations
+ * are also kept by the operation or resource that acquired the connection, to find the top
+ * leaseholders.
+ */
+public class ConnectionPoolStatistics {
+
+    private static final Log log = LogFactory.getLog(ConnectionPoolStatistics.class);
+
+    private static final int SUMMARY_LEASE_HOLDER_COUNT = 5;
+
+    private final String configId;
+
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    private final LatencyHistogram leaseTime = new LatencyHistogram();
+
+    private final AtomicLong acquisitionCount = new AtomicLong();
+
+    private final AtomicLong acquisitionErrorCount = new AtomicLong();
+
+    private final AtomicLong poolExhaustedCount = new AtomicLong();
+
+    private final AtomicInteger activeLeaseCount = new AtomicInteger();
+
+    private final ConcurrentMap<String, LeaseHolder> leaseHolders =
+            new ConcurrentHashMap<String, LeaseHolder>();
+
+    /* the acquisition count at the time of the last logged summary */
+    private volatile long lastLoggedAcquisitionCount;
+
+    public ConnectionPoolStatistics(String configId) {
+        this.configId = configId;
+    }
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    /**
+     * Records a successful connection acquisition.
+     *
+     * @param waitNanos The time taken to get the connection from the pool
+     */
+    public void recordAcquisition(long waitNanos) {
+        this.acquisitionCount.incrementAndGet();
+        this.waitTime.record(waitNanos / 1000);
+    }
+
+    /**
+     * Records a failed connection acquisition.
+     *
+     * @param waitNanos The time spent before the acquisition failed
+     * @param exhausted Whether it failed since there were no free connections in the pool
+     */
+    public void recordAcquisitionFailure(long waitNanos, boolean exhausted) {
+        this.acquisitionErrorCount.incrementAndGet();
+        this.waitTime.record(waitNanos / 1000);
+        if (exhausted) {
+            this.poolExhaustedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Marks the start of a connection lease.
+     *
+     * @return The start time of the lease, to be passed in to {@link #endLease(String, long)}
+     */
+    public long startLease() {
+        this.activeLeaseCount.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a connection lease, when the connection is returned to the pool.
+     *
+     * @param operationName The operation or resource which acquired the connection, can be null
+     * @param startTime     The start time returned by {@link #startLease()}
+     */
+    public void endLease(String operationName, long startTime) {
+        long nanos = System.nanoTime() - startTime;
+        this.activeLeaseCount.decrementAndGet();
+        this.leaseTime.record(nanos / 1000);
+        if (operationName == null) {
+            operationName = "";
+        }
+        LeaseHolder holder = this.leaseHolders.get(operationName);
+        if (holder == null) {
+            holder = new LeaseHolder(operationName);
+            LeaseHolder existingHolder = this.leaseHolders.putIfAbsent(operationName, holder);
+            if (existingHolder != null) {
+                holder = existingHolder;
+            }
+        }
+        holder.record(nanos / 1000);
+    }
+
+    public long getAcquisitionCount() {
+        return acquisitionCount.get();
+    }
+
+    public long getAcquisitionErrorCount() {
+        return acquisitionErrorCount.get();
+    }
+
+    public long getPoolExhaustedCount() {
+        return poolExhaustedCount.get();
+    }
+
+    public int getActiveLeaseCount() {
+        return activeLeaseCount.get();
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getLeaseTime() {
+        return leaseTime;
+    }
+
+    /**
+     * Returns the operations which have held connections the longest, in total.
+     *
+     * @param count The maximum number of operations to return
+     * @return The leaseholders, in descending order of the total lease time
+     */
+    public List<LeaseHolder> getTopLeaseHolders(int count) {
+        List<LeaseHolder> holders = new ArrayList<LeaseHolder>(this.leaseHolders.values());
+        Collections.sort(holders, new Comparator<LeaseHolder>() {
+            @Override
+            public int compare(LeaseHolder holder1, LeaseHolder holder2) {
+                return Long.compare(holder2.getTotalLeaseTime(), holder1.getTotalLeaseTime());
+            }
+        });
+        return holders.size() > count ? holders.subList(0, count) : holders;
+    }
+
+    public void reset() {
+        this.waitTime.reset();
+        this.leaseTime.reset();
+        this.acquisitionCount.set(0);
+        this.acquisitionErrorCount.set(0);
+        this.poolExhaustedCount.set(0);
+        this.leaseHolders.clear();
+        this.lastLoggedAcquisitionCount = 0;
+    }
+
+    /**
+     * Logs a summary of the statistics, if connections have been acquired since the last summary.
+     */
+    public void logSummary() {
+        long count = this.getAcquisitionCount();
+        if (count == this.lastLoggedAcquisitionCount) {
+            return;
+        }
+        this.lastLoggedAcquisitionCount = count;
+        if (log.isInfoEnabled()) {
+            log.info("Connection pool statistics: " + this.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot waitSnapshot = this.getWaitTime().getSnapshot();
+        LatencyHistogram.Snapshot leaseSnapshot = this.getLeaseTime().getSnapshot();
+        StringBuilder builder = new StringBuilder();
+        builder.append("config=").append(this.getConfigId());
+        builder.append(", acquisitions=").append(this.getAcquisitionCount());
+        builder.append(", acquisitionErrors=").append(this.getAcquisitionErrorCount());
+        builder.append(", poolExhausted=").append(this.getPoolExhaustedCount());
+        builder.append(", activeLeases=").append(this.getActiveLeaseCount());
+        builder.append(", wait(us)=[p50=").append(waitSnapshot.getValueAtPercentile(50));
+        builder.append(" p99=").append(waitSnapshot.getValueAtPercentile(99));
+        builder.append(" max=").append(waitSnapshot.getMax()).append(']');
+        builder.append(", lease(us)=[p50=").append(leaseSnapshot.getValueAtPercentile(50));
+        builder.append(" p99=").append(leaseSnapshot.getValueAtPercentile(99));
+        builder.append(" max=").append(leaseSnapshot.getMax()).append(']');
+        builder.append(", topLeaseHolders=").append(this.getTopLeaseHolders(SUMMARY_LEASE_HOLDER_COUNT));
+        return builder.toString();
+    }
+
+    /**
+     * The lease totals of an operation or resource.
+     */
+    public static class LeaseHolder {
+
+        private final String operationName;
+
+        private final AtomicLong leaseCount = new AtomicLong();
+
+        private final AtomicLong totalLeaseTime = new AtomicLong();
+
+        private final AtomicLong maxLeaseTime = new AtomicLong();
+
+        private LeaseHolder(String operationName) {
+            this.operationName = operationName;
+        }
+
+        private void record(long micros) {
+            this.leaseCount.incrementAndGet();
+            this.totalLeaseTime.addAndGet(micros);
+            long max = this.maxLeaseTime.get();
+            while (micros > max && !this.maxLeaseTime.compareAndSet(max, micros)) {
+                max = this.maxLeaseTime.get();
+            }
+        }
+
+        public String getOperationName() {
+            return operationName;
+        }
+
+        public long getLeaseCount() {
+            return leaseCount.get();
+        }
+
+        /**
+         * Returns the total lease time in microseconds.
+         */
+        public long getTotalLeaseTime() {
+            return totalLeaseTime.get();
+        }
+
+        /**
+         * Returns the longest lease time in microseconds.
+         */
+        public long getMaxLeaseTime() {
+            return maxLeaseTime.get();
+        }
+
+        @Override
+        public String toString() {
+            return this.getOperationName() + "(leases=" + this.getLeaseCount() + ", total(us)=" +
+                    this.getTotalLeaseTime() + ", max(us)=" + this.getMaxLeaseTime() + ")";
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with a fixed set of log-linear buckets, in the style of HdrHistogram.
+ * Values below 64 are counted exactly, and larger values in 32 sub-buckets per power of two, so a
+ * reported percentile is at most ~3% higher than the actual value. Recording a value only takes a
+ * few atomic increments, and does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKET_COUNT = 64;
+
+    private static final int LINEAR_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /* values up to 2^40 are tracked, i.e. ~12 days in microseconds */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT +
+            (MAX_EXPONENT - LINEAR_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong totalValue = new AtomicLong();
+
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts.incrementAndGet(bucketIndex(value));
+        this.totalCount.incrementAndGet();
+        this.totalValue.addAndGet(value);
+        long max = this.maxValue.get();
+        while (value > max && !this.maxValue.compareAndSet(max, value)) {
+            max = this.maxValue.get();
+        }
+    }
+
+    /**
+     * Clears all the recorded values. Values recorded concurrently with a reset may be
+     * partially retained.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts.set(i, 0);
+        }
+        this.totalCount.set(0);
+        this.totalValue.set(0);
+        this.maxValue.set(0);
+    }
+
+    public long getCount() {
+        return this.totalCount.get();
+    }
+
+    /**
+     * Returns a consistent copy of the current values, to calculate percentiles from.
+     */
+    public Snapshot getSnapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshotCounts[i] = this.counts.get(i);
+            count += snapshotCounts[i];
+        }
+        return new Snapshot(snapshotCounts, count, this.totalValue.get(), this.maxValue.get());
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return LINEAR_BUCKET_COUNT + (exponent - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the highest value which is counted in the given bucket.
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKET_COUNT;
+        int exponent = offset / SUB_BUCKET_COUNT + LINEAR_BUCKET_BITS;
+        long subBucketWidth = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (offset % SUB_BUCKET_COUNT + 1) * subBucketWidth - 1;
+    }
+
+    /**
+     * Represents the values of a histogram at a point in time.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long total;
+
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return this.count == 0 ? 0 : (double) this.total / this.count;
+        }
+
+        /**
+         * Returns the value at the given percentile.
+         *
+         * @param percentile The percentile, between 0 and 100
+         * @return The value, or 0 if there are no recorded values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (this.count == 0) {
+                return 0;
+            }
+            double boundedPercentile = Math.min(Math.max(percentile, 0), 100);
+            long target = Math.max(1, (long) Math.ceil(boundedPercentile / 100 * this.count));
+            long cumulative = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                cumulative += this.counts[i];
+                if (cumulative >= target) {
+                    return Math.min(bucketUpperBound(i), this.max);
+                }
+            }
+            return this.max;
+        }
+
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.stats;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution statistics of a query, when called by a specific operation or resource. The latencies
+ * of the two query phases, i.e. executing the query (runPreQuery) and writing its result
+ * (runPostQuery), are tracked separately in microseconds, since a streamed result is written
+ * after the request has returned.
+ */
+public class QueryStatistics {
+
+    /* system property to turn off the query statistics */
+    public static final String STATISTICS_ENABLED_PROPERTY = "dss.query.statistics.enabled";
+
+    public static final boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty(STATISTICS_ENABLED_PROPERTY, "true"));
+
+    private static final double[] SUMMARY_PERCENTILES = { 50, 90, 99 };
+
+    private static ThreadLocal<String> currentOperation = new ThreadLocal<String>();
+
+    private static ThreadLocal<OutputCounter> outputCounter = new ThreadLocal<OutputCounter>() {
+        protected synchronized OutputCounter initialValue() {
+            return new OutputCounter();
+        }
+    };
+
+    private final String operationName;
+
+    private final String queryId;
+
+    private final LatencyHistogram preQueryLatency = new LatencyHistogram();
+
+    private final LatencyHistogram postQueryLatency = new LatencyHistogram();
+
+    private final AtomicLong executionCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    private final AtomicLong outputCharacterCount = new AtomicLong();
+
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    public QueryStatistics(String operationName, String queryId) {
+        this.operationName = operationName;
+        this.queryId = queryId;
+    }
+
+    /**
+     * Returns the name of the operation or resource, which is being executed by the current thread.
+     */
+    public static String getCurrentOperation() {
+        return currentOperation.get();
+    }
+
+    public static void setCurrentOperation(String operationName) {
+        currentOperation.set(operationName);
+    }
+
+    /**
+     * Returns the output counter of the current thread.
+     */
+    public static OutputCounter getOutputCounter() {
+        return outputCounter.get();
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    /**
+     * Marks the start of a query execution phase.
+     */
+    public void begin() {
+        this.inFlightCount.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a query execution phase, started with {@link #begin()}.
+     */
+    public void end(boolean error) {
+        this.inFlightCount.decrementAndGet();
+        if (error) {
+            this.errorCount.incrementAndGet();
+        }
+    }
+
+    public void recordPreQuery(long nanos) {
+        this.executionCount.incrementAndGet();
+        this.preQueryLatency.record(nanos / 1000);
+    }
+
+    public void recordPostQuery(long nanos, long rows, long characters) {
+        this.postQueryLatency.record(nanos / 1000);
+        this.rowCount.addAndGet(rows);
+        this.outputCharacterCount.addAndGet(characters);
+    }
+
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public long getOutputCharacterCount() {
+        return outputCharacterCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    public LatencyHistogram getPreQueryLatency() {
+        return preQueryLatency;
+    }
+
+    public LatencyHistogram getPostQueryLatency() {
+        return postQueryLatency;
+    }
+
+    public void reset() {
+        this.preQueryLatency.reset();
+        this.postQueryLatency.reset();
+        this.executionCount.set(0);
+        this.errorCount.set(0);
+        this.rowCount.set(0);
+        this.outputCharacterCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("operation=").append(this.getOperationName());
+        builder.append(", query=").append(this.getQueryId());
+        builder.append(", executions=").append(this.getExecutionCount());
+        builder.append(", errors=").append(this.getErrorCount());
+        builder.append(", inFlight=").append(this.getInFlightCount());
+        builder.append(", rows=").append(this.getRowCount());
+        builder.append(", outputChars=").append(this.getOutputCharacterCount());
+        appendLatency(builder, "preQuery", this.getPreQueryLatency().getSnapshot());
+        appendLatency(builder, "postQuery", this.getPostQueryLatency().getSnapshot());
+        return builder.toString();
+    }
+
+    private static void appendLatency(StringBuilder builder, String name,
+                                      LatencyHistogram.Snapshot snapshot) {
+        builder.append(", ").append(name).append("(us)=[");
+        for (double percentile : SUMMARY_PERCENTILES) {
+            builder.append("p").append((int) percentile).append('=');
+            builder.append(snapshot.getValueAtPercentile(percentile)).append(' ');
+        }
+        builder.append("max=").append(snapshot.getMax()).append(']');
+    }
+
+    /**
+     * Counts the rows and characters written by the queries executed in the current thread.
+     * A query takes the difference of the counts before and after writing its result, and
+     * restores both counts afterwards, so the rows and characters of nested queries are only
+     * counted for the nested queries, and not for the enclosing query.
+     */
+    public static class OutputCounter {
+
+        private long rows;
+
+        private long characters;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        public long getCharacters() {
+            return characters;
+        }
+
+        public void setCharacters(long characters) {
+            this.characters = characters;
+        }
+
+        public void addRow() {
+            this.rows++;
+        }
+
+        public void addCharacters(long count) {
+            this.characters += count;
+        }
+
+    }
+
+}
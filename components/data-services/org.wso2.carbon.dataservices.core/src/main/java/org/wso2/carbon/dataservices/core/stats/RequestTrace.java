@@ -0,0 +1,451 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.stats;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The trace of a single data service request, made of spans around the phases of the dispatch
+ * pipeline, i.e. parsing the request, user role lookup, param validation, connection acquisition,
+ * statement preparation and execution, reading the rows, serialization and commit. A sample of the
+ * requests is traced, the trace of the request being processed is kept in a thread local, and the
+ * spans are only recorded when there is one, so the requests which are not traced only pay for a
+ * thread local lookup for each span.
+ * <p/>
+ * The finished traces are kept in a fixed size ring buffer, which is queried over JMX, and are
+ * optionally logged as JSON. A trace of a streamed result is finished after the result is written.
+ * <p/>
+ * Tracing is configured using system properties, and is off by default:
+ * <ul>
+ * <li>dss.request.trace.sample.rate - the ratio of the requests to trace, between 0 and 1</li>
+ * <li>dss.request.trace.buffer.size - the number of recent traces to keep, 256 by default</li>
+ * <li>dss.request.trace.log - true to log each trace at INFO level</li>
+ * </ul>
+ */
+public class RequestTrace {
+
+    private static final Log log = LogFactory.getLog(RequestTrace.class);
+
+    public static final String SAMPLE_RATE_PROPERTY = "dss.request.trace.sample.rate";
+
+    public static final String BUFFER_SIZE_PROPERTY = "dss.request.trace.buffer.size";
+
+    public static final String LOG_PROPERTY = "dss.request.trace.log";
+
+    public static final String PHASE_PARSE = "parse";
+
+    public static final String PHASE_AUTH = "auth";
+
+    public static final String PHASE_VALIDATE = "validate";
+
+    public static final String PHASE_CONNECTION = "connection";
+
+    public static final String PHASE_PREPARE = "prepare";
+
+    public static final String PHASE_EXECUTE = "execute";
+
+    public static final String PHASE_FIRST_ROW = "firstRow";
+
+    public static final String PHASE_ROWS = "rows";
+
+    public static final String PHASE_SERIALIZE = "serialize";
+
+    public static final String PHASE_COMMIT = "commit";
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /* nested queries executed for each row can create a large number of spans */
+    private static final int MAX_SPAN_COUNT = 512;
+
+    private static final boolean LOG_ENABLED = Boolean.getBoolean(LOG_PROPERTY);
+
+    private static final AtomicReferenceArray<RequestTrace> recentTraces =
+            new AtomicReferenceArray<RequestTrace>(Math.max(1, Integer.getInteger(BUFFER_SIZE_PROPERTY,
+                    DEFAULT_BUFFER_SIZE)));
+
+    private static final AtomicLong finishedTraceCount = new AtomicLong();
+
+    private static volatile double sampleRate = parseSampleRate(System.getProperty(SAMPLE_RATE_PROPERTY));
+
+    private static ThreadLocal<RequestTrace> currentTrace = new ThreadLocal<RequestTrace>();
+
+    private final String serviceName;
+
+    private final String requestName;
+
+    private final long startTime;
+
+    private final long startNanoTime;
+
+    private final List<Span> spans = new ArrayList<Span>();
+
+    private int droppedSpanCount;
+
+    private volatile boolean finished;
+
+    private long duration;
+
+    private boolean error;
+
+    private RequestTrace(String serviceName, String requestName) {
+        this.serviceName = serviceName;
+        this.requestName = requestName;
+        this.startTime = System.currentTimeMillis();
+        this.startNanoTime = System.nanoTime();
+    }
+
+    private static double parseSampleRate(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.min(Math.max(Double.parseDouble(value), 0), 1);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for " + SAMPLE_RATE_PROPERTY + ": " + value);
+            return 0;
+        }
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    public static void setSampleRate(double rate) {
+        sampleRate = Math.min(Math.max(rate, 0), 1);
+    }
+
+    /**
+     * Starts tracing a request in the current thread, if it is sampled.
+     *
+     * @param serviceName The data service name
+     * @param requestName The operation or resource name
+     * @return The new trace, or null if the request is not traced
+     */
+    public static RequestTrace start(String serviceName, String requestName) {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            currentTrace.remove();
+            return null;
+        }
+        RequestTrace trace = new RequestTrace(serviceName, requestName);
+        currentTrace.set(trace);
+        return trace;
+    }
+
+    /**
+     * Returns the trace of the request being processed by the current thread, or null.
+     */
+    public static RequestTrace getCurrent() {
+        return currentTrace.get();
+    }
+
+    /**
+     * Continues the given trace in the current thread, i.e. when the request is partly processed
+     * in a different thread, or its result is written later.
+     */
+    public static void setCurrent(RequestTrace trace) {
+        if (trace == null) {
+            currentTrace.remove();
+        } else {
+            currentTrace.set(trace);
+        }
+    }
+
+    /**
+     * Starts a span in the trace of the current thread.
+     *
+     * @param phase  The phase name
+     * @param detail Additional information, such as the query id, can be null
+     * @return The span, to be passed in to {@link #endSpan(Span)}, or null if the current
+     * request is not traced
+     */
+    public static Span startSpan(String phase, String detail) {
+        RequestTrace trace = currentTrace.get();
+        if (trace == null) {
+            return null;
+        }
+        return new Span(trace, phase, detail, System.nanoTime());
+    }
+
+    /**
+     * Ends a span started with {@link #startSpan(String, String)}, the span can be null.
+     */
+    public static void endSpan(Span span) {
+        if (span != null) {
+            span.end();
+        }
+    }
+
+    /**
+     * Records a point in time in the trace of the current thread, as a span with no duration.
+     */
+    public static void mark(String phase, String detail) {
+        RequestTrace trace = currentTrace.get();
+        if (trace != null) {
+            new Span(trace, phase, detail, System.nanoTime()).end(0);
+        }
+    }
+
+    /**
+     * Returns the recent traces of the given data service, the latest first.
+     */
+    public static List<RequestTrace> getRecentTraces(String serviceName) {
+        List<RequestTrace> traces = new ArrayList<RequestTrace>();
+        int size = recentTraces.length();
+        long count = finishedTraceCount.get();
+        for (long i = count - 1; i >= 0 && i >= count - size; i--) {
+            RequestTrace trace = recentTraces.get((int) (i % size));
+            if (trace != null && (serviceName == null || serviceName.equals(trace.getServiceName()))) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    public static void clearRecentTraces() {
+        for (int i = 0; i < recentTraces.length(); i++) {
+            recentTraces.set(i, null);
+        }
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getRequestName() {
+        return requestName;
+    }
+
+    /**
+     * Returns the wall clock time the request was received at, in milliseconds.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time taken to process the request in nanoseconds, or -1 if it is not finished.
+     */
+    public synchronized long getDuration() {
+        return this.finished ? this.duration : -1;
+    }
+
+    public synchronized boolean isError() {
+        return error;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the recorded spans, ordered by their start time.
+     */
+    public List<Span> getSpans() {
+        List<Span> result;
+        synchronized (this) {
+            result = new ArrayList<Span>(this.spans);
+        }
+        Collections.sort(result, new Comparator<Span>() {
+            @Override
+            public int compare(Span span1, Span span2) {
+                return Long.compare(span1.getStartOffset(), span2.getStartOffset());
+            }
+        });
+        return result;
+    }
+
+    private synchronized void addSpan(Span span) {
+        if (this.finished) {
+            return;
+        }
+        if (this.spans.size() < MAX_SPAN_COUNT) {
+            this.spans.add(span);
+        } else {
+            this.droppedSpanCount++;
+        }
+    }
+
+    /**
+     * Finishes the trace, which is then added to the recent traces, and logged if enabled. The
+     * trace is also removed from the current thread. A trace can only be finished once.
+     *
+     * @param error Whether the request failed
+     */
+    public void finish(boolean error) {
+        if (currentTrace.get() == this) {
+            currentTrace.remove();
+        }
+        synchronized (this) {
+            if (this.finished) {
+                return;
+            }
+            this.duration = System.nanoTime() - this.startNanoTime;
+            this.error = error;
+            this.finished = true;
+        }
+        long index = finishedTraceCount.getAndIncrement();
+        recentTraces.set((int) (index % recentTraces.length()), this);
+        if (LOG_ENABLED && log.isInfoEnabled()) {
+            log.info(this.toJSON());
+        }
+    }
+
+    /**
+     * Returns the trace as a single line JSON object, with the times in microseconds, where
+     * the start time of a span is relative to the start of the request.
+     */
+    public String toJSON() {
+        List<Span> spanList = this.getSpans();
+        StringBuilder builder = new StringBuilder(128 + spanList.size() * 64);
+        builder.append("{\"service\":");
+        appendJSONString(builder, this.getServiceName());
+        builder.append(",\"request\":");
+        appendJSONString(builder, this.getRequestName());
+        builder.append(",\"startTime\":").append(this.getStartTime());
+        builder.append(",\"durationUs\":").append(this.getDuration() / 1000);
+        builder.append(",\"error\":").append(this.isError());
+        synchronized (this) {
+            builder.append(",\"droppedSpans\":").append(this.droppedSpanCount);
+        }
+        builder.append(",\"spans\":[");
+        for (int i = 0; i < spanList.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            Span span = spanList.get(i);
+            builder.append("{\"phase\":");
+            appendJSONString(builder, span.getPhase());
+            if (span.getDetail() != null) {
+                builder.append(",\"detail\":");
+                appendJSONString(builder, span.getDetail());
+            }
+            builder.append(",\"startUs\":").append(span.getStartOffset() / 1000);
+            builder.append(",\"durationUs\":").append(span.getDuration() / 1000);
+            builder.append('}');
+        }
+        builder.append("]}");
+        return builder.toString();
+    }
+
+    private static void appendJSONString(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return this.toJSON();
+    }
+
+    /**
+     * A timed phase of a request.
+     */
+    public static class Span {
+
+        private final RequestTrace trace;
+
+        private final String phase;
+
+        private final String detail;
+
+        private final long startNanoTime;
+
+        private long duration;
+
+        private Span(RequestTrace trace, String phase, String detail, long startNanoTime) {
+            this.trace = trace;
+            this.phase = phase;
+            this.detail = detail;
+            this.startNanoTime = startNanoTime;
+        }
+
+        private void end() {
+            this.end(System.nanoTime() - this.startNanoTime);
+        }
+
+        private void end(long duration) {
+            this.duration = duration;
+            this.trace.addSpan(this);
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        /**
+         * Returns the start time of the span, relative to the start of the request, in nanoseconds.
+         */
+        public long getStartOffset() {
+            return this.startNanoTime - this.trace.startNanoTime;
+        }
+
+        /**
+         * Returns the duration of the span in nanoseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.wso2.carbon.dataservices.core.stats;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.dataservices.core.engine.InternalParam;
+import org.wso2.carbon.dataservices.core.engine.InternalParamCollection;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs the SQL queries which take longer than a configured threshold, with the time taken to
+ * execute the query and to write its result, and the shapes of its parameters. The parameter
+ * values are only logged if explicitly enabled. A sample of the slow queries can have their
+ * execution plans captured, which are logged separately, with the same slow query number.
+ * <p/>
+ * The log is configured using system properties, and is off by default:
+ * <ul>
+ * <li>dss.slow.query.threshold - the threshold in milliseconds, 0 turns the log off</li>
+ * <li>dss.slow.query.log.param.values - true to log the parameter values</li>
+ * <li>dss.slow.query.explain.sample.rate - the ratio of slow queries, between 0 and 1, whose
+ * execution plans are captured, at most once a minute for each query</li>
+ * </ul>
+ * The execution plans are captured one at a time in the background, and the captures which can't
+ * be queued are dropped, so they never hold up the queries.
+ */
+public final class SlowQueryLog {
+
+    private static final Log log = LogFactory.getLog(SlowQueryLog.class);
+
+    private static final String THRESHOLD_PROPERTY = "dss.slow.query.threshold";
+
+    private static final String LOG_PARAM_VALUES_PROPERTY = "dss.slow.query.log.param.values";
+
+    private static final String EXPLAIN_SAMPLE_RATE_PROPERTY = "dss.slow.query.explain.sample.rate";
+
+    private static final long EXPLAIN_MIN_INTERVAL_NANOS = 60 * 1000000000L;
+
+    private static final long THRESHOLD_NANOS = Long.getLong(THRESHOLD_PROPERTY, 0) * 1000000L;
+
+    private static final boolean LOG_PARAM_VALUES = Boolean.getBoolean(LOG_PARAM_VALUES_PROPERTY);
+
+    private static final double EXPLAIN_SAMPLE_RATE = parseSampleRate(
+            System.getProperty(EXPLAIN_SAMPLE_RATE_PROPERTY));
+
+    private static final int EXPLAIN_QUEUE_SIZE = 10;
+
+    private static final AtomicLong slowQueryCount = new AtomicLong();
+
+    private static final AtomicLong droppedExplainCount = new AtomicLong();
+
+    private static final ThreadPoolExecutor explainExecutor = new ThreadPoolExecutor(1, 1, 60,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(EXPLAIN_QUEUE_SIZE), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DSS-SlowQuery-Explain-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        /* the thread is only kept while execution plans are captured */
+        explainExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private SlowQueryLog() {
+        throw new AssertionError();
+    }
+
+    private static double parseSampleRate(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.min(Math.max(Double.parseDouble(value), 0), 1);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for " + EXPLAIN_SAMPLE_RATE_PROPERTY + ": " + value);
+            return 0;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return THRESHOLD_NANOS > 0;
+    }
+
+    /**
+     * Checks if a query which took the given time to complete has to be logged.
+     */
+    public static boolean isSlow(long nanos) {
+        return THRESHOLD_NANOS > 0 && nanos >= THRESHOLD_NANOS;
+    }
+
+    /**
+     * Checks if the execution plan of the current slow query has to be captured. A query's plan
+     * is captured at most once a minute, the given holder keeps the last capture time.
+     *
+     * @param lastExplainTime The last time the plan of the query was captured, in nanoseconds
+     * @return true if the plan has to be captured
+     */
+    public static boolean isExplainSampled(AtomicLong lastExplainTime) {
+        return isExplainSampled(lastExplainTime, EXPLAIN_SAMPLE_RATE);
+    }
+
+    /**
+     * Checks if the execution plan of the current slow query has to be captured, with the given
+     * sample rate.
+     *
+     * @param lastExplainTime The last time the plan of the query was captured, in nanoseconds
+     * @param sampleRate      The ratio of slow queries whose plans are captured, between 0 and 1
+     * @return true if the plan has to be captured
+     */
+    public static boolean isExplainSampled(AtomicLong lastExplainTime, double sampleRate) {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long lastTime = lastExplainTime.get();
+        return (lastTime == 0 || now - lastTime >= EXPLAIN_MIN_INTERVAL_NANOS) &&
+                lastExplainTime.compareAndSet(lastTime, now);
+    }
+
+    /**
+     * Logs a slow query.
+     *
+     * @param serviceName   The data service name
+     * @param operationName The operation or resource executing the query, can be null
+     * @param queryId       The query id
+     * @param sql           The SQL of the query
+     * @param params        The parameters of the query
+     * @param rows          The number of rows read, or the update count for updates, -1 if not known
+     * @param preQueryNanos The time taken to execute the query
+     * @param postQueryNanos The time taken to read the rows and write the result
+     * @param error         Whether the query failed
+     * @return The slow query number, which is used to log its execution plan
+     */
+    public static long logSlowQuery(String serviceName, String operationName, String queryId,
+                                    String sql, InternalParamCollection params, long rows,
+                                    long preQueryNanos, long postQueryNanos, boolean error) {
+        long number = slowQueryCount.incrementAndGet();
+        if (log.isWarnEnabled()) {
+            StringBuilder builder = new StringBuilder("Slow query #").append(number);
+            builder.append(": service=").append(serviceName);
+            builder.append(", operation=").append(operationName);
+            builder.append(", query=").append(queryId);
+            builder.append(", totalMs=").append((preQueryNanos + postQueryNanos) / 1000000);
+            builder.append(", preQueryMs=").append(preQueryNanos / 1000000);
+            builder.append(", postQueryMs=").append(postQueryNanos / 1000000);
+            builder.append(", rows=").append(rows);
+            builder.append(", error=").append(error);
+            builder.append(", params=");
+            appendParams(builder, params);
+            builder.append(", sql=").append(normalizeSql(sql));
+            log.warn(builder.toString());
+        }
+        return number;
+    }
+
+    /**
+     * Runs the capture of an execution plan in the background. The capture is dropped if the
+     * previous captures are still pending.
+     *
+     * @param task The task which captures and logs the execution plan
+     * @return false if the capture is dropped
+     */
+    public static boolean captureExplainPlan(Runnable task) {
+        try {
+            explainExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            droppedExplainCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Execution plan capture dropped, " + EXPLAIN_QUEUE_SIZE +
+                        " captures are pending");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of execution plan captures dropped, as the previous captures were
+     * still pending.
+     */
+    public static long getDroppedExplainCount() {
+        return droppedExplainCount.get();
+    }
+
+    /**
+     * Logs the execution plan captured for a slow query.
+     */
+    public static void logExplainPlan(long number, String queryId, String plan) {
+        if (log.isWarnEnabled()) {
+            log.warn("Slow query #" + number + " execution plan: query=" + queryId + "\n" + plan);
+        }
+    }
+
+    /**
+     * Collapses the whitespace of the given SQL, and replaces the string and numeric literals
+     * with '?', so the same statement is logged the same way, regardless of its literal values.
+     */
+    public static String normalizeSql(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(sql.length());
+        int length = sql.length();
+        boolean whitespace = false;
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = builder.length() > 0;
+                continue;
+            }
+            if (whitespace) {
+                builder.append(' ');
+                whitespace = false;
+            }
+            if (c == '\'') {
+                /* skip the string literal, '' is an escaped quote */
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                builder.append('?');
+            } else if (Character.isDigit(c) && !isIdentifierPart(builder)) {
+                while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                builder.append('?');
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isIdentifierPart(StringBuilder builder) {
+        if (builder.length() == 0) {
+            return false;
+        }
+        char last = builder.charAt(builder.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+
+    private static void appendParams(StringBuilder builder, InternalParamCollection params) {
+        builder.append('[');
+        if (params != null) {
+            boolean first = true;
+            for (InternalParam param : params.getParams()) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(param.getName()).append(':').append(param.getSqlType()).append('=');
+                ParamValue value = param.getValue();
+                if (value == null) {
+                    builder.append("null");
+                } else if (value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
+                    builder.append("array(").append(value.getArrayValue().size()).append(')');
+                    if (LOG_PARAM_VALUES) {
+                        builder.append(value.getArrayValue());
+                    }
+                } else if (LOG_PARAM_VALUES) {
+                    builder.append('\'').append(value.toString()).append('\'');
+                } else {
+                    builder.append(value.toString() == null ? "null" : "value");
+                }
+            }
+        }
+        builder.append(']');
+    }
+
+}
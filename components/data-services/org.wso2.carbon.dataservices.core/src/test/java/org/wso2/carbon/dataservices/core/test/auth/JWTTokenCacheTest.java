@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.auth;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.dataservices.core.auth.JWTAuthorizationProvider;
+import org.wso2.carbon.dataservices.core.auth.JWTTokenCache;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the cache of the verified JWT tokens.
+ */
+public class JWTTokenCacheTest extends TestCase {
+
+	private static final long MAX_AGE = 60 * 1000L;
+
+	private static final String TOKEN = "header.body.signature";
+
+	public JWTTokenCacheTest(String testName) {
+		super(testName);
+	}
+
+	public void testJWTTokenCacheGetAndPut() {
+		JWTTokenCache cache = new JWTTokenCache(10, MAX_AGE);
+		String key = cache.generateKey(1, TOKEN);
+		assertNull(cache.get(key));
+		assertNotNull(cache.put(key, "admin", -1));
+		assertEquals("admin", cache.get(key).getUsername());
+		assertEquals(key, cache.generateKey(1, TOKEN));
+		/* the raw token is not retained in the key */
+		assertFalse(key.contains(TOKEN));
+	}
+
+	public void testJWTTokenCacheTokenExpiry() throws Exception {
+		JWTTokenCache cache = new JWTTokenCache(10, MAX_AGE);
+		String key = cache.generateKey(1, TOKEN);
+		long expiry = System.currentTimeMillis() + 200;
+		JWTTokenCache.Entry entry = cache.put(key, "admin", expiry);
+		assertEquals(expiry, entry.getExpiry());
+		assertNotNull(cache.get(key));
+		Thread.sleep(300);
+		assertNull(cache.get(key));
+		assertEquals(0, cache.size());
+		/* an expired token is not cached */
+		assertNull(cache.put(key, "admin", System.currentTimeMillis() - 1));
+		assertNull(cache.get(key));
+	}
+
+	public void testJWTTokenCacheMaxAge() throws Exception {
+		JWTTokenCache cache = new JWTTokenCache(10, 200);
+		String key = cache.generateKey(1, TOKEN);
+		/* the max age is used for tokens without an expiry, and for tokens which expire later */
+		cache.put(key, "admin", -1);
+		String otherKey = cache.generateKey(1, TOKEN + "2");
+		cache.put(otherKey, "admin", System.currentTimeMillis() + MAX_AGE);
+		assertNotNull(cache.get(key));
+		assertNotNull(cache.get(otherKey));
+		Thread.sleep(300);
+		assertNull(cache.get(key));
+		assertNull(cache.get(otherKey));
+	}
+
+	public void testJWTTokenCacheMaxSize() {
+		JWTTokenCache cache = new JWTTokenCache(2, MAX_AGE);
+		String key1 = cache.generateKey(1, TOKEN + "1");
+		String key2 = cache.generateKey(1, TOKEN + "2");
+		String key3 = cache.generateKey(1, TOKEN + "3");
+		cache.put(key1, "user1", -1);
+		cache.put(key2, "user2", -1);
+		/* the least recently used token is evicted */
+		assertNotNull(cache.get(key1));
+		cache.put(key3, "user3", -1);
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(key1));
+		assertNull(cache.get(key2));
+		assertNotNull(cache.get(key3));
+	}
+
+	public void testJWTTokenCacheTenantInKey() {
+		JWTTokenCache cache = new JWTTokenCache(10, MAX_AGE);
+		String key = cache.generateKey(1, TOKEN);
+		String otherTenantKey = cache.generateKey(2, TOKEN);
+		assertFalse(key.equals(otherTenantKey));
+		cache.put(key, "admin", -1);
+		assertNull(cache.get(otherTenantKey));
+		assertNotNull(cache.get(key));
+	}
+
+	private Object getTokenCache(JWTAuthorizationProvider provider) throws Exception {
+		Field field = JWTAuthorizationProvider.class.getDeclaredField("tokenCache");
+		field.setAccessible(true);
+		return field.get(provider);
+	}
+
+	public void testJWTTokenCacheDisabled() throws Exception {
+		Map<String, String> props = new HashMap<String, String>();
+		JWTAuthorizationProvider provider = new JWTAuthorizationProvider();
+		provider.init(props);
+		assertNotNull(this.getTokenCache(provider));
+		props.put("tokenCacheSize", "0");
+		provider = new JWTAuthorizationProvider();
+		provider.init(props);
+		assertNull(this.getTokenCache(provider));
+		/* a cache of size 0 does not keep any token */
+		JWTTokenCache cache = new JWTTokenCache(0, MAX_AGE);
+		String key = cache.generateKey(1, TOKEN);
+		cache.put(key, "admin", -1);
+		assertNull(cache.get(key));
+		assertEquals(0, cache.size());
+	}
+
+}
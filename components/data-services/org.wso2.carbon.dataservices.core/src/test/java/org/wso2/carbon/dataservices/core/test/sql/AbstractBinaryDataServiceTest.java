@@ -17,6 +17,7 @@
 */
 package org.wso2.carbon.dataservices.core.test.sql;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -103,5 +104,53 @@ public class AbstractBinaryDataServiceTest extends DataServiceBaseTestCase {
 			fail(e.getMessage());
 		}
 	}
+
+	/**
+	 * Test with binary data, which is written out in more than one chunk.
+	 */
+	protected void binaryDataLargeStoreRetrieve() {
+		TestUtils.showMessage(this.epr + " - binaryDataLargeStoreRetrieve");
+		try {
+			/* the sizes of a whole chunk, and of a few chunks with a padded last chunk */
+			int[] sizes = { 3 * 2048, 3 * 2048 * 3 + 1, 3 * 2048 * 3 + 2 };
+			for (int size : sizes) {
+				byte[] data = new byte[size];
+				for (int i = 0; i < size; i++) {
+					data[i] = (byte) (i * 31 + i / 256);
+				}
+				this.deleteBinaryData(TMP_BINARY_DATA_ID);
+				this.storeBinaryData(TMP_BINARY_DATA_ID, data);
+				assertTrue("size " + size, Arrays.equals(data, this.retrieveBinaryData(TMP_BINARY_DATA_ID)));
+			}
+			this.deleteBinaryData(TMP_BINARY_DATA_ID);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Test with character data, which is written out in more than one chunk.
+	 */
+	protected void characterDataLargeRetrieve() {
+		TestUtils.showMessage(this.epr + " - characterDataLargeRetrieve");
+		try {
+			String part = "Text <with> & markup, \u00e9 and \u20ac; ";
+			StringBuilder builder = new StringBuilder();
+			while (builder.length() < 8192 * 2 + 100) {
+				builder.append(part);
+			}
+			String text = builder.toString().trim();
+			Map<String, String> params = new HashMap<String, String>();
+			params.put("text", text);
+			TestUtils.checkForService(this.epr);
+			OMElement result = TestUtils.callOperation(this.epr, "echo_clob_data_op", params);
+			assertEquals(text, TestUtils.getFirstValue(result, "/TextList/TextEntry/text",
+					TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
 	
 }
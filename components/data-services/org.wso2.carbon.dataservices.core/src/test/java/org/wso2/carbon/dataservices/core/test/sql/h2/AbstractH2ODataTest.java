@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.odata.ODataServiceHandler;
+import org.wso2.carbon.dataservices.core.odata.RDBMSDataHandler;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+import org.wso2.carbon.dataservices.core.test.util.RecordingDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the tests of the OData services of H2 databases. Each test reads the tables of its own
+ * database, which has primary and foreign keys, through an OData service handler, and can check the SQL
+ * statements the requests are translated to.
+ */
+public abstract class AbstractH2ODataTest extends DataServiceBaseTestCase {
+
+	protected static final String DB_URL = "jdbc:h2:mem:odata-test-db;DB_CLOSE_DELAY=-1";
+
+	protected static final String CONFIG_ID = "default";
+
+	protected static final String NAMESPACE = "ODataTestService";
+
+	protected RecordingDataSource dataSource;
+
+	protected ODataServiceHandler serviceHandler;
+
+	protected ODataTestClient client;
+
+	public AbstractH2ODataTest(String testName) {
+		super(testName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Class.forName("org.h2.Driver");
+		this.executeUpdate("RUNSCRIPT FROM './src/test/resources/sql/CreateH2ODataTestDB.sql'");
+		this.dataSource = new RecordingDataSource(DB_URL);
+		this.serviceHandler = new ODataServiceHandler(new RDBMSDataHandler(this.dataSource, CONFIG_ID),
+				NAMESPACE, CONFIG_ID);
+		this.client = new ODataTestClient(this.serviceHandler);
+		this.dataSource.clearStatements();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.executeUpdate("DROP ALL OBJECTS");
+		super.tearDown();
+	}
+
+	protected void executeUpdate(String sql) throws SQLException {
+		Connection conn = DriverManager.getConnection(DB_URL);
+		try {
+			Statement stmt = conn.createStatement();
+			stmt.executeUpdate(sql);
+			stmt.close();
+		} finally {
+			conn.close();
+		}
+	}
+
+	/**
+	 * Reads an entity set, and checks that it is read successfully.
+	 */
+	protected JSONObject readEntitySet(String path, String query) throws JSONException {
+		ODataTestClient.Response response = this.client.get(path, query);
+		assertEquals("Unexpected status of " + path + "?" + query + ": " + response.getBody(), 200,
+				response.getStatus());
+		return response.getJSON();
+	}
+
+	/**
+	 * Returns the values of a property of the entities of an entity set response, in order.
+	 */
+	protected List<Object> getValues(JSONObject entitySet, String property) throws JSONException {
+		return getValues(entitySet.getJSONArray("value"), property);
+	}
+
+	protected List<Object> getValues(JSONArray entities, String property) throws JSONException {
+		List<Object> values = new ArrayList<Object>();
+		for (int i = 0; i < entities.length(); i++) {
+			JSONObject entity = entities.getJSONObject(i);
+			values.add(entity.isNull(property) ? null : entity.get(property));
+		}
+		return values;
+	}
+
+	protected List<Object> list(Object... values) {
+		List<Object> list = new ArrayList<Object>();
+		for (Object value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.DataServiceFactory;
+import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.JDBCPoolSQLConfig;
+import org.wso2.carbon.dataservices.core.description.config.Config;
+import org.wso2.carbon.dataservices.core.description.config.SQLConfig;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.tools.DSTools;
+
+import java.io.FileInputStream;
+import java.util.HashMap;
+
+/**
+ * Tests the initialization of the configs when the data service is created, on their first use,
+ * and in the background, and that a closed config is not initialized.
+ */
+public class H2ConfigInitTest extends DataServiceBaseTestCase {
+
+	private static final String DBS_PATH = "./src/test/resources/test-dbs/H2BasicService.dbs";
+
+	private static final String LAZY_INIT_PROPERTY = "dss.config.lazy.init";
+
+	private static final String WARMUP_DELAY_PROPERTY = "dss.config.lazy.init.warmup.delay";
+
+	private static final long WARMUP_TIMEOUT = 10000;
+
+	public H2ConfigInitTest(String testName) {
+		super(testName);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		System.clearProperty(LAZY_INIT_PROPERTY);
+		System.clearProperty(WARMUP_DELAY_PROPERTY);
+		super.tearDown();
+	}
+
+	private DataService createDataService() throws Exception {
+		FileInputStream in = new FileInputStream(DBS_PATH);
+		try {
+			OMElement dbsElement = (new StAXOMBuilder(in)).getDocumentElement();
+			dbsElement.build();
+			return DataServiceFactory.createDataService(dbsElement, DBS_PATH, null);
+		} finally {
+			in.close();
+		}
+	}
+
+	private SQLConfig getConfig(DataService dataService) {
+		Config config = dataService.getConfig(DBConstants.DEFAULT_CONFIG_ID);
+		assertNotNull(config);
+		return (SQLConfig) config;
+	}
+
+	private void invokeOperation(DataService dataService) throws Exception {
+		OMElement result = DSTools.invokeOperation(dataService, "select_op_count",
+				new HashMap<String, ParamValue>());
+		assertNotNull(TestUtils.getFirstValue(result, "/Orders/OrderDetails/orderDetailsCount",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+	}
+
+	private boolean waitForInitialization(Config config) throws InterruptedException {
+		long end = System.currentTimeMillis() + WARMUP_TIMEOUT;
+		while (!config.isInitialized() && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		return config.isInitialized();
+	}
+
+	public void testH2ConfigInitializedOnCreation() throws Exception {
+		TestUtils.showMessage("testH2ConfigInitializedOnCreation");
+		DataService dataService = this.createDataService();
+		try {
+			SQLConfig config = this.getConfig(dataService);
+			assertTrue(config.isInitialized());
+			this.invokeOperation(dataService);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigLazyInit() throws Exception {
+		TestUtils.showMessage("testH2ConfigLazyInit");
+		System.setProperty(LAZY_INIT_PROPERTY, "true");
+		DataService dataService = this.createDataService();
+		try {
+			SQLConfig config = this.getConfig(dataService);
+			assertFalse(config.isInitialized());
+			/* the config is initialized on its first use */
+			this.invokeOperation(dataService);
+			assertTrue(config.isInitialized());
+			assertTrue(config.getHealth().getInitTime() >= 0);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigDeferredInit() throws Exception {
+		TestUtils.showMessage("testH2ConfigDeferredInit");
+		System.setProperty(LAZY_INIT_PROPERTY, "true");
+		System.setProperty(WARMUP_DELAY_PROPERTY, "0");
+		DataService dataService = this.createDataService();
+		try {
+			SQLConfig config = this.getConfig(dataService);
+			/* the config is initialized in the background, without being used */
+			assertTrue(this.waitForInitialization(config));
+			this.invokeOperation(dataService);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigDeferredInitCancelledOnClose() throws Exception {
+		TestUtils.showMessage("testH2ConfigDeferredInitCancelledOnClose");
+		System.setProperty(LAZY_INIT_PROPERTY, "true");
+		System.setProperty(WARMUP_DELAY_PROPERTY, "1");
+		DataService dataService = this.createDataService();
+		SQLConfig config = this.getConfig(dataService);
+		dataService.closeConfigs();
+		assertTrue(config.isClosed());
+		/* the background initialization is cancelled with the config */
+		Thread.sleep(2000);
+		assertFalse(config.isInitialized());
+		try {
+			config.ensureInitialized();
+			fail("A closed config must not be initialized");
+		} catch (DataServiceFault e) {
+			/* expected */
+		}
+		try {
+			config.getDataSource();
+			fail("A closed config must not create a connection pool");
+		} catch (DataServiceFault e) {
+			/* expected */
+		}
+		assertFalse(config.isInitialized());
+	}
+
+	public void testH2ConfigWarmUp() throws Exception {
+		TestUtils.showMessage("testH2ConfigWarmUp");
+		System.setProperty(LAZY_INIT_PROPERTY, "true");
+		DataService dataService = this.createDataService();
+		try {
+			SQLConfig config = this.getConfig(dataService);
+			assertFalse(config.isInitialized());
+			config.warmUp();
+			assertTrue(config.isInitialized());
+			/* the warm-up connections are returned to the pool */
+			assertEquals(0, config.getActiveConnectionCount());
+			assertTrue(config.getIdleConnectionCount() > 0);
+			this.invokeOperation(dataService);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigStatsLogScheduledWithPool() throws Exception {
+		TestUtils.showMessage("testH2ConfigStatsLogScheduledWithPool");
+		System.setProperty(LAZY_INIT_PROPERTY, "true");
+		DataService dataService = this.createDataService();
+		JDBCPoolSQLConfig config = (JDBCPoolSQLConfig) this.getConfig(dataService);
+		try {
+			/* the statistics are only logged once the pool is created */
+			assertFalse(config.isStatsLogScheduled());
+			this.invokeOperation(dataService);
+			assertTrue(config.isStatsLogScheduled());
+		} finally {
+			dataService.closeConfigs();
+		}
+		assertFalse(config.isStatsLogScheduled());
+	}
+
+	public void testH2ConfigConnectionLeases() throws Exception {
+		TestUtils.showMessage("testH2ConfigConnectionLeases");
+		DataService dataService = this.createDataService();
+		try {
+			SQLConfig config = this.getConfig(dataService);
+			ConnectionPoolStatistics stats = config.getConnectionPoolStatistics();
+			assertNotNull(stats);
+			long acquisitionCount = stats.getAcquisitionCount();
+			long leaseCount = stats.getLeaseTime().getCount();
+			this.invokeOperation(dataService);
+			this.invokeOperation(dataService);
+			assertEquals(acquisitionCount + 2, stats.getAcquisitionCount());
+			assertEquals(acquisitionCount + 2, stats.getWaitTime().getCount());
+			/* the connections are returned to the pool after the results are written */
+			assertEquals(0, stats.getActiveLeaseCount());
+			assertEquals(leaseCount + 2, stats.getLeaseTime().getCount());
+			ConnectionPoolStatistics.LeaseHolder holder = stats.getTopLeaseHolders(1).get(0);
+			assertEquals("select_op_count", holder.getOperationName());
+			assertEquals(2, holder.getLeaseCount());
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+}
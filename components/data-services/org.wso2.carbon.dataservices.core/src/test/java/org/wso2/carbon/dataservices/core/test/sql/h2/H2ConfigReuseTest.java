@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.common.DBConstants.DBSFields;
+import org.wso2.carbon.dataservices.core.DataServiceFactory;
+import org.wso2.carbon.dataservices.core.description.config.Config;
+import org.wso2.carbon.dataservices.core.description.config.ConfigFactory;
+import org.wso2.carbon.dataservices.core.description.config.SQLConfig;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.tools.DSTools;
+
+import javax.xml.namespace.QName;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Tests that a new version of a redeployed data service reuses the unchanged configs of the
+ * previous version, and that a reused config is only handed over to the new version when the
+ * previous version is released.
+ */
+public class H2ConfigReuseTest extends DataServiceBaseTestCase {
+
+	private static final String DBS_PATH = "./src/test/resources/test-dbs/H2BasicService.dbs";
+
+	public H2ConfigReuseTest(String testName) {
+		super(testName);
+	}
+
+	private OMElement loadServiceElement() throws Exception {
+		FileInputStream in = new FileInputStream(DBS_PATH);
+		try {
+			OMElement dbsElement = (new StAXOMBuilder(in)).getDocumentElement();
+			dbsElement.build();
+			return dbsElement;
+		} finally {
+			in.close();
+		}
+	}
+
+	private DataService createDataService(OMElement dbsElement, DataService previousDataService)
+			throws Exception {
+		return DataServiceFactory.createDataService(dbsElement, DBS_PATH, previousDataService);
+	}
+
+	private Config getConfig(DataService dataService) {
+		Config config = dataService.getConfig(DBConstants.DEFAULT_CONFIG_ID);
+		assertNotNull(config);
+		return config;
+	}
+
+	private Object getDataSource(DataService dataService) throws Exception {
+		return ((SQLConfig) this.getConfig(dataService)).getDataSource();
+	}
+
+	private void setConfigProperty(OMElement dbsElement, String name, String value) {
+		OMElement configEl = dbsElement.getFirstChildWithName(new QName(DBSFields.CONFIG));
+		for (Iterator<?> itr = configEl.getChildrenWithName(new QName(DBSFields.PROPERTY)); itr.hasNext();) {
+			OMElement propertyEl = (OMElement) itr.next();
+			if (name.equals(propertyEl.getAttributeValue(new QName(DBSFields.NAME)))) {
+				propertyEl.setText(value);
+				return;
+			}
+		}
+		fail("Property not found: " + name);
+	}
+
+	private void assertOperationWorks(DataService dataService) throws Exception {
+		OMElement result = DSTools.invokeOperation(dataService, "select_op_count",
+				new HashMap<String, ParamValue>());
+		assertNotNull(TestUtils.getFirstValue(result, "/Orders/OrderDetails/orderDetailsCount",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		assertEquals(0, dataService.getActiveQueryCount());
+	}
+
+	public void testH2ConfigReusedWhenUnchanged() throws Exception {
+		TestUtils.showMessage("testH2ConfigReusedWhenUnchanged");
+		DataService previousDataService = this.createDataService(this.loadServiceElement(), null);
+		this.assertOperationWorks(previousDataService);
+		Config config = this.getConfig(previousDataService);
+		Object dataSource = this.getDataSource(previousDataService);
+		DataService dataService = this.createDataService(this.loadServiceElement(), previousDataService);
+		try {
+			assertSame(config, this.getConfig(dataService));
+			/* the previous version keeps the config, until it is released */
+			assertSame(previousDataService, config.getDataService());
+			this.assertOperationWorks(previousDataService);
+			previousDataService.closeConfigs();
+			assertSame(dataService, config.getDataService());
+			assertSame(dataSource, this.getDataSource(dataService));
+			this.assertOperationWorks(dataService);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigNotReusedWhenChanged() throws Exception {
+		TestUtils.showMessage("testH2ConfigNotReusedWhenChanged");
+		DataService previousDataService = this.createDataService(this.loadServiceElement(), null);
+		this.assertOperationWorks(previousDataService);
+		Config previousConfig = this.getConfig(previousDataService);
+		OMElement dbsElement = this.loadServiceElement();
+		this.setConfigProperty(dbsElement, "org.wso2.ws.dataservice.maxpoolsize", "50");
+		DataService dataService = this.createDataService(dbsElement, previousDataService);
+		try {
+			assertNotSame(previousConfig, this.getConfig(dataService));
+			previousDataService.closeConfigs();
+			/* the changed config is closed with the previous version */
+			assertSame(previousDataService, previousConfig.getDataService());
+			assertSame(dataService, this.getConfig(dataService).getDataService());
+			this.assertOperationWorks(dataService);
+		} finally {
+			dataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigReusedOnlyOnce() throws Exception {
+		TestUtils.showMessage("testH2ConfigReusedOnlyOnce");
+		DataService previousDataService = this.createDataService(this.loadServiceElement(), null);
+		Config config = this.getConfig(previousDataService);
+		DataService dataService = this.createDataService(this.loadServiceElement(), previousDataService);
+		DataService otherDataService = this.createDataService(this.loadServiceElement(), previousDataService);
+		try {
+			assertSame(config, this.getConfig(dataService));
+			assertNotSame(config, this.getConfig(otherDataService));
+			previousDataService.closeConfigs();
+			assertSame(dataService, config.getDataService());
+		} finally {
+			dataService.closeConfigs();
+			otherDataService.closeConfigs();
+		}
+	}
+
+	public void testH2ConfigReuseCancelledOnFailedDeploy() throws Exception {
+		TestUtils.showMessage("testH2ConfigReuseCancelledOnFailedDeploy");
+		DataService previousDataService = this.createDataService(this.loadServiceElement(), null);
+		Config config = this.getConfig(previousDataService);
+		DataService dataService = this.createDataService(this.loadServiceElement(), previousDataService);
+		assertSame(config, this.getConfig(dataService));
+		/* the new version fails to deploy */
+		ConfigFactory.returnReusedConfigs(dataService, previousDataService);
+		this.assertOperationWorks(previousDataService);
+		previousDataService.closeConfigs();
+		assertSame(previousDataService, config.getDataService());
+	}
+
+	public void testH2ConfigReuseCancelledWhenNewVersionReleasedFirst() throws Exception {
+		TestUtils.showMessage("testH2ConfigReuseCancelledWhenNewVersionReleasedFirst");
+		DataService previousDataService = this.createDataService(this.loadServiceElement(), null);
+		Config config = this.getConfig(previousDataService);
+		DataService dataService = this.createDataService(this.loadServiceElement(), previousDataService);
+		assertSame(config, this.getConfig(dataService));
+		dataService.closeConfigs();
+		/* the config still belongs to the previous version, and is closed with it */
+		assertSame(previousDataService, config.getDataService());
+		this.assertOperationWorks(previousDataService);
+		previousDataService.closeConfigs();
+		assertSame(previousDataService, config.getDataService());
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.deployment.repository.util.DeploymentFileData;
+import org.wso2.carbon.dataservices.core.DBDeployer;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.BuildRecordingAuthorizationProvider;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.test.util.UtilServer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the data services built in parallel at startup by the deployer, which are either claimed
+ * by their deployment, discarded if they are not deployed within the claim timeout, or built again
+ * in the deploying thread if their parallel build failed.
+ */
+public class H2DeployerBuildTest extends DataServiceBaseTestCase {
+
+	private static final String DEPLOYER_THREAD_PREFIX = "dss-deployer-";
+
+	private static final long CLAIM_TIMEOUT = 1000;
+
+	private static final long WAIT_TIMEOUT = 20000;
+
+	private ConfigurationContext configCtx;
+
+	private DBDeployer deployer;
+
+	private File serviceDir;
+
+	private List<String> deployedPaths = new ArrayList<String>();
+
+	private List<Connection> dbConnections = new ArrayList<Connection>();
+
+	public H2DeployerBuildTest(String testName) {
+		super(testName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.startTenantFlow();
+		System.setProperty(DBDeployer.DEPLOYMENT_THREADS_PROPERTY, "2");
+		System.setProperty(DBDeployer.PARALLEL_BUILD_CLAIM_TIMEOUT_PROPERTY,
+				String.valueOf(CLAIM_TIMEOUT));
+		/* each test uses its own deployment directory, with a new deployer */
+		String repoDir = "dataservices-" + this.getName();
+		this.serviceDir = new File(this.repository, repoDir);
+		this.deleteDirectory(this.serviceDir);
+		assertTrue(this.serviceDir.mkdirs());
+		this.configCtx = UtilServer.getConfigurationContext();
+		this.deployer = new DBDeployer();
+		this.deployer.setDirectory(repoDir);
+		this.deployer.setExtension("dbs");
+		this.deployer.init(this.configCtx);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try {
+			for (String path : this.deployedPaths) {
+				new File(path).delete();
+				this.deployer.undeploy(path);
+			}
+			for (Connection conn : this.dbConnections) {
+				conn.close();
+			}
+		} finally {
+			System.clearProperty(DBDeployer.DEPLOYMENT_THREADS_PROPERTY);
+			System.clearProperty(DBDeployer.PARALLEL_BUILD_CLAIM_TIMEOUT_PROPERTY);
+			this.endTenantFlow();
+			super.tearDown();
+		}
+	}
+
+	private void deleteDirectory(File dir) {
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				this.deleteDirectory(child);
+			}
+		}
+		dir.delete();
+	}
+
+	private String getServiceName(String id) {
+		return "DeployerBuild" + id + "_" + this.getName();
+	}
+
+	private String getTag(String id) {
+		return this.getName() + "-" + id;
+	}
+
+	private String getDbUrl(String id) {
+		return "jdbc:h2:mem:dss-deployer-" + this.getName() + "-" + id;
+	}
+
+	/**
+	 * Writes a data service which uses its own in-memory database, and records its builds.
+	 */
+	private File writeService(String id, boolean failFirstBuild) throws Exception {
+		File file = new File(this.serviceDir, this.getServiceName(id) + ".dbs");
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write("<data name=\"" + this.getServiceName(id) + "\">\n" +
+					"   <config>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.driver\">org.h2.Driver</property>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.protocol\">" + this.getDbUrl(id) +
+					"</property>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.user\"></property>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.password\"></property>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.minpoolsize\">1</property>\n" +
+					"      <property name=\"org.wso2.ws.dataservice.maxpoolsize\">5</property>\n" +
+					"   </config>\n" +
+					"   <query id=\"select_value_query\">\n" +
+					"      <sql>SELECT 1 AS value</sql>\n" +
+					"      <result element=\"Values\" rowName=\"Value\">\n" +
+					"         <element name=\"value\" column=\"value\" />\n" +
+					"      </result>\n" +
+					"   </query>\n" +
+					"   <operation name=\"select_value_op\">\n" +
+					"      <call-query href=\"select_value_query\" />\n" +
+					"   </operation>\n" +
+					"   <authorization_provider class=\"" +
+					BuildRecordingAuthorizationProvider.class.getName() + "\">\n" +
+					"      <property name=\"tag\">" + this.getTag(id) + "</property>\n" +
+					"      <property name=\"failFirstBuild\">" + failFirstBuild + "</property>\n" +
+					"   </authorization_provider>\n" +
+					"</data>\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Opens a connection to the in-memory database of the given data service, which keeps the
+	 * database while the test runs, and is used to count the sessions of the data service.
+	 */
+	private Connection openDbConnection(String id) throws Exception {
+		Connection conn = DriverManager.getConnection(this.getDbUrl(id));
+		this.dbConnections.add(conn);
+		return conn;
+	}
+
+	private int getSessionCount(Connection conn) throws Exception {
+		Statement stmt = conn.createStatement();
+		try {
+			ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Waits until the number of sessions of the database is within the given range, and
+	 * returns the last number of sessions.
+	 */
+	private int waitForSessionCount(Connection conn, int min, int max) throws Exception {
+		long end = System.currentTimeMillis() + WAIT_TIMEOUT;
+		int count = this.getSessionCount(conn);
+		while ((count < min || count > max) && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+			count = this.getSessionCount(conn);
+		}
+		return count;
+	}
+
+	private List<String> waitForBuildThreads(String id, int count) throws Exception {
+		long end = System.currentTimeMillis() + WAIT_TIMEOUT;
+		List<String> threads = BuildRecordingAuthorizationProvider.getBuildThreads(this.getTag(id));
+		while (threads.size() < count && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+			threads = BuildRecordingAuthorizationProvider.getBuildThreads(this.getTag(id));
+		}
+		return threads;
+	}
+
+	private void deploy(File file) throws Exception {
+		this.deployer.deploy(new DeploymentFileData(file, this.deployer));
+		this.deployedPaths.add(file.getAbsolutePath());
+	}
+
+	private boolean isDeployed(String id) throws Exception {
+		return this.configCtx.getAxisConfiguration().getService(this.getServiceName(id)) != null;
+	}
+
+	private void assertBuiltInParallel(List<String> threads) {
+		assertEquals(threads.toString(), 1, threads.size());
+		assertTrue(threads.get(0), threads.get(0).startsWith(DEPLOYER_THREAD_PREFIX));
+	}
+
+	public void testH2DeployerClaimedBuild() throws Exception {
+		TestUtils.showMessage("testH2DeployerClaimedBuild");
+		File fileA = this.writeService("A", false);
+		File fileB = this.writeService("B", false);
+		Connection connB = this.openDbConnection("B");
+		this.deploy(fileA);
+		this.deploy(fileB);
+		/* both data services are taken from their parallel builds */
+		this.assertBuiltInParallel(BuildRecordingAuthorizationProvider.getBuildThreads(
+				this.getTag("A")));
+		this.assertBuiltInParallel(BuildRecordingAuthorizationProvider.getBuildThreads(
+				this.getTag("B")));
+		assertTrue(this.isDeployed("A"));
+		assertTrue(this.isDeployed("B"));
+		/* a claimed build is not cleaned up after the claim timeout */
+		Thread.sleep(CLAIM_TIMEOUT * 3);
+		assertTrue(this.isDeployed("B"));
+		assertTrue(this.getSessionCount(connB) >= 2);
+	}
+
+	public void testH2DeployerUnclaimedBuildDiscarded() throws Exception {
+		TestUtils.showMessage("testH2DeployerUnclaimedBuildDiscarded");
+		File fileA = this.writeService("A", false);
+		File fileB = this.writeService("B", false);
+		Connection connA = this.openDbConnection("A");
+		Connection connB = this.openDbConnection("B");
+		this.deploy(fileA);
+		/* B is built in parallel, which opens its connection pool */
+		this.assertBuiltInParallel(this.waitForBuildThreads("B", 1));
+		assertTrue(this.waitForSessionCount(connB, 2, Integer.MAX_VALUE) >= 2);
+		/* B is not deployed within the claim timeout, so its configs are closed */
+		assertEquals(1, this.waitForSessionCount(connB, 1, 1));
+		assertFalse(this.isDeployed("B"));
+		assertTrue(this.isDeployed("A"));
+		assertTrue(this.getSessionCount(connA) >= 2);
+		/* a later deployment of B builds it in the deploying thread */
+		this.deploy(fileB);
+		List<String> threads = BuildRecordingAuthorizationProvider.getBuildThreads(this.getTag("B"));
+		assertEquals(threads.toString(), 2, threads.size());
+		assertEquals(Thread.currentThread().getName(), threads.get(1));
+		assertTrue(this.isDeployed("B"));
+	}
+
+	public void testH2DeployerFailedBuildRebuiltInline() throws Exception {
+		TestUtils.showMessage("testH2DeployerFailedBuildRebuiltInline");
+		File fileA = this.writeService("A", false);
+		File fileB = this.writeService("B", true);
+		this.openDbConnection("B");
+		this.deploy(fileA);
+		/* the parallel build of B fails, and it is built again in the deploying thread */
+		this.deploy(fileB);
+		List<String> threads = BuildRecordingAuthorizationProvider.getBuildThreads(this.getTag("B"));
+		assertEquals(threads.toString(), 2, threads.size());
+		assertTrue(threads.get(0), threads.get(0).startsWith(DEPLOYER_THREAD_PREFIX));
+		assertEquals(Thread.currentThread().getName(), threads.get(1));
+		assertTrue(this.isDeployed("B"));
+	}
+
+}
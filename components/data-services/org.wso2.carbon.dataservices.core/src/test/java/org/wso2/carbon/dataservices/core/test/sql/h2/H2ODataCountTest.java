@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests that $count and /$count are counted by the database, instead of reading the entities.
+ */
+public class H2ODataCountTest extends AbstractH2ODataTest {
+
+	private static final String COUNT = "@odata.count";
+
+	public H2ODataCountTest(String testName) {
+		super(testName);
+	}
+
+	public void testH2ODataCountResource() throws Exception {
+		ODataTestClient.Response response = this.client.get("CUSTOMER/$count", "$filter=CITY eq 'Colombo'",
+				Collections.singletonMap("Accept", "text/plain"));
+		assertEquals("Unexpected status: " + response.getBody(), 200, response.getStatus());
+		assertEquals("2", response.getBody().trim());
+		List<String> statements = this.dataSource.getStatements("FROM CUSTOMER");
+		assertEquals("The entities are read to count them: " + statements, 1, statements.size());
+		assertTrue("The entities are not counted in SQL: " + statements.get(0),
+				statements.get(0).startsWith("SELECT COUNT(*) FROM CUSTOMER WHERE"));
+	}
+
+	public void testH2ODataCountOptionIgnoresLimits() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$count=true&$orderby=ID&$top=1");
+		assertEquals(5, result.getInt(COUNT));
+		assertEquals(list(1), getValues(result, "ID"));
+		assertEquals(1, this.dataSource.getStatements("SELECT COUNT(*) FROM CUSTOMER").size());
+	}
+
+	public void testH2ODataCountOptionWithNullFilter() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$count=true&$filter=CITY eq null&$orderby=ID");
+		assertEquals(2, result.getInt(COUNT));
+		assertEquals(list(2, 5), getValues(result, "ID"));
+		assertEquals(1, this.dataSource.getStatements("SELECT COUNT(*) FROM CUSTOMER WHERE").size());
+	}
+
+}
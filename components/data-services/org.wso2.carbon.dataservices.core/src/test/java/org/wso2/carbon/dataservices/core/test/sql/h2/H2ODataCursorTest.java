@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+
+/**
+ * Tests that the cursor of a streamed entity set read releases its connection, when the entities are written,
+ * and when the request fails after the cursor is opened.
+ */
+public class H2ODataCursorTest extends AbstractH2ODataTest {
+
+	public H2ODataCursorTest(String testName) {
+		super(testName);
+	}
+
+	public void testH2ODataStreamedReadReleasesConnection() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$filter=CREDIT gt 60&$orderby=ID");
+		assertEquals(list(1, 2, 5), getValues(result, "ID"));
+		assertEquals(0, this.dataSource.getOpenConnectionCount());
+	}
+
+	public void testH2ODataFailedRowReleasesConnection() throws Exception {
+		this.dataSource.setFailAfterRows(2);
+		ODataTestClient.Response response = this.client.get("CUSTOMER", null);
+		assertFalse("The read did not fail: " + response.getBody(), response.getStatus() == 200);
+		assertEquals(1, this.dataSource.getStatements("FROM CUSTOMER").size());
+		assertEquals(0, this.dataSource.getOpenConnectionCount());
+	}
+
+	public void testH2ODataRejectedReadReleasesConnection() throws Exception {
+		/* type casts are rejected after the cursor of the entity set is opened */
+		ODataTestClient.Response response = this.client.get("CUSTOMER/" + NAMESPACE + ".CUSTOMER", null);
+		assertEquals("Unexpected status: " + response.getBody(), 501, response.getStatus());
+		assertEquals("The entity set is not opened: " + this.dataSource.getStatements(), 1,
+				this.dataSource.getStatements("FROM CUSTOMER").size());
+		assertEquals(0, this.dataSource.getOpenConnectionCount());
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests that the related entities of $expand are read with one query per navigation property, where the
+ * navigation properties of PURCHASE and DELIVERY are joined on a composite key.
+ */
+public class H2ODataExpandTest extends AbstractH2ODataTest {
+
+	public H2ODataExpandTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Returns the sorted IDs of the expanded deliveries of each purchase.
+	 */
+	private List<List<Integer>> getDeliveryIds(JSONObject purchases) throws Exception {
+		List<List<Integer>> result = new ArrayList<List<Integer>>();
+		JSONArray entities = purchases.getJSONArray("value");
+		for (int i = 0; i < entities.length(); i++) {
+			JSONArray deliveries = entities.getJSONObject(i).getJSONArray("DELIVERY");
+			List<Integer> ids = new ArrayList<Integer>();
+			for (int j = 0; j < deliveries.length(); j++) {
+				ids.add(deliveries.getJSONObject(j).getInt("ID"));
+			}
+			Collections.sort(ids);
+			result.add(ids);
+		}
+		return result;
+	}
+
+	private List<Integer> ids(Integer... ids) {
+		List<Integer> list = new ArrayList<Integer>();
+		Collections.addAll(list, ids);
+		return list;
+	}
+
+	private int countOccurrences(String text, String part) {
+		int count = 0;
+		for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + part.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	public void testH2ODataExpandCollectionOnCompositeKey() throws Exception {
+		JSONObject result = readEntitySet("PURCHASE", "$expand=DELIVERY&$orderby=CUSTOMER_ID,PURCHASE_NO");
+		List<List<Integer>> expected = new ArrayList<List<Integer>>();
+		expected.add(ids(10, 11));
+		expected.add(ids(12));
+		expected.add(ids(13));
+		expected.add(ids());
+		assertEquals(expected, getDeliveryIds(result));
+		List<String> statements = this.dataSource.getStatements("FROM DELIVERY");
+		assertEquals("The deliveries are not read with a single query: " + statements, 1, statements.size());
+		assertEquals(4, countOccurrences(statements.get(0), "PURCHASE_NO = ?"));
+	}
+
+	public void testH2ODataExpandWithNestedFilter() throws Exception {
+		JSONObject result = readEntitySet("PURCHASE",
+				"$expand=DELIVERY($filter=STATUS eq 'SENT')&$orderby=CUSTOMER_ID,PURCHASE_NO");
+		List<List<Integer>> expected = new ArrayList<List<Integer>>();
+		expected.add(ids(10));
+		expected.add(ids(12));
+		expected.add(ids(13));
+		expected.add(ids());
+		assertEquals(expected, getDeliveryIds(result));
+		List<String> statements = this.dataSource.getStatements("FROM DELIVERY");
+		assertEquals(1, statements.size());
+		assertTrue("The nested filter is not translated to SQL: " + statements.get(0),
+				statements.get(0).contains("STATUS"));
+	}
+
+	public void testH2ODataExpandOnlyThePage() throws Exception {
+		JSONObject result = readEntitySet("PURCHASE", "$expand=DELIVERY&$orderby=CUSTOMER_ID,PURCHASE_NO&$top=2");
+		List<List<Integer>> expected = new ArrayList<List<Integer>>();
+		expected.add(ids(10, 11));
+		expected.add(ids(12));
+		assertEquals(expected, getDeliveryIds(result));
+		List<String> statements = this.dataSource.getStatements("FROM DELIVERY");
+		assertEquals(1, statements.size());
+		assertEquals(2, countOccurrences(statements.get(0), "PURCHASE_NO = ?"));
+	}
+
+	public void testH2ODataExpandSingleValuedOnCompositeKey() throws Exception {
+		JSONObject result = readEntitySet("DELIVERY", "$expand=PURCHASE&$orderby=ID");
+		JSONArray entities = result.getJSONArray("value");
+		List<Object> items = new ArrayList<Object>();
+		for (int i = 0; i < entities.length(); i++) {
+			items.add(entities.getJSONObject(i).getJSONObject("PURCHASE").getString("ITEM"));
+		}
+		assertEquals(list("Pen", "Pen", "Ink", "Book"), items);
+		List<String> statements = this.dataSource.getStatements("FROM PURCHASE");
+		assertEquals("The purchases are not read with a single query: " + statements, 1, statements.size());
+		/* the two deliveries of the same purchase share its key set */
+		assertEquals(3, countOccurrences(statements.get(0), "PURCHASE_NO = ?"));
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import java.util.List;
+
+/**
+ * Tests the translation of $filter expressions to the WHERE clauses of the SQL statements, which keeps the
+ * OData null semantics.
+ */
+public class H2ODataFilterTest extends AbstractH2ODataTest {
+
+	public H2ODataFilterTest(String testName) {
+		super(testName);
+	}
+
+	private List<Object> filterIds(String filter) throws Exception {
+		return getValues(readEntitySet("CUSTOMER", "$filter=" + filter + "&$orderby=ID"), "ID");
+	}
+
+	private void assertFilterPushedDown(String literal) {
+		List<String> statements = this.dataSource.getStatements("FROM CUSTOMER WHERE");
+		assertEquals("The filter is not translated to SQL: " + this.dataSource.getStatements(), 1,
+				statements.size());
+		assertFalse("The literal is not bound as a parameter: " + statements.get(0),
+				statements.get(0).contains(literal));
+	}
+
+	public void testH2ODataFilterEquality() throws Exception {
+		assertEquals(list(1, 4), filterIds("CITY eq 'Colombo'"));
+		assertFilterPushedDown("Colombo");
+	}
+
+	public void testH2ODataFilterNullEquality() throws Exception {
+		assertEquals(list(2, 5), filterIds("CITY eq null"));
+		this.dataSource.clearStatements();
+		assertEquals(list(1, 3, 4), filterIds("CITY ne null"));
+	}
+
+	public void testH2ODataFilterNotEqualMatchesNulls() throws Exception {
+		/* null ne 'Colombo' is true in OData, unlike in SQL */
+		assertEquals(list(2, 3, 5), filterIds("CITY ne 'Colombo'"));
+		assertFilterPushedDown("Colombo");
+	}
+
+	public void testH2ODataFilterNot() throws Exception {
+		assertEquals(list(2, 3, 5), filterIds("not (CITY eq 'Colombo')"));
+		this.dataSource.clearStatements();
+		/* a comparison with null is false, therefore its negation is true */
+		assertEquals(list(3, 4), filterIds("not (CREDIT gt 60)"));
+		assertFilterPushedDown("60");
+	}
+
+	public void testH2ODataFilterLogicalOperators() throws Exception {
+		assertEquals(list(1, 5), filterIds("CREDIT gt 60 and NAME ne 'Bob'"));
+		this.dataSource.clearStatements();
+		assertEquals(list(3, 4), filterIds("CITY eq 'Kandy' or CREDIT lt 60"));
+		assertFilterPushedDown("Kandy");
+	}
+
+	public void testH2ODataFilterStringFunctions() throws Exception {
+		assertEquals(list(3, 4, 5), filterIds("startswith(NAME,'Ca') or contains(NAME,'v')"));
+		this.dataSource.clearStatements();
+		assertEquals(list(2, 5), filterIds("length(NAME) eq 3"));
+		assertFilterPushedDown("= 3");
+	}
+
+}
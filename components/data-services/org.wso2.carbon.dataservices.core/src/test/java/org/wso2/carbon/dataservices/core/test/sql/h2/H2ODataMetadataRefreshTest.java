@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+
+import java.util.Collections;
+
+/**
+ * Tests that the changes to the database schema are picked up when the metadata of the OData service is
+ * refreshed, and not before.
+ */
+public class H2ODataMetadataRefreshTest extends AbstractH2ODataTest {
+
+	public H2ODataMetadataRefreshTest(String testName) {
+		super(testName);
+	}
+
+	public void testH2ODataRefreshAddsTable() throws Exception {
+		assertEquals(404, this.client.get("SHIPPER", null).getStatus());
+		this.executeUpdate("CREATE TABLE SHIPPER(ID INTEGER PRIMARY KEY, NAME VARCHAR(50))");
+		this.executeUpdate("insert into SHIPPER values (1,'Speedy')");
+		assertEquals(404, this.client.get("SHIPPER", null).getStatus());
+
+		this.serviceHandler.refreshMetadata();
+		JSONObject result = readEntitySet("SHIPPER", null);
+		assertEquals(list("Speedy"), getValues(result, "NAME"));
+		ODataTestClient.Response metadata = this.client.get("$metadata", null,
+				Collections.singletonMap("Accept", "application/xml"));
+		assertEquals(200, metadata.getStatus());
+		assertTrue(metadata.getBody().contains("\"SHIPPER\""));
+	}
+
+	public void testH2ODataRefreshAddsColumn() throws Exception {
+		/* the metadata of the table is read by the first request */
+		assertFalse(readEntitySet("CUSTOMER", "$orderby=ID").getJSONArray("value").getJSONObject(0).has("EMAIL"));
+		this.executeUpdate("ALTER TABLE CUSTOMER ADD COLUMN EMAIL VARCHAR(50)");
+		this.executeUpdate("UPDATE CUSTOMER SET EMAIL = 'alice@example.com' WHERE ID = 1");
+		assertFalse(readEntitySet("CUSTOMER", "$orderby=ID").getJSONArray("value").getJSONObject(0).has("EMAIL"));
+
+		this.serviceHandler.refreshMetadata();
+		JSONObject result = readEntitySet("CUSTOMER", "$filter=EMAIL ne null");
+		assertEquals(list(1), getValues(result, "ID"));
+		assertEquals(list("alice@example.com"), getValues(result, "EMAIL"));
+	}
+
+	public void testH2ODataRefreshRemovesTable() throws Exception {
+		assertEquals(200, this.client.get("DELIVERY", null).getStatus());
+		this.executeUpdate("DROP TABLE DELIVERY");
+
+		this.serviceHandler.refreshMetadata();
+		assertEquals(404, this.client.get("DELIVERY", null).getStatus());
+		/* the navigation properties to the removed table are gone as well */
+		assertEquals(200, this.client.get("PURCHASE", null).getStatus());
+		assertFalse(this.client.get("PURCHASE", "$expand=DELIVERY").getStatus() == 200);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the translation of $top, $skip and server side paging to the limits of the SQL statements, and the
+ * next links of the pages.
+ */
+public class H2ODataPagingTest extends AbstractH2ODataTest {
+
+	private static final String NEXT_LINK = "@odata.nextLink";
+
+	private static final Map<String, String> PAGE_SIZE_2 = Collections.singletonMap("Prefer",
+			"odata.maxpagesize=2");
+
+	public H2ODataPagingTest(String testName) {
+		super(testName);
+	}
+
+	private JSONObject readPage(ODataTestClient.Response response) throws Exception {
+		assertEquals("Unexpected status: " + response.getBody(), 200, response.getStatus());
+		return response.getJSON();
+	}
+
+	public void testH2ODataTopAndSkip() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$orderby=ID&$top=2&$skip=1");
+		assertEquals(list(2, 3), getValues(result, "ID"));
+		assertFalse(result.has(NEXT_LINK));
+		List<String> statements = this.dataSource.getStatements("FROM CUSTOMER");
+		assertEquals(1, statements.size());
+		assertTrue("The limits are not translated to SQL: " + statements.get(0),
+				statements.get(0).contains("LIMIT 2 OFFSET 1"));
+	}
+
+	public void testH2ODataKeysetPaging() throws Exception {
+		JSONObject page = readPage(this.client.get("CUSTOMER", "$skiptoken=0", PAGE_SIZE_2));
+		assertEquals(list(1, 2), getValues(page, "ID"));
+		String nextLink = page.getString(NEXT_LINK);
+		assertTrue("The next page is not read by key: " + nextLink, nextLink.contains("$skiptoken=k"));
+
+		this.dataSource.clearStatements();
+		page = readPage(this.client.follow(nextLink, PAGE_SIZE_2));
+		assertEquals(list(3, 4), getValues(page, "ID"));
+		String sql = this.dataSource.getStatements("FROM CUSTOMER").get(0);
+		assertTrue("The page does not start after the keys of the previous page: " + sql, sql.contains("ID > ?"));
+		assertFalse("The rows of the previous pages are skipped: " + sql, sql.contains("OFFSET"));
+
+		page = readPage(this.client.follow(page.getString(NEXT_LINK), PAGE_SIZE_2));
+		assertEquals(list(5), getValues(page, "ID"));
+		assertFalse(page.has(NEXT_LINK));
+	}
+
+	public void testH2ODataKeysetPagingKeepsFilter() throws Exception {
+		JSONObject page = readPage(this.client.get("CUSTOMER", "$filter=CITY ne 'Kandy'&$skiptoken=0",
+				PAGE_SIZE_2));
+		assertEquals(list(1, 2), getValues(page, "ID"));
+		String nextLink = page.getString(NEXT_LINK);
+		assertTrue("The filter is not kept in the next link: " + nextLink, nextLink.contains("$filter="));
+
+		page = readPage(this.client.follow(nextLink, PAGE_SIZE_2));
+		assertEquals(list(4, 5), getValues(page, "ID"));
+		assertFalse(page.has(NEXT_LINK));
+	}
+
+	public void testH2ODataOffsetPagingWithOrderBy() throws Exception {
+		JSONObject page = readPage(this.client.get("CUSTOMER", "$orderby=NAME desc&$skiptoken=0", PAGE_SIZE_2));
+		assertEquals(list(5, 4), getValues(page, "ID"));
+		String nextLink = page.getString(NEXT_LINK);
+		assertTrue("The order is not kept in the next link: " + nextLink, nextLink.contains("$orderby="));
+		assertTrue("Unexpected skip token: " + nextLink, nextLink.endsWith("$skiptoken=1"));
+
+		this.dataSource.clearStatements();
+		page = readPage(this.client.follow(nextLink, PAGE_SIZE_2));
+		assertEquals(list(3, 2), getValues(page, "ID"));
+		String sql = this.dataSource.getStatements("FROM CUSTOMER").get(0);
+		assertTrue("The previous pages are not skipped in SQL: " + sql, sql.contains("OFFSET 2"));
+
+		page = readPage(this.client.follow(page.getString(NEXT_LINK), PAGE_SIZE_2));
+		assertEquals(list(1), getValues(page, "ID"));
+		assertFalse(page.has(NEXT_LINK));
+	}
+
+}
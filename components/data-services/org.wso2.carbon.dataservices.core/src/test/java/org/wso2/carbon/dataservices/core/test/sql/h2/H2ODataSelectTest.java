@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.test.util.ODataTestClient;
+
+/**
+ * Tests that only the selected columns, and the primary keys, are read for $select, where the ETag, which is a
+ * digest of all the columns, is left out.
+ */
+public class H2ODataSelectTest extends AbstractH2ODataTest {
+
+	private static final String ETAG = "@odata.etag";
+
+	public H2ODataSelectTest(String testName) {
+		super(testName);
+	}
+
+	private void assertETags(JSONObject result, boolean expected) throws Exception {
+		JSONArray entities = result.getJSONArray("value");
+		for (int i = 0; i < entities.length(); i++) {
+			assertEquals("Unexpected ETag in " + entities.getJSONObject(i), expected,
+					entities.getJSONObject(i).has(ETAG));
+		}
+	}
+
+	public void testH2ODataSelectReadsSelectedColumns() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$select=NAME&$orderby=ID");
+		assertEquals(list("Alice", "Bob", "Carol", "Dave", "Eve"), getValues(result, "NAME"));
+		String sql = this.dataSource.getStatements("FROM CUSTOMER").get(0);
+		assertTrue("Unexpected columns are read: " + sql, sql.startsWith("SELECT ID, NAME FROM CUSTOMER"));
+		assertETags(result, false);
+	}
+
+	public void testH2ODataSelectWithFilterOnOtherColumn() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$select=NAME&$filter=CITY eq 'Colombo'&$orderby=ID");
+		assertEquals(list("Alice", "Dave"), getValues(result, "NAME"));
+		String sql = this.dataSource.getStatements("FROM CUSTOMER").get(0);
+		assertTrue("Unexpected columns are read: " + sql, sql.startsWith("SELECT ID, NAME FROM CUSTOMER WHERE"));
+	}
+
+	public void testH2ODataReadAllColumnsWithETag() throws Exception {
+		JSONObject result = readEntitySet("CUSTOMER", "$orderby=ID");
+		assertEquals(5, result.getJSONArray("value").length());
+		assertTrue(this.dataSource.getStatements("FROM CUSTOMER").get(0).startsWith("SELECT * FROM CUSTOMER"));
+		assertETags(result, true);
+
+		ODataTestClient.Response response = this.client.get("CUSTOMER(1)", null);
+		assertEquals("Unexpected status: " + response.getBody(), 200, response.getStatus());
+		assertTrue(response.getJSON().has(ETAG));
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
+import org.wso2.carbon.dataservices.core.DataServiceFactory;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.jmx.DataServiceInstance;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.tools.DSTools;
+
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the statistics of the queries, by the operations calling them, as exposed by the data
+ * service MBean, where the rows and characters written by a nested query are only counted for
+ * the nested query.
+ */
+public class H2QueryStatisticsTest extends DataServiceBaseTestCase {
+
+	private static final String DBS_PATH = "./src/test/resources/test-dbs/H2QueryStatisticsService.dbs";
+
+	private static final String CUSTOMER_NUMBER = "103";
+
+	private static final String NAME_QUERY = "select_customer_name_query";
+
+	private static final String NUMBER_QUERY = "select_customer_number_query";
+
+	private DataService dataService;
+
+	private DataServiceInstance dataServiceInstance;
+
+	public H2QueryStatisticsTest(String testName) {
+		super(testName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		FileInputStream in = new FileInputStream(DBS_PATH);
+		try {
+			OMElement dbsElement = (new StAXOMBuilder(in)).getDocumentElement();
+			dbsElement.build();
+			this.dataService = DataServiceFactory.createDataService(dbsElement, DBS_PATH, null);
+		} finally {
+			in.close();
+		}
+		this.dataServiceInstance = new DataServiceInstance(this.dataService);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.dataService.closeConfigs();
+		super.tearDown();
+	}
+
+	private String invokeOperation(String operationName, String xpath) throws Exception {
+		Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+		params.put("customerNumber", new ParamValue(CUSTOMER_NUMBER));
+		OMElement result = DSTools.invokeOperation(this.dataService, operationName, params);
+		/* the result is written, which runs the post query phases, when it is read */
+		String value = TestUtils.getFirstValue(result, xpath, TestUtils.DEFAULT_DS_WS_NAMESPACE);
+		assertNotNull(value);
+		return value;
+	}
+
+	public void testH2QueryStatistics() throws Exception {
+		TestUtils.showMessage("testH2QueryStatistics");
+		String customerName = this.invokeOperation("customer_name_op",
+				"/CustomerNames/CustomerName/customerName");
+		assertEquals(1, this.dataServiceInstance.getQueryExecutionCount("customer_name_op", NAME_QUERY));
+		assertEquals(0, this.dataServiceInstance.getQueryErrorCount("customer_name_op", NAME_QUERY));
+		assertEquals(0, this.dataServiceInstance.getQueryInFlightCount("customer_name_op", NAME_QUERY));
+		assertEquals(1, this.dataServiceInstance.getQueryRowCount("customer_name_op", NAME_QUERY));
+		assertEquals(customerName.length(), this.dataServiceInstance.getQueryOutputCharacterCount(
+				"customer_name_op", NAME_QUERY));
+		/* the query is not counted for an operation which has not called it */
+		assertEquals(0, this.dataServiceInstance.getQueryExecutionCount("customer_nested_op", NAME_QUERY));
+		this.invokeOperation("customer_name_op", "/CustomerNames/CustomerName/customerName");
+		assertEquals(2, this.dataServiceInstance.getQueryExecutionCount("customer_name_op", NAME_QUERY));
+		assertEquals(2, this.dataServiceInstance.getQueryRowCount("customer_name_op", NAME_QUERY));
+		assertEquals(2 * customerName.length(), this.dataServiceInstance.getQueryOutputCharacterCount(
+				"customer_name_op", NAME_QUERY));
+		assertTrue(this.dataServiceInstance.getPostQueryLatencyPercentile("customer_name_op",
+				NAME_QUERY, 100) >= this.dataServiceInstance.getPostQueryLatencyPercentile(
+						"customer_name_op", NAME_QUERY, 50));
+		assertEquals(1, this.dataServiceInstance.getQueryStatistics().length);
+	}
+
+	public void testH2NestedQueryStatistics() throws Exception {
+		TestUtils.showMessage("testH2NestedQueryStatistics");
+		this.invokeOperation("customer_nested_op", "/Customers/Customer/customerNumber");
+		assertEquals(1, this.dataServiceInstance.getQueryExecutionCount("customer_nested_op", NUMBER_QUERY));
+		assertEquals(1, this.dataServiceInstance.getQueryExecutionCount("customer_nested_op", NAME_QUERY));
+		/* the row and the characters of the nested query are not counted for the enclosing query */
+		assertEquals(1, this.dataServiceInstance.getQueryRowCount("customer_nested_op", NUMBER_QUERY));
+		assertEquals(1, this.dataServiceInstance.getQueryRowCount("customer_nested_op", NAME_QUERY));
+		assertEquals(CUSTOMER_NUMBER.length(), this.dataServiceInstance.getQueryOutputCharacterCount(
+				"customer_nested_op", NUMBER_QUERY));
+		String customerName = this.invokeOperation("customer_name_op",
+				"/CustomerNames/CustomerName/customerName");
+		assertEquals(customerName.length(), this.dataServiceInstance.getQueryOutputCharacterCount(
+				"customer_nested_op", NAME_QUERY));
+		/* the nested query is executed in the post query phase of the enclosing query, with a
+		 * single value, the 100th percentile is the recorded value */
+		long nestedLatency = this.dataServiceInstance.getPreQueryLatencyPercentile(
+				"customer_nested_op", NAME_QUERY, 100) + this.dataServiceInstance
+				.getPostQueryLatencyPercentile("customer_nested_op", NAME_QUERY, 100);
+		assertTrue(this.dataServiceInstance.getPostQueryLatencyPercentile("customer_nested_op",
+				NUMBER_QUERY, 100) >= nestedLatency);
+		this.dataServiceInstance.resetQueryStatistics();
+		assertEquals(0, this.dataServiceInstance.getQueryExecutionCount("customer_nested_op", NUMBER_QUERY));
+		assertEquals(0, this.dataServiceInstance.getQueryRowCount("customer_nested_op", NAME_QUERY));
+		assertEquals(0, this.dataServiceInstance.getPostQueryLatencyPercentile("customer_nested_op",
+				NUMBER_QUERY, 100));
+	}
+
+}
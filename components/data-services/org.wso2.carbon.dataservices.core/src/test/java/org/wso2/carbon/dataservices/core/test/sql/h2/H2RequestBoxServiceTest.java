@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.axis2.client.Options;
+import org.apache.axis2.client.ServiceClient;
+import org.apache.axis2.context.MessageContext;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.boxcarring.RequestBoxResultDataSource;
+import org.wso2.carbon.dataservices.core.description.config.SQLConfig;
+import org.wso2.carbon.dataservices.core.dispatch.DispatchStatus;
+import org.wso2.carbon.dataservices.core.dispatch.RequestBoxRequest;
+import org.wso2.carbon.dataservices.core.dispatch.SingleDataServiceRequest;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.test.util.UtilServer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Tests that the independent read-only requests of a request box are executed concurrently,
+ * and that the results of the requests other than the last one are discarded, while the
+ * values they export are still used.
+ */
+public class H2RequestBoxServiceTest extends DataServiceBaseTestCase {
+
+	private static final String REQUEST_BOX_THREAD_PREFIX = "DSS-RequestBox-";
+
+	private String epr;
+
+	public H2RequestBoxServiceTest(String testName) {
+		super(testName);
+		this.epr = this.baseEpr + "H2RequestBoxService";
+	}
+
+	/**
+	 * Creates a request of a request box, with the given parameter names and values.
+	 */
+	private OMElement createRequest(String opName, String... params) {
+		OMFactory omFac = OMAbstractFactory.getOMFactory();
+		OMNamespace omNs = omFac.createOMNamespace("http://example1.org/example1", "example1");
+		OMElement request = omFac.createOMElement(opName, omNs);
+		for (int i = 0; i < params.length; i += 2) {
+			OMElement paramEl = omFac.createOMElement(params[i], omNs);
+			paramEl.setText(params[i + 1]);
+			request.addChild(paramEl);
+		}
+		return request;
+	}
+
+	private OMElement callRequestBox(OMElement... requests) throws AxisFault {
+		OMFactory omFac = OMAbstractFactory.getOMFactory();
+		OMNamespace omNs = omFac.createOMNamespace("http://example1.org/example1", "example1");
+		OMElement payload = omFac.createOMElement("request_box", omNs);
+		for (OMElement request : requests) {
+			payload.addChild(request);
+		}
+		Options options = new Options();
+		options.setTo(new EndpointReference(this.epr));
+		options.setAction("urn:request_box");
+		ServiceClient sender = new ServiceClient();
+		sender.setOptions(options);
+		return sender.sendReceive(payload);
+	}
+
+	private DataService getDataService() throws Exception {
+		TestUtils.checkForService(this.epr);
+		return (DataService) UtilServer.getConfigurationContext().getAxisConfiguration().getService(
+				"H2RequestBoxService").getParameter(DBConstants.DATA_SERVICE_OBJECT).getValue();
+	}
+
+	/**
+	 * Waits until the connections leased by the data service are returned to the pool.
+	 */
+	private void assertConnectionsReleased(DataService dataService) throws Exception {
+		SQLConfig config = (SQLConfig) dataService.getConfig(DBConstants.DEFAULT_CONFIG_ID);
+		ConnectionPoolStatistics stats = config.getConnectionPoolStatistics();
+		long end = System.currentTimeMillis() + 10000;
+		while (stats.getActiveLeaseCount() > 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, stats.getActiveLeaseCount());
+		assertEquals(0, config.getActiveConnectionCount());
+	}
+
+	private int countChildElements(OMElement element) {
+		int count = 0;
+		for (Iterator<?> itr = element.getChildElements(); itr.hasNext(); itr.next()) {
+			count++;
+		}
+		return count;
+	}
+
+	private boolean hasDepartment(String id) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("id", id);
+		OMElement result = TestUtils.callOperation(this.epr, "select_department_op", params);
+		return TestUtils.evalExpression(result, "/Departments/Department", TestUtils.DEFAULT_DS_WS_NAMESPACE);
+	}
+
+	private void deleteDepartment(String id) throws Exception {
+		OMElement result = this.callRequestBox(this.createRequest("delete_department_op", "id", id),
+				this.createRequest("select_department_op", "id", id));
+		assertFalse(TestUtils.evalExpression(result, "/DATA_SERVICE_RESPONSE/Departments/Department",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+	}
+
+	public void testH2RequestBoxConcurrentRequests() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxConcurrentRequests");
+		TestUtils.checkForService(this.epr);
+		String tag = "concurrent-" + System.nanoTime();
+		OMElement result = this.callRequestBox(this.createRequest("record_thread_op", "tag", tag + "-1"),
+				this.createRequest("record_thread_op", "tag", tag + "-2"),
+				this.createRequest("record_thread_op", "tag", tag + "-3"));
+		assertTrue(H2TestUtils.getRecordedThread(tag + "-1").startsWith(REQUEST_BOX_THREAD_PREFIX));
+		assertTrue(H2TestUtils.getRecordedThread(tag + "-2").startsWith(REQUEST_BOX_THREAD_PREFIX));
+		/* the last request is executed by the calling thread, and only its result is returned */
+		String lastThread = TestUtils.getFirstValue(result, "/DATA_SERVICE_RESPONSE/Threads/Thread/threadName",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE);
+		assertEquals(H2TestUtils.getRecordedThread(tag + "-3"), lastThread);
+		assertFalse(lastThread.startsWith(REQUEST_BOX_THREAD_PREFIX));
+		assertEquals(1, this.countChildElements(result));
+	}
+
+	public void testH2RequestBoxExportedValueOfDiscardedResult() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxExportedValueOfDiscardedResult");
+		TestUtils.checkForService(this.epr);
+		String tag = "export-" + System.nanoTime();
+		OMElement result = this.callRequestBox(this.createRequest("select_customer_name_op", "customerNumber", "103"),
+				this.createRequest("record_thread_op", "tag", tag),
+				this.createRequest("select_customer_by_exported_name_op"));
+		/* the request which does not read the exported value still runs concurrently */
+		assertTrue(H2TestUtils.getRecordedThread(tag).startsWith(REQUEST_BOX_THREAD_PREFIX));
+		assertEquals(1, this.countChildElements(result));
+		assertEquals("103", TestUtils.getFirstValue(result, "/DATA_SERVICE_RESPONSE/Customers/Customer/customerNumber",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		assertEquals("Nantes", TestUtils.getFirstValue(result, "/DATA_SERVICE_RESPONSE/Customers/Customer/city",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+	}
+
+	public void testH2RequestBoxWriteDisablesConcurrency() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxWriteDisablesConcurrency");
+		TestUtils.checkForService(this.epr);
+		String tag = "write-" + System.nanoTime();
+		try {
+			OMElement result = this.callRequestBox(this.createRequest("insert_department_op", "id", "9101",
+					"name", "RequestBox"), this.createRequest("record_thread_op", "tag", tag),
+					this.createRequest("select_department_op", "id", "9101"));
+			/* the box writes to the config the request reads, so it runs in order, in the box transaction */
+			assertFalse(H2TestUtils.getRecordedThread(tag).startsWith(REQUEST_BOX_THREAD_PREFIX));
+			assertEquals("RequestBox", TestUtils.getFirstValue(result,
+					"/DATA_SERVICE_RESPONSE/Departments/Department/name", TestUtils.DEFAULT_DS_WS_NAMESPACE));
+			assertTrue(this.hasDepartment("9101"));
+		} finally {
+			this.deleteDepartment("9101");
+		}
+	}
+
+	public void testH2RequestBoxFailureRollsBack() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxFailureRollsBack");
+		TestUtils.checkForService(this.epr);
+		try {
+			this.callRequestBox(this.createRequest("insert_department_op", "id", "9102", "name", "RequestBox"),
+					this.createRequest("select_customer_name_op", "customerNumber", "not-a-number"));
+			fail("The request box did not fail");
+		} catch (AxisFault e) {
+			/* expected */
+		}
+		assertFalse(this.hasDepartment("9102"));
+	}
+
+	public void testH2RequestBoxFailingFinalRequestReleasesConnections() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxFailingFinalRequestReleasesConnections");
+		DataService dataService = this.getDataService();
+		try {
+			/* the last request fails while its streamed result is written */
+			this.callRequestBox(this.createRequest("insert_department_op", "id", "9103", "name", "RequestBox"),
+					this.createRequest("record_thread_op", "tag", "failing-" + System.nanoTime()),
+					this.createRequest("select_customer_name_op", "customerNumber", "not-a-number"));
+			fail("The request box did not fail");
+		} catch (AxisFault e) {
+			/* expected */
+		}
+		this.assertConnectionsReleased(dataService);
+		assertFalse(this.hasDepartment("9103"));
+	}
+
+	public void testH2RequestBoxUnwrittenResultReleasesConnections() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestBoxUnwrittenResultReleasesConnections");
+		DataService dataService = this.getDataService();
+		Map<String, ParamValue> insertParams = new HashMap<String, ParamValue>();
+		insertParams.put("id", new ParamValue("9104"));
+		insertParams.put("name", new ParamValue("RequestBox"));
+		Map<String, ParamValue> selectParams = new HashMap<String, ParamValue>();
+		selectParams.put("id", new ParamValue("9104"));
+		MessageContext msgContext = new MessageContext();
+		MessageContext.setCurrentMessageContext(msgContext);
+		DispatchStatus.clearRequestStatus();
+		try {
+			RequestBoxRequest request = new RequestBoxRequest(dataService, "request_box");
+			request.addRequests(new SingleDataServiceRequest(dataService, "insert_department_op", insertParams));
+			request.addRequests(new SingleDataServiceRequest(dataService, "select_department_op", selectParams));
+			OMElement result = request.dispatch();
+			/* the transaction is left open, until the streamed result is written */
+			assertTrue(RequestBoxResultDataSource.isStreamedResult(result));
+			/* the response is never written, the message receiver finalizes the transaction */
+			RequestBoxResultDataSource.finalizeUnwrittenResult(msgContext);
+		} finally {
+			DispatchStatus.clearRequestStatus();
+			MessageContext.setCurrentMessageContext(null);
+		}
+		this.assertConnectionsReleased(dataService);
+		assertFalse(this.hasDepartment("9104"));
+		/* an unwritten result is only finalized once */
+		RequestBoxResultDataSource.finalizeUnwrittenResult(msgContext);
+	}
+
+}
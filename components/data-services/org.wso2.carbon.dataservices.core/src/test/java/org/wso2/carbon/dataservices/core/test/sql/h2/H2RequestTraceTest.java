@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.axis2.client.Options;
+import org.apache.axis2.client.ServiceClient;
+import org.wso2.carbon.dataservices.core.stats.RequestTrace;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the traces of the requests, when all the requests are sampled, where the trace of a
+ * streamed result, of a single request or of a request box, is handed over to its data source,
+ * and finished after the result is written, including the phases executed while writing it.
+ */
+public class H2RequestTraceTest extends DataServiceBaseTestCase {
+
+	private static final String SERVICE_NAME = "H2RequestBoxService";
+
+	private static final long TRACE_TIMEOUT = 10000;
+
+	private String epr;
+
+	private double previousSampleRate;
+
+	public H2RequestTraceTest(String testName) {
+		super(testName);
+		this.epr = this.baseEpr + SERVICE_NAME;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.previousSampleRate = RequestTrace.getSampleRate();
+		RequestTrace.clearRecentTraces();
+		RequestTrace.setSampleRate(1.0);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		RequestTrace.setSampleRate(this.previousSampleRate);
+		RequestTrace.clearRecentTraces();
+		super.tearDown();
+	}
+
+	private OMElement createRequest(String opName, String tag) {
+		OMFactory omFac = OMAbstractFactory.getOMFactory();
+		OMNamespace omNs = omFac.createOMNamespace("http://example1.org/example1", "example1");
+		OMElement request = omFac.createOMElement(opName, omNs);
+		OMElement paramEl = omFac.createOMElement("tag", omNs);
+		paramEl.setText(tag);
+		request.addChild(paramEl);
+		return request;
+	}
+
+	private OMElement callRequestBox(OMElement... requests) throws AxisFault {
+		OMFactory omFac = OMAbstractFactory.getOMFactory();
+		OMNamespace omNs = omFac.createOMNamespace("http://example1.org/example1", "example1");
+		OMElement payload = omFac.createOMElement("request_box", omNs);
+		for (OMElement request : requests) {
+			payload.addChild(request);
+		}
+		Options options = new Options();
+		options.setTo(new EndpointReference(this.epr));
+		options.setAction("urn:request_box");
+		ServiceClient sender = new ServiceClient();
+		sender.setOptions(options);
+		return sender.sendReceive(payload);
+	}
+
+	private void callRecordThread(String tag) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("tag", tag);
+		OMElement result = TestUtils.callOperation(this.epr, "record_thread_op", params);
+		assertNotNull(TestUtils.getFirstValue(result, "/Threads/Thread/threadName",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+	}
+
+	/**
+	 * Waits for the given number of traces of the request to be finished, since a trace is
+	 * finished after the response is written, possibly after the client has read it.
+	 */
+	private List<RequestTrace> waitForTraces(String requestName, int count) throws Exception {
+		long end = System.currentTimeMillis() + TRACE_TIMEOUT;
+		List<RequestTrace> traces = this.getTraces(requestName);
+		while (traces.size() < count && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+			traces = this.getTraces(requestName);
+		}
+		assertEquals(count, traces.size());
+		return traces;
+	}
+
+	private List<RequestTrace> getTraces(String requestName) {
+		List<RequestTrace> traces = new ArrayList<RequestTrace>();
+		for (RequestTrace trace : RequestTrace.getRecentTraces(SERVICE_NAME)) {
+			if (requestName.equals(trace.getRequestName())) {
+				traces.add(trace);
+			}
+		}
+		return traces;
+	}
+
+	private RequestTrace.Span findSpan(RequestTrace trace, String phase) {
+		for (RequestTrace.Span span : trace.getSpans()) {
+			if (phase.equals(span.getPhase())) {
+				return span;
+			}
+		}
+		fail("No '" + phase + "' span in trace: " + trace.toJSON());
+		return null;
+	}
+
+	private boolean isWithin(RequestTrace.Span span, RequestTrace.Span enclosingSpan) {
+		return span.getStartOffset() >= enclosingSpan.getStartOffset() &&
+				span.getStartOffset() + span.getDuration() <=
+						enclosingSpan.getStartOffset() + enclosingSpan.getDuration();
+	}
+
+	private boolean hasSpanWithin(RequestTrace trace, String phase, RequestTrace.Span enclosingSpan) {
+		for (RequestTrace.Span span : trace.getSpans()) {
+			if (phase.equals(span.getPhase()) && this.isWithin(span, enclosingSpan)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks that the query of the streamed result is executed while the result is written,
+	 * and that the trace is finished after that.
+	 */
+	private void assertExecutedInSerialization(RequestTrace trace, String opName) {
+		assertTrue(trace.isFinished());
+		assertFalse(trace.toJSON(), trace.isError());
+		RequestTrace.Span parseSpan = this.findSpan(trace, RequestTrace.PHASE_PARSE);
+		RequestTrace.Span serializeSpan = this.findSpan(trace, RequestTrace.PHASE_SERIALIZE);
+		assertEquals(opName, serializeSpan.getDetail());
+		assertTrue(trace.toJSON(), parseSpan.getStartOffset() + parseSpan.getDuration() <=
+				serializeSpan.getStartOffset());
+		assertTrue(trace.toJSON(), this.hasSpanWithin(trace, RequestTrace.PHASE_EXECUTE, serializeSpan));
+		assertTrue(trace.toJSON(), this.hasSpanWithin(trace, RequestTrace.PHASE_ROWS, serializeSpan));
+		assertTrue(trace.toJSON(), trace.getDuration() >= serializeSpan.getStartOffset() +
+				serializeSpan.getDuration());
+	}
+
+	public void testH2RequestTraceStreamedResult() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestTraceStreamedResult");
+		TestUtils.checkForService(this.epr);
+		this.callRecordThread("trace-single-" + System.nanoTime());
+		RequestTrace trace = this.waitForTraces("record_thread_op", 1).get(0);
+		this.assertExecutedInSerialization(trace, "record_thread_op");
+	}
+
+	public void testH2RequestTraceRequestBoxStreamedResult() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestTraceRequestBoxStreamedResult");
+		TestUtils.checkForService(this.epr);
+		String tag = "trace-box-" + System.nanoTime();
+		OMElement result = this.callRequestBox(this.createRequest("record_thread_op", tag + "-1"),
+				this.createRequest("record_thread_op", tag + "-2"));
+		assertNotNull(TestUtils.getFirstValue(result, "/DATA_SERVICE_RESPONSE/Threads/Thread/threadName",
+				TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		RequestTrace trace = this.waitForTraces("request_box", 1).get(0);
+		/* the last request is executed while the request box result is written */
+		this.assertExecutedInSerialization(trace, "record_thread_op");
+		/* the spans of the other requests are recorded in the request box trace as well */
+		int executeCount = 0;
+		for (RequestTrace.Span span : trace.getSpans()) {
+			if (RequestTrace.PHASE_EXECUTE.equals(span.getPhase())) {
+				executeCount++;
+			}
+		}
+		assertEquals(trace.toJSON(), 2, executeCount);
+	}
+
+	public void testH2RequestTraceSampling() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2RequestTraceSampling");
+		TestUtils.checkForService(this.epr);
+		RequestTrace.setSampleRate(0);
+		this.callRecordThread("trace-unsampled-" + System.nanoTime());
+		RequestTrace.setSampleRate(1.0);
+		this.callRecordThread("trace-sampled-1-" + System.nanoTime());
+		this.callRecordThread("trace-sampled-2-" + System.nanoTime());
+		/* only the sampled requests are traced, and the recent traces are returned latest first */
+		List<RequestTrace> traces = this.waitForTraces("record_thread_op", 2);
+		assertTrue(traces.get(0).getStartTime() >= traces.get(1).getStartTime());
+		Thread.sleep(500);
+		assertEquals(2, this.getTraces("record_thread_op").size());
+		RequestTrace.clearRecentTraces();
+		assertEquals(0, this.getTraces("record_thread_op").size());
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.AxisOperation;
+import org.apache.axis2.description.AxisService;
+import org.apache.axis2.transport.http.HTTPConstants;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.description.resource.Resource;
+import org.wso2.carbon.dataservices.core.description.resource.Resource.ResourceID;
+import org.wso2.carbon.dataservices.core.dispatch.DataServiceResourceDispatcher;
+import org.wso2.carbon.dataservices.core.dispatch.ResourceDispatchTrie;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.test.util.UtilServer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Tests that the REST requests of a data service are dispatched to the same resources by its
+ * resource trie, as by scanning the regular expressions of the resource templates in the order
+ * of the HTTP location table.
+ */
+public class H2ResourceDispatchTest extends DataServiceBaseTestCase {
+
+	private static final String SERVICE_NAME = "H2ResourceDispatchService";
+
+	private String epr;
+
+	public H2ResourceDispatchTest(String testName) {
+		super(testName);
+		this.epr = this.baseEpr + SERVICE_NAME;
+	}
+
+	private AxisService getAxisService() throws Exception {
+		TestUtils.checkForService(this.epr);
+		AxisService axisService = UtilServer.getConfigurationContext().getAxisConfiguration().getService(
+				SERVICE_NAME);
+		assertNotNull(axisService);
+		return axisService;
+	}
+
+	private AxisOperation dispatch(AxisService axisService, String method, String address) throws Exception {
+		MessageContext messageContext = new MessageContext();
+		messageContext.setDoingREST(true);
+		messageContext.setProperty(HTTPConstants.HTTP_METHOD, method);
+		messageContext.setTo(new EndpointReference(address));
+		return new DataServiceResourceDispatcher().findOperation(axisService, messageContext);
+	}
+
+	private void assertDispatched(AxisService axisService, String method, String path, String template)
+			throws Exception {
+		String expected = Resource.generateRequestName(template, method);
+		AxisOperation axisOperation = this.dispatch(axisService, method, this.epr + "/" + path);
+		assertNotNull(method + " " + path, axisOperation);
+		assertEquals(expected, axisOperation.getName().getLocalPart());
+		/* with the endpoint name and a query string */
+		axisOperation = this.dispatch(axisService, method, this.epr + ".HTTPEndpoint/" + path + "?detail=true");
+		assertNotNull(method + " " + path, axisOperation);
+		assertEquals(expected, axisOperation.getName().getLocalPart());
+	}
+
+	public void testH2ResourceDispatchOfDeployedService() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2ResourceDispatchOfDeployedService");
+		AxisService axisService = this.getAxisService();
+		assertNotNull(axisService.getParameter(DataServiceResourceDispatcher.RESOURCE_TRIE_PARAMETER));
+		this.assertDispatched(axisService, "GET", "customers", "customers");
+		this.assertDispatched(axisService, "GET", "customers/103", "customers/{customerNumber}");
+		this.assertDispatched(axisService, "DELETE", "customers/103", "customers/{customerNumber}");
+		/* the literal segment is preferred to the template variable */
+		this.assertDispatched(axisService, "GET", "customers/count", "customers/count");
+		this.assertDispatched(axisService, "DELETE", "customers/count", "customers/{customerNumber}");
+		this.assertDispatched(axisService, "GET", "customers/103/payments", "customers/{customerNumber}/payments");
+		this.assertDispatched(axisService, "GET", "payments/HQ336336.xml", "payments/{checkNumber}.xml");
+		AxisOperation axisOperation = this.dispatch(axisService, "POST", this.epr + "/select_customers_op");
+		assertNotNull(axisOperation);
+		assertEquals("select_customers_op", axisOperation.getName().getLocalPart());
+		/* the requests which are left to the Axis2 dispatchers */
+		assertNull(this.dispatch(axisService, "PUT", this.epr + "/customers/103"));
+		assertNull(this.dispatch(axisService, "GET", this.epr + "/customers/103/orders"));
+		assertNull(this.dispatch(axisService, "GET", this.epr + "/payments/HQ336336.json"));
+		assertNull(this.dispatch(axisService, "GET", this.baseEpr + "OtherService/customers"));
+	}
+
+	/**
+	 * Creates the regular expression of a template, where the template variables match a path
+	 * segment, prefixed with the HTTP method.
+	 */
+	private static Pattern createPattern(String method, String template) {
+		StringBuilder regex = new StringBuilder(Pattern.quote(method));
+		int index = 0;
+		while (index < template.length()) {
+			int varStart = template.indexOf('{', index);
+			if (varStart == -1) {
+				regex.append(Pattern.quote(template.substring(index)));
+				break;
+			}
+			regex.append(Pattern.quote(template.substring(index, varStart)));
+			regex.append("[^/]+");
+			index = template.indexOf('}', varStart) + 1;
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	public void testH2ResourceDispatchMatchesRegexTable() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2ResourceDispatchMatchesRegexTable");
+		DataService dataService = (DataService) this.getAxisService().getParameter(
+				DBConstants.DATA_SERVICE_OBJECT).getValue();
+		ResourceDispatchTrie<String> trie = new ResourceDispatchTrie<String>();
+		/* in the reverse order of the HTTP location table */
+		Map<Pattern, String> regexTable = new TreeMap<Pattern, String>(new Comparator<Pattern>() {
+			@Override
+			public int compare(Pattern o1, Pattern o2) {
+				return -1 * o1.pattern().compareTo(o2.pattern());
+			}
+		});
+		List<ResourceID> resourceIds = new ArrayList<ResourceID>(dataService.getResourceIds());
+		for (ResourceID resourceId : resourceIds) {
+			String value = resourceId.getMethod() + " " + resourceId.getPath();
+			assertTrue(trie.add(resourceId.getMethod(), resourceId.getPath(), value));
+			regexTable.put(createPattern(resourceId.getMethod(), resourceId.getPath()), value);
+		}
+		assertEquals(resourceIds.size(), trie.size());
+		String[] methods = { "GET", "POST", "PUT", "DELETE" };
+		String[] values = { "103", "112", "count", "payments", "HQ336336", "HQ336336.xml", "x.json" };
+		Random random = new Random(0);
+		for (int i = 0; i < 1000; i++) {
+			String method = methods[random.nextInt(methods.length)];
+			String path;
+			if (i % 2 == 0) {
+				/* a request for a template, with random values for its variables */
+				ResourceID resourceId = resourceIds.get(random.nextInt(resourceIds.size()));
+				path = resourceId.getPath().replaceAll("\\{[^}]*\\}", values[random.nextInt(values.length)]);
+			} else {
+				/* a request of random segments, which may not match any template */
+				StringBuilder builder = new StringBuilder(random.nextBoolean() ? "customers" : "payments");
+				int segments = random.nextInt(3);
+				for (int j = 0; j < segments; j++) {
+					builder.append('/').append(values[random.nextInt(values.length)]);
+				}
+				path = builder.toString();
+			}
+			String expected = null;
+			for (Map.Entry<Pattern, String> entry : regexTable.entrySet()) {
+				if (entry.getKey().matcher(method + path).matches()) {
+					expected = entry.getValue();
+					break;
+				}
+			}
+			assertEquals(method + " " + path, expected, trie.match(method, path));
+		}
+	}
+
+}
@@ -31,6 +31,23 @@ public class H2TestSuite extends TestCase {
 		suite.addTestSuite(H2InputMappingServiceTest.class);
 		suite.addTestSuite(H2NestedQueryTest.class);
 		suite.addTestSuite(H2StoredProcedureServiceTest.class);
+		suite.addTestSuite(H2TypedValueServiceTest.class);
+		suite.addTestSuite(H2BinaryDataServiceTest.class);
+		suite.addTestSuite(H2RequestBoxServiceTest.class);
+		suite.addTestSuite(H2ResourceDispatchTest.class);
+		suite.addTestSuite(H2ConfigReuseTest.class);
+		suite.addTestSuite(H2ConfigInitTest.class);
+		suite.addTestSuite(H2DeployerBuildTest.class);
+		suite.addTestSuite(H2WarmupTest.class);
+		suite.addTestSuite(H2QueryStatisticsTest.class);
+		suite.addTestSuite(H2RequestTraceTest.class);
+		suite.addTestSuite(H2ODataFilterTest.class);
+		suite.addTestSuite(H2ODataPagingTest.class);
+		suite.addTestSuite(H2ODataCountTest.class);
+		suite.addTestSuite(H2ODataSelectTest.class);
+		suite.addTestSuite(H2ODataExpandTest.class);
+		suite.addTestSuite(H2ODataCursorTest.class);
+		suite.addTestSuite(H2ODataMetadataRefreshTest.class);
 		//suite.addTestSuite(H2ResourceServiceTest.class);
 		suite.addTestSuite(H2FinalizeTest.class);
 		//$JUnit-END$
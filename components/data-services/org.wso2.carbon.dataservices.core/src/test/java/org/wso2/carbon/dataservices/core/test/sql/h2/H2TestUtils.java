@@ -18,9 +18,14 @@ package org.wso2.carbon.dataservices.core.test.sql.h2;
 import org.h2.tools.SimpleResultSet;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class H2TestUtils {
 
+	/* the names of the threads the recordThread function was called in, by tag */
+	private static final Map<String, String> recordedThreads = new ConcurrentHashMap<String, String>();
+
 	public static ResultSet getCustomerInfo(Connection conn)
 			throws SQLException {
 		Statement stmt = conn.createStatement();
@@ -106,4 +111,17 @@ public class H2TestUtils {
         stmt.executeUpdate();
 
     }
+
+	/**
+	 * Records the name of the thread a query calling this function is executed in.
+	 */
+	public static String recordThread(String tag) {
+		String threadName = Thread.currentThread().getName();
+		recordedThreads.put(tag, threadName);
+		return threadName;
+	}
+
+	public static String getRecordedThread(String tag) {
+		return recordedThreads.get(tag);
+	}
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.databinding.utils.ConverterUtil;
+import org.wso2.carbon.dataservices.core.engine.ValueFormatter;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that the typed input parameters are bound with their SQL types, and that the typed
+ * result values are written in the same format as the Axis2 conversions.
+ */
+public class H2TypedValueServiceTest extends DataServiceBaseTestCase {
+
+	private String epr;
+
+	public H2TypedValueServiceTest(String testName) {
+		super(testName);
+		this.epr = this.baseEpr + "H2TypedValueService";
+	}
+
+	private static String formatTimestamp(long millis) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTimeInMillis(millis);
+		return ConverterUtil.convertToString(cal);
+	}
+
+	private static String formatDate(long millis) {
+		return ConverterUtil.convertToString(new java.sql.Date(millis));
+	}
+
+	private static String formatTime(long millis) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTimeInMillis(millis);
+		return new org.apache.axis2.databinding.types.Time(cal).toString();
+	}
+
+	private String getValue(OMElement result, String name) throws Exception {
+		return TestUtils.getFirstValue(result, "/Values/Value/" + name, TestUtils.DEFAULT_DS_WS_NAMESPACE);
+	}
+
+	private Map<String, String> createEchoParams() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("intValue", "-42");
+		params.put("longValue", "9007199254740993");
+		params.put("doubleValue", "6066.78");
+		params.put("booleanValue", "true");
+		params.put("dateValue", "2004-10-19");
+		params.put("timeValue", "08:15:30");
+		params.put("timestampValue", "2016-06-15T14:30:05.250+05:30");
+		return params;
+	}
+
+	public void testH2TypedValueEcho() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2TypedValueEcho");
+		TestUtils.checkForService(this.epr);
+		Map<String, String> params = this.createEchoParams();
+		OMElement result = TestUtils.callOperation(this.epr, "echo_typed_values_op", params);
+		assertEquals("-42", this.getValue(result, "intValue"));
+		assertEquals("9007199254740993", this.getValue(result, "longValue"));
+		assertEquals(ConverterUtil.convertToString(6066.78), this.getValue(result, "doubleValue"));
+		assertEquals("true", this.getValue(result, "booleanValue"));
+		assertEquals(formatDate(java.sql.Date.valueOf("2004-10-19").getTime()),
+				this.getValue(result, "dateValue"));
+		assertEquals(formatTime(ConverterUtil.convertToTime("08:15:30").getAsCalendar().getTimeInMillis()),
+				this.getValue(result, "timeValue"));
+		assertEquals(formatTimestamp(ConverterUtil.convertToDateTime(
+				"2016-06-15T14:30:05.250+05:30").getTimeInMillis()), this.getValue(result, "timestampValue"));
+	}
+
+	public void testH2TypedValueInvalidInput() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2TypedValueInvalidInput");
+		TestUtils.checkForService(this.epr);
+		Map<String, String> params = this.createEchoParams();
+		params.put("intValue", "forty-two");
+		try {
+			TestUtils.callOperation(this.epr, "echo_typed_values_op", params);
+			fail("The invalid INTEGER value is accepted");
+		} catch (AxisFault e) {
+			/* expected */
+		}
+	}
+
+	public void testH2TypedValueNestedQuery() throws Exception {
+		TestUtils.showMessage(this.epr + " - testH2TypedValueNestedQuery");
+		TestUtils.checkForService(this.epr);
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("customerNumber", "103");
+		params.put("minAmount", "1000.5");
+		params.put("fromDate", "2004-01-01");
+		OMElement result = TestUtils.callOperation(this.epr, "select_payments_op", params);
+		List<String> checkNumbers = new ArrayList<String>();
+		List<String> customerNames = new ArrayList<String>();
+		Iterator<?> payments = result.getChildrenWithLocalName("Payment");
+		while (payments.hasNext()) {
+			OMElement payment = (OMElement) payments.next();
+			checkNumbers.add(payment.getFirstChildWithName(new QName(
+					TestUtils.DEFAULT_DS_WS_NAMESPACE, "checkNumber")).getText());
+			customerNames.add(TestUtils.getFirstValue(payment, "Customers/Customer/customerName",
+					TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		}
+		List<String> expectedCheckNumbers = new ArrayList<String>();
+		expectedCheckNumbers.add("HQ336336");
+		expectedCheckNumbers.add("OM314933");
+		assertEquals(expectedCheckNumbers, checkNumbers);
+		for (String customerName : customerNames) {
+			assertEquals("Atelier graphique", customerName);
+		}
+		assertEquals(formatDate(java.sql.Date.valueOf("2004-10-19").getTime()),
+				TestUtils.getFirstValue(result, "/Payments/Payment/paymentDate", TestUtils.DEFAULT_DS_WS_NAMESPACE));
+		assertEquals(ConverterUtil.convertToString(6066.78),
+				TestUtils.getFirstValue(result, "/Payments/Payment/amount", TestUtils.DEFAULT_DS_WS_NAMESPACE));
+	}
+
+	public void testH2TypedValueFormatsMatchAxis2() throws Exception {
+		long[] values = { 0L, -1L, 1L, 999L, -86400001L, 1466000405250L, 1466000405007L, 253402300799999L,
+				-62135596800000L, ConverterUtil.convertToDateTime("2016-03-27T02:30:00Z").getTimeInMillis(),
+				ConverterUtil.convertToDateTime("2016-10-30T01:30:00Z").getTimeInMillis() };
+		for (long millis : values) {
+			assertEquals("timestamp " + millis, formatTimestamp(millis), ValueFormatter.formatTimestamp(millis));
+			assertEquals("date " + millis, formatDate(millis), ValueFormatter.formatDate(millis));
+			assertEquals("time " + millis, formatTime(millis), ValueFormatter.formatTime(millis));
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.sql.h2;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.deployment.repository.util.DeploymentFileData;
+import org.apache.axis2.description.AxisService;
+import org.apache.commons.io.FileUtils;
+import org.wso2.carbon.dataservices.common.DBConstants;
+import org.wso2.carbon.dataservices.core.DBDeployer;
+import org.wso2.carbon.dataservices.core.JDBCPoolSQLConfig;
+import org.wso2.carbon.dataservices.core.engine.DataService;
+import org.wso2.carbon.dataservices.core.engine.ParamValue;
+import org.wso2.carbon.dataservices.core.test.DataServiceBaseTestCase;
+import org.wso2.carbon.dataservices.core.test.util.TestUtils;
+import org.wso2.carbon.dataservices.core.test.util.UtilServer;
+import org.wso2.carbon.dataservices.core.tools.DSTools;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the warm-up of a data service when it is deployed, which only invokes the read-only
+ * warm-up operations, acquires as many connections as the pools keep idle, and does not fail
+ * the deployment when it fails.
+ */
+public class H2WarmupTest extends DataServiceBaseTestCase {
+
+	private static final String DBS_PATH = "./src/test/resources/test-dbs/H2WarmupService.dbs";
+
+	private static final String SERVICE_NAME = "H2WarmupService";
+
+	private ConfigurationContext configCtx;
+
+	private DBDeployer deployer;
+
+	private File serviceDir;
+
+	private File serviceFile;
+
+	public H2WarmupTest(String testName) {
+		super(testName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.startTenantFlow();
+		String repoDir = "dataservices-" + this.getName();
+		this.serviceDir = new File(this.repository, repoDir);
+		FileUtils.deleteDirectory(this.serviceDir);
+		this.serviceFile = new File(this.serviceDir, SERVICE_NAME + ".dbs");
+		FileUtils.copyFile(new File(DBS_PATH), this.serviceFile);
+		this.configCtx = UtilServer.getConfigurationContext();
+		this.deployer = new DBDeployer();
+		this.deployer.setDirectory(repoDir);
+		this.deployer.setExtension("dbs");
+		this.deployer.init(this.configCtx);
+		/* the data service is warmed up in the deploying thread */
+		this.deployer.deploy(new DeploymentFileData(this.serviceFile, this.deployer));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try {
+			String path = this.serviceFile.getAbsolutePath();
+			FileUtils.deleteDirectory(this.serviceDir);
+			this.deployer.undeploy(path);
+		} finally {
+			this.endTenantFlow();
+			super.tearDown();
+		}
+	}
+
+	private DataService getDataService() {
+		AxisService axisService = this.configCtx.getAxisConfiguration().getService(SERVICE_NAME);
+		assertNotNull(axisService);
+		return (DataService) axisService.getParameter(DBConstants.DATA_SERVICE_OBJECT).getValue();
+	}
+
+	private JDBCPoolSQLConfig getConfig(String configId) {
+		JDBCPoolSQLConfig config = (JDBCPoolSQLConfig) this.getDataService().getConfig(configId);
+		assertNotNull(config);
+		return config;
+	}
+
+	public void testH2WarmupInvokesReadOnlyOperations() throws Exception {
+		TestUtils.showMessage("testH2WarmupInvokesReadOnlyOperations");
+		assertEquals(Thread.currentThread().getName(), H2TestUtils.getRecordedThread("warmup-read"));
+		/* an operation whose query, or one of its nested queries, is not read-only is not invoked */
+		assertNull(H2TestUtils.getRecordedThread("warmup-write"));
+		assertNull(H2TestUtils.getRecordedThread("warmup-nested"));
+	}
+
+	public void testH2WarmupConnectionCount() throws Exception {
+		TestUtils.showMessage("testH2WarmupConnectionCount");
+		/* min(max(minIdle = 3, initialSize = 1), maxActive = 5) connections are acquired */
+		org.apache.tomcat.jdbc.pool.DataSource dataSource = this.getConfig("default").getDataSource();
+		assertEquals(3, dataSource.getSize());
+		assertEquals(3, dataSource.getIdle());
+		assertEquals(0, dataSource.getActive());
+		/* min(max(minIdle = 4, initialSize = 1), maxActive = 2) connections are acquired, a third
+		 * connection would fail the warm-up after waiting for maxWait */
+		JDBCPoolSQLConfig boundedConfig = this.getConfig("bounded");
+		assertEquals(2, boundedConfig.getDataSource().getSize());
+		boundedConfig.warmUp();
+		assertEquals(2, boundedConfig.getDataSource().getSize());
+		assertEquals(0, boundedConfig.getDataSource().getActive());
+	}
+
+	public void testH2WarmupFailureDoesNotFailDeployment() throws Exception {
+		TestUtils.showMessage("testH2WarmupFailureDoesNotFailDeployment");
+		/* the failing warm-up operation is logged, and the data service is deployed */
+		assertFalse(this.configCtx.getAxisConfiguration().getFaultyServices().containsKey(
+				this.serviceFile.getAbsolutePath()));
+		DataService dataService = this.getDataService();
+		Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+		params.put("tag", new ParamValue("warmup-deployed"));
+		DSTools.invokeOperation(dataService, "record_thread_op", params);
+		assertEquals(Thread.currentThread().getName(),
+				H2TestUtils.getRecordedThread("warmup-deployed"));
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.stats;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.dataservices.core.description.query.SQLDataServicesConnection;
+import org.wso2.carbon.dataservices.core.stats.ConnectionPoolStatistics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Tests the connection pool statistics, and the leases recorded by the data services connections.
+ */
+public class ConnectionPoolStatisticsTest extends TestCase {
+
+	public ConnectionPoolStatisticsTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Creates a JDBC connection which is only closed.
+	 */
+	private Connection createConnection() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new InvocationHandler() {
+					private boolean closed;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ("isClosed".equals(method.getName())) {
+							return this.closed;
+						} else if ("close".equals(method.getName())) {
+							this.closed = true;
+						}
+						return null;
+					}
+				});
+	}
+
+	public void testConnectionPoolStatisticsAcquisitions() {
+		ConnectionPoolStatistics stats = new ConnectionPoolStatistics("default");
+		stats.recordAcquisition(2000000);
+		stats.recordAcquisition(4000000);
+		stats.recordAcquisitionFailure(30000000, true);
+		stats.recordAcquisitionFailure(1000000, false);
+		assertEquals("default", stats.getConfigId());
+		assertEquals(2, stats.getAcquisitionCount());
+		assertEquals(2, stats.getAcquisitionErrorCount());
+		assertEquals(1, stats.getPoolExhaustedCount());
+		/* the wait times of the failed acquisitions are also recorded, in microseconds */
+		assertEquals(4, stats.getWaitTime().getCount());
+		assertTrue(stats.getWaitTime().getSnapshot().getMax() >= 30000);
+		stats.reset();
+		assertEquals(0, stats.getAcquisitionCount());
+		assertEquals(0, stats.getAcquisitionErrorCount());
+		assertEquals(0, stats.getPoolExhaustedCount());
+		assertEquals(0, stats.getWaitTime().getCount());
+	}
+
+	public void testConnectionPoolStatisticsLeases() throws Exception {
+		ConnectionPoolStatistics stats = new ConnectionPoolStatistics("default");
+		long startTime1 = stats.startLease();
+		long startTime2 = stats.startLease();
+		long startTime3 = stats.startLease();
+		assertEquals(3, stats.getActiveLeaseCount());
+		Thread.sleep(20);
+		stats.endLease("short_op", startTime1);
+		Thread.sleep(20);
+		stats.endLease("long_op", startTime2);
+		stats.endLease(null, startTime3);
+		assertEquals(0, stats.getActiveLeaseCount());
+		assertEquals(3, stats.getLeaseTime().getCount());
+		List<ConnectionPoolStatistics.LeaseHolder> holders = stats.getTopLeaseHolders(2);
+		assertEquals(2, holders.size());
+		assertEquals("long_op", holders.get(0).getOperationName());
+		assertEquals(1, holders.get(0).getLeaseCount());
+		assertTrue(holders.get(0).getMaxLeaseTime() >= 40000);
+		assertTrue(holders.get(0).getTotalLeaseTime() >= holders.get(1).getTotalLeaseTime());
+		/* the leases without an operation are kept with an empty name */
+		assertEquals(3, stats.getTopLeaseHolders(10).size());
+		assertTrue(stats.toString().contains("long_op"));
+	}
+
+	public void testConnectionPoolStatisticsConnectionLease() throws Exception {
+		ConnectionPoolStatistics stats = new ConnectionPoolStatistics("default");
+		SQLDataServicesConnection conn = new SQLDataServicesConnection(this.createConnection(),
+				stats, "select_op");
+		assertEquals(1, stats.getActiveLeaseCount());
+		conn.close();
+		assertTrue(conn.getJDBCConnection().isClosed());
+		assertEquals(0, stats.getActiveLeaseCount());
+		assertEquals(1, stats.getLeaseTime().getCount());
+		/* a lease is only ended once */
+		conn.close();
+		assertEquals(0, stats.getActiveLeaseCount());
+		assertEquals(1, stats.getLeaseTime().getCount());
+		List<ConnectionPoolStatistics.LeaseHolder> holders = stats.getTopLeaseHolders(1);
+		assertEquals("select_op", holders.get(0).getOperationName());
+		assertEquals(1, holders.get(0).getLeaseCount());
+	}
+
+	public void testConnectionPoolStatisticsConnectionWithoutStatistics() throws Exception {
+		SQLDataServicesConnection conn = new SQLDataServicesConnection(this.createConnection(),
+				null, "select_op");
+		conn.close();
+		assertTrue(conn.getJDBCConnection().isClosed());
+	}
+
+	public void testConnectionPoolStatisticsLogSummary() {
+		ConnectionPoolStatistics stats = new ConnectionPoolStatistics("default");
+		/* the summary is only logged if connections are acquired, which must not fail */
+		stats.logSummary();
+		stats.recordAcquisition(1000);
+		stats.logSummary();
+		stats.logSummary();
+		assertEquals(1, stats.getAcquisitionCount());
+	}
+
+}
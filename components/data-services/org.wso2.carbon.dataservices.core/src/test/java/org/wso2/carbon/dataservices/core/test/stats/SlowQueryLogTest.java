@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.stats;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.dataservices.core.stats.SlowQueryLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the slow query log, the sampling of the execution plan captures, and that the captures
+ * are dropped when too many are pending.
+ */
+public class SlowQueryLogTest extends TestCase {
+
+	public SlowQueryLogTest(String testName) {
+		super(testName);
+	}
+
+	public void testSlowQueryLogDisabledByDefault() {
+		assertFalse(SlowQueryLog.isEnabled());
+		assertFalse(SlowQueryLog.isSlow(Long.MAX_VALUE));
+	}
+
+	public void testSlowQueryLogNumbers() {
+		long number = SlowQueryLog.logSlowQuery("TestService", "test_op", "test_query",
+				"SELECT * FROM Customers WHERE id = ?", null, 10, 1000000, 2000000, false);
+		assertEquals(number + 1, SlowQueryLog.logSlowQuery("TestService", null, "test_query",
+				"SELECT * FROM Customers WHERE id = ?", null, -1, 1000000, 0, true));
+	}
+
+	public void testSlowQueryLogNormalizeSql() {
+		assertNull(SlowQueryLog.normalizeSql(null));
+		assertEquals("SELECT * FROM Customers WHERE name = ? AND id > ?",
+				SlowQueryLog.normalizeSql("  SELECT *\n\tFROM Customers   WHERE name = 'O''Brien' AND id > 10.5"));
+		/* the digits of identifiers are kept */
+		assertEquals("SELECT col1 FROM table_2 WHERE x = ?",
+				SlowQueryLog.normalizeSql("SELECT col1 FROM table_2 WHERE x = 42"));
+		assertEquals("SELECT ? FROM Customers WHERE id = ?",
+				SlowQueryLog.normalizeSql("SELECT 'a' FROM Customers WHERE id = ?"));
+	}
+
+	public void testSlowQueryLogExplainNotSampled() {
+		AtomicLong lastExplainTime = new AtomicLong();
+		for (int i = 0; i < 100; i++) {
+			assertFalse(SlowQueryLog.isExplainSampled(lastExplainTime, 0));
+		}
+		assertEquals(0, lastExplainTime.get());
+		/* the sample rate is 0 by default */
+		assertFalse(SlowQueryLog.isExplainSampled(lastExplainTime));
+	}
+
+	public void testSlowQueryLogExplainSampledOncePerInterval() {
+		AtomicLong lastExplainTime = new AtomicLong();
+		assertTrue(SlowQueryLog.isExplainSampled(lastExplainTime, 1));
+		assertTrue(lastExplainTime.get() != 0);
+		/* the plan of the same query is not captured again within a minute */
+		for (int i = 0; i < 100; i++) {
+			assertFalse(SlowQueryLog.isExplainSampled(lastExplainTime, 1));
+		}
+		/* the interval is kept for each query */
+		assertTrue(SlowQueryLog.isExplainSampled(new AtomicLong(), 1));
+		lastExplainTime.set(System.nanoTime() - 61 * 1000000000L);
+		assertTrue(SlowQueryLog.isExplainSampled(lastExplainTime, 1));
+	}
+
+	public void testSlowQueryLogExplainSampledOnceConcurrently() throws Exception {
+		final AtomicLong lastExplainTime = new AtomicLong();
+		final AtomicInteger sampledCount = new AtomicInteger();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < 100; j++) {
+						if (SlowQueryLog.isExplainSampled(lastExplainTime, 1)) {
+							sampledCount.incrementAndGet();
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		startLatch.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1, sampledCount.get());
+	}
+
+	public void testSlowQueryLogExplainSampleRate() {
+		int sampledCount = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (SlowQueryLog.isExplainSampled(new AtomicLong(), 0.5)) {
+				sampledCount++;
+			}
+		}
+		assertTrue("Sampled: " + sampledCount, sampledCount > 4000 && sampledCount < 6000);
+	}
+
+	public void testSlowQueryLogExplainCaptureDropped() throws Exception {
+		final CountDownLatch runningLatch = new CountDownLatch(1);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		final AtomicInteger runCount = new AtomicInteger();
+		final List<String> threadNames = new ArrayList<String>();
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				synchronized (threadNames) {
+					threadNames.add(Thread.currentThread().getName());
+				}
+				runningLatch.countDown();
+				try {
+					releaseLatch.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				runCount.incrementAndGet();
+			}
+		};
+		long droppedCount = SlowQueryLog.getDroppedExplainCount();
+		try {
+			assertTrue(SlowQueryLog.captureExplainPlan(task));
+			assertTrue(runningLatch.await(10, TimeUnit.SECONDS));
+			int accepted = 1;
+			boolean dropped = false;
+			for (int i = 0; i < 100 && !dropped; i++) {
+				if (SlowQueryLog.captureExplainPlan(task)) {
+					accepted++;
+				} else {
+					dropped = true;
+				}
+			}
+			/* the captures are queued while one is running, up to the queue size */
+			assertTrue(dropped);
+			assertTrue(accepted > 1);
+			assertEquals(droppedCount + 1, SlowQueryLog.getDroppedExplainCount());
+			releaseLatch.countDown();
+			long end = System.currentTimeMillis() + 10000;
+			while (runCount.get() < accepted && System.currentTimeMillis() < end) {
+				Thread.sleep(50);
+			}
+			assertEquals(accepted, runCount.get());
+			synchronized (threadNames) {
+				for (String threadName : threadNames) {
+					assertTrue(threadName, threadName.startsWith("DSS-SlowQuery-Explain-"));
+				}
+			}
+		} finally {
+			releaseLatch.countDown();
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.util;
+
+import org.apache.axis2.context.MessageContext;
+import org.wso2.carbon.dataservices.core.DataServiceFault;
+import org.wso2.carbon.dataservices.core.auth.AuthorizationProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorization provider which records the threads the data services using it are built in,
+ * by the "tag" property. If the "failFirstBuild" property is true, the first build with the tag
+ * fails.
+ */
+public class BuildRecordingAuthorizationProvider implements AuthorizationProvider {
+
+	private static final Map<String, List<String>> buildThreads =
+			new ConcurrentHashMap<String, List<String>>();
+
+	/**
+	 * Returns the names of the threads the data services with the given tag are built in, in
+	 * the order they are built.
+	 */
+	public static List<String> getBuildThreads(String tag) {
+		List<String> threads = buildThreads.get(tag);
+		if (threads == null) {
+			return new ArrayList<String>();
+		}
+		synchronized (threads) {
+			return new ArrayList<String>(threads);
+		}
+	}
+
+	@Override
+	public void init(Map<String, String> authorizationProps) throws DataServiceFault {
+		String tag = authorizationProps.get("tag");
+		List<String> threads;
+		synchronized (buildThreads) {
+			threads = buildThreads.get(tag);
+			if (threads == null) {
+				threads = new ArrayList<String>();
+				buildThreads.put(tag, threads);
+			}
+		}
+		boolean firstBuild;
+		synchronized (threads) {
+			firstBuild = threads.isEmpty();
+			threads.add(Thread.currentThread().getName());
+		}
+		if (firstBuild && Boolean.parseBoolean(authorizationProps.get("failFirstBuild"))) {
+			throw new DataServiceFault(UtilServer.FAILURE_MESSAGE);
+		}
+	}
+
+	@Override
+	public String[] getUserRoles(MessageContext msgContext) throws DataServiceFault {
+		return new String[0];
+	}
+
+	@Override
+	public String[] getAllRoles() throws DataServiceFault {
+		return new String[0];
+	}
+
+	@Override
+	public String getUsername(MessageContext msgContext) throws DataServiceFault {
+		return null;
+	}
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.carbon.dataservices.core.odata.ODataServiceHandler;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends OData requests to an OData service handler in process, without a servlet container, and returns the
+ * responses. The requests are sent to the service root SERVICE_ROOT.
+ */
+public class ODataTestClient {
+
+	public static final String SERVICE_ROOT_PATH = "/ODataTestService/default";
+
+	private static final String SERVER_URL = "http://localhost:5555";
+
+	private static final String SERVLET_PATH = "/odata";
+
+	public static final String SERVICE_ROOT = SERVER_URL + SERVLET_PATH + SERVICE_ROOT_PATH;
+
+	private final ODataServiceHandler handler;
+
+	public ODataTestClient(ODataServiceHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Reads a resource of the service.
+	 *
+	 * @param path  Resource path, relative to the service root, e.g. "CUSTOMER"
+	 * @param query Query options, where the spaces are encoded, null if there are none
+	 * @return Response
+	 */
+	public Response get(String path, String query) {
+		return this.get(path, query, Collections.<String, String>emptyMap());
+	}
+
+	/**
+	 * Reads a resource of the service, with the given request headers.
+	 *
+	 * @param path    Resource path, relative to the service root, e.g. "CUSTOMER"
+	 * @param query   Query options, where the spaces are encoded, null if there are none
+	 * @param headers Request headers
+	 * @return Response
+	 */
+	public Response get(String path, String query, Map<String, String> headers) {
+		Map<String, String> requestHeaders = new LinkedHashMap<String, String>();
+		requestHeaders.put("Accept", "application/json");
+		requestHeaders.putAll(headers);
+		Response response = new Response();
+		this.handler.process(createRequest("/" + path, query == null ? null : query.replace(" ", "%20"),
+				requestHeaders), createResponse(response), SERVICE_ROOT_PATH);
+		return response;
+	}
+
+	/**
+	 * Reads the resource of a link returned by the service, such as a next link.
+	 *
+	 * @param link    Absolute URL under the service root
+	 * @param headers Request headers
+	 * @return Response
+	 */
+	public Response follow(String link, Map<String, String> headers) {
+		if (!link.startsWith(SERVICE_ROOT + "/")) {
+			throw new IllegalArgumentException("The link is not under the service root: " + link);
+		}
+		String resource = link.substring(SERVICE_ROOT.length() + 1);
+		int queryIndex = resource.indexOf('?');
+		if (queryIndex < 0) {
+			return this.get(resource, null, headers);
+		}
+		return this.get(resource.substring(0, queryIndex), resource.substring(queryIndex + 1), headers);
+	}
+
+	private static HttpServletRequest createRequest(final String path, final String query,
+			final Map<String, String> headers) {
+		return (HttpServletRequest) Proxy.newProxyInstance(ODataTestClient.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if ("getMethod".equals(name)) {
+							return "GET";
+						} else if ("getRequestURL".equals(name)) {
+							return new StringBuffer(SERVICE_ROOT + path);
+						} else if ("getRequestURI".equals(name)) {
+							return SERVLET_PATH + SERVICE_ROOT_PATH + path;
+						} else if ("getContextPath".equals(name)) {
+							return "";
+						} else if ("getServletPath".equals(name)) {
+							return SERVLET_PATH;
+						} else if ("getPathInfo".equals(name)) {
+							return SERVICE_ROOT_PATH + path;
+						} else if ("getQueryString".equals(name)) {
+							return query;
+						} else if ("getProtocol".equals(name)) {
+							return "HTTP/1.1";
+						} else if ("getScheme".equals(name)) {
+							return "http";
+						} else if ("getHeader".equals(name)) {
+							return getHeader(headers, (String) args[0]);
+						} else if ("getHeaders".equals(name)) {
+							String value = getHeader(headers, (String) args[0]);
+							return Collections.enumeration(value == null ? Collections.<String>emptyList() :
+									Collections.singletonList(value));
+						} else if ("getHeaderNames".equals(name)) {
+							return Collections.enumeration(headers.keySet());
+						} else if ("getInputStream".equals(name)) {
+							final ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+							return new ServletInputStream() {
+								@Override
+								public int read() throws IOException {
+									return in.read();
+								}
+							};
+						}
+						return getDefaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static HttpServletResponse createResponse(final Response response) {
+		return (HttpServletResponse) Proxy.newProxyInstance(ODataTestClient.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if ("setStatus".equals(name) || "sendError".equals(name)) {
+							response.status = (Integer) args[0];
+						} else if ("setHeader".equals(name) || "addHeader".equals(name)) {
+							response.addHeader((String) args[0], (String) args[1]);
+						} else if ("setContentType".equals(name)) {
+							response.addHeader("Content-Type", (String) args[0]);
+						} else if ("getStatus".equals(name)) {
+							return response.status;
+						} else if ("getOutputStream".equals(name)) {
+							return new ServletOutputStream() {
+								@Override
+								public void write(int b) throws IOException {
+									response.body.write(b);
+								}
+							};
+						} else if ("getWriter".equals(name)) {
+							return new PrintWriter(new OutputStreamWriter(response.body, "UTF-8"), true);
+						} else {
+							return getDefaultValue(method.getReturnType());
+						}
+						return null;
+					}
+				});
+	}
+
+	private static String getHeader(Map<String, String> headers, String name) {
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			if (header.getKey().equalsIgnoreCase(name)) {
+				return header.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (type.isPrimitive() && type != void.class) {
+			throw new UnsupportedOperationException("Unexpected primitive type " + type);
+		}
+		return null;
+	}
+
+	/**
+	 * The response of an OData request.
+	 */
+	public static class Response {
+
+		private int status = HttpServletResponse.SC_OK;
+
+		private final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		private void addHeader(String name, String value) {
+			List<String> values = this.headers.get(name);
+			if (values == null) {
+				values = new ArrayList<String>();
+				this.headers.put(name, values);
+			}
+			values.add(value);
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getHeader(String name) {
+			for (Map.Entry<String, List<String>> header : this.headers.entrySet()) {
+				if (header.getKey().equalsIgnoreCase(name)) {
+					return header.getValue().get(0);
+				}
+			}
+			return null;
+		}
+
+		public String getBody() {
+			try {
+				return this.body.toString("UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public JSONObject getJSON() throws JSONException {
+			return new JSONObject(this.getBody());
+		}
+
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.dataservices.core.test.util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A data source over a JDBC URL, which records the SQL statements executed through its connections and
+ * counts the connections which are not closed yet, so the tests can check the SQL a request is translated to,
+ * and that the resources of a request are released. Reading the rows of a result set can be made to fail, to
+ * test the error paths.
+ */
+public class RecordingDataSource implements DataSource {
+
+	private final String url;
+
+	private final List<String> statements = new ArrayList<String>();
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+
+	private volatile int failAfterRows = -1;
+
+	public RecordingDataSource(String url) {
+		this.url = url;
+	}
+
+	/**
+	 * Returns the SQL statements executed so far, in the order they were prepared.
+	 */
+	public List<String> getStatements() {
+		synchronized (this.statements) {
+			return new ArrayList<String>(this.statements);
+		}
+	}
+
+	/**
+	 * Returns the SQL statements executed so far which contain the given text, ignoring the case.
+	 */
+	public List<String> getStatements(String text) {
+		List<String> result = new ArrayList<String>();
+		for (String sql : this.getStatements()) {
+			if (sql.toUpperCase().contains(text.toUpperCase())) {
+				result.add(sql);
+			}
+		}
+		return result;
+	}
+
+	public void clearStatements() {
+		synchronized (this.statements) {
+			this.statements.clear();
+		}
+	}
+
+	public int getOpenConnectionCount() {
+		return this.openConnections.get();
+	}
+
+	/**
+	 * Makes the result sets fail after the given number of rows are read, -1 to read them normally.
+	 */
+	public void setFailAfterRows(int failAfterRows) {
+		this.failAfterRows = failAfterRows;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(this.url);
+		this.openConnections.incrementAndGet();
+		return (Connection) wrap(Connection.class, connection);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return this.getConnection();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		throw new SQLException("Not a wrapper of " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return false;
+	}
+
+	private void record(String sql) {
+		synchronized (this.statements) {
+			this.statements.add(sql);
+		}
+	}
+
+	private Object wrap(Class<?> type, final Object target) {
+		return Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					private boolean closed;
+
+					private int rows;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (target instanceof ResultSet && "next".equals(name) && failAfterRows >= 0 &&
+								rows++ >= failAfterRows) {
+							throw new SQLException("Reading the row failed.");
+						}
+						if (target instanceof Statement && !(target instanceof PreparedStatement) &&
+								name.startsWith("execute") && args != null && args[0] instanceof String) {
+							record((String) args[0]);
+						}
+						if (target instanceof Connection && "prepareStatement".equals(name)) {
+							record((String) args[0]);
+						}
+						if (target instanceof Connection && "close".equals(name) && !this.closed) {
+							this.closed = true;
+							openConnections.decrementAndGet();
+						}
+						Object result;
+						try {
+							result = method.invoke(target, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+						if (result instanceof PreparedStatement) {
+							return wrap(PreparedStatement.class, result);
+						} else if (result instanceof Statement) {
+							return wrap(Statement.class, result);
+						} else if (result instanceof ResultSet) {
+							return wrap(ResultSet.class, result);
+						}
+						return result;
+					}
+				});
+	}
+
+}
@@ -0,0 +1,40 @@
+DROP ALL OBJECTS;
+
+CREATE TABLE CUSTOMER(
+	ID INTEGER PRIMARY KEY,
+	NAME VARCHAR(50),
+	CITY VARCHAR(50),
+	CREDIT DOUBLE
+);
+
+insert into CUSTOMER values (1,'Alice','Colombo',100.0);
+insert into CUSTOMER values (2,'Bob',NULL,250.0);
+insert into CUSTOMER values (3,'Carol','Kandy',NULL);
+insert into CUSTOMER values (4,'Dave','Colombo',50.0);
+insert into CUSTOMER values (5,'Eve',NULL,75.0);
+
+CREATE TABLE PURCHASE(
+	CUSTOMER_ID INTEGER,
+	PURCHASE_NO INTEGER,
+	ITEM VARCHAR(50),
+	PRIMARY KEY (CUSTOMER_ID, PURCHASE_NO),
+	FOREIGN KEY (CUSTOMER_ID) REFERENCES CUSTOMER(ID)
+);
+
+insert into PURCHASE values (1,1,'Pen');
+insert into PURCHASE values (1,2,'Ink');
+insert into PURCHASE values (2,1,'Book');
+insert into PURCHASE values (3,1,'Lamp');
+
+CREATE TABLE DELIVERY(
+	ID INTEGER PRIMARY KEY,
+	CUSTOMER_ID INTEGER,
+	PURCHASE_NO INTEGER,
+	STATUS VARCHAR(20),
+	FOREIGN KEY (CUSTOMER_ID, PURCHASE_NO) REFERENCES PURCHASE(CUSTOMER_ID, PURCHASE_NO)
+);
+
+insert into DELIVERY values (10,1,1,'SENT');
+insert into DELIVERY values (11,1,1,'PENDING');
+insert into DELIVERY values (12,1,2,'SENT');
+insert into DELIVERY values (13,2,1,'SENT');
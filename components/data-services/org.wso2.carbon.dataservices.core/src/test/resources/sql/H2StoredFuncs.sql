@@ -1,3 +1,5 @@
 CREATE ALIAS getAverageCreditLimit FOR "org.wso2.carbon.dataservices.core.test.sql.h2.H2TestUtils.getAverageCreditLimit";
 
 CREATE ALIAS getCustomerPhoneNumber FOR "org.wso2.carbon.dataservices.core.test.sql.h2.H2TestUtils.getCustomerPhoneNumber";
+
+CREATE ALIAS recordThread FOR "org.wso2.carbon.dataservices.core.test.sql.h2.H2TestUtils.recordThread";